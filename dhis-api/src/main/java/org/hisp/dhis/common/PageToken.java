@@ -0,0 +1,82 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.hisp.dhis.common.exception.InvalidPageTokenException;
+
+/**
+ * Opaque token for keyset paging. A token wraps the uid of the last item of a
+ * page, and the next page starts after that uid in uid order. Unlike offset
+ * paging, the database can seek directly to the start of the next page using
+ * the uid index, so deep pages are as fast as the first page.
+ */
+public class PageToken
+{
+    /**
+     * Returns a token for the page after the given uid.
+     * 
+     * @param uid the uid of the last item of the current page.
+     * @return a page token.
+     */
+    public static String encode( String uid )
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( uid.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Returns the uid wrapped by the given page token.
+     * 
+     * @param token the page token.
+     * @return the uid of the last item of the previous page.
+     * @throws InvalidPageTokenException if the token is not valid.
+     */
+    public static String decode( String token )
+    {
+        String uid;
+
+        try
+        {
+            uid = new String( Base64.getUrlDecoder().decode( token ), StandardCharsets.UTF_8 );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            throw new InvalidPageTokenException( "Invalid page token: " + token, ex );
+        }
+
+        if ( !CodeGenerator.isValidCode( uid ) )
+        {
+            throw new InvalidPageTokenException( "Invalid page token: " + token );
+        }
+
+        return uid;
+    }
+}
@@ -50,6 +50,8 @@ public class Pager
 
     private String prevPage;
 
+    private String nextPageToken;
+
     public Pager()
     {
 
@@ -178,4 +180,22 @@ public class Pager
     {
         this.prevPage = prevPage;
     }
+
+    /**
+     * Token for requesting the page after this one with keyset paging, null
+     * if this is the last page.
+     *
+     * @return Next page token
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public String getNextPageToken()
+    {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken( String nextPageToken )
+    {
+        this.nextPageToken = nextPageToken;
+    }
 }
@@ -0,0 +1,93 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Keeps a watermark for each persisted class which changes whenever objects
+ * of the class are saved, updated or deleted. Watermarks are increasing and
+ * are suitable as cheap validators for conditional requests. Watermarks may
+ * also move without changes, for instance when they expire.
+ */
+public interface WatermarkService
+{
+    /**
+     * Returns the watermark of the given class. Changes to any subclass of
+     * the class are included.
+     *
+     * @param clazz the class.
+     * @return the watermark.
+     */
+    long getWatermark( Class<?> clazz );
+
+    /**
+     * Returns the highest watermark of the given classes.
+     *
+     * @param classes the classes.
+     * @return the watermark.
+     */
+    long getWatermark( Collection<Class<?>> classes );
+
+    /**
+     * Indicates whether the current transaction has changed objects of the
+     * given class, or of a subclass, which are not yet reflected in the
+     * watermark. Caches keyed on the watermark do not hold such changes and
+     * should be bypassed within the transaction.
+     *
+     * @param clazz the class.
+     * @return true if there are pending changes.
+     */
+    boolean isUpdatePending( Class<?> clazz );
+
+    /**
+     * Returns the identifiers of the objects of the given class, or of a
+     * subclass, which the current transaction has changed and which are not
+     * yet reflected in the watermark. Collection changes are included as
+     * changes of the owner. Returns an empty set if there are no pending
+     * changes, and null if the changes are not known by identifier, as for
+     * changes registered through {@link #update(Class)}.
+     *
+     * @param clazz the class.
+     * @return the identifiers of the changed objects, or null.
+     */
+    Set<Serializable> getPendingIds( Class<?> clazz );
+
+    /**
+     * Updates the watermark of the given class when the current transaction
+     * completes, or immediately if there is no transaction. Changes through
+     * Hibernate are registered automatically, this is for changes made by
+     * other means such as JDBC. The change is passed on to other nodes.
+     *
+     * @param clazz the class.
+     */
+    void update( Class<?> clazz );
+}
@@ -32,6 +32,7 @@ import org.hisp.dhis.dataset.DataSet;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Lars Helge Overland
@@ -44,9 +45,35 @@ public interface DataSetCompletenessStore
 
     Integer getCompleteDataSetRegistrationsWithTimeliness( DataSet dataSet, Collection<Integer> periods, Collection<Integer> relevantSources );
 
+    /**
+     * Returns the number of complete data set registrations and complete data
+     * set registrations on time for each of the given sources, computed with a
+     * single grouped query.
+     * 
+     * @param dataSet the data set.
+     * @param periods the period identifiers.
+     * @param sources the source identifiers.
+     * @return a mapping between source identifier and result, sources without
+     *         registrations are not included.
+     */
+    Map<Integer, DataSetCompletenessResult> getCompleteDataSetRegistrationsBySource( DataSet dataSet, Collection<Integer> periods, Collection<Integer> sources );
+
     Integer getCompulsoryDataElementRegistrations( DataSet dataSet, Collection<Integer> children, Collection<Integer> periods );
 
     Integer getCompulsoryDataElementRegistrations( DataSet dataSet, Collection<Integer> children, Collection<Integer> periods, int completenessOffset );
 
+    /**
+     * Returns the registrations based on compulsory data element operands for
+     * each of the given sources, computed with a single grouped query. A source
+     * has one registration if values exist for all compulsory operands.
+     * 
+     * @param dataSet the data set.
+     * @param periods the period identifiers.
+     * @param sources the source identifiers.
+     * @return a mapping between source identifier and result, sources without
+     *         registrations are not included.
+     */
+    Map<Integer, DataSetCompletenessResult> getCompulsoryDataElementRegistrationsBySource( DataSet dataSet, Collection<Integer> periods, Collection<Integer> sources );
+
     List<DataSet> getDataSetsWithRegistrations( Collection<DataSet> dataSets );
 }
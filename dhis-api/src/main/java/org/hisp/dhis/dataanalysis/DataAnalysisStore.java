@@ -70,6 +70,23 @@ public interface DataAnalysisStore
      */
     Map<Integer, Double> getAverage( DataElement dataElement, DataElementCategoryOptionCombo categoryOptionCombo, Collection<OrganisationUnit> parents, Date from );
     
+    /**
+     * Returns the DataValues registered for the given periods which deviate more
+     * than the given number of standard deviations from the average of their data
+     * element, category option combo and organisation unit. The data values are
+     * read in a single pass.
+     * 
+     * @param dataElements the numeric DataElements.
+     * @param periods the Periods for which to find outliers.
+     * @param parents the parent OrganisationUnits.
+     * @param stdDevFactor the number of standard deviations.
+     * @param from the from date for which to include data values in the average and standard deviation.
+     * @param limit the max number of outliers to return.
+     * @return a list of DeflatedDataValues.
+     */
+    List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements, Collection<Period> periods, 
+        Collection<OrganisationUnit> parents, double stdDevFactor, Date from, int limit );
+    
     /**
      * Generates a collection of data value violations of min-max predefined values.
      * 
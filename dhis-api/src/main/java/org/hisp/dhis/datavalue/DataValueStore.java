@@ -31,6 +31,7 @@ package org.hisp.dhis.datavalue;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.hisp.dhis.common.MapMap;
@@ -282,6 +283,31 @@ public interface DataValueStore
         OrganisationUnit source, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
         Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
         MapMap<Integer, DataElementOperand, Date> lastUpdatedMap );
+
+    /**
+     * Returns a map of values for each attribute option combo found, for each
+     * of the given organisation units. Retrieves the values for all
+     * organisation units in a single query.
+     * <p>
+     * In the (unlikely) event that the same dataElement/optionCombo is found in
+     * more than one period for the same organisationUnit, date, and attribute
+     * combo, the value is returned from the period with the shortest duration.
+     * 
+     * @param dataElements collection of DataElements to fetch for
+     * @param date date which must be present in the period
+     * @param sources OrganisationUnits for which to fetch the values
+     * @param periodTypes allowable period types in which to find the data
+     * @param attributeCombo the attribute combo to check (if restricted)
+     * @param lastUpdatedMap map in which to return the lastUpdated date for each
+     *        value, by organisation unit id
+     * @return map of values by organisation unit id, then attribute option combo
+     *         id, then DataElementOperand. Organisation units without values
+     *         are not present in the map
+     */
+    Map<Integer, MapMap<Integer, DataElementOperand, Double>> getDataValueMapByAttributeCombo( Collection<DataElement> dataElements, Date date,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
+        Map<Integer, MapMap<Integer, DataElementOperand, Date>> lastUpdatedMap );
     
     /**
      * Gets a Collection of DeflatedDataValues.
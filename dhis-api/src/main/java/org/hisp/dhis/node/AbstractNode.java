@@ -116,6 +116,20 @@ public abstract class AbstractNode implements Node
         this.parent = parent;
     }
 
+    /**
+     * Sets this node as parent of the given child node without adding it to
+     * the children of this node.
+     * 
+     * @param child the child node.
+     * @return the child node.
+     */
+    protected <T extends Node> T adoptChild( T child )
+    {
+        ((AbstractNode) child).setParent( this );
+
+        return child;
+    }
+
     @Override
     public boolean is( NodeType type )
     {
@@ -0,0 +1,112 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.node.Node;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Collection node where the child node for each object is created by the given
+ * node provider when the child is accessed, typically while the node is being
+ * serialized. Only the last accessed child node is retained, which keeps 
+ * memory usage flat when serializing large collections while letting callers
+ * access the same child repeatedly without building it again.
+ */
+public class LazyCollectionNode extends CollectionNode
+{
+    private final List<?> objects;
+
+    private final Function<Object, ? extends Node> nodeProvider;
+
+    private final List<Node> lazyChildren = new AbstractList<Node>()
+    {
+        private int lastIndex = -1;
+
+        private Node lastChild;
+
+        @Override
+        public Node get( int index )
+        {
+            if ( index == lastIndex )
+            {
+                return lastChild;
+            }
+
+            Node child = nodeProvider.apply( objects.get( index ) );
+
+            if ( child != null )
+            {
+                adoptChild( child );
+            }
+
+            lastIndex = index;
+            lastChild = child;
+
+            return child;
+        }
+
+        @Override
+        public int size()
+        {
+            return objects.size();
+        }
+    };
+
+    public LazyCollectionNode( String name, List<?> objects, Function<Object, ? extends Node> nodeProvider )
+    {
+        super( name );
+        this.objects = objects;
+        this.nodeProvider = nodeProvider;
+    }
+
+    @Override
+    public <T extends Node> T addChild( T child )
+    {
+        throw new UnsupportedOperationException( "Children of lazy collection node cannot be modified" );
+    }
+
+    @Override
+    public <T extends Node> void removeChild( T child )
+    {
+        throw new UnsupportedOperationException( "Children of lazy collection node cannot be modified" );
+    }
+
+    /**
+     * Returns a list view of the child nodes where each node is created when
+     * accessed.
+     */
+    @Override
+    public List<Node> getChildren()
+    {
+        return lazyChildren;
+    }
+}
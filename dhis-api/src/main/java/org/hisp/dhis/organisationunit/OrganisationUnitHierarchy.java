@@ -28,17 +28,24 @@ package org.hisp.dhis.organisationunit;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Class which encapsulates logic for the organisation unit hierarchy.
  * 
+ * The hierarchy is stored in primitive arrays with nested interval numbering.
+ * Units are numbered in pre-order, which places every sub-tree in a contiguous
+ * range of numbers. A unit is a descendant of another if its number falls
+ * within the range of the other, which makes ancestry checks a constant-time
+ * comparison once the identifiers are resolved. The arrays are never modified
+ * after construction and can be shared across threads, see
+ * {@link #OrganisationUnitHierarchy(OrganisationUnitHierarchy)}.
+ * 
  * The key format for the organisation unit group variant is
  * "<parent org unit id>:<group id>".
  * 
@@ -47,12 +54,26 @@ import java.util.Set;
 public class OrganisationUnitHierarchy
 {
     /**
-     * Contains mappings between parent and immediate children.
+     * Sorted identifiers of the units in the hierarchy.
      */
-    private Map<Integer, Set<Integer>> relationships = new HashMap<>();
+    private final int[] ids;
+
+    /**
+     * Pre-order number of the unit at the same position in ids.
+     */
+    private final int[] preOrder;
+
+    /**
+     * Highest pre-order number within the sub-tree of the unit at the same
+     * position in ids.
+     */
+    private final int[] subTreeEnd;
+
+    /**
+     * Identifiers of the units in pre-order.
+     */
+    private final int[] preOrderIds;
 
-    private Map<Integer, Set<Integer>> subTrees = new HashMap<>();
-    
     // Key is on format "parent id:group id"
     
     private Map<String, Set<Integer>> groupSubTrees = new HashMap<>();
@@ -63,48 +84,89 @@ public class OrganisationUnitHierarchy
 
     public OrganisationUnitHierarchy( Map<Integer, Set<Integer>> relationships )
     {
-        this.relationships = relationships;
+        int size = 0;
+
+        for ( Set<Integer> children : relationships.values() )
+        {
+            size += children.size();
+        }
+
+        int[] parentIds = new int[size];
+        int[] childIds = new int[size];
+
+        int i = 0;
+
+        for ( Map.Entry<Integer, Set<Integer>> entry : relationships.entrySet() )
+        {
+            for ( Integer childId : entry.getValue() )
+            {
+                parentIds[i] = entry.getKey();
+                childIds[i++] = childId;
+            }
+        }
+
+        this.ids = getDistinctIds( parentIds, childIds );
+        this.preOrder = new int[ids.length];
+        this.subTreeEnd = new int[ids.length];
+        this.preOrderIds = new int[ids.length];
+
+        number( parentIds, childIds );
     }
     
     public OrganisationUnitHierarchy( Collection<OrganisationUnitRelationship> relations )
     {
+        int[] parentIds = new int[relations.size()];
+        int[] childIds = new int[relations.size()];
+
+        int i = 0;
+
         for ( OrganisationUnitRelationship relation : relations )
         {
-            if ( relation.getParentId() == relation.getChildId() )
-            {
-                continue; // Parent cannot be same as child
-            }
-            
-            Set<Integer> children = relationships.get( relation.getParentId() );
-            
-            if ( children == null )
-            {
-                children = new HashSet<>();
-                relationships.put( relation.getParentId(), children );
-            }
-            
-            children.add( relation.getChildId() );
+            parentIds[i] = relation.getParentId();
+            childIds[i++] = relation.getChildId();
         }
+
+        this.ids = getDistinctIds( parentIds, childIds );
+        this.preOrder = new int[ids.length];
+        this.subTreeEnd = new int[ids.length];
+        this.preOrderIds = new int[ids.length];
+
+        number( parentIds, childIds );
+    }
+
+    /**
+     * Creates a hierarchy which shares the read-only structure of the given
+     * hierarchy, with its own group sub-tree cache.
+     * 
+     * @param hierarchy the hierarchy to share structure with.
+     */
+    public OrganisationUnitHierarchy( OrganisationUnitHierarchy hierarchy )
+    {
+        this.ids = hierarchy.ids;
+        this.preOrder = hierarchy.preOrder;
+        this.subTreeEnd = hierarchy.subTreeEnd;
+        this.preOrderIds = hierarchy.preOrderIds;
     }
 
     // -------------------------------------------------------------------------
     // Prepare
     // -------------------------------------------------------------------------
 
+    /**
+     * Sub-trees are contiguous ranges and need no preparation, this method
+     * does nothing.
+     */
     public OrganisationUnitHierarchy prepareChildren( OrganisationUnit parent )
     {
-        subTrees.put( parent.getId(), getChildren( parent.getId() ) );
-        
         return this;
     }
 
+    /**
+     * Sub-trees are contiguous ranges and need no preparation, this method
+     * does nothing.
+     */
     public OrganisationUnitHierarchy prepareChildren( Collection<OrganisationUnit> parents )
     {
-        for ( OrganisationUnit unit : parents )
-        {
-            prepareChildren( unit );
-        }
-        
         return this;
     }
 
@@ -143,37 +205,98 @@ public class OrganisationUnitHierarchy
     }
     
     // -------------------------------------------------------------------------
-    // Get children
+    // Ancestry
     // -------------------------------------------------------------------------
 
-    public Set<Integer> getChildren( int parentId )
+    /**
+     * Indicates whether the unit with the given identifier is part of the
+     * hierarchy.
+     * 
+     * @param id the organisation unit identifier.
+     * @return true if the unit is part of the hierarchy.
+     */
+    public boolean contains( int id )
     {
-        Set<Integer> preparedChildren = subTrees.get( parentId );
-        
-        if ( preparedChildren != null )
+        return Arrays.binarySearch( ids, id ) >= 0;
+    }
+
+    /**
+     * Indicates whether the unit with the given identifier is equal to or a
+     * descendant of the unit with the given ancestor identifier.
+     * 
+     * @param id the organisation unit identifier.
+     * @param ancestorId the ancestor organisation unit identifier.
+     * @return true if the unit is equal to or a descendant of the ancestor.
+     */
+    public boolean isDescendant( int id, int ancestorId )
+    {
+        if ( id == ancestorId )
         {
-            return new HashSet<>( preparedChildren );
+            return true;
         }
-        
-        List<Integer> children = new ArrayList<>();
-        
-        children.add( 0, parentId ); // Adds parent id to beginning of list
 
-        int childCounter = 1;
-        
-        for ( int i = 0; i < childCounter; i++ )
+        int index = Arrays.binarySearch( ids, id );
+        int ancestorIndex = Arrays.binarySearch( ids, ancestorId );
+
+        return index >= 0 && ancestorIndex >= 0 && isInSubTree( preOrder[index], ancestorIndex );
+    }
+
+    /**
+     * Indicates whether the unit with the given identifier is equal to or a
+     * descendant of any of the units with the given ancestor identifiers.
+     * 
+     * @param id the organisation unit identifier.
+     * @param ancestorIds the ancestor organisation unit identifiers.
+     * @return true if the unit is equal to or a descendant of any ancestor.
+     */
+    public boolean isDescendant( int id, Collection<Integer> ancestorIds )
+    {
+        int index = Arrays.binarySearch( ids, id );
+
+        for ( Integer ancestorId : ancestorIds )
         {
-            Set<Integer> currentChildren = relationships.get( children.get( i ) );
-            
-            if ( currentChildren != null )
+            if ( ancestorId == id )
+            {
+                return true;
+            }
+
+            int ancestorIndex = Arrays.binarySearch( ids, ancestorId );
+
+            if ( index >= 0 && ancestorIndex >= 0 && isInSubTree( preOrder[index], ancestorIndex ) )
             {
-                children.addAll( currentChildren );
-            
-                childCounter += currentChildren.size();
+                return true;
             }
         }
-        
-        return new HashSet<>( children );
+
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Get children
+    // -------------------------------------------------------------------------
+
+    public Set<Integer> getChildren( int parentId )
+    {
+        int index = Arrays.binarySearch( ids, parentId );
+
+        if ( index < 0 )
+        {
+            Set<Integer> children = new HashSet<>();
+            children.add( parentId );
+            return children;
+        }
+
+        int start = preOrder[index];
+        int end = subTreeEnd[index];
+
+        Set<Integer> children = new HashSet<>( Math.max( (int) ( ( end - start + 1 ) / 0.75f ) + 1, 16 ) );
+
+        for ( int i = start; i <= end; i++ )
+        {
+            children.add( preOrderIds[i] );
+        }
+
+        return children;
     }
 
     public Set<Integer> getChildren( Collection<Integer> parentIds )
@@ -252,5 +375,129 @@ public class OrganisationUnitHierarchy
     {
         return parentId + ":" + group.getId();
     }
-}
 
+    private boolean isInSubTree( int number, int ancestorIndex )
+    {
+        return number >= preOrder[ancestorIndex] && number <= subTreeEnd[ancestorIndex];
+    }
+
+    /**
+     * Returns the sorted, distinct identifiers of the given parent and child
+     * identifiers.
+     */
+    private static int[] getDistinctIds( int[] parentIds, int[] childIds )
+    {
+        int[] all = new int[parentIds.length + childIds.length];
+
+        System.arraycopy( parentIds, 0, all, 0, parentIds.length );
+        System.arraycopy( childIds, 0, all, parentIds.length, childIds.length );
+
+        Arrays.sort( all );
+
+        int size = 0;
+
+        for ( int i = 0; i < all.length; i++ )
+        {
+            if ( size == 0 || all[i] != all[size - 1] )
+            {
+                all[size++] = all[i];
+            }
+        }
+
+        return Arrays.copyOf( all, size );
+    }
+
+    /**
+     * Assigns pre-order numbers and sub-tree ranges through an iterative depth
+     * first traversal. Children are stored in compressed adjacency arrays.
+     * Relations where parent and child are equal are ignored, and units which
+     * are reachable from several parents or part of a cycle are numbered once.
+     */
+    private void number( int[] parentIds, int[] childIds )
+    {
+        int size = ids.length;
+
+        int[] childOffsets = new int[size + 1];
+        boolean[] hasParent = new boolean[size];
+
+        int[] parentIndexes = new int[parentIds.length];
+        int[] childIndexes = new int[childIds.length];
+
+        for ( int i = 0; i < parentIds.length; i++ )
+        {
+            parentIndexes[i] = Arrays.binarySearch( ids, parentIds[i] );
+            childIndexes[i] = Arrays.binarySearch( ids, childIds[i] );
+
+            if ( parentIndexes[i] != childIndexes[i] ) // Parent cannot be same as child
+            {
+                childOffsets[parentIndexes[i] + 1]++;
+                hasParent[childIndexes[i]] = true;
+            }
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+
+        int[] children = new int[childOffsets[size]];
+        int[] position = Arrays.copyOf( childOffsets, size );
+
+        for ( int i = 0; i < parentIndexes.length; i++ )
+        {
+            if ( parentIndexes[i] != childIndexes[i] )
+            {
+                children[position[parentIndexes[i]]++] = childIndexes[i];
+            }
+        }
+
+        boolean[] visited = new boolean[size];
+        int[] stack = new int[size];
+        int[] next = new int[size];
+        int counter = 0;
+
+        // Traverse from roots first, then from units only reachable through cycles
+
+        for ( int pass = 0; pass < 2; pass++ )
+        {
+            for ( int root = 0; root < size; root++ )
+            {
+                if ( visited[root] || ( pass == 0 && hasParent[root] ) )
+                {
+                    continue;
+                }
+
+                int depth = 0;
+                stack[depth++] = root;
+                next[root] = childOffsets[root];
+                visited[root] = true;
+                preOrder[root] = counter;
+                preOrderIds[counter++] = ids[root];
+
+                while ( depth > 0 )
+                {
+                    int node = stack[depth - 1];
+
+                    if ( next[node] < childOffsets[node + 1] )
+                    {
+                        int child = children[next[node]++];
+
+                        if ( !visited[child] )
+                        {
+                            visited[child] = true;
+                            next[child] = childOffsets[child];
+                            preOrder[child] = counter;
+                            preOrderIds[counter++] = ids[child];
+                            stack[depth++] = child;
+                        }
+                    }
+                    else
+                    {
+                        subTreeEnd[node] = counter - 1;
+                        depth--;
+                    }
+                }
+            }
+        }
+    }
+}
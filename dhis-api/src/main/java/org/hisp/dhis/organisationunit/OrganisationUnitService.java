@@ -379,6 +379,19 @@ public interface OrganisationUnitService
      * @return true if the organisation unit with the given uid is part of the hierarchy.
      */
     boolean isInUserHierarchy( String uid, Set<OrganisationUnit> organisationUnits );
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a
+     * descendant of any of the given ancestors. Uses the shared hierarchy,
+     * and walks up the parents of the unit if it is not part of the hierarchy
+     * or organisation units have been changed in the current transaction.
+     *
+     * @param organisationUnit the organisation unit.
+     * @param ancestors the ancestor organisation units.
+     * @return true if the organisation unit is equal to or a descendant of any
+     *         of the ancestors.
+     */
+    boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors );
     
     // -------------------------------------------------------------------------
     // OrganisationUnitHierarchy
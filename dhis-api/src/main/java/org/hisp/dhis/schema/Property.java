@@ -41,6 +41,7 @@ import org.springframework.core.Ordered;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -73,6 +74,11 @@ public class Property implements Ordered, Klass
      */
     private Method getterMethod;
 
+    /**
+     * Compiled accessor for the getter method, created on first use.
+     */
+    private volatile Function<Object, Object> getter;
+
     /**
      * Direct link to setter for this property.
      */
@@ -317,6 +323,33 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.getter = null;
+    }
+
+    /**
+     * Returns the value of this property for the given object through a
+     * compiled accessor for the getter method. Returns null if the object is
+     * null or this property has no getter method.
+     *
+     * @param object the object to read the value from.
+     * @return the property value.
+     */
+    public Object getValue( Object object )
+    {
+        if ( object == null || getterMethod == null )
+        {
+            return null;
+        }
+
+        Function<Object, Object> function = getter;
+
+        if ( function == null )
+        {
+            function = PropertyAccessors.createGetter( getterMethod );
+            getter = function;
+        }
+
+        return function.apply( object );
     }
 
     public Method getSetterMethod()
@@ -0,0 +1,105 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+
+/**
+ * Utility class for creating compiled accessors for property getter methods.
+ * Accessors are generated through LambdaMetafactory and are invoked like
+ * regular interface calls, avoiding the overhead of reflective invocation.
+ */
+public class PropertyAccessors
+{
+    private static final Function<Object, Object> NULL_GETTER = target -> null;
+
+    /**
+     * Creates a getter function for the given method. The function returns
+     * null for protected and private methods. Falls back to reflective
+     * invocation if a compiled accessor cannot be created for the method.
+     *
+     * @param method the getter method.
+     * @return a function returning the value of the method for a target object.
+     */
+    public static Function<Object, Object> createGetter( Method method )
+    {
+        if ( method == null || Modifier.isProtected( method.getModifiers() ) || Modifier.isPrivate( method.getModifiers() ) )
+        {
+            return NULL_GETTER;
+        }
+
+        try
+        {
+            return createCompiledGetter( method );
+        }
+        catch ( Throwable ex )
+        {
+            return createReflectiveGetter( method );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    @SuppressWarnings( "unchecked" )
+    private static Function<Object, Object> createCompiledGetter( Method method )
+        throws Throwable
+    {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect( method );
+
+        CallSite site = LambdaMetafactory.metafactory( lookup, "apply", MethodType.methodType( Function.class ),
+            MethodType.methodType( Object.class, Object.class ), handle, handle.type().wrap() );
+
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private static Function<Object, Object> createReflectiveGetter( Method method )
+    {
+        return target -> {
+            try
+            {
+                return method.invoke( target );
+            }
+            catch ( InvocationTargetException | IllegalAccessException ex )
+            {
+                throw new RuntimeException( ex );
+            }
+        };
+    }
+}
@@ -84,7 +84,10 @@ public enum Setting
     LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME( "keyLastSuccessfulAnalyticsTablesRuntime" ),
     LAST_MONITORING_RUN( "keyLastMonitoringRun", Date.class ),
     LAST_SUCCESSFUL_DATA_SYNC( "keyLastSuccessfulDataSynch", Date.class ),
+    DATA_SYNC_CHECKPOINT( "keyDataSynchCheckpoint" ),
+    DATA_SYNC_CHUNK_SIZE( "keyDataSynchChunkSize", 10000, Integer.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE( "keyLastSuccessfulAnalyticsTablesUpdate", Date.class ),
+    LAST_SUCCESSFUL_ANALYTICS_TABLES_DATA_UPDATE( "keyLastSuccessfulAnalyticsTablesDataUpdate", Date.class ),
     LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE( "keyLastSuccessfulResourceTablesUpdate", Date.class ),
     LAST_SUCCESSFUL_MONITORING( "keyLastSuccessfulMonitoring", Date.class ),
     HELP_PAGE_LINK( "helpPageLink", "../dhis-web-commons-about/help.action", String.class ),
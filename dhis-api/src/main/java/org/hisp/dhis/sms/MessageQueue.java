@@ -28,15 +28,48 @@ package org.hisp.dhis.sms;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.concurrent.TimeUnit;
+
 import org.hisp.dhis.sms.incoming.IncomingSms;
 
+/**
+ * Thread-safe queue of incoming SMS messages waiting to be processed.
+ */
 public interface MessageQueue
 {
+    /**
+     * Adds the given message to the queue. The message must already be
+     * persisted.
+     */
     void put( IncomingSms message );
 
-    IncomingSms get();
+    /**
+     * Retrieves and removes the next message from the queue, waiting up to the
+     * given time for one to become available.
+     *
+     * @return the next message, or null if none became available in time.
+     */
+    IncomingSms take( long timeout, TimeUnit unit )
+        throws InterruptedException;
 
+    /**
+     * Marks the given message as processed. The state of processed messages
+     * is persisted in batches, see {@link #flush()}.
+     */
     void remove( IncomingSms message );
 
+    /**
+     * Persists the state of all processed messages not yet persisted.
+     */
+    void flush();
+
+    /**
+     * Returns the number of messages waiting in the queue.
+     */
+    int size();
+
+    /**
+     * Fills the queue with all unparsed messages from the database.
+     */
     void initialize();
 }
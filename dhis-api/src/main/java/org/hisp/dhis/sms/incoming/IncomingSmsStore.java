@@ -28,6 +28,7 @@ package org.hisp.dhis.sms.incoming;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
 import java.util.List;
 
 /** 
@@ -41,6 +42,8 @@ public interface IncomingSmsStore
     
     void update ( IncomingSms incomingSms );
 
+    void update( Collection<IncomingSms> incomingSmses );
+
     IncomingSms get( int id );
 
     List<IncomingSms> getSmsByStatus( SmsMessageStatus status, String keyword );
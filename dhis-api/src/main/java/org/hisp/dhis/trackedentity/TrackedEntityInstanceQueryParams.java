@@ -165,6 +165,11 @@ public class TrackedEntityInstanceQueryParams
      */
     private boolean skipPaging;
     
+    /**
+     * Token for keyset paging, the page starts after the instance in the token.
+     */
+    private String pageToken;
+    
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -496,6 +501,14 @@ public class TrackedEntityInstanceQueryParams
         this.skipPaging = false;
     }
 
+    /**
+     * Indicates whether this params specifies a page token for keyset paging.
+     */
+    public boolean hasPageToken()
+    {
+        return pageToken != null;
+    }
+
     // -------------------------------------------------------------------------
     // toString
     // -------------------------------------------------------------------------
@@ -714,4 +727,14 @@ public class TrackedEntityInstanceQueryParams
     {
         this.skipPaging = skipPaging;
     }
+
+    public String getPageToken()
+    {
+        return pageToken;
+    }
+
+    public void setPageToken( String pageToken )
+    {
+        this.pageToken = pageToken;
+    }
 }
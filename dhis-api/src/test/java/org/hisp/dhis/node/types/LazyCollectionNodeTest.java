@@ -0,0 +1,69 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.node.Node;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class LazyCollectionNodeTest
+{
+    @Test
+    public void testGetChildren()
+    {
+        final AtomicInteger created = new AtomicInteger();
+        
+        LazyCollectionNode collectionNode = new LazyCollectionNode( "items", Lists.newArrayList( "a", "b", "c" ), object -> {
+            created.incrementAndGet();
+            return new SimpleNode( "item", object );
+        } );
+        
+        Node first = collectionNode.getChildren().get( 0 );
+        
+        assertSame( collectionNode, first.getParent() );
+        assertEquals( 1, created.get() );
+        
+        int count = 0;
+        
+        for ( Node child : collectionNode.getChildren() )
+        {
+            assertSame( collectionNode, child.getParent() );
+            count++;
+        }
+        
+        assertEquals( 3, count );
+        assertEquals( 3, created.get() );
+    }
+}
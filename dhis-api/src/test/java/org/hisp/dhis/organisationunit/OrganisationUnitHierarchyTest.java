@@ -177,6 +177,76 @@ public class OrganisationUnitHierarchyTest
         testHierarchy( hierarchy );
     }
 
+    @Test
+    public void testIsDescendant()
+    {
+        Map<Integer, Set<Integer>> relationships = new HashMap<>();
+
+        relationships.put( 1, getSet( 2, 3 ) );
+        relationships.put( 2, getSet( 4, 5, 6 ) );
+        relationships.put( 3, getSet( 7, 8, 9 ) );
+        relationships.put( 4, getSet( 10, 11, 12 ) );
+
+        OrganisationUnitHierarchy hierarchy = new OrganisationUnitHierarchy( relationships );
+
+        assertTrue( hierarchy.contains( 12 ) );
+        assertFalse( hierarchy.contains( 99 ) );
+
+        assertTrue( hierarchy.isDescendant( 1, 1 ) );
+        assertTrue( hierarchy.isDescendant( 12, 1 ) );
+        assertTrue( hierarchy.isDescendant( 12, 2 ) );
+        assertTrue( hierarchy.isDescendant( 12, 4 ) );
+        assertTrue( hierarchy.isDescendant( 8, 3 ) );
+        assertTrue( hierarchy.isDescendant( 99, 99 ) );
+
+        assertFalse( hierarchy.isDescendant( 1, 2 ) );
+        assertFalse( hierarchy.isDescendant( 12, 3 ) );
+        assertFalse( hierarchy.isDescendant( 8, 2 ) );
+        assertFalse( hierarchy.isDescendant( 5, 4 ) );
+        assertFalse( hierarchy.isDescendant( 99, 1 ) );
+
+        assertTrue( hierarchy.isDescendant( 11, getSet( 3, 4 ) ) );
+        assertTrue( hierarchy.isDescendant( 3, getSet( 3, 4 ) ) );
+        assertFalse( hierarchy.isDescendant( 5, getSet( 3, 4 ) ) );
+    }
+
+    @Test
+    public void testSharedHierarchy()
+    {
+        List<OrganisationUnitRelationship> relationships = new ArrayList<>();
+
+        relationships.add( new OrganisationUnitRelationship( 1, 2 ) );
+        relationships.add( new OrganisationUnitRelationship( 1, 3 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 4 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 5 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 6 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 7 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 8 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 9 ) );
+        relationships.add( new OrganisationUnitRelationship( 4, 10 ) );
+        relationships.add( new OrganisationUnitRelationship( 4, 11 ) );
+        relationships.add( new OrganisationUnitRelationship( 4, 12 ) );
+
+        testHierarchy( new OrganisationUnitHierarchy( new OrganisationUnitHierarchy( relationships ) ) );
+    }
+
+    @Test
+    public void testGetChildrenWithCycle()
+    {
+        List<OrganisationUnitRelationship> relationships = new ArrayList<>();
+
+        relationships.add( new OrganisationUnitRelationship( 1, 2 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 2 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 4 ) );
+        relationships.add( new OrganisationUnitRelationship( 4, 3 ) );
+
+        OrganisationUnitHierarchy hierarchy = new OrganisationUnitHierarchy( relationships );
+
+        assertEquals( 2, hierarchy.getChildren( 1 ).size() );
+        assertEquals( 1, hierarchy.getChildren( 2 ).size() );
+        assertTrue( hierarchy.getChildren( 3 ).contains( 4 ) );
+    }
+
     private void testHierarchy( OrganisationUnitHierarchy hierarchy )
     {
         assertEquals( 12, hierarchy.getChildren( 1 ).size() );
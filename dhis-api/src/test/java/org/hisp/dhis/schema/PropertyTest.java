@@ -0,0 +1,80 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PropertyTest
+{
+    @Test
+    public void testGetValue()
+        throws Exception
+    {
+        DataElement dataElement = new DataElement( "DataElementA" );
+        dataElement.setZeroIsSignificant( true );
+        dataElement.setFormName( "FormNameA" );
+
+        Property name = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+        Property zeroIsSignificant = new Property( boolean.class, DataElement.class.getMethod( "isZeroIsSignificant" ), null );
+        Property formName = new Property( String.class, DataElement.class.getMethod( "getFormName" ), null );
+
+        assertEquals( "DataElementA", name.getValue( dataElement ) );
+        assertEquals( Boolean.TRUE, zeroIsSignificant.getValue( dataElement ) );
+        assertEquals( "FormNameA", formName.getValue( dataElement ) );
+        assertNull( name.getValue( null ) );
+    }
+
+    @Test
+    public void testGetValueNoGetter()
+    {
+        Property property = new Property( String.class );
+
+        assertNull( property.getValue( new DataElement( "DataElementA" ) ) );
+    }
+
+    @Test
+    public void testSetGetterMethod()
+        throws Exception
+    {
+        DataElement dataElement = new DataElement( "DataElementA" );
+        dataElement.setCode( "CodeA" );
+
+        Property property = new Property( String.class, DataElement.class.getMethod( "getName" ), null );
+
+        assertEquals( "DataElementA", property.getValue( dataElement ) );
+
+        property.setGetterMethod( DataElement.class.getMethod( "getCode" ) );
+
+        assertEquals( "CodeA", property.getValue( dataElement ) );
+    }
+}
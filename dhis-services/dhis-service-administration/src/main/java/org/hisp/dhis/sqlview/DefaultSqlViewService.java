@@ -38,7 +38,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.IllegalQueryException;
-import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -161,7 +161,7 @@ public class DefaultSqlViewService
     @Override
     public Grid getSqlViewGrid( SqlView sqlView, Map<String, String> criteria, Map<String, String> variables )
     {
-        Grid grid = new ListGrid();
+        Grid grid = new ColumnarGrid();
         grid.setTitle( sqlView.getName() );
         grid.setSubtitle( sqlView.getDescription() );
 
@@ -28,6 +28,8 @@ package org.hisp.dhis.sqlview.jdbc;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -40,7 +42,6 @@ import org.hisp.dhis.sqlview.SqlViewStore;
 import org.hisp.dhis.sqlview.SqlViewType;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.springframework.jdbc.BadSqlGrammarException;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -54,6 +55,8 @@ public class JdbcSqlViewStore
     private static final Log log = LogFactory.getLog( JdbcSqlViewStore.class );
 
     private static final String PREFIX_SELECT_QUERY = "SELECT * FROM ";
+
+    private static final int FETCH_SIZE = 10000;
     
     private static final Map<SqlViewType, String> TYPE_CREATE_PREFIX_MAP = 
         ImmutableMap.of( SqlViewType.VIEW, "CREATE VIEW ", SqlViewType.MATERIALIZED_VIEW, "CREATE MATERIALIZED VIEW " );
@@ -130,15 +133,25 @@ public class JdbcSqlViewStore
         executeQuery( grid, sql );
     }
 
+    /**
+     * Streams the rows of the given query into the grid. Rows are fetched in
+     * batches, which PostgreSQL only does when auto-commit is off, as within
+     * the transaction of the SQL view service.
+     */
     @Override
     public void executeQuery( Grid grid, String sql )
     {
-        SqlRowSet rs = jdbcTemplate.queryForRowSet( sql );
-
         log.info( "Get view SQL: " + sql );
 
-        grid.addHeaders( rs );
-        grid.addRows( rs );
+        jdbcTemplate.query( connection -> {
+            PreparedStatement statement = connection.prepareStatement( sql );
+            statement.setFetchSize( FETCH_SIZE );
+            return statement;
+        }, ( ResultSet rs ) -> {
+            grid.addHeaders( rs );
+            grid.addRows( rs );
+            return null;
+        } );
     }
 
     @Override
@@ -28,7 +28,6 @@ package org.hisp.dhis.analytics;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -54,11 +53,44 @@ public interface AnalyticsTableManager
      */
     List<AnalyticsTable> getTables( Date earliest );
     
+    /**
+     * Returns analytics tables which are yearly partitions for the years where
+     * data has been added, updated or deleted after the given date. Returns all
+     * yearly partitions if the table does not support incremental updates.
+     * 
+     * @param earliest the start date for the first year to generate table partitions.
+     * @param lastUpdated the date after which data changes are included.
+     */
+    List<AnalyticsTable> getUpdatedTables( Date earliest, Date lastUpdated );
+    
     /**
      * Returns all potential analytics tables which are yearly partitions.
      */
     List<AnalyticsTable> getAllTables();
     
+    /**
+     * Indicates whether this table supports incremental updates, i.e. whether
+     * getUpdatedTables returns only the partitions with changed data.
+     */
+    boolean isIncrementalUpdateSupported();
+    
+    /**
+     * Indicates whether metadata which is part of the analytics tables, such as
+     * the organisation unit hierarchy, groups and category option combinations,
+     * has been updated after the given date.
+     * 
+     * @param lastUpdated the date after which metadata changes are included.
+     */
+    boolean isMetadataUpdated( Date lastUpdated );
+    
+    /**
+     * Returns the start time of the oldest transaction currently running
+     * against the database, or null if there is none or it cannot be
+     * determined. Data written by such transactions may become visible after
+     * their last updated timestamp.
+     */
+    Date getOldestTransactionStart();
+    
     /**
      * Checks if the database content is in valid state for analytics table generation.
      * Returns null if valid, a descriptive string if invalid.
@@ -125,17 +157,6 @@ public interface AnalyticsTableManager
      */
     void dropTable( String tableName );
     
-    /**
-     * Applies aggregation level logic to the analytics table by setting the
-     * organisation unit level column values to null for the levels above the
-     * given aggregation level.
-     * 
-     * @param tables the analytics tables.
-     * @param dataElements the data element uids to apply aggregation levels for.
-     * @param aggregationLevel the aggregation level.
-     */
-    Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables, Collection<String> dataElements, int aggregationLevel );
-    
     /**
      * Performs vacuum or optimization of the given table. The type of operation
      * performed is dependent on the underlying DBMS.
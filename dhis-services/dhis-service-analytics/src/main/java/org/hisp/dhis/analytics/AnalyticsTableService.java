@@ -39,10 +39,31 @@ public interface AnalyticsTableService
      * Rebuilds the analytics tables.
      * 
      * @param lastYears the number of last years of data to include, null if all.
-     * @param taskId the TaskId.
+     * @param id the TaskId.
      */
     void update( Integer lastYears, TaskId id );
     
+    /**
+     * Rebuilds the analytics tables. If incremental, only the yearly partitions
+     * with data which was added, updated or deleted since the last successful
+     * update are rebuilt. The caller must check that an incremental update is
+     * possible for the run, see {@link #isIncrementalUpdatePossible()}, and
+     * pass the result as incremental.
+     * 
+     * @param lastYears the number of last years of data to include, null if all.
+     * @param incremental whether to rebuild only partitions with changed data.
+     * @param id the TaskId.
+     */
+    void update( Integer lastYears, boolean incremental, TaskId id );
+    
+    /**
+     * Indicates whether an incremental update is possible, which requires that
+     * the underlying table supports incremental updates, that a previous data
+     * update exists and that no metadata which is part of the analytics tables
+     * has been updated since.
+     */
+    boolean isIncrementalUpdatePossible();
+    
     /**
      * Drops analytics and and temporary analytics tables between 1900 and 2100.
      */
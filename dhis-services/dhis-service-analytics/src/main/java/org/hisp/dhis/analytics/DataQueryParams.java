@@ -45,12 +45,14 @@ import static org.hisp.dhis.common.NameableObjectUtils.getList;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -325,6 +327,57 @@ public class DataQueryParams
         return aggregationType != null ? aggregationType.toString() : null;
     }
     
+    /**
+     * Returns a key which identifies the data retrieved by this query. The items
+     * of each dimension and the filters are sorted, so that queries which differ
+     * only in item or filter order get the same key. The order of dimensions is
+     * retained as it determines the keys of the aggregated values.
+     */
+    public String getKey()
+    {
+        StringBuilder key = new StringBuilder();
+        
+        for ( DimensionalObject dimension : dimensions )
+        {
+            key.append( "dimension:" ).append( getDimensionKey( dimension ) ).append( ";" );
+        }
+        
+        List<String> filterKeys = new ArrayList<>();
+        
+        for ( DimensionalObject filter : filters )
+        {
+            filterKeys.add( getDimensionKey( filter ) );
+        }
+        
+        Collections.sort( filterKeys );
+        
+        for ( String filterKey : filterKeys )
+        {
+            key.append( "filter:" ).append( filterKey ).append( ";" );
+        }
+        
+        List<String> approvalLevels = new ArrayList<>();
+        
+        for ( Map.Entry<OrganisationUnit, Integer> entry : dataApprovalLevels.entrySet() )
+        {
+            approvalLevels.add( entry.getKey().getUid() + ":" + entry.getValue() );
+        }
+        
+        Collections.sort( approvalLevels );
+        
+        key.append( "aggregationType:" ).append( aggregationType ).append( ";" ).
+            append( "measureCriteria:" ).append( new TreeMap<>( measureCriteria ) ).append( ";" ).
+            append( "completedOnly:" ).append( completedOnly ).append( ";" ).
+            append( "ignoreLimit:" ).append( ignoreLimit ).append( ";" ).
+            append( "approvalLevel:" ).append( approvalLevel ).append( ";" ).
+            append( "dataApprovalLevels:" ).append( approvalLevels ).append( ";" ).
+            append( "program:" ).append( program != null ? program.getUid() : null ).append( ";" ).
+            append( "programStage:" ).append( programStage != null ? programStage.getUid() : null ).append( ";" ).
+            append( "skipPartitioning:" ).append( skipPartitioning );
+        
+        return key.toString();
+    }
+    
     /**
      * Indicates whether the filters of this query spans more than one partition.
      * If true it means that a period filter exists and that the periods span
@@ -1143,6 +1196,20 @@ public class DataQueryParams
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    private String getDimensionKey( DimensionalObject dimension )
+    {
+        List<String> items = new ArrayList<>();
+        
+        for ( NameableObject item : dimension.getItems() )
+        {
+            items.add( String.valueOf( item.getUid() ) );
+        }
+        
+        Collections.sort( items );
+        
+        return dimension.getDimension() + ":" + dimension.getFilter() + ":" + StringUtils.join( items, "," );
+    }
+
     private List<String> getDimensionIdentifiersAsList()
     {
         List<String> list = new ArrayList<>();
@@ -0,0 +1,80 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache for aggregated analytics values. Entries are associated with the
+ * analytics tables they were read from and are invalidated when those tables
+ * are replaced.
+ */
+public interface AnalyticsCache
+{
+    /**
+     * Name of the cache invalidation region used to invalidate the cache on
+     * the other nodes of a cluster. Invalidations of specific analytics tables
+     * append a separator and the comma separated table names.
+     */
+    String REGION = "org.hisp.dhis.analytics.cache";
+    
+    String REGION_SEPARATOR = ":";
+    
+    /**
+     * Returns the aggregated value map for the given query key. If not cached,
+     * the value map is loaded with the given loader and cached. Concurrent
+     * requests for the same key wait for a single load.
+     * 
+     * @param key the query key.
+     * @param partitions the names of the analytics tables the values are read from.
+     * @param loader the loader of the value map.
+     * @return an unmodifiable mapping between dimension key and aggregated value.
+     */
+    Map<String, Object> getValueMap( String key, Collection<String> partitions, Callable<Map<String, Object>> loader );
+    
+    /**
+     * Invalidates all cached value maps read from any of the given analytics tables.
+     * 
+     * @param partitions the names of the analytics tables.
+     */
+    void invalidatePartitions( Collection<String> partitions );
+    
+    /**
+     * Invalidates all cached value maps.
+     */
+    void invalidateAll();
+    
+    /**
+     * Returns the hit, miss, eviction and invalidation counts and the size of
+     * the cache.
+     */
+    Map<String, Object> getStatistics();
+}
@@ -0,0 +1,225 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.cache.CacheInvalidationListener;
+import org.hisp.dhis.cache.CacheInvalidationService;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache which is bounded by the total number of aggregated values held. Least
+ * recently used value maps are evicted when the bound is exceeded. Value maps
+ * are invalidated when analytics tables are replaced on another node of the
+ * cluster.
+ */
+public class DefaultAnalyticsCache
+    implements AnalyticsCache
+{
+    private static final Log log = LogFactory.getLog( DefaultAnalyticsCache.class );
+    
+    private static final long MAX_VALUES = 1000000;
+    
+    private final Cache<String, CachedValueMap> cache = CacheBuilder.newBuilder()
+        .maximumWeight( MAX_VALUES )
+        .weigher( ( String key, CachedValueMap value ) -> value.getValueMap().size() + 1 )
+        .expireAfterWrite( 24, TimeUnit.HOURS )
+        .recordStats()
+        .build();
+    
+    /**
+     * Incremented on every invalidation, used to detect value maps which were
+     * loaded while the underlying tables were replaced.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    @PostConstruct
+    public void init()
+    {
+        cacheInvalidationService.addListener( new CacheInvalidationListener()
+        {
+            @Override
+            public void invalidate( Class<?> entityClass )
+            {
+            }
+            
+            @Override
+            public void invalidateRegion( String region )
+            {
+                if ( REGION.equals( region ) )
+                {
+                    invalidateAll();
+                }
+                else if ( region.startsWith( REGION + REGION_SEPARATOR ) )
+                {
+                    invalidatePartitions( Arrays.asList( region.substring( REGION.length() + 1 ).split( "," ) ) );
+                }
+            }
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsCache implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Map<String, Object> getValueMap( String key, Collection<String> partitions, Callable<Map<String, Object>> loader )
+    {
+        final long loadGeneration = generation.get();
+        
+        try
+        {
+            CachedValueMap valueMap = cache.get( key, () -> new CachedValueMap( loader.call(), partitions ) );
+            
+            if ( loadGeneration != generation.get() )
+            {
+                cache.invalidate( key );
+            }
+            
+            return valueMap.getValueMap();
+        }
+        catch ( ExecutionException | UncheckedExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            
+            throw new RuntimeException( "Error while loading aggregated values", ex.getCause() );
+        }
+    }
+
+    @Override
+    public void invalidatePartitions( Collection<String> partitions )
+    {
+        generation.incrementAndGet();
+        
+        Set<String> partitionSet = new HashSet<>( partitions );
+        
+        int count = 0;
+        
+        Iterator<CachedValueMap> iterator = cache.asMap().values().iterator();
+        
+        while ( iterator.hasNext() )
+        {
+            if ( !Collections.disjoint( iterator.next().getPartitions(), partitionSet ) )
+            {
+                iterator.remove();
+                count++;
+            }
+        }
+        
+        invalidationCount.addAndGet( count );
+        
+        log.info( "Invalidated cached analytics value maps: " + count + " for partitions: " + partitions );
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        
+        invalidationCount.addAndGet( cache.size() );
+        
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics()
+    {
+        CacheStats stats = cache.stats();
+        
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put( "size", cache.size() );
+        statistics.put( "hitCount", stats.hitCount() );
+        statistics.put( "missCount", stats.missCount() );
+        statistics.put( "hitRate", stats.hitRate() );
+        statistics.put( "evictionCount", stats.evictionCount() );
+        statistics.put( "invalidationCount", invalidationCount.get() );
+        
+        return statistics;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Aggregated value map with the names of the analytics tables the values 
+     * were read from.
+     */
+    private static class CachedValueMap
+    {
+        private final Map<String, Object> valueMap;
+        
+        private final Set<String> partitions;
+        
+        CachedValueMap( Map<String, Object> valueMap, Collection<String> partitions )
+        {
+            this.valueMap = Collections.unmodifiableMap( valueMap );
+            this.partitions = new HashSet<>( partitions );
+        }
+
+        public Map<String, Object> getValueMap()
+        {
+            return valueMap;
+        }
+
+        public Set<String> getPartitions()
+        {
+            return partitions;
+        }
+    }
+}
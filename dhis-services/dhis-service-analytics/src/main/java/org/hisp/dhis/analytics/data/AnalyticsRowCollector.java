@@ -0,0 +1,259 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.common.DimensionalObject.DIMENSION_SEP;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+
+import org.hisp.dhis.common.IllegalQueryException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Row callback handler which collects analytics query rows into a compact
+ * structure while the result set is streamed. Dimension values are interned
+ * into per-dimension dictionaries and each row is stored as an array of item
+ * codes with the value in a primitive array. String keys are only produced
+ * when the result is requested through {@link #getKeyValueMap()}.
+ * 
+ * The query is expected to group by all dimension columns, which means that
+ * every row represents a distinct key.
+ */
+public class AnalyticsRowCollector
+    implements RowCallbackHandler
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String[] dimensionNames;
+
+    private final String valueColumn;
+
+    private final boolean text;
+
+    private final int maxLimit;
+
+    private final DoublePredicate numericFilter;
+
+    private final List<Map<String, Integer>> codes = new ArrayList<>();
+
+    private final List<List<String>> items = new ArrayList<>();
+
+    private int[] keys;
+
+    private double[] numericValues;
+
+    private String[] textValues;
+
+    private int size;
+
+    private int rowCount;
+
+    /**
+     * @param dimensionNames the names of the dimension columns.
+     * @param valueColumn the name of the value column.
+     * @param text whether the value column is text, otherwise numeric.
+     * @param maxLimit the max number of rows, 0 or less means no limit.
+     * @param numericFilter the filter which numeric values must satisfy,
+     *        can be null.
+     */
+    public AnalyticsRowCollector( List<String> dimensionNames, String valueColumn, boolean text,
+        int maxLimit, DoublePredicate numericFilter )
+    {
+        this.dimensionNames = dimensionNames.toArray( new String[dimensionNames.size()] );
+        this.valueColumn = valueColumn;
+        this.text = text;
+        this.maxLimit = maxLimit;
+        this.numericFilter = numericFilter;
+
+        for ( int i = 0; i < this.dimensionNames.length; i++ )
+        {
+            codes.add( new HashMap<>() );
+            items.add( new ArrayList<>() );
+        }
+
+        this.keys = new int[INITIAL_CAPACITY * this.dimensionNames.length];
+
+        if ( text )
+        {
+            this.textValues = new String[INITIAL_CAPACITY];
+        }
+        else
+        {
+            this.numericValues = new double[INITIAL_CAPACITY];
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // RowCallbackHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void processRow( ResultSet rs )
+        throws SQLException
+    {
+        if ( maxLimit > 0 && ++rowCount > maxLimit )
+        {
+            throw new IllegalQueryException( "Query result set exceeds max limit: " + maxLimit );
+        }
+
+        String textValue = null;
+        double numericValue = 0d;
+
+        if ( text )
+        {
+            textValue = rs.getString( valueColumn );
+        }
+        else
+        {
+            numericValue = rs.getDouble( valueColumn );
+
+            if ( numericFilter != null && !numericFilter.test( numericValue ) )
+            {
+                return;
+            }
+        }
+
+        ensureCapacity( size + 1 );
+
+        int offset = size * dimensionNames.length;
+
+        for ( int i = 0; i < dimensionNames.length; i++ )
+        {
+            keys[offset + i] = getCode( i, rs.getString( dimensionNames[i] ) );
+        }
+
+        if ( text )
+        {
+            textValues[size] = textValue;
+        }
+        else
+        {
+            numericValues[size] = numericValue;
+        }
+
+        size++;
+    }
+
+    // -------------------------------------------------------------------------
+    // Result
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of collected rows.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Assembles the collected rows into a map where the key is the dimension
+     * items of each row joined by the dimension separator and
+     * the value is the row value.
+     * 
+     * @return a mapping between dimension item keys and values.
+     */
+    public Map<String, Object> getKeyValueMap()
+    {
+        Map<String, Object> map = new HashMap<>( Math.max( (int) ( size / 0.75f ) + 1, 16 ) );
+
+        StringBuilder key = new StringBuilder();
+
+        for ( int row = 0; row < size; row++ )
+        {
+            key.setLength( 0 );
+
+            int offset = row * dimensionNames.length;
+
+            for ( int i = 0; i < dimensionNames.length; i++ )
+            {
+                if ( i > 0 )
+                {
+                    key.append( DIMENSION_SEP );
+                }
+
+                key.append( items.get( i ).get( keys[offset + i] ) );
+            }
+
+            map.put( key.toString(), text ? textValues[row] : Double.valueOf( numericValues[row] ) );
+        }
+
+        return map;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int getCode( int dimension, String item )
+    {
+        Integer code = codes.get( dimension ).get( item );
+
+        if ( code == null )
+        {
+            List<String> dimensionItems = items.get( dimension );
+
+            code = dimensionItems.size();
+            dimensionItems.add( item );
+            codes.get( dimension ).put( item, code );
+        }
+
+        return code;
+    }
+
+    private void ensureCapacity( int capacity )
+    {
+        int current = text ? textValues.length : numericValues.length;
+
+        if ( capacity <= current )
+        {
+            return;
+        }
+
+        int newCapacity = Math.max( capacity, current * 2 );
+
+        keys = Arrays.copyOf( keys, newCapacity * dimensionNames.length );
+
+        if ( text )
+        {
+            textValues = Arrays.copyOf( textValues, newCapacity );
+        }
+        else
+        {
+            numericValues = Arrays.copyOf( numericValues, newCapacity );
+        }
+    }
+}
@@ -93,8 +93,10 @@ import org.hisp.dhis.analytics.DataQueryGroups;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DimensionItem;
 import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
 import org.hisp.dhis.analytics.event.EventQueryParams;
+import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.calendar.DateTimeUnit;
 import org.hisp.dhis.common.AnalyticalObject;
@@ -143,6 +145,7 @@ import org.hisp.dhis.program.ProgramStageService;
 import org.hisp.dhis.reporttable.ReportTable;
 import org.hisp.dhis.setting.Setting;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.system.util.ReflectionUtils;
@@ -177,6 +180,9 @@ public class DefaultAnalyticsService
     @Autowired
     private QueryPlanner queryPlanner;
 
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     @Autowired
     private IdentifiableObjectManager idObjectManager;
     
@@ -240,7 +246,7 @@ public class DefaultAnalyticsService
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = new ListGrid();
+        Grid grid = new ColumnarGrid();
 
         addHeaders( params, grid );
 
@@ -846,7 +852,8 @@ public class DefaultAnalyticsService
     /**
      * Generates a mapping between a dimension key and the aggregated value. The
      * dimension key is a concatenation of the identifiers of the dimension items
-     * separated by "-".
+     * separated by "-". The mapping is retrieved from the analytics cache if
+     * present, and otherwise queried from the database and cached.
      *
      * @param params the data query parameters.
      * @return a mapping between a dimension key and aggregated values.
@@ -855,9 +862,26 @@ public class DefaultAnalyticsService
     {
         queryPlanner.validateMaintenanceMode();
 
-        int optimalQueries = MathUtils.getWithin( getProcessNo(), 1, MAX_QUERIES );
+        final int maxLimit = getMaxLimit();
+        
+        final String key = tableName + ":" + maxLimit + ":" + params.getKey();
+        
+        return analyticsCache.getValueMap( key, getPartitions( params, tableName ), 
+            () -> queryAggregatedValueMap( params, tableName, maxLimit ) );
+    }
 
-        int maxLimit = getMaxLimit();
+    /**
+     * Queries the database for a mapping between a dimension key and the 
+     * aggregated value.
+     *
+     * @param params the data query parameters.
+     * @param tableName the base analytics table name.
+     * @param maxLimit the max number of records to retrieve.
+     * @return a mapping between a dimension key and aggregated values.
+     */
+    private Map<String, Object> queryAggregatedValueMap( DataQueryParams params, String tableName, int maxLimit )
+    {
+        int optimalQueries = MathUtils.getWithin( getProcessNo(), 1, MAX_QUERIES );
         
         Timer timer = new Timer().start().disablePrint();
 
@@ -1491,6 +1515,24 @@ public class DefaultAnalyticsService
         return ( cores == null || cores == 0 ) ? SystemUtils.getCpuCores() : cores;
     }
 
+    /**
+     * Returns the names of the analytics tables which may contain data for the
+     * given query, including tables which do not exist yet.
+     * 
+     * @param params the data query parameters.
+     * @param tableName the base analytics table name.
+     * @return a list of analytics table names.
+     */
+    private List<String> getPartitions( DataQueryParams params, String tableName )
+    {
+        if ( params.isSkipPartitioning() )
+        {
+            return Lists.newArrayList( tableName );
+        }
+        
+        return PartitionUtils.getPartitions( params.getDimensionOrFilterItems( PERIOD_DIM_ID ), tableName, null, null ).getPartitions();
+    }
+
     /**
      * Converts a String, Object map into a specific String, Double map.
      *
@@ -51,6 +51,8 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import static org.hisp.dhis.commons.util.TextUtils.trimEnd;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -80,9 +82,10 @@ import org.hisp.dhis.system.util.MathUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
 /**
@@ -101,12 +104,17 @@ public class JdbcAnalyticsManager
 
     private static final String COL_APPROVALLEVEL = "approvallevel";
 
+    private static final int FETCH_SIZE = 10000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
     @Autowired
     private StatementBuilder statementBuilder;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -386,57 +394,38 @@ public class JdbcAnalyticsManager
 
     /**
      * Retrieves data from the database based on the given query and SQL and puts
-     * into a value key and value mapping.
+     * into a value key and value mapping. The query runs in a read-only
+     * transaction, as PostgreSQL only honours the fetch size and streams rows
+     * when auto-commit is off.
      */
     private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit )
     {
-        Map<String, Object> map = new HashMap<>();
-
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        List<String> dimensionNames = new ArrayList<>();
 
-        log.debug( "Analytics SQL: " + sql );
-
-        int counter = 0;
-        
-        while ( rowSet.next() )
+        for ( DimensionalObject dim : params.getDimensions() )
         {
-            if ( maxLimit > 0 && ++counter > maxLimit )
-            {
-                throw new IllegalQueryException( "Query result set exceeds max limit: " + maxLimit );
-            }
-            
-            StringBuilder key = new StringBuilder();
-
-            for ( DimensionalObject dim : params.getDimensions() )
-            {
-                key.append( rowSet.getString( dim.getDimensionName() ) ).append( DIMENSION_SEP );
-            }
+            dimensionNames.add( dim.getDimensionName() );
+        }
 
-            key.deleteCharAt( key.length() - 1 );
+        AnalyticsRowCollector collector = new AnalyticsRowCollector( dimensionNames, VALUE_ID,
+            params.isDataType( TEXT ), maxLimit, value -> measureCriteriaSatisfied( params, value ) );
 
-            if ( params.isDataType( TEXT ) )
-            {
-                String value = rowSet.getString( VALUE_ID );
+        log.debug( "Analytics SQL: " + sql );
 
-                map.put( key.toString(), value );
-            }
-            else // NUMERIC
-            {
-                Double value = rowSet.getDouble( VALUE_ID );
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+        transactionTemplate.setReadOnly( true );
 
-                if ( value != null && Double.class.equals( value.getClass() ) )
-                {
-                    if ( !measureCriteriaSatisfied( params, value ) )
-                    {
-                        continue;
-                    }
-                }
+        transactionTemplate.execute( status -> {
+            jdbcTemplate.query( connection -> {
+                PreparedStatement statement = connection.prepareStatement( sql );
+                statement.setFetchSize( FETCH_SIZE );
+                return statement;
+            }, collector );
 
-                map.put( key.toString(), value );
-            }
-        }
+            return null;
+        } );
 
-        return map;
+        return collector.getKeyValueMap();
     }
 
     /**
@@ -90,6 +90,7 @@ import org.hisp.dhis.program.ProgramIndicatorService;
 import org.hisp.dhis.program.ProgramService;
 import org.hisp.dhis.program.ProgramStage;
 import org.hisp.dhis.program.ProgramStageService;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.system.util.DateUtils;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -294,7 +295,7 @@ public class DefaultEventAnalyticsService
 
         params.replacePeriodsWithStartEndDates();
         
-        Grid grid = new ListGrid();
+        Grid grid = new ColumnarGrid();
         
         // ---------------------------------------------------------------------
         // Headers
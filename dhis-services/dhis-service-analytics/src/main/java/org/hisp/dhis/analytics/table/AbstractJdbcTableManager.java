@@ -57,7 +57,9 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
@@ -76,6 +78,13 @@ public abstract class AbstractJdbcTableManager
     public static final String PREFIX_ORGUNITGROUPSET = "ougs_";
     public static final String PREFIX_ORGUNITLEVEL = "uidlevel";
     public static final String PREFIX_INDEX = "in_";
+    
+    /**
+     * Tables of metadata which is part of the analytics tables.
+     */
+    private static final String[] METADATA_TABLES = { "organisationunit", "orgunitgroup", "orgunitgroupset", "orgunitlevel",
+        "dataelement", "dataelementgroup", "dataelementgroupset", "dataelementcategory", "dataelementcategoryoption", 
+        "categorycombo", "categoryoptioncombo", "categoryoptiongroup", "categoryoptiongroupset", "dataapprovallevel" };
 
     @Autowired
     protected IdentifiableObjectManager idObjectManager;
@@ -118,6 +127,19 @@ public abstract class AbstractJdbcTableManager
      */
     protected abstract List<String[]> getDimensionColumns( AnalyticsTable table );
     
+    /**
+     * Returns the years for which data has been added, updated or deleted after
+     * the given date. Override to support incremental updates, defaults to all
+     * years for which data exists.
+     * 
+     * @param earliest the earliest date to include as data year, null if no restriction.
+     * @param lastUpdated the date after which data changes are included.
+     */
+    protected List<Integer> getUpdatedDataYears( Date earliest, Date lastUpdated )
+    {
+        return getDataYears( earliest );
+    }
+    
     /**
      * Override to perform work before tables are being generated.
      */
@@ -139,6 +161,68 @@ public abstract class AbstractJdbcTableManager
         return getTables( getDataYears( earliest ) );
     }
 
+    @Override
+    @Transactional
+    public List<AnalyticsTable> getUpdatedTables( Date earliest, Date lastUpdated )
+    {
+        if ( !isIncrementalUpdateSupported() || lastUpdated == null )
+        {
+            return getTables( earliest );
+        }
+        
+        log.info( "Get updated tables using earliest: " + earliest + ", last updated: " + lastUpdated );
+        
+        return getTables( getUpdatedDataYears( earliest, lastUpdated ) );
+    }
+    
+    @Override
+    public boolean isIncrementalUpdateSupported()
+    {
+        return false;
+    }
+    
+    @Override
+    public boolean isMetadataUpdated( Date lastUpdated )
+    {
+        final String updated = DateUtils.getLongDateString( lastUpdated );
+        
+        for ( String table : METADATA_TABLES )
+        {
+            final String sql = "select 1 from " + table + " where lastupdated >= '" + updated + "' limit 1";
+            
+            if ( jdbcTemplate.queryForRowSet( sql ).next() )
+            {
+                log.info( "Metadata updated after: " + updated + " in table: " + table );
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    @Override
+    public Date getOldestTransactionStart()
+    {
+        final String sql = statementBuilder.getOldestTransactionStart();
+        
+        if ( sql == null )
+        {
+            return null;
+        }
+        
+        try
+        {
+            return jdbcTemplate.queryForObject( sql, Date.class );
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( "Could not determine start of oldest running transaction: " + ex.getMessage() );
+            
+            return null;
+        }
+    }
+
     @Override
     @Transactional
     public List<AnalyticsTable> getAllTables()
@@ -29,23 +29,23 @@ package org.hisp.dhis.analytics.table;
  */
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsIndex;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTableService;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.partition.PartitionManager;
-import org.hisp.dhis.common.IdentifiableObjectUtils;
+import org.hisp.dhis.cache.CacheInvalidationService;
 import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
-import org.hisp.dhis.dataelement.DataElementService;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.scheduling.TaskId;
@@ -53,6 +53,7 @@ import org.hisp.dhis.setting.Setting;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.SystemUtils;
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -63,6 +64,14 @@ public class DefaultAnalyticsTableService
 {
     private static final Log log = LogFactory.getLog( DefaultAnalyticsTableService.class );
     
+    /**
+     * Minutes subtracted from the start time of an update when saving it as
+     * the high-water mark for incremental updates, to cover transactions which
+     * commit after the update has read the data and clock differences between
+     * servers.
+     */
+    private static final int LAST_DATA_UPDATE_LAG_MINUTES = 10;
+    
     private AnalyticsTableManager tableManager;
     
     public void setTableManager( AnalyticsTableManager tableManager )
@@ -73,15 +82,18 @@ public class DefaultAnalyticsTableService
     @Autowired
     private OrganisationUnitService organisationUnitService;
     
-    @Autowired
-    private DataElementService dataElementService;
-    
     @Autowired
     private ResourceTableService resourceTableService;
     
     @Autowired
     private PartitionManager partitionManager;
     
+    @Autowired
+    private AnalyticsCache analyticsCache;
+    
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+    
     @Autowired
     private Notifier notifier;
     
@@ -95,10 +107,18 @@ public class DefaultAnalyticsTableService
     @Override
     public void update( Integer lastYears, TaskId taskId )
     {
+        update( lastYears, false, taskId );
+    }
+    
+    @Override
+    public void update( Integer lastYears, boolean incremental, TaskId taskId )
+    {
+        final Date lastDataUpdate = getLastDataUpdate( lastYears );
+        
         int processNo = getProcessNo();
         int orgUnitLevelNo = organisationUnitService.getNumberOfOrganisationalLevels();
         
-        Clock clock = new Clock( log ).startClock().logTime( "Starting update, processes: " + processNo + ", org unit levels: " + orgUnitLevelNo );
+        Clock clock = new Clock( log ).startClock().logTime( "Starting update, processes: " + processNo + ", org unit levels: " + orgUnitLevelNo + ", incremental: " + incremental );
         
         String validState = tableManager.validState();
         
@@ -110,9 +130,18 @@ public class DefaultAnalyticsTableService
         
         Date earliest = PartitionUtils.getEarliestDate( lastYears );
         
-        final List<AnalyticsTable> tables = tableManager.getTables( earliest );
+        final List<AnalyticsTable> tables = getTables( earliest, incremental );
         final String tableName = tableManager.getTableName();
         
+        if ( incremental && tables.isEmpty() )
+        {
+            saveLastDataUpdate( lastDataUpdate );
+            
+            clock.logTime( "No data changes since last update: " + tableName );
+            notifier.notify( taskId, "No data changes since last update" );
+            return;
+        }
+        
         clock.logTime( "Table update start: " + tableName + ", processes: " + processNo + ", partitions: " + tables + ", last years: " + lastYears + ", earliest: " + earliest );
         notifier.notify( taskId, "Performing pre-create table work, processes: " + processNo + ", org unit levels: " + orgUnitLevelNo );
         
@@ -129,11 +158,6 @@ public class DefaultAnalyticsTableService
         populateTables( tables );
         
         clock.logTime( "Populated analytics tables" );
-        notifier.notify( taskId, "Applying aggregation levels" );
-        
-        applyAggregationLevels( tables );
-        
-        clock.logTime( "Applied aggregation levels" );
         notifier.notify( taskId, "Creating indexes" );
         
         createIndexes( tables );
@@ -148,10 +172,25 @@ public class DefaultAnalyticsTableService
 
         partitionManager.clearCaches();
 
+        saveLastDataUpdate( lastDataUpdate );
+
         clock.logTime( "Table update done: " + tableName );
         notifier.notify( taskId, "Table update done" );
     }
 
+    @Override
+    public boolean isIncrementalUpdatePossible()
+    {
+        if ( !tableManager.isIncrementalUpdateSupported() )
+        {
+            return false;
+        }
+        
+        Date lastUpdated = (Date) systemSettingManager.getSystemSetting( Setting.LAST_SUCCESSFUL_ANALYTICS_TABLES_DATA_UPDATE );
+        
+        return lastUpdated != null && !tableManager.isMetadataUpdated( lastUpdated );
+    }
+    
     @Override
     public void dropTables()
     {
@@ -162,6 +201,10 @@ public class DefaultAnalyticsTableService
             tableManager.dropTable( table.getTableName() );
             tableManager.dropTable( table.getTempTableName() );            
         }
+        
+        analyticsCache.invalidateAll();
+        
+        cacheInvalidationService.invalidateRegion( AnalyticsCache.REGION );
     }
 
     @Override
@@ -186,84 +229,89 @@ public class DefaultAnalyticsTableService
     // Supportive methods
     // -------------------------------------------------------------------------
 
-    private void createTables( List<AnalyticsTable> tables )
+    /**
+     * Returns the analytics tables to update. For incremental updates, only the
+     * partitions with data changed since the last successful data update are
+     * returned.
+     */
+    private List<AnalyticsTable> getTables( Date earliest, boolean incremental )
     {
-        for ( AnalyticsTable table : tables )
+        if ( incremental )
         {
-            tableManager.createTable( table );
+            Date lastUpdated = (Date) systemSettingManager.getSystemSetting( Setting.LAST_SUCCESSFUL_ANALYTICS_TABLES_DATA_UPDATE );
+            
+            return tableManager.getUpdatedTables( earliest, lastUpdated );
         }
+        
+        return tableManager.getTables( earliest );
     }
     
-    private void populateTables( List<AnalyticsTable> tables )
+    /**
+     * Returns the high-water mark to save for incremental updates when this
+     * update completes, which is the start time of the update minus a lag, or
+     * the start time of the oldest running transaction if earlier. Data with a
+     * last updated timestamp before the mark is known to be committed when the
+     * update reads it, and the overlap between the mark and the start time is
+     * scanned again by the next incremental update. Returns null if the mark
+     * is not to be moved, which is when not all years are covered, as
+     * partitions outside of the last years are otherwise left with stale data.
+     */
+    private Date getLastDataUpdate( Integer lastYears )
     {
-        int taskNo = Math.min( getProcessNo(), tables.size() );
-        
-        log.info( "Populate table task number: " + taskNo );
+        if ( lastYears != null || !tableManager.isIncrementalUpdateSupported() )
+        {
+            return null;
+        }
         
-        ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
+        Date lastDataUpdate = new DateTime().minusMinutes( LAST_DATA_UPDATE_LAG_MINUTES ).toDate();
         
-        List<Future<?>> futures = new ArrayList<>();
+        Date oldestTransactionStart = tableManager.getOldestTransactionStart();
         
-        for ( int i = 0; i < taskNo; i++ )
+        if ( oldestTransactionStart != null && oldestTransactionStart.before( lastDataUpdate ) )
         {
-            futures.add( tableManager.populateTableAsync( tableQ ) );
+            log.info( "Using start of oldest running transaction as last data update: " + oldestTransactionStart );
+            
+            lastDataUpdate = oldestTransactionStart;
         }
         
-        ConcurrentUtils.waitForCompletion( futures );
+        return lastDataUpdate;
     }
     
-    private void applyAggregationLevels( List<AnalyticsTable> tables )
+    /**
+     * Saves the given high-water mark for incremental updates, if not null.
+     */
+    private void saveLastDataUpdate( Date lastDataUpdate )
     {
-        int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
-        
-        boolean hasAggLevels = false;
-        
-        levelLoop : for ( int i = 0; i < maxLevels; i++ )
+        if ( lastDataUpdate != null )
         {
-            int level = maxLevels - i;
-            
-            Collection<String> dataElements = IdentifiableObjectUtils.getUids( 
-                dataElementService.getDataElementsByAggregationLevel( level ) );
-            
-            if ( dataElements.isEmpty() )
-            {
-                continue levelLoop;
-            }
-
-            hasAggLevels = true;
-            
-            ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
-
-            List<Future<?>> futures = new ArrayList<>();
-            
-            for ( int j = 0; j < getProcessNo(); j++ )
-            {
-                futures.add( tableManager.applyAggregationLevels( tableQ, dataElements, level ) );
-            }
-
-            ConcurrentUtils.waitForCompletion( futures );
+            systemSettingManager.saveSystemSetting( Setting.LAST_SUCCESSFUL_ANALYTICS_TABLES_DATA_UPDATE, lastDataUpdate );
         }
-        
-        if ( hasAggLevels )
-        {
-            vacuumTables( tables );
+    }
 
-            log.info( "Vacuumed tables" );
+    private void createTables( List<AnalyticsTable> tables )
+    {
+        for ( AnalyticsTable table : tables )
+        {
+            tableManager.createTable( table );
         }
     }
-
-    private void vacuumTables( List<AnalyticsTable> tables )
+    
+    private void populateTables( List<AnalyticsTable> tables )
     {
+        int taskNo = Math.min( getProcessNo(), tables.size() );
+        
+        log.info( "Populate table task number: " + taskNo );
+        
         ConcurrentLinkedQueue<AnalyticsTable> tableQ = new ConcurrentLinkedQueue<>( tables );
         
         List<Future<?>> futures = new ArrayList<>();
         
-        for ( int i = 0; i < getProcessNo(); i++ )
+        for ( int i = 0; i < taskNo; i++ )
         {
-            tableManager.vacuumTablesAsync( tableQ );
+            futures.add( tableManager.populateTableAsync( tableQ ) );
         }
         
-        ConcurrentUtils.waitForCompletion( futures );        
+        ConcurrentUtils.waitForCompletion( futures );
     }
     
     private void createIndexes( List<AnalyticsTable> tables )
@@ -299,10 +347,18 @@ public class DefaultAnalyticsTableService
         clock.logTime( "Dropped SQL views"  );
         notifier.notify( taskId, "Swapping tables" );
         
+        List<String> tableNames = new ArrayList<>();
+        
         for ( AnalyticsTable table : tables )
         {
             tableManager.swapTable( table );
+            
+            tableNames.add( table.getTableName() );
         }
+        
+        analyticsCache.invalidatePartitions( tableNames );
+        
+        cacheInvalidationService.invalidateRegion( AnalyticsCache.REGION + AnalyticsCache.REGION_SEPARATOR + StringUtils.join( tableNames, "," ) );
 
         clock.logTime( "Swapped tables"  );
         notifier.notify( taskId, "Creating SQL views" );
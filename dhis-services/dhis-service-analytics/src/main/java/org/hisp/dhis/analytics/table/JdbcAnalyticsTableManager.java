@@ -34,7 +34,7 @@ import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsTable;
-import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.common.ListMap;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataelement.CategoryOptionGroupSet;
@@ -43,20 +43,20 @@ import org.hisp.dhis.dataelement.DataElementGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.system.util.DateUtils;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.util.ObjectUtils;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.scheduling.annotation.Async;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
-import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 import static org.hisp.dhis.dataapproval.DataApprovalLevelService.APPROVAL_LEVEL_UNAPPROVED;
 
 /**
@@ -110,6 +110,12 @@ public class JdbcAnalyticsTableManager
         return ANALYTICS_TABLE_NAME;
     }
 
+    @Override
+    public boolean isIncrementalUpdateSupported()
+    {
+        return true;
+    }
+
     @Override
     public void preCreateTables()
     {
@@ -170,6 +176,8 @@ public class JdbcAnalyticsTableManager
                 break taskLoop;
             }
 
+            Clock clock = new Clock( log ).startClock();
+
             String intClause =
                 "dv.value " + statementBuilder.getRegexpMatch() + " '" + MathUtils.NUMERIC_LENIENT_REGEXP + "' " +
                     "and ( dv.value != '0' or de.aggregationtype in ('" + AggregationType.AVERAGE + ',' + AggregationType.AVERAGE_SUM_ORG_UNIT + "') " +
@@ -184,6 +192,8 @@ public class JdbcAnalyticsTableManager
             populateTable( table, "1", "null", Sets.newHashSet( ValueType.TRUE_ONLY ), "dv.value = 'true'", approvalClause );
 
             populateTable( table, "null", "dv.value", ValueType.TEXT_TYPES, null, approvalClause );
+
+            clock.logTime( "Populated partition: " + table.getTempTableName() );
         }
 
         return null;
@@ -260,6 +270,60 @@ public class JdbcAnalyticsTableManager
         populateAndLog( sql, tableName + ", " + valueTypes );
     }
 
+    /**
+     * Returns the select expression for the given org unit level column. Data
+     * elements with aggregation levels are not aggregated above the closest
+     * aggregation level which is below the level of the org unit of the data
+     * value. The level column is hence set to null for data values of data
+     * elements which have an aggregation level equal to or higher than the
+     * level of the column and lower than the level of the org unit.
+     *
+     * @param column the quoted org unit level column name.
+     * @param level the org unit level of the column.
+     * @param aggregationLevelMap mapping between aggregation levels and data
+     *        element identifiers.
+     */
+    private String getOrgUnitLevelColumn( String column, int level, ListMap<Integer, Integer> aggregationLevelMap )
+    {
+        String sql = StringUtils.EMPTY;
+
+        for ( Integer aggregationLevel : aggregationLevelMap.keySet() )
+        {
+            if ( aggregationLevel >= level )
+            {
+                sql += "(ous.level > " + aggregationLevel + " and dv.dataelementid in (" +
+                    TextUtils.getCommaDelimitedString( aggregationLevelMap.get( aggregationLevel ) ) + ")) or ";
+            }
+        }
+
+        if ( sql.isEmpty() )
+        {
+            return "ous." + column;
+        }
+
+        return "case when " + TextUtils.removeLastOr( sql ) + " then null else ous." + column + " end";
+    }
+
+    /**
+     * Returns a mapping between aggregation levels and the identifiers of the
+     * data elements which have the aggregation level.
+     */
+    private ListMap<Integer, Integer> getAggregationLevelDataElementMap()
+    {
+        final String sql = "select distinct aggregationlevel, dataelementid from dataelementaggregationlevels";
+
+        ListMap<Integer, Integer> map = new ListMap<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            map.putValue( rowSet.getInt( "aggregationlevel" ), rowSet.getInt( "dataelementid" ) );
+        }
+
+        return map;
+    }
+
     /**
      * Returns sub-query for approval level. First looks for approval level in
      * data element resource table which will indicate level 0 (highest) if approval
@@ -313,6 +377,8 @@ public class JdbcAnalyticsTableManager
         List<OrganisationUnitLevel> levels =
             organisationUnitService.getFilledOrganisationUnitLevels();
 
+        ListMap<Integer, Integer> aggregationLevelMap = getAggregationLevelDataElementMap();
+
         for ( DataElementGroupSet groupSet : dataElementGroupSets )
         {
             String[] col = { quote( groupSet.getUid() ), "character(11)", "degs." + quote( groupSet.getUid() ) };
@@ -352,7 +418,7 @@ public class JdbcAnalyticsTableManager
         for ( OrganisationUnitLevel level : levels )
         {
             String column = quote( PREFIX_ORGUNITLEVEL + level.getLevel() );
-            String[] col = { column, "character(11)", "ous." + column };
+            String[] col = { column, "character(11)", getOrgUnitLevelColumn( column, level.getLevel(), aggregationLevelMap ) };
             columns.add( col );
         }
 
@@ -401,42 +467,31 @@ public class JdbcAnalyticsTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Returns the years of the periods of data values which have been updated
+     * after the given date. Periods of data values which have been modified or
+     * deleted are identified through the data value audit table.
+     */
     @Override
-    @Async
-    public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables, Collection<String> dataElements, int aggregationLevel )
+    protected List<Integer> getUpdatedDataYears( Date earliest, Date lastUpdated )
     {
-        taskLoop:
-        while ( true )
-        {
-            AnalyticsTable table = tables.poll();
-
-            if ( table == null )
-            {
-                break taskLoop;
-            }
+        final String updated = DateUtils.getLongDateString( lastUpdated );
 
-            StringBuilder sql = new StringBuilder( "update " + table.getTempTableName() + " set " );
-
-            for ( int i = 0; i < aggregationLevel; i++ )
-            {
-                int level = i + 1;
-
-                String column = quote( DataQueryParams.LEVEL_PREFIX + level );
-
-                sql.append( column + " = null," );
-            }
-
-            sql.deleteCharAt( sql.length() - ",".length() );
-
-            sql.append( " where level > " + aggregationLevel );
-            sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
-
-            log.debug( "Aggregation level SQL: " + sql.toString() );
+        String sql =
+            "select distinct(extract(year from pe.startdate)) " +
+                "from period pe " +
+                "where pe.startdate is not null " +
+                "and (pe.periodid in (" +
+                    "select dv.periodid from datavalue dv where dv.lastupdated >= '" + updated + "') " +
+                "or pe.periodid in (" +
+                    "select dva.periodid from datavalueaudit dva where dva.timestamp >= '" + updated + "')) ";
 
-            jdbcTemplate.execute( sql.toString() );
+        if ( earliest != null )
+        {
+            sql += "and pe.startdate >= '" + DateUtils.getMediumDateString( earliest ) + "'";
         }
 
-        return null;
+        return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
     @Override
@@ -212,13 +212,6 @@ public class JdbcCompletenessTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
     
-    @Override
-    @Async
-    public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables, Collection<String> dataElements, int aggregationLevel )
-    {
-        return null; // Not relevant
-    }
-
     @Override
     @Async
     public Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables )
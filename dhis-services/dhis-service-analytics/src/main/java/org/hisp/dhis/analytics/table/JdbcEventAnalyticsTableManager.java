@@ -372,14 +372,6 @@ public class JdbcEventAnalyticsTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
     
-    @Override
-    @Async
-    public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables,
-        Collection<String> dataElements, int aggregationLevel )
-    {
-        return null; // Not relevant
-    }
-
     @Override
     @Async
     public Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables )
@@ -178,13 +178,6 @@ public class JdbcOrgUnitTargetTableManager
         return null; // Not relevant
     }
     
-    @Override
-    @Async
-    public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTable> tables, Collection<String> dataElements, int aggregationLevel )
-    {
-        return null; // Not relevant
-    }
-
     @Override
     @Async
     public Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTable> tables )
@@ -90,6 +90,19 @@ public class AnalyticsTableTask
         this.lastYears = lastYears;
     }
 
+    /**
+     * Whether to only rebuild the analytics table partitions with changed data.
+     * Resource tables and tables which do not support incremental updates are
+     * then skipped, unless metadata has changed since the last update, in which
+     * case a full update is performed.
+     */
+    private boolean incremental = false;
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
     private boolean skipResourceTables = false;
 
     public void setSkipResourceTables( boolean skipResourceTables )
@@ -132,7 +145,14 @@ public class AnalyticsTableTask
 
         try
         {
-            if ( !skipResourceTables )
+            final boolean fullUpdate = !incremental || !analyticsTableService.isIncrementalUpdatePossible();
+            
+            if ( incremental && fullUpdate )
+            {
+                notifier.notify( taskId, "Incremental update not possible, performing full update" );
+            }
+            
+            if ( !skipResourceTables && fullUpdate )
             {
                 notifier.notify( taskId, "Updating resource tables" );
                 analyticsTableService.generateResourceTables();
@@ -141,8 +161,11 @@ public class AnalyticsTableTask
             if ( !skipAggregate )
             {
                 notifier.notify( taskId, "Updating analytics tables" );
-                analyticsTableService.update( lastYears, taskId );
+                analyticsTableService.update( lastYears, !fullUpdate, taskId );
+            }
 
+            if ( !skipAggregate && fullUpdate )
+            {
                 notifier.notify( taskId, "Updating completeness table" );
                 completenessTableService.update( lastYears, taskId );
 
@@ -153,7 +176,7 @@ public class AnalyticsTableTask
                 orgUnitTargetTableService.update( lastYears, taskId );
             }
 
-            if ( !skipEvents )
+            if ( !skipEvents && fullUpdate )
             {
                 notifier.notify( taskId, "Updating event analytics table" );
                 eventAnalyticsTableService.update( lastYears, taskId );
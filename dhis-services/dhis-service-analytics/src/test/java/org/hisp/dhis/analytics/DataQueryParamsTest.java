@@ -169,4 +169,33 @@ public class DataQueryParamsTest
         assertEquals( DimensionType.ORGANISATIONUNIT, params.getDimensions().get( 0 ).getDimensionType() );
         assertEquals( 0, params.getFilters().size() );
     }
+
+    @Test
+    public void testGetKey()
+    {
+        DataQueryParams paramsA = new DataQueryParams();
+        paramsA.getDimensions().add( new BaseDimensionalObject( DimensionalObject.DATA_X_DIM_ID, DimensionType.DATA_X, null, null, 
+            Lists.newArrayList( deA, deB ) ) );
+        paramsA.getFilters().add( new BaseDimensionalObject( DimensionalObject.PERIOD_DIM_ID, DimensionType.PERIOD, null, null,
+            Lists.newArrayList( createPeriod( "201201" ), createPeriod( "201202" ) ) ) );
+
+        DataQueryParams paramsB = new DataQueryParams();
+        paramsB.getDimensions().add( new BaseDimensionalObject( DimensionalObject.DATA_X_DIM_ID, DimensionType.DATA_X, null, null, 
+            Lists.newArrayList( deB, deA ) ) );
+        paramsB.getFilters().add( new BaseDimensionalObject( DimensionalObject.PERIOD_DIM_ID, DimensionType.PERIOD, null, null,
+            Lists.newArrayList( createPeriod( "201202" ), createPeriod( "201201" ) ) ) );
+
+        DataQueryParams paramsC = new DataQueryParams();
+        paramsC.getDimensions().add( new BaseDimensionalObject( DimensionalObject.DATA_X_DIM_ID, DimensionType.DATA_X, null, null, 
+            Lists.newArrayList( deA, deB ) ) );
+        paramsC.getFilters().add( new BaseDimensionalObject( DimensionalObject.PERIOD_DIM_ID, DimensionType.PERIOD, null, null,
+            Lists.newArrayList( createPeriod( "201201" ), createPeriod( "201203" ) ) ) );
+        
+        assertEquals( paramsA.getKey(), paramsB.getKey() );
+        assertFalse( paramsA.getKey().equals( paramsC.getKey() ) );
+        
+        paramsB.setCompletedOnly( true );
+        
+        assertFalse( paramsA.getKey().equals( paramsB.getKey() ) );
+    }
 }
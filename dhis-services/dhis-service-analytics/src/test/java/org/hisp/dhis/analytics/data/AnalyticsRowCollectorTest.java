@@ -0,0 +1,124 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class AnalyticsRowCollectorTest
+    extends DhisSpringTest
+{
+    private static final String SQL = "select dx, pe, value, textvalue from analyticsrowcollector";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void setUpTest()
+    {
+        jdbcTemplate.execute( "drop table if exists analyticsrowcollector" );
+        jdbcTemplate.execute( "create table analyticsrowcollector (dx varchar(11), pe varchar(10), value double, textvalue varchar(50))" );
+
+        List<Object[]> rows = new ArrayList<>();
+
+        for ( int i = 0; i < 3000; i++ )
+        {
+            rows.add( new Object[] { "de" + ( i % 3 ), "pe" + i, i, "text" + i } );
+        }
+
+        rows.add( new Object[] { "deA", null, null, null } );
+
+        jdbcTemplate.batchUpdate( "insert into analyticsrowcollector values (?, ?, ?, ?)", rows );
+    }
+
+    @Test
+    public void testGetKeyValueMapNumeric()
+    {
+        AnalyticsRowCollector collector = new AnalyticsRowCollector( Lists.newArrayList( "dx", "pe" ), "value", false, 0, null );
+
+        jdbcTemplate.query( SQL, collector );
+
+        Map<String, Object> map = collector.getKeyValueMap();
+
+        assertEquals( 3001, collector.getSize() );
+        assertEquals( 3001, map.size() );
+        assertEquals( 0d, map.get( "de0-pe0" ) );
+        assertEquals( 1d, map.get( "de1-pe1" ) );
+        assertEquals( 2999d, map.get( "de2-pe2999" ) );
+        assertEquals( 0d, map.get( "deA-null" ) );
+    }
+
+    @Test
+    public void testGetKeyValueMapNumericFilter()
+    {
+        AnalyticsRowCollector collector = new AnalyticsRowCollector( Lists.newArrayList( "dx", "pe" ), "value", false, 0, value -> value >= 1000 );
+
+        jdbcTemplate.query( SQL, collector );
+
+        Map<String, Object> map = collector.getKeyValueMap();
+
+        assertEquals( 2000, map.size() );
+        assertEquals( 1000d, map.get( "de1-pe1000" ) );
+        assertFalse( map.containsKey( "de0-pe999" ) );
+    }
+
+    @Test
+    public void testGetKeyValueMapText()
+    {
+        AnalyticsRowCollector collector = new AnalyticsRowCollector( Lists.newArrayList( "dx", "pe" ), "textvalue", true, 0, null );
+
+        jdbcTemplate.query( SQL, collector );
+
+        Map<String, Object> map = collector.getKeyValueMap();
+
+        assertEquals( 3001, map.size() );
+        assertEquals( "text5", map.get( "de2-pe5" ) );
+        assertEquals( null, map.get( "deA-null" ) );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testMaxLimit()
+    {
+        AnalyticsRowCollector collector = new AnalyticsRowCollector( Lists.newArrayList( "dx", "pe" ), "value", false, 100, null );
+
+        jdbcTemplate.query( SQL, collector );
+    }
+}
@@ -0,0 +1,208 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.annotation.Resource;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Lists;
+
+public class JdbcAnalyticsTableManagerTest
+    extends DhisSpringTest
+{
+    @Resource( name = "org.hisp.dhis.analytics.AnalyticsTableManager" )
+    private AnalyticsTableManager tableManager;
+    
+    @Autowired
+    private DataElementService dataElementService;
+    
+    @Autowired
+    private DataElementCategoryService categoryService;
+    
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+    
+    @Autowired
+    private DataValueService dataValueService;
+    
+    @Autowired
+    private SessionFactory sessionFactory;
+    
+    private DataElement dataElementA;
+    
+    private DataValue dataValueA;
+    private DataValue dataValueB;
+    
+    @Override
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A' );
+        dataElementService.addDataElement( dataElementA );
+        
+        OrganisationUnit unitA = createOrganisationUnit( 'A' );
+        OrganisationUnit unitB = createOrganisationUnit( 'B', unitA );
+        organisationUnitService.addOrganisationUnit( unitA );
+        organisationUnitService.addOrganisationUnit( unitB );
+        
+        DataElementCategoryOptionCombo coc = categoryService.getDefaultDataElementCategoryOptionCombo();
+        
+        Period periodA = createPeriod( "201403" );
+        Period periodB = createPeriod( "201505" );
+        
+        dataValueA = createDataValue( dataElementA, periodA, unitA, "10", coc );
+        dataValueA.setLastUpdated( getDate( 2016, 1, 1 ) );
+        dataValueB = createDataValue( dataElementA, periodB, unitA, "20", coc );
+        dataValueB.setLastUpdated( getDate( 2016, 3, 1 ) );
+        
+        dataValueService.addDataValue( dataValueA );
+        dataValueService.addDataValue( dataValueB );
+        
+        sessionFactory.getCurrentSession().flush();
+    }
+    
+    @Test
+    public void testIsIncrementalUpdateSupported()
+    {
+        assertTrue( tableManager.isIncrementalUpdateSupported() );
+    }
+    
+    @Test
+    public void testGetUpdatedTables()
+    {
+        List<AnalyticsTable> tables = tableManager.getUpdatedTables( null, getDate( 2015, 6, 1 ) );
+        
+        assertEquals( 2, tables.size() );
+        assertEquals( "analytics_2014", tables.get( 0 ).getTableName() );
+        assertEquals( "analytics_2015", tables.get( 1 ).getTableName() );
+        
+        tables = tableManager.getUpdatedTables( null, getDate( 2016, 2, 1 ) );
+        
+        assertEquals( 1, tables.size() );
+        assertEquals( "analytics_2015", tables.get( 0 ).getTableName() );
+        
+        tables = tableManager.getUpdatedTables( null, getDate( 2016, 6, 1 ) );
+        
+        assertEquals( 0, tables.size() );
+    }
+    
+    @Test
+    public void testIsMetadataUpdated()
+    {
+        assertTrue( tableManager.isMetadataUpdated( getDate( 2000, 1, 1 ) ) );
+        assertFalse( tableManager.isMetadataUpdated( getDate( 2100, 1, 1 ) ) );
+    }
+    
+    @Test
+    public void testGetUpdatedTablesEarliest()
+    {
+        List<AnalyticsTable> tables = tableManager.getUpdatedTables( getDate( 2015, 1, 1 ), getDate( 2015, 6, 1 ) );
+        
+        assertEquals( 1, tables.size() );
+        assertEquals( "analytics_2015", tables.get( 0 ).getTableName() );
+    }
+    
+    @Test
+    public void testGetUpdatedTablesDeletedValue()
+    {
+        dataValueService.deleteDataValue( dataValueA );
+        
+        sessionFactory.getCurrentSession().flush();
+        
+        List<AnalyticsTable> tables = tableManager.getUpdatedTables( null, getDate( 2016, 2, 1 ) );
+        
+        assertEquals( 2, tables.size() );
+        assertEquals( "analytics_2014", tables.get( 0 ).getTableName() );
+        assertEquals( "analytics_2015", tables.get( 1 ).getTableName() );
+    }
+    
+    @Test
+    public void testGetOldestTransactionStart()
+    {
+        // Not supported by the test database
+        
+        assertNull( tableManager.getOldestTransactionStart() );
+    }
+    
+    @Test
+    public void testGetDimensionColumnsAggregationLevels()
+        throws Exception
+    {
+        dataElementA.setAggregationLevels( Lists.newArrayList( 1 ) );
+        dataElementService.updateDataElement( dataElementA );
+        
+        sessionFactory.getCurrentSession().flush();
+        
+        JdbcAnalyticsTableManager manager = (JdbcAnalyticsTableManager) getRealObject( tableManager );
+        
+        AnalyticsTable table = manager.getUpdatedTables( null, getDate( 2015, 6, 1 ) ).get( 0 );
+        
+        List<String[]> columns = manager.getDimensionColumns( table );
+        
+        String levelA = getSelectExpression( columns, "uidlevel1" );
+        String levelB = getSelectExpression( columns, "uidlevel2" );
+        
+        assertTrue( levelA.startsWith( "case when (ous.level > 1 and dv.dataelementid in (" + dataElementA.getId() + "))" ) );
+        assertFalse( levelB.contains( "case" ) );
+    }
+    
+    private String getSelectExpression( List<String[]> columns, String column )
+    {
+        for ( String[] col : columns )
+        {
+            if ( col[0].contains( column ) )
+            {
+                return col[2];
+            }
+        }
+        
+        return null;
+    }
+}
@@ -0,0 +1,177 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.mock.MockCurrentUserService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks parsing and import of data value sets in XML, JSON and CSV
+ * format. The same values are imported for every invocation, so that all
+ * invocations after the first one update existing values.
+ */
+public class DataValueSetImportBenchmark
+    extends DhisBenchmark
+{
+    private static final String PERIOD = "201501";
+
+    @Param( { "xml", "json", "csv" } )
+    private String format;
+
+    @Param( { "1000" } )
+    private int dataValueCount;
+
+    private DataValueSetService dataValueSetService;
+
+    private byte[] dataValueSet;
+
+    @Override
+    public void setUpBenchmark()
+    {
+        dataValueSetService = getBean( DataValueSetService.class );
+
+        DataElementService dataElementService = getBean( DataElementService.class );
+        OrganisationUnitService organisationUnitService = getBean( OrganisationUnitService.class );
+
+        List<DataElement> dataElements = new ArrayList<>();
+
+        for ( char c = 'A'; c <= 'J'; c++ )
+        {
+            DataElement dataElement = createDataElement( c );
+            dataElementService.addDataElement( dataElement );
+            dataElements.add( dataElement );
+        }
+
+        OrganisationUnit root = createOrganisationUnit( "Root" );
+        organisationUnitService.addOrganisationUnit( root );
+
+        List<OrganisationUnit> organisationUnits = new ArrayList<>();
+
+        for ( int i = 0; i < dataValueCount / dataElements.size(); i++ )
+        {
+            OrganisationUnit organisationUnit = createOrganisationUnit( "OrganisationUnit" + i, root );
+            organisationUnitService.addOrganisationUnit( organisationUnit );
+            organisationUnits.add( organisationUnit );
+        }
+
+        Set<OrganisationUnit> userOrganisationUnits = new HashSet<>();
+        userOrganisationUnits.add( root );
+
+        setDependency( dataValueSetService, "currentUserService", 
+            new MockCurrentUserService( userOrganisationUnits, null ), CurrentUserService.class );
+
+        dataValueSet = getDataValueSet( dataElements, organisationUnits ).getBytes( StandardCharsets.UTF_8 );
+    }
+
+    @Benchmark
+    public ImportSummary saveDataValueSet()
+    {
+        ByteArrayInputStream in = new ByteArrayInputStream( dataValueSet );
+
+        switch ( format )
+        {
+            case "json":
+                return dataValueSetService.saveDataValueSetJson( in );
+            case "csv":
+                return dataValueSetService.saveDataValueSetCsv( in, ImportOptions.getDefaultImportOptions() );
+            default:
+                return dataValueSetService.saveDataValueSet( in );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String getDataValueSet( List<DataElement> dataElements, List<OrganisationUnit> organisationUnits )
+    {
+        StringBuilder builder = new StringBuilder();
+
+        if ( "xml".equals( format ) )
+        {
+            builder.append( "<dataValueSet xmlns=\"http://dhis2.org/schema/dxf/2.0\">" );
+        }
+        else if ( "json".equals( format ) )
+        {
+            builder.append( "{\"dataValues\":[" );
+        }
+
+        int value = 0;
+
+        for ( OrganisationUnit organisationUnit : organisationUnits )
+        {
+            for ( DataElement dataElement : dataElements )
+            {
+                String de = dataElement.getUid();
+                String ou = organisationUnit.getUid();
+
+                if ( "xml".equals( format ) )
+                {
+                    builder.append( "<dataValue dataElement=\"" + de + "\" period=\"" + PERIOD + "\" orgUnit=\"" + ou + "\" value=\"" + value++ + "\"/>" );
+                }
+                else if ( "json".equals( format ) )
+                {
+                    builder.append( value > 0 ? "," : "" );
+                    builder.append( "{\"dataElement\":\"" + de + "\",\"period\":\"" + PERIOD + "\",\"orgUnit\":\"" + ou + "\",\"value\":\"" + value++ + "\"}" );
+                }
+                else
+                {
+                    builder.append( "\"" + de + "\",\"" + PERIOD + "\",\"" + ou + "\",\"\",\"\",\"" + value++ + "\"\n" );
+                }
+            }
+        }
+
+        if ( "xml".equals( format ) )
+        {
+            builder.append( "</dataValueSet>" );
+        }
+        else if ( "json".equals( format ) )
+        {
+            builder.append( "]}" );
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Base class for benchmarks which need the application context. The context
+ * is set up the same way as for {@link org.hisp.dhis.DhisSpringTest}, against
+ * the in-memory H2 database, and is shared by all benchmarks in a forked JVM.
+ * Fixtures are created with the methods of {@link DhisConvenienceTest}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 10, time = 1 )
+@Fork( 1 )
+public abstract class DhisBenchmark
+    extends DhisConvenienceTest
+{
+    private static ApplicationContext applicationContext;
+
+    protected ApplicationContext context;
+
+    // -------------------------------------------------------------------------
+    // Fixture
+    // -------------------------------------------------------------------------
+
+    @Setup( Level.Trial )
+    public final void setUpTrial()
+        throws Exception
+    {
+        context = getApplicationContext();
+
+        setUpBenchmark();
+    }
+
+    /**
+     * Method to override.
+     */
+    protected void setUpBenchmark()
+        throws Exception
+    {
+    }
+
+    // -------------------------------------------------------------------------
+    // Utility methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Retrieves a bean from the application context.
+     * 
+     * @param type the type of the bean.
+     */
+    protected <T> T getBean( Class<T> type )
+    {
+        return context.getBean( type );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static synchronized ApplicationContext getApplicationContext()
+        throws Exception
+    {
+        if ( applicationContext == null )
+        {
+            System.setProperty( "org.hisp.dhis.test", "true" );
+
+            applicationContext = new ClassPathXmlApplicationContext( 
+                "classpath*:/META-INF/dhis/beans.xml", "classpath*:/META-INF/dhis/security.xml" );
+
+            executeStartupRoutines( applicationContext );
+        }
+
+        return applicationContext;
+    }
+
+    private static void executeStartupRoutines( ApplicationContext context )
+        throws Exception
+    {
+        String id = "org.hisp.dhis.system.startup.StartupRoutineExecutor";
+
+        if ( context.containsBean( id ) )
+        {
+            Object object = context.getBean( id );
+
+            Method method = object.getClass().getMethod( "executeForTesting", new Class[ 0 ] );
+
+            method.invoke( object, new Object[ 0 ] );
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.expression.Expression;
+import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.expression.MissingValueStrategy;
+import org.hisp.dhis.indicator.Indicator;
+import org.hisp.dhis.period.Period;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmarks evaluation of indicator and validation rule expressions
+ * against maps of values, as done during analytics queries and validation
+ * runs.
+ */
+public class ExpressionServiceBenchmark
+    extends DhisBenchmark
+{
+    private static final String COC_UID = "cocabcdefgA";
+
+    private ExpressionService expressionService;
+
+    private Indicator indicator;
+
+    private Expression expression;
+
+    private Period period;
+
+    private Map<DataElementOperand, Double> valueMap = new HashMap<>();
+
+    private Map<String, Double> constantMap = new HashMap<>();
+
+    private Map<String, Integer> orgUnitCountMap = new HashMap<>();
+
+    @Override
+    public void setUpBenchmark()
+    {
+        expressionService = getBean( ExpressionService.class );
+
+        DataElement deA = createDataElement( 'A' );
+        DataElement deB = createDataElement( 'B' );
+        DataElement deC = createDataElement( 'C' );
+        DataElement deD = createDataElement( 'D' );
+
+        Constant constant = createConstant( 'A', 2.5 );
+
+        valueMap.put( new DataElementOperand( deA.getUid(), COC_UID ), 12d );
+        valueMap.put( new DataElementOperand( deB.getUid(), COC_UID ), 34d );
+        valueMap.put( new DataElementOperand( deC.getUid(), null ), 56d );
+        valueMap.put( new DataElementOperand( deD.getUid(), COC_UID ), 78d );
+        constantMap.put( constant.getUid(), constant.getValue() );
+        orgUnitCountMap.put( "ouabcdefghA", 20 );
+
+        String numerator = "#{" + deA.getUid() + "." + COC_UID + "}+#{" + deB.getUid() + "." + COC_UID + "}*" +
+            "C{" + constant.getUid() + "}-#{" + deC.getUid() + "}";
+        String denominator = "(#{" + deD.getUid() + "." + COC_UID + "}+OUG{ouabcdefghA})/[days]";
+
+        indicator = createIndicator( 'A', createIndicatorType( 'A' ) );
+        indicator.setExplodedNumerator( numerator );
+        indicator.setExplodedDenominator( denominator );
+
+        expression = new Expression( numerator, "Expression", null );
+        expression.setExplodedExpression( numerator );
+        expression.setMissingValueStrategy( MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING );
+
+        period = createPeriod( "201501" );
+    }
+
+    @Benchmark
+    public Double getIndicatorValue()
+    {
+        return expressionService.getIndicatorValue( indicator, period, valueMap, constantMap, orgUnitCountMap );
+    }
+
+    @Benchmark
+    public Double getExpressionValue()
+    {
+        return expressionService.getExpressionValue( expression, valueMap, constantMap, orgUnitCountMap, 31 );
+    }
+}
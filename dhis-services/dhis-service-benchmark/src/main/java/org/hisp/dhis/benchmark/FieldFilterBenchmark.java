@@ -0,0 +1,132 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementGroup;
+import org.hisp.dhis.fieldfilter.FieldFilterService;
+import org.hisp.dhis.node.NodeService;
+import org.hisp.dhis.node.NodeUtils;
+import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.RootNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks field filtering of object lists and serialization of the
+ * resulting node trees, as done by the web API for metadata lists.
+ */
+public class FieldFilterBenchmark
+    extends DhisBenchmark
+{
+    @Param( { "id,name", "id,name,code,created,lastUpdated", "id,name,dataElementGroups[id,name]" } )
+    private String fields;
+
+    @Param( { "application/json", "application/xml" } )
+    private String contentType;
+
+    @Param( { "1000" } )
+    private int objectCount;
+
+    private FieldFilterService fieldFilterService;
+
+    private NodeService nodeService;
+
+    private List<DataElement> dataElements = new ArrayList<>();
+
+    private List<String> fieldList;
+
+    @Override
+    public void setUpBenchmark()
+    {
+        fieldFilterService = getBean( FieldFilterService.class );
+        nodeService = getBean( NodeService.class );
+
+        DataElementGroup groupA = createDataElementGroup( 'A' );
+        DataElementGroup groupB = createDataElementGroup( 'B' );
+
+        for ( int i = 0; i < objectCount; i++ )
+        {
+            DataElement dataElement = createDataElement( 'A' );
+            dataElement.setUid( CodeGenerator.generateCode() );
+            dataElement.setName( "DataElement" + i );
+            dataElement.setCode( "DataElementCode" + i );
+
+            groupA.addDataElement( dataElement );
+
+            if ( i % 2 == 0 )
+            {
+                groupB.addDataElement( dataElement );
+            }
+
+            dataElements.add( dataElement );
+        }
+
+        fieldList = Arrays.asList( fields );
+    }
+
+    @Benchmark
+    public CollectionNode filter()
+    {
+        return fieldFilterService.filter( DataElement.class, dataElements, fieldList );
+    }
+
+    @Benchmark
+    public int filterAndSerialize()
+    {
+        return serialize( fieldFilterService.filter( DataElement.class, dataElements, fieldList ) );
+    }
+
+    @Benchmark
+    public int filterLazyAndSerialize()
+    {
+        return serialize( fieldFilterService.filterLazy( DataElement.class, dataElements, fieldList ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int serialize( CollectionNode collectionNode )
+    {
+        RootNode rootNode = NodeUtils.createMetadata( collectionNode );
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        nodeService.serialize( rootNode, contentType, outputStream );
+
+        return outputStream.size();
+    }
+}
@@ -0,0 +1,115 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.AnalyticsTableManager.ANALYTICS_TABLE_NAME;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.DataQueryGroups;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.common.NameableObject;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmarks planning of analytics queries spanning several aggregation
+ * types, period types and partitions.
+ */
+public class QueryPlannerBenchmark
+    extends DhisBenchmark
+{
+    private static final int OPTIMAL_QUERIES = 8;
+
+    private QueryPlanner queryPlanner;
+
+    private DataQueryParams params;
+
+    @Override
+    public void setUpBenchmark()
+    {
+        queryPlanner = getBean( QueryPlanner.class );
+
+        DataElementService dataElementService = getBean( DataElementService.class );
+        OrganisationUnitService organisationUnitService = getBean( OrganisationUnitService.class );
+
+        List<NameableObject> dataElements = new ArrayList<>();
+
+        for ( char c = 'A'; c <= 'P'; c++ )
+        {
+            AggregationType aggregationType = c % 2 == 0 ? AggregationType.SUM : AggregationType.AVERAGE_SUM_ORG_UNIT;
+
+            DataElement dataElement = createDataElement( c, ValueType.INTEGER, aggregationType );
+            dataElementService.addDataElement( dataElement );
+            dataElements.add( dataElement );
+        }
+
+        List<NameableObject> organisationUnits = new ArrayList<>();
+
+        for ( int i = 0; i < 50; i++ )
+        {
+            OrganisationUnit organisationUnit = createOrganisationUnit( "OrganisationUnit" + i );
+            organisationUnitService.addOrganisationUnit( organisationUnit );
+            organisationUnits.add( organisationUnit );
+        }
+
+        List<NameableObject> periods = new ArrayList<>();
+
+        for ( int year = 2013; year <= 2014; year++ )
+        {
+            for ( int month = 1; month <= 12; month++ )
+            {
+                periods.add( createPeriod( year + ( month < 10 ? "0" : "" ) + month ) );
+            }
+
+            for ( int quarter = 1; quarter <= 4; quarter++ )
+            {
+                periods.add( createPeriod( year + "Q" + quarter ) );
+            }
+        }
+
+        params = new DataQueryParams();
+        params.setDataElements( dataElements );
+        params.setOrganisationUnits( organisationUnits );
+        params.setPeriods( periods );
+    }
+
+    @Benchmark
+    public DataQueryGroups planQuery()
+    {
+        return queryPlanner.planQuery( params, OPTIMAL_QUERIES, ANALYTICS_TABLE_NAME );
+    }
+}
@@ -0,0 +1,327 @@
+package org.hisp.dhis.common.hibernate;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hisp.dhis.cache.CacheInvalidationService;
+import org.hisp.dhis.common.WatermarkService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Watermark service which tracks changes through Hibernate event listeners.
+ * Watermarks are updated after the transaction of the change has completed,
+ * so that a watermark never moves ahead of the data visible to readers.
+ * Watermarks start from the time of startup and are kept in memory. Changes
+ * on other nodes are received through the cache invalidation service, and
+ * changes made outside of Hibernate are broadcast as region invalidations.
+ * As invalidations are delivered on a best-effort basis, all watermarks move
+ * at least once per expiry period, so that validators and caches keyed on a
+ * watermark which missed a change from another node are refreshed.
+ */
+public class HibernateWatermarkService
+    implements WatermarkService
+{
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    /**
+     * Expiry period of watermarks in milliseconds. Periods are aligned on the
+     * clock so that the nodes of a cluster move their watermarks together.
+     */
+    private static final long WATERMARK_EXPIRY = TimeUnit.MINUTES.toMillis( 15 );
+
+    private final AtomicLong sequence = new AtomicLong( System.currentTimeMillis() );
+
+    /**
+     * Watermark of classes without changes, moves when all classes change.
+     */
+    private volatile long baseWatermark = sequence.get();
+
+    private final Map<Class<?>, Long> watermarks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerListeners()
+    {
+        EventListenerRegistry registry = ((SessionFactoryImpl) sessionFactory).getServiceRegistry()
+            .getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_INSERT ).appendListener( postInsertEventListener );
+        registry.getEventListenerGroup( EventType.POST_UPDATE ).appendListener( postUpdateEventListener );
+        registry.getEventListenerGroup( EventType.POST_DELETE ).appendListener( postDeleteEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_RECREATE ).appendListener( postCollectionRecreateEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_UPDATE ).appendListener( postCollectionUpdateEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_REMOVE ).appendListener( postCollectionRemoveEventListener );
+
+        cacheInvalidationService.addListener( entityClass -> {
+            if ( entityClass != null )
+            {
+                advance( entityClass );
+            }
+            else
+            {
+                baseWatermark = sequence.updateAndGet( value -> Math.max( value + 1, System.currentTimeMillis() ) );
+            }
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // WatermarkService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public long getWatermark( Class<?> clazz )
+    {
+        long watermark = getBaseWatermark();
+
+        for ( Map.Entry<Class<?>, Long> entry : watermarks.entrySet() )
+        {
+            if ( clazz.isAssignableFrom( entry.getKey() ) )
+            {
+                watermark = Math.max( watermark, entry.getValue() );
+            }
+        }
+
+        return watermark;
+    }
+
+    @Override
+    public long getWatermark( Collection<Class<?>> classes )
+    {
+        long watermark = getBaseWatermark();
+
+        for ( Class<?> clazz : classes )
+        {
+            watermark = Math.max( watermark, getWatermark( clazz ) );
+        }
+
+        return watermark;
+    }
+
+    @Override
+    public boolean isUpdatePending( Class<?> clazz )
+    {
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource( this );
+
+        return changes != null && changes.classes.keySet().stream().anyMatch( clazz::isAssignableFrom );
+    }
+
+    @Override
+    public Set<Serializable> getPendingIds( Class<?> clazz )
+    {
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource( this );
+
+        Set<Serializable> pendingIds = new HashSet<>();
+
+        if ( changes == null )
+        {
+            return pendingIds;
+        }
+
+        for ( Class<?> changedClass : changes.classes.keySet() )
+        {
+            if ( clazz.isAssignableFrom( changedClass ) )
+            {
+                Set<Serializable> ids = changes.ids.get( changedClass );
+
+                if ( ids == null )
+                {
+                    return null;
+                }
+
+                pendingIds.addAll( ids );
+            }
+        }
+
+        return pendingIds;
+    }
+
+    @Override
+    public void update( Class<?> clazz )
+    {
+        updateAfterCompletion( clazz, null, true );
+    }
+
+    // -------------------------------------------------------------------------
+    // Event listeners
+    // -------------------------------------------------------------------------
+
+    private final PostInsertEventListener postInsertEventListener = event -> updateAfterCompletion( event.getPersister().getMappedClass(), event.getId(), false );
+
+    private final PostUpdateEventListener postUpdateEventListener = event -> updateAfterCompletion( event.getPersister().getMappedClass(), event.getId(), false );
+
+    private final PostDeleteEventListener postDeleteEventListener = event -> updateAfterCompletion( event.getPersister().getMappedClass(), event.getId(), false );
+
+    private final PostCollectionRecreateEventListener postCollectionRecreateEventListener = this::updateOwnerAfterCompletion;
+
+    private final PostCollectionUpdateEventListener postCollectionUpdateEventListener = this::updateOwnerAfterCompletion;
+
+    private final PostCollectionRemoveEventListener postCollectionRemoveEventListener = this::updateOwnerAfterCompletion;
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void updateOwnerAfterCompletion( AbstractCollectionEvent event )
+    {
+        if ( event.getAffectedOwnerEntityName() != null )
+        {
+            updateAfterCompletion( ((SessionFactoryImplementor) sessionFactory).getEntityPersister(
+                event.getAffectedOwnerEntityName() ).getMappedClass(), event.getAffectedOwnerIdOrNull(), false );
+        }
+    }
+
+    /**
+     * Updates the watermark of the given class when the current transaction
+     * completes, or immediately if there is no transaction. Classes are
+     * collected per transaction so that each class is updated once, along
+     * with the identifiers of the changed objects. Changes which are not seen
+     * by the Hibernate listeners of other nodes are broadcast once committed.
+     *
+     * @param clazz the class.
+     * @param id the identifier of the changed object, or null if not known.
+     * @param broadcast whether to broadcast the change to other nodes.
+     */
+    private void updateAfterCompletion( Class<?> clazz, Serializable id, boolean broadcast )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            advance( clazz );
+
+            if ( broadcast )
+            {
+                cacheInvalidationService.invalidateRegion( clazz.getName() );
+            }
+
+            return;
+        }
+
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource( this );
+
+        if ( changes == null )
+        {
+            TransactionChanges transactionChanges = new TransactionChanges();
+
+            TransactionSynchronizationManager.bindResource( this, transactionChanges );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( HibernateWatermarkService.this );
+
+                    transactionChanges.classes.forEach( ( transactionClass, transactionBroadcast ) -> {
+                        advance( transactionClass );
+
+                        if ( transactionBroadcast && TransactionSynchronization.STATUS_COMMITTED == status )
+                        {
+                            cacheInvalidationService.invalidateRegion( transactionClass.getName() );
+                        }
+                    } );
+                }
+            } );
+
+            changes = transactionChanges;
+        }
+
+        boolean known = !changes.classes.containsKey( clazz ) || changes.ids.containsKey( clazz );
+
+        changes.classes.merge( clazz, broadcast, Boolean::logicalOr );
+
+        if ( id != null && known )
+        {
+            changes.ids.computeIfAbsent( clazz, key -> new HashSet<>() ).add( id );
+        }
+        else
+        {
+            changes.ids.remove( clazz );
+        }
+    }
+
+    /**
+     * Returns the watermark of classes without changes, which is at least the
+     * start of the current expiry period.
+     */
+    private long getBaseWatermark()
+    {
+        long now = System.currentTimeMillis();
+
+        return Math.max( baseWatermark, now - now % WATERMARK_EXPIRY );
+    }
+
+    private void advance( Class<?> clazz )
+    {
+        watermarks.put( clazz, sequence.updateAndGet( value -> Math.max( value + 1, System.currentTimeMillis() ) ) );
+    }
+
+    /**
+     * Changes of a transaction.
+     */
+    private static class TransactionChanges
+    {
+        /**
+         * Changed classes mapped to whether the change is to be broadcast.
+         */
+        private final Map<Class<?>, Boolean> classes = new HashMap<>();
+
+        /**
+         * Identifiers of changed objects by class. Classes with changes which
+         * are not known by identifier are left out.
+         */
+        private final Map<Class<?>, Set<Serializable>> ids = new HashMap<>();
+    }
+}
@@ -31,19 +31,15 @@ package org.hisp.dhis.dataanalysis;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.dataelement.DataElement;
-import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
-import org.hisp.dhis.system.util.MathUtils;
 
 /**
  * @author Lars Helge Overland
@@ -74,49 +70,16 @@ public class StdDevOutlierAnalysisService
     {
         log.info( "Starting std dev analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor + ", from: " + from );
 
-        List<DeflatedDataValue> outlierCollection = new ArrayList<>();
-
-        loop : for ( DataElement dataElement : dataElements )
+        if ( stdDevFactor == null )
         {
-            // TODO filter periods with data element period type
-            // TODO use _orgunitstructure to find org units instead of in clause
-
-            if ( dataElement.getValueType().isNumeric() )
-            {
-                Set<DataElementCategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryCombo().getOptionCombos();
-
-                for ( DataElementCategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
-                {
-                    Map<Integer, Double> standardDeviations = dataAnalysisStore.getStandardDeviation( dataElement, categoryOptionCombo, parents, from );
-
-                    Map<Integer, Double> averages = dataAnalysisStore.getAverage( dataElement, categoryOptionCombo, parents, from );
-
-                    Map<Integer, Integer> lowBoundMap = new HashMap<>();
-                    Map<Integer, Integer> highBoundMap = new HashMap<>();
-
-                    for ( Integer unit : averages.keySet() )
-                    {
-                        Double stdDev = standardDeviations.get( unit );
-                        Double avg = averages.get( unit );
-
-                        if ( stdDev != null && stdDevFactor != null && avg != null )
-                        {
-                            lowBoundMap.put( unit, (int) MathUtils.getLowBound( stdDev, stdDevFactor, avg ) );
-                            highBoundMap.put( unit, (int) MathUtils.getHighBound( stdDev, stdDevFactor, avg ) );
-                        }
-                    }
+            return new ArrayList<>();
+        }
 
-                    outlierCollection.addAll( dataAnalysisStore.getDeflatedDataValues( dataElement, categoryOptionCombo, periods,
-                        lowBoundMap, highBoundMap ) );
+        // TODO filter periods with data element period type
 
-                    if ( outlierCollection.size() > MAX_OUTLIERS )
-                    {
-                        break loop;
-                    }
-                }
-            }
-        }
+        List<DataElement> numericDataElements = dataElements.stream().
+            filter( dataElement -> dataElement.getValueType().isNumeric() ).collect( Collectors.toList() );
 
-        return outlierCollection;
+        return dataAnalysisStore.getStdDevOutliers( numericDataElements, periods, parents, stdDevFactor, from, MAX_OUTLIERS + 1 ); // +1 to detect overflow
     }
 }
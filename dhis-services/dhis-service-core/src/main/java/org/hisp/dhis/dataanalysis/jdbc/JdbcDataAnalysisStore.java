@@ -33,12 +33,15 @@ import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
 import static org.hisp.dhis.system.util.MathUtils.isEqual;
 
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +58,8 @@ import org.hisp.dhis.system.objectmapper.DeflatedDataValueNameMinMaxRowMapper;
 import org.hisp.dhis.system.util.DateUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * @author Lars Helge Overland
@@ -64,6 +69,8 @@ public class JdbcDataAnalysisStore
     implements DataAnalysisStore
 {
     private static final Log log = LogFactory.getLog( JdbcDataAnalysisStore.class );
+
+    private static final int FETCH_SIZE = 1000;
     
     // -------------------------------------------------------------------------
     // Dependencies
@@ -83,6 +90,13 @@ public class JdbcDataAnalysisStore
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    private PlatformTransactionManager transactionManager;
+
+    public void setTransactionManager( PlatformTransactionManager transactionManager )
+    {
+        this.transactionManager = transactionManager;
+    }
+
     // -------------------------------------------------------------------------
     // OutlierAnalysisStore implementation
     // -------------------------------------------------------------------------
@@ -175,6 +189,83 @@ public class JdbcDataAnalysisStore
         return map;        
     }
     
+    @Override
+    public List<DeflatedDataValue> getStdDevOutliers( Collection<DataElement> dataElements, Collection<Period> periods, 
+        Collection<OrganisationUnit> parents, double stdDevFactor, Date from, int limit )
+    {
+        if ( dataElements.isEmpty() || periods.isEmpty() || parents.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+        
+        Map<Integer, Set<Integer>> categoryOptionCombos = new HashMap<>();
+        Set<Integer> categoryOptionComboIds = new HashSet<>();
+        
+        for ( DataElement dataElement : dataElements )
+        {
+            Set<Integer> ids = new HashSet<>( getIdentifiers( dataElement.getCategoryCombo().getOptionCombos() ) );
+            
+            categoryOptionCombos.put( dataElement.getId(), ids );
+            categoryOptionComboIds.addAll( ids );
+        }
+        
+        Set<Integer> periodIds = new HashSet<>( getIdentifiers( periods ) );
+        
+        String fromDate = DateUtils.getMediumDateString( from );
+        
+        String sql = 
+            "select dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid, dv.periodid, dv.value, " +
+            "case when pe.startdate >= '" + fromDate + "' then 1 else 0 end as stats " +
+            "from datavalue dv " +
+            "inner join period pe on dv.periodid = pe.periodid " +
+            "inner join organisationunit ou on dv.sourceid = ou.organisationunitid " +
+            "where dv.dataelementid in (" + getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") " +
+            "and dv.categoryoptioncomboid in (" + getCommaDelimitedString( categoryOptionComboIds ) + ") " +
+            "and ( pe.startdate >= '" + fromDate + "' or dv.periodid in (" + getCommaDelimitedString( periodIds ) + ") ) " +
+            "and dv.value is not null " +
+            "and (";
+        
+        for ( OrganisationUnit parent : parents )
+        {
+            sql += "ou.path like '" + parent.getPath() + "%' or ";
+        }
+        
+        sql = TextUtils.removeLastOr( sql ) + ") " +
+            "order by dv.sourceid, dv.dataelementid, dv.categoryoptioncomboid";
+        
+        final String query = sql;
+        
+        StdDevOutlierCollector collector = new StdDevOutlierCollector( categoryOptionCombos, periodIds, stdDevFactor, limit );
+        
+        // Read-only transaction as PostgreSQL only honours fetch size without auto-commit
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate( transactionManager );
+        transactionTemplate.setReadOnly( true );
+        
+        transactionTemplate.execute( status -> {
+            try
+            {
+                jdbcTemplate.query( connection -> {
+                    PreparedStatement statement = connection.prepareStatement( query );
+                    statement.setFetchSize( FETCH_SIZE );
+                    return statement;
+                }, collector );
+            }
+            catch ( StdDevOutlierCollector.LimitReachedException ex )
+            {
+                log.debug( "Stopped std dev outlier query at limit: " + limit );
+            }
+            
+            return null;
+        } );
+        
+        List<DeflatedDataValue> outliers = collector.getOutliers();
+        
+        addDetails( outliers );
+        
+        return outliers;
+    }
+    
     @Override
     public List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements, Collection<DataElementCategoryOptionCombo> categoryOptionCombos,
         Collection<Period> periods, Collection<OrganisationUnit> parents, int limit )
@@ -274,6 +365,64 @@ public class JdbcDataAnalysisStore
         return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( lowerBoundMap, upperBoundMap ) );
     }
 
+    /**
+     * Populates the given DeflatedDataValues, which must have identifiers set,
+     * with value, audit properties and names.
+     */
+    private void addDetails( List<DeflatedDataValue> dataValues )
+    {
+        Map<DeflatedDataValue, DeflatedDataValue> valueMap = new HashMap<>();
+        
+        dataValues.forEach( value -> valueMap.put( value, value ) );
+        
+        for ( List<DeflatedDataValue> page : new PaginatedList<>( dataValues ).setPageSize( 100 ).getPages() )
+        {
+            String sql = 
+                "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.value, dv.storedby, dv.lastupdated, " +
+                "dv.created, dv.comment, dv.followup, ou.name as sourcename, de.name as dataelementname, " +
+                "pt.name as periodtypename, pe.startdate, pe.enddate, coc.name as categoryoptioncomboname " +
+                "from datavalue dv " +
+                "join dataelement de on dv.dataelementid = de.dataelementid " +
+                "join period pe on dv.periodid = pe.periodid " +
+                "join periodtype pt on pe.periodtypeid = pt.periodtypeid " +
+                "join organisationunit ou on dv.sourceid = ou.organisationunitid " +
+                "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid " +
+                "where ";
+            
+            for ( DeflatedDataValue value : page )
+            {
+                sql += "( dv.dataelementid = " + value.getDataElementId() + " and dv.periodid = " + value.getPeriodId() + " " +
+                    "and dv.sourceid = " + value.getSourceId() + " and dv.categoryoptioncomboid = " + value.getCategoryOptionComboId() + " ) or ";
+            }
+            
+            sql = TextUtils.removeLastOr( sql );
+            
+            jdbcTemplate.query( sql, rs -> {
+                DeflatedDataValue key = new DeflatedDataValue();
+                key.setDataElementId( rs.getInt( "dataelementid" ) );
+                key.setPeriodId( rs.getInt( "periodid" ) );
+                key.setSourceId( rs.getInt( "sourceid" ) );
+                key.setCategoryOptionComboId( rs.getInt( "categoryoptioncomboid" ) );
+                
+                DeflatedDataValue value = valueMap.get( key );
+                
+                if ( value != null )
+                {
+                    value.setValue( rs.getString( "value" ) );
+                    value.setStoredBy( rs.getString( "storedby" ) );
+                    value.setCreated( rs.getDate( "created" ) );
+                    value.setLastUpdated( rs.getDate( "lastupdated" ) );
+                    value.setComment( rs.getString( "comment" ) );
+                    value.setFollowup( rs.getBoolean( "followup" ) );
+                    value.setDataElementName( rs.getString( "dataelementname" ) );
+                    value.setPeriod( rs.getString( "periodtypename" ), rs.getString( "startdate" ), rs.getString( "enddate" ) );
+                    value.setSourceName( rs.getString( "sourcename" ) );
+                    value.setCategoryOptionComboName( rs.getString( "categoryoptioncomboname" ) );
+                }
+            } );
+        }
+    }
+
     @Override
     public List<DeflatedDataValue> getFollowupDataValues( OrganisationUnit organisationUnit, int limit )
     {
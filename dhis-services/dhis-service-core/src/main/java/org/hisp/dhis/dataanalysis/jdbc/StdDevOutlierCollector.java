@@ -0,0 +1,263 @@
+package org.hisp.dhis.dataanalysis.jdbc;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.system.util.MathUtils.getHighBound;
+import static org.hisp.dhis.system.util.MathUtils.getLowBound;
+import static org.hisp.dhis.system.util.MathUtils.isZero;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * Row callback handler which finds standard deviation outliers in a single
+ * pass over a data value result set. Rows must be ordered by source,
+ * data element and category option combo. The mean and standard deviation of
+ * each such group is computed with an online (Welford) accumulator, while
+ * the values of the periods under analysis are kept in primitive arrays until
+ * the group ends and the bounds are known.
+ * 
+ * The result set is expected to have the columns sourceid, dataelementid,
+ * categoryoptioncomboid, periodid, value and stats, where stats is 1 if the
+ * value should be included in the mean and standard deviation.
+ * 
+ * Once the limit is reached a {@link LimitReachedException} is thrown from
+ * {@link #processRow(ResultSet)} so that the caller can stop reading the
+ * result set. The outliers collected so far are still available.
+ */
+public class StdDevOutlierCollector
+    implements RowCallbackHandler
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<Integer, Set<Integer>> categoryOptionCombos;
+
+    private final Set<Integer> periods;
+
+    private final double stdDevFactor;
+
+    private final int limit;
+
+    private final List<DeflatedDataValue> outliers = new ArrayList<>();
+
+    // -------------------------------------------------------------------------
+    // Current group
+    // -------------------------------------------------------------------------
+
+    private int sourceId = -1;
+
+    private int dataElementId = -1;
+
+    private int categoryOptionComboId = -1;
+
+    private boolean skip;
+
+    private long count;
+
+    private double mean;
+
+    private double m2;
+
+    private int[] candidatePeriods = new int[INITIAL_CAPACITY];
+
+    private double[] candidateValues = new double[INITIAL_CAPACITY];
+
+    private int candidates;
+
+    /**
+     * @param categoryOptionCombos mapping between data element identifiers and
+     *        the identifiers of their category option combos.
+     * @param periods the identifiers of the periods to find outliers for.
+     * @param stdDevFactor the number of standard deviations from the mean
+     *        before a value is considered an outlier.
+     * @param limit the max number of outliers to collect.
+     */
+    public StdDevOutlierCollector( Map<Integer, Set<Integer>> categoryOptionCombos, Set<Integer> periods,
+        double stdDevFactor, int limit )
+    {
+        this.categoryOptionCombos = categoryOptionCombos;
+        this.periods = periods;
+        this.stdDevFactor = stdDevFactor;
+        this.limit = limit;
+    }
+
+    // -------------------------------------------------------------------------
+    // RowCallbackHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void processRow( ResultSet rs )
+        throws SQLException
+    {
+        if ( outliers.size() >= limit )
+        {
+            throw new LimitReachedException();
+        }
+
+        int source = rs.getInt( "sourceid" );
+        int dataElement = rs.getInt( "dataelementid" );
+        int categoryOptionCombo = rs.getInt( "categoryoptioncomboid" );
+
+        if ( source != sourceId || dataElement != dataElementId || categoryOptionCombo != categoryOptionComboId )
+        {
+            endGroup();
+
+            if ( outliers.size() >= limit )
+            {
+                throw new LimitReachedException();
+            }
+
+            sourceId = source;
+            dataElementId = dataElement;
+            categoryOptionComboId = categoryOptionCombo;
+
+            Set<Integer> optionCombos = categoryOptionCombos.get( dataElement );
+            skip = optionCombos == null || !optionCombos.contains( categoryOptionCombo );
+        }
+
+        if ( skip )
+        {
+            return;
+        }
+
+        double value;
+
+        try
+        {
+            value = Double.parseDouble( rs.getString( "value" ) );
+        }
+        catch ( NullPointerException | NumberFormatException ex )
+        {
+            return;
+        }
+
+        if ( rs.getInt( "stats" ) == 1 )
+        {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * ( value - mean );
+        }
+
+        int period = rs.getInt( "periodid" );
+
+        if ( periods.contains( period ) )
+        {
+            if ( candidates == candidateValues.length )
+            {
+                candidatePeriods = Arrays.copyOf( candidatePeriods, candidates * 2 );
+                candidateValues = Arrays.copyOf( candidateValues, candidates * 2 );
+            }
+
+            candidatePeriods[candidates] = period;
+            candidateValues[candidates] = value;
+            candidates++;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Result
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the collected outliers. Only identifiers, value and the min and
+     * max bounds are set on the returned values.
+     */
+    public List<DeflatedDataValue> getOutliers()
+    {
+        endGroup();
+
+        return outliers;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Flags the candidate values of the current group which fall outside the
+     * bounds, and resets the accumulators.
+     */
+    private void endGroup()
+    {
+        if ( candidates > 0 && count > 0 )
+        {
+            double stdDev = Math.sqrt( m2 / count );
+
+            if ( !isZero( stdDev ) )
+            {
+                int lowBound = (int) getLowBound( stdDev, stdDevFactor, mean );
+                int highBound = (int) getHighBound( stdDev, stdDevFactor, mean );
+
+                for ( int i = 0; i < candidates && outliers.size() < limit; i++ )
+                {
+                    double value = candidateValues[i];
+
+                    if ( value < lowBound || value > highBound )
+                    {
+                        DeflatedDataValue outlier = new DeflatedDataValue();
+                        outlier.setSourceId( sourceId );
+                        outlier.setDataElementId( dataElementId );
+                        outlier.setCategoryOptionComboId( categoryOptionComboId );
+                        outlier.setPeriodId( candidatePeriods[i] );
+                        outlier.setMin( lowBound );
+                        outlier.setMax( highBound );
+                        outliers.add( outlier );
+                    }
+                }
+            }
+        }
+
+        count = 0;
+        mean = 0d;
+        m2 = 0d;
+        candidates = 0;
+    }
+
+    /**
+     * Thrown when the max number of outliers has been collected, to stop the
+     * iteration over the result set.
+     */
+    public static class LimitReachedException
+        extends RuntimeException
+    {
+        private LimitReachedException()
+        {
+            super( "Max number of outliers reached", null, false, false );
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -327,6 +328,16 @@ public class DefaultDataValueService
         return dataValueStore.getDataValueMapByAttributeCombo( dataElements, date, source, periodTypes, attributeCombo,
                cogDimensionConstraints, coDimensionConstraints, lastUpdatedMap );
     }
+
+    @Override
+    public Map<Integer, MapMap<Integer, DataElementOperand, Double>> getDataValueMapByAttributeCombo( Collection<DataElement> dataElements, Date date,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
+        Map<Integer, MapMap<Integer, DataElementOperand, Date>> lastUpdatedMap )
+    {
+        return dataValueStore.getDataValueMapByAttributeCombo( dataElements, date, sources, periodTypes, attributeCombo,
+            cogDimensionConstraints, coDimensionConstraints, lastUpdatedMap );
+    }
     
     @Override
     public Collection<DeflatedDataValue> getDeflatedDataValues( int dataElementId, int periodId, Collection<Integer> sourceIds )
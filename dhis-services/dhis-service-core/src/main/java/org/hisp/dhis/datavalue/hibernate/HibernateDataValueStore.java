@@ -33,8 +33,11 @@ import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -465,9 +468,30 @@ public class HibernateDataValueStore
         Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
         MapMap<Integer, DataElementOperand, Date> lastUpdatedMap )
     {
-        MapMap<Integer, DataElementOperand, Double> map = new MapMap<>();
+        Map<Integer, MapMap<Integer, DataElementOperand, Date>> sourceLastUpdatedMap = lastUpdatedMap != null ? new HashMap<>() : null;
 
-        if ( dataElements.isEmpty() || periodTypes.isEmpty()
+        Map<Integer, MapMap<Integer, DataElementOperand, Double>> sourceMap = getDataValueMapByAttributeCombo( dataElements, date,
+            Collections.singletonList( source ), periodTypes, attributeCombo, cogDimensionConstraints, coDimensionConstraints, sourceLastUpdatedMap );
+
+        if ( lastUpdatedMap != null && sourceLastUpdatedMap.containsKey( source.getId() ) )
+        {
+            lastUpdatedMap.putMap( sourceLastUpdatedMap.get( source.getId() ) );
+        }
+
+        MapMap<Integer, DataElementOperand, Double> map = sourceMap.get( source.getId() );
+
+        return map != null ? map : new MapMap<>();
+    }
+
+    @Override
+    public Map<Integer, MapMap<Integer, DataElementOperand, Double>> getDataValueMapByAttributeCombo( Collection<DataElement> dataElements, Date date,
+        Collection<OrganisationUnit> sources, Collection<PeriodType> periodTypes, DataElementCategoryOptionCombo attributeCombo,
+        Set<CategoryOptionGroup> cogDimensionConstraints, Set<DataElementCategoryOption> coDimensionConstraints,
+        Map<Integer, MapMap<Integer, DataElementOperand, Date>> lastUpdatedMap )
+    {
+        Map<Integer, MapMap<Integer, DataElementOperand, Double>> map = new HashMap<>();
+
+        if ( dataElements.isEmpty() || sources.isEmpty() || periodTypes.isEmpty()
             || ( cogDimensionConstraints != null && cogDimensionConstraints.isEmpty() )
             || ( coDimensionConstraints != null && coDimensionConstraints.isEmpty() ) )
         {
@@ -489,13 +513,13 @@ public class HibernateDataValueStore
         String whereCombo = attributeCombo == null ? "" :
             "and dv.attributeoptioncomboid = " + attributeCombo.getId() + " ";
 
-        String sql = "select de.uid, coc.uid, dv.attributeoptioncomboid, dv.value, dv.lastupdated, p.startdate, p.enddate " +
+        String sql = "select de.uid, coc.uid, dv.attributeoptioncomboid, dv.value, dv.lastupdated, p.startdate, p.enddate, dv.sourceid " +
             "from datavalue dv " +
             "join dataelement de on dv.dataelementid = de.dataelementid " +
             "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid " +
             "join period p on p.periodid = dv.periodid " + joinCo + joinCog +
             "where dv.dataelementid in (" + TextUtils.getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") " +
-            "and dv.sourceid = " + source.getId() + " " +
+            "and dv.sourceid in (" + TextUtils.getCommaDelimitedString( getIdentifiers( sources ) ) + ") " +
             "and p.startdate <= '" + DateUtils.getMediumDateString( date ) + "' " +
             "and p.enddate >= '" + DateUtils.getMediumDateString( date ) + "' " +
             "and p.periodtypeid in (" + TextUtils.getCommaDelimitedString( getIds( periodTypes ) ) + ") " +
@@ -503,7 +527,7 @@ public class HibernateDataValueStore
 
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
-        MapMap<Integer, DataElementOperand, Long> checkForDuplicates = new MapMap<>();
+        Map<Integer, MapMap<Integer, DataElementOperand, Long>> checkForDuplicates = new HashMap<>();
 
         while ( rowSet.next() )
         {
@@ -514,6 +538,7 @@ public class HibernateDataValueStore
             Date lastUpdated = rowSet.getDate( 5 );
             Date periodStartDate = rowSet.getDate( 6 );
             Date periodEndDate = rowSet.getDate( 7 );
+            Integer sourceId = rowSet.getInt( 8 );
             long periodInterval = periodEndDate.getTime() - periodStartDate.getTime();
 
             log.trace( "row: " + dataElement + " = " + value + " [" + periodStartDate + " : " + periodEndDate + "]");
@@ -522,21 +547,34 @@ public class HibernateDataValueStore
             {
                 DataElementOperand dataElementOperand = new DataElementOperand( dataElement, categoryOptionCombo );
 
-                Long existingPeriodInterval = checkForDuplicates.getValue( attributeOptionComboId, dataElementOperand );
+                MapMap<Integer, DataElementOperand, Long> sourceIntervals = checkForDuplicates.get( sourceId );
+
+                if ( sourceIntervals == null )
+                {
+                    checkForDuplicates.put( sourceId, sourceIntervals = new MapMap<>() );
+                    map.put( sourceId, new MapMap<>() );
+
+                    if ( lastUpdatedMap != null )
+                    {
+                        lastUpdatedMap.put( sourceId, new MapMap<>() );
+                    }
+                }
+
+                Long existingPeriodInterval = sourceIntervals.getValue( attributeOptionComboId, dataElementOperand );
 
                 if ( existingPeriodInterval != null && existingPeriodInterval < periodInterval )
                 {
                     // Don't overwrite the previous value if for a shorter interval
                     continue;
                 }
-                map.putEntry( attributeOptionComboId, dataElementOperand, value );
+                map.get( sourceId ).putEntry( attributeOptionComboId, dataElementOperand, value );
 
                 if ( lastUpdatedMap != null )
                 {
-                    lastUpdatedMap.putEntry( attributeOptionComboId, dataElementOperand, lastUpdated );
+                    lastUpdatedMap.get( sourceId ).putEntry( attributeOptionComboId, dataElementOperand, lastUpdated );
                 }
 
-                checkForDuplicates.putEntry( attributeOptionComboId, dataElementOperand, periodInterval );
+                sourceIntervals.putEntry( attributeOptionComboId, dataElementOperand, periodInterval );
             }
         }
 
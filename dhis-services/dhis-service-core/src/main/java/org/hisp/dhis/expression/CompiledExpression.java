@@ -0,0 +1,497 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.expression.ExpressionService.CONSTANT_PATTERN;
+import static org.hisp.dhis.expression.ExpressionService.DAYS_PATTERN;
+import static org.hisp.dhis.expression.ExpressionService.OPERAND_PATTERN;
+import static org.hisp.dhis.expression.ExpressionService.OU_GROUP_PATTERN;
+import static org.hisp.dhis.expression.MissingValueStrategy.NEVER_SKIP;
+import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING;
+import static org.hisp.dhis.expression.MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hisp.dhis.dataelement.DataElementOperand;
+
+/**
+ * An expression parsed into an immutable syntax tree. The tree is evaluated
+ * directly against maps of values, which avoids substituting the values into
+ * the expression text and parsing the result for every evaluation.
+ * <p>
+ * Supports operands, constants, organisation unit groups, days, numbers,
+ * parentheses and the arithmetic operators + - * / % ^ with the precedence
+ * rules of the mathematical expression parser. Expressions with any other
+ * content, such as functions, are not compiled and must be evaluated by
+ * substitution, which is indicated by {@link #isCompiled()}.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class CompiledExpression
+{
+    private static final Pattern NUMBER_PATTERN = Pattern.compile( "(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?" );
+
+    private final String expression;
+
+    /**
+     * Operands in order of appearance in the expression, including repeated
+     * occurrences.
+     */
+    private final List<DataElementOperand> operands;
+
+    /**
+     * Root node of the syntax tree, null if the expression is not compiled.
+     */
+    private final Node root;
+
+    private CompiledExpression( String expression, List<DataElementOperand> operands, Node root )
+    {
+        this.expression = expression;
+        this.operands = Collections.unmodifiableList( operands );
+        this.root = root;
+    }
+
+    /**
+     * Parses the given expression. Never returns null, check
+     * {@link #isCompiled()} to find out whether the expression can be
+     * evaluated by this class.
+     * 
+     * @param expression the expression.
+     * @return a CompiledExpression.
+     */
+    public static CompiledExpression compile( String expression )
+    {
+        Parser parser = new Parser( expression );
+
+        Node root = parser.parse();
+
+        return new CompiledExpression( expression, parser.operands, root );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the expression was compiled and can be evaluated.
+     */
+    public boolean isCompiled()
+    {
+        return root != null;
+    }
+
+    /**
+     * Evaluates the expression. Missing values, constants, organisation unit
+     * group counts and days are treated as zero.
+     * 
+     * @param valueMap the operand values.
+     * @param constantMap the constant values.
+     * @param orgUnitCountMap the organisation unit group member counts.
+     * @param days the number of days, can be null.
+     * @param missingValueStrategy the strategy for missing values, can be null.
+     * @param incompleteValues operands whose values are incomplete, can be null.
+     * @return the result, or null if skipped by the missing value strategy.
+     * @throws IllegalStateException if the expression is not compiled.
+     */
+    public Double evaluate( Map<DataElementOperand, Double> valueMap, Map<String, Double> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days, MissingValueStrategy missingValueStrategy, Set<DataElementOperand> incompleteValues )
+    {
+        if ( root == null )
+        {
+            throw new IllegalStateException( "Expression is not compiled: " + expression );
+        }
+
+        missingValueStrategy = missingValueStrategy == null ? NEVER_SKIP : missingValueStrategy;
+
+        double[] operandValues = new double[operands.size()];
+
+        int valueCount = 0;
+
+        for ( int i = 0; i < operandValues.length; i++ )
+        {
+            DataElementOperand operand = operands.get( i );
+
+            Double value = valueMap.get( operand );
+
+            boolean missingValue = value == null || ( incompleteValues != null && incompleteValues.contains( operand ) );
+
+            if ( missingValue && SKIP_IF_ANY_VALUE_MISSING.equals( missingValueStrategy ) )
+            {
+                return null;
+            }
+
+            if ( !missingValue )
+            {
+                valueCount++;
+            }
+
+            operandValues[i] = value != null ? value : 0d;
+        }
+
+        if ( SKIP_IF_ALL_VALUES_MISSING.equals( missingValueStrategy ) && operandValues.length > 0 && valueCount == 0 )
+        {
+            return null;
+        }
+
+        return root.evaluate( new Values( operandValues, constantMap, orgUnitCountMap, days ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public String getExpression()
+    {
+        return expression;
+    }
+
+    public List<DataElementOperand> getOperands()
+    {
+        return operands;
+    }
+
+    // -------------------------------------------------------------------------
+    // Syntax tree
+    // -------------------------------------------------------------------------
+
+    private static class Values
+    {
+        final double[] operandValues;
+
+        final Map<String, Double> constantMap;
+
+        final Map<String, Integer> orgUnitCountMap;
+
+        final Integer days;
+
+        Values( double[] operandValues, Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days )
+        {
+            this.operandValues = operandValues;
+            this.constantMap = constantMap;
+            this.orgUnitCountMap = orgUnitCountMap;
+            this.days = days;
+        }
+    }
+
+    private interface Node
+    {
+        double evaluate( Values values );
+    }
+
+    private static Node number( double number )
+    {
+        return values -> number;
+    }
+
+    private static Node operand( int index )
+    {
+        return values -> values.operandValues[index];
+    }
+
+    private static Node constant( String uid )
+    {
+        return values -> {
+            Double constant = values.constantMap != null ? values.constantMap.get( uid ) : null;
+            return constant != null ? constant : 0d;
+        };
+    }
+
+    private static Node orgUnitGroup( String uid )
+    {
+        return values -> {
+            Integer count = values.orgUnitCountMap != null ? values.orgUnitCountMap.get( uid ) : null;
+            return count != null ? count : 0d;
+        };
+    }
+
+    private static Node days()
+    {
+        return values -> values.days != null ? values.days : 0d;
+    }
+
+    private static Node negate( Node node )
+    {
+        return values -> -node.evaluate( values );
+    }
+
+    private static Node binary( Node left, Node right, DoubleBinaryOperator operator )
+    {
+        return values -> operator.applyAsDouble( left.evaluate( values ), right.evaluate( values ) );
+    }
+
+    /**
+     * Raises a substituted value to the given power. When expressions are 
+     * evaluated as text, a negative value is substituted with its sign, which
+     * binds weaker than the power operator, so that -3 ^ 2 gives -9. This is
+     * retained to give the same results for both ways of evaluation.
+     */
+    private static double substitutedPow( double base, double exponent )
+    {
+        return base < 0 ? -Math.pow( -base, exponent ) : Math.pow( base, exponent );
+    }
+
+    // -------------------------------------------------------------------------
+    // Parser
+    // -------------------------------------------------------------------------
+
+    /**
+     * Recursive descent parser following the grammar of the mathematical
+     * expression parser:
+     * 
+     * <pre>
+     * additive       := multiplicative ( ( '+' | '-' ) multiplicative )*
+     * multiplicative := unary ( ( '*' | '/' | '%' ) unary )*
+     * unary          := ( '+' | '-' ) unary | power
+     * power          := primary ( '^' unary )?
+     * primary        := number | operand | constant | group | days | '(' additive ')'
+     * </pre>
+     * 
+     * Operands, constants, groups and days are values which are substituted 
+     * into the text before evaluation by the mathematical expression parser. 
+     * A negative substituted value as base of a power is hence negated after
+     * the power is applied.
+     */
+    private static class Parser
+    {
+        private final String expression;
+
+        private final List<DataElementOperand> operands = new ArrayList<>();
+
+        private int pos = 0;
+
+        /**
+         * Whether the last parsed primary is a substituted value.
+         */
+        private boolean substituted = false;
+
+        Parser( String expression )
+        {
+            this.expression = expression;
+        }
+
+        /**
+         * Returns the root node, or null if the expression is empty or
+         * contains unsupported content.
+         */
+        Node parse()
+        {
+            if ( expression == null || expression.trim().isEmpty() )
+            {
+                return null;
+            }
+
+            try
+            {
+                Node node = additive();
+
+                skipWhitespace();
+
+                return pos == expression.length() ? node : null;
+            }
+            catch ( UnsupportedExpressionException ex )
+            {
+                return null;
+            }
+        }
+
+        private Node additive()
+        {
+            Node node = multiplicative();
+
+            while ( true )
+            {
+                if ( accept( '+' ) )
+                {
+                    node = binary( node, multiplicative(), ( a, b ) -> a + b );
+                }
+                else if ( accept( '-' ) )
+                {
+                    node = binary( node, multiplicative(), ( a, b ) -> a - b );
+                }
+                else
+                {
+                    return node;
+                }
+            }
+        }
+
+        private Node multiplicative()
+        {
+            Node node = unary();
+
+            while ( true )
+            {
+                if ( accept( '*' ) )
+                {
+                    node = binary( node, unary(), ( a, b ) -> a * b );
+                }
+                else if ( accept( '/' ) )
+                {
+                    node = binary( node, unary(), ( a, b ) -> a / b );
+                }
+                else if ( accept( '%' ) )
+                {
+                    node = binary( node, unary(), ( a, b ) -> a % b );
+                }
+                else
+                {
+                    return node;
+                }
+            }
+        }
+
+        private Node unary()
+        {
+            if ( accept( '+' ) )
+            {
+                return unary();
+            }
+            else if ( accept( '-' ) )
+            {
+                return negate( unary() );
+            }
+
+            return power();
+        }
+
+        private Node power()
+        {
+            Node node = primary();
+
+            final boolean substitutedBase = substituted;
+
+            if ( accept( '^' ) )
+            {
+                node = binary( node, unary(), substitutedBase ? CompiledExpression::substitutedPow : Math::pow );
+            }
+
+            return node;
+        }
+
+        private Node primary()
+        {
+            if ( accept( '(' ) )
+            {
+                Node node = additive();
+
+                if ( !accept( ')' ) )
+                {
+                    throw new UnsupportedExpressionException();
+                }
+
+                substituted = false;
+
+                return node;
+            }
+
+            Matcher matcher;
+
+            substituted = true;
+
+            if ( ( matcher = match( OPERAND_PATTERN ) ) != null )
+            {
+                operands.add( DataElementOperand.getOperand( matcher.group() ) );
+
+                return operand( operands.size() - 1 );
+            }
+            else if ( ( matcher = match( CONSTANT_PATTERN ) ) != null )
+            {
+                return constant( matcher.group( 1 ) );
+            }
+            else if ( ( matcher = match( OU_GROUP_PATTERN ) ) != null )
+            {
+                return orgUnitGroup( matcher.group( 1 ) );
+            }
+            else if ( match( DAYS_PATTERN ) != null )
+            {
+                return days();
+            }
+            else if ( ( matcher = match( NUMBER_PATTERN ) ) != null )
+            {
+                substituted = false;
+
+                return number( Double.parseDouble( matcher.group() ) );
+            }
+
+            throw new UnsupportedExpressionException();
+        }
+
+        private boolean accept( char c )
+        {
+            skipWhitespace();
+
+            if ( pos < expression.length() && expression.charAt( pos ) == c )
+            {
+                pos++;
+                return true;
+            }
+
+            return false;
+        }
+
+        private Matcher match( Pattern pattern )
+        {
+            skipWhitespace();
+
+            Matcher matcher = pattern.matcher( expression ).region( pos, expression.length() );
+
+            if ( matcher.lookingAt() )
+            {
+                pos = matcher.end();
+                return matcher;
+            }
+
+            return null;
+        }
+
+        private void skipWhitespace()
+        {
+            while ( pos < expression.length() && Character.isWhitespace( expression.charAt( pos ) ) )
+            {
+                pos++;
+            }
+        }
+    }
+
+    private static class UnsupportedExpressionException
+        extends RuntimeException
+    {
+        UnsupportedExpressionException()
+        {
+            super( null, null, false, false );
+        }
+    }
+}
@@ -44,6 +44,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -71,6 +72,10 @@ import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.validation.ValidationRule;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 /**
  * The expression is a string describing a formula containing data element ids
  * and category option combo ids. The formula can potentially contain references
@@ -84,6 +89,15 @@ public class DefaultExpressionService
 {
     private static final Log log = LogFactory.getLog( DefaultExpressionService.class );
 
+    /**
+     * Cache for compiled expressions, keyed on expression text.
+     */
+    private static final LoadingCache<String, CompiledExpression> COMPILED_EXPRESSION_CACHE = CacheBuilder.newBuilder()
+        .expireAfterAccess( 1, TimeUnit.HOURS )
+        .initialCapacity( 200 )
+        .maximumSize( 20000 )
+        .build( CacheLoader.from( CompiledExpression::compile ) );
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -177,27 +191,27 @@ public class DefaultExpressionService
         
         Integer days = period != null ? period.getDaysInPeriod() : null;
         
-        final String denominatorExpression = generateExpression( indicator.getExplodedDenominatorFallback(), 
-            valueMap, constantMap, orgUnitCountMap, days, NEVER_SKIP );
+        final Double denominator = calculateExpressionValue( indicator.getExplodedDenominatorFallback(), 
+            valueMap, constantMap, orgUnitCountMap, days, NEVER_SKIP, null );
         
-        if ( denominatorExpression == null )
+        if ( denominator == null )
         {
             return null;
         }
         
-        final double denominatorValue = calculateExpression( denominatorExpression );
+        final double denominatorValue = denominator;
         
         if ( !isEqual( denominatorValue, 0d ) )
         {
-            final String numeratorExpression = generateExpression( indicator.getExplodedNumeratorFallback(), 
-                valueMap, constantMap, orgUnitCountMap, days, NEVER_SKIP );
+            final Double numerator = calculateExpressionValue( indicator.getExplodedNumeratorFallback(), 
+                valueMap, constantMap, orgUnitCountMap, days, NEVER_SKIP, null );
             
-            if ( numeratorExpression == null )
+            if ( numerator == null )
             {
                 return null;
             }
             
-            final double numeratorValue = calculateExpression( numeratorExpression );
+            final double numeratorValue = numerator;
             
             final double annualizationFactor = period != null ? DateUtils.getAnnualizationFactor( indicator, period.getStartDate(), period.getEndDate() ) : 1d;
             final double factor = indicator.getIndicatorType().getFactor();
@@ -220,12 +234,10 @@ public class DefaultExpressionService
     public Double getExpressionValue( Expression expression, Map<DataElementOperand, Double> valueMap,
         Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days, Set<DataElementOperand> incompleteValues )
     {
-        String expressionString = generateExpression( expression.getExplodedExpressionFallback(), valueMap, constantMap, 
+        Double result = calculateExpressionValue( expression.getExplodedExpressionFallback(), valueMap, constantMap, 
             orgUnitCountMap, days, expression.getMissingValueStrategy(), incompleteValues );
-
-        Double result = expressionString != null ? calculateExpression( expressionString ) : null;
         
-        log.debug( "Expression: " + expression.getExplodedExpressionFallback() + ", generated: " + expressionString + ", result: " + result );
+        log.debug( "Expression: " + expression.getExplodedExpressionFallback() + ", result: " + result );
         
         return result;
     }
@@ -996,6 +1008,30 @@ public class DefaultExpressionService
     // Supportive methods
     // -------------------------------------------------------------------------
     
+    /**
+     * Calculates the value of the given expression. Uses the cached compiled
+     * form of the expression, and falls back to substituting the values into
+     * the expression text for expressions which cannot be compiled.
+     */
+    private Double calculateExpressionValue( String expression, Map<DataElementOperand, Double> valueMap, 
+        Map<String, Double> constantMap, Map<String, Integer> orgUnitCountMap, Integer days, MissingValueStrategy missingValueStrategy, Set<DataElementOperand> incompleteValues )
+    {
+        if ( expression == null || expression.isEmpty() )
+        {
+            return null;
+        }
+        
+        CompiledExpression compiledExpression = COMPILED_EXPRESSION_CACHE.getUnchecked( expression );
+        
+        if ( compiledExpression.isCompiled() )
+        {
+            return compiledExpression.evaluate( valueMap, constantMap, orgUnitCountMap, days, missingValueStrategy, incompleteValues );
+        }
+        
+        String expressionString = generateExpression( expression, valueMap, constantMap, orgUnitCountMap, days, missingValueStrategy, incompleteValues );
+        
+        return expressionString != null ? calculateExpression( expressionString ) : null;
+    }
     
     private boolean operandIsTotal( Matcher matcher )
     {
@@ -39,13 +39,13 @@ import org.hisp.dhis.node.Node;
 import org.hisp.dhis.node.NodePropertyConverter;
 import org.hisp.dhis.node.NodeTransformer;
 import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.LazyCollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.SimpleNode;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -146,6 +146,39 @@ public class DefaultFieldFilterService implements FieldFilterService
             return collectionNode;
         }
 
+        FieldMap fieldMap = getFieldMap( objects, fields );
+
+        for ( Object object : objects )
+        {
+            collectionNode.addChild( buildNode( fieldMap, klass, object ) );
+        }
+
+        return collectionNode;
+    }
+
+    @Override
+    public CollectionNode filterLazy( Class<?> klass, List<?> objects, List<String> fieldList )
+    {
+        if ( objects == null || objects.isEmpty() )
+        {
+            return filter( klass, objects, fieldList );
+        }
+
+        String fields = fieldList == null ? "" : Joiner.on( "," ).join( fieldList );
+
+        Schema rootSchema = schemaService.getDynamicSchema( klass );
+
+        FieldMap fieldMap = getFieldMap( objects, fields );
+
+        CollectionNode collectionNode = new LazyCollectionNode( rootSchema.getCollectionName(), objects,
+            object -> buildNode( fieldMap, klass, object ) );
+        collectionNode.setNamespace( rootSchema.getNamespace() );
+
+        return collectionNode;
+    }
+
+    private FieldMap getFieldMap( List<?> objects, String fields )
+    {
         FieldMap fieldMap = new FieldMap();
         Schema schema = schemaService.getDynamicSchema( objects.get( 0 ).getClass() );
 
@@ -161,12 +194,7 @@ public class DefaultFieldFilterService implements FieldFilterService
             fieldMap = parserService.parseFieldFilter( fields );
         }
 
-        for ( Object object : objects )
-        {
-            collectionNode.addChild( buildNode( fieldMap, klass, object ) );
-        }
-
-        return collectionNode;
+        return fieldMap;
     }
 
     private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object )
@@ -200,7 +228,7 @@ public class DefaultFieldFilterService implements FieldFilterService
 
             Property property = schema.getProperty( fieldKey );
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
             Schema propertySchema = schemaService.getDynamicSchema( property.getKlass() );
 
             FieldMap fieldValue = fieldMap.get( fieldKey );
@@ -493,7 +521,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
 
             SimpleNode simpleNode = new SimpleNode( field, returnValue );
             simpleNode.setAttribute( property.isAttribute() );
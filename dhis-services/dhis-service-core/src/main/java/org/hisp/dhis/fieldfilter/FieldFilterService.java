@@ -55,4 +55,15 @@ public interface FieldFilterService
      * @return List of objects with only wanted properties
      */
     CollectionNode filter( Class<?> klass, List<?> objects, List<String> fieldList );
+
+    /**
+     * Perform inclusion/exclusion on a list of objects. The node for each object
+     * is created when the returned collection node is serialized, and is not
+     * retained, which avoids materializing the full node tree for large lists.
+     *
+     * @param objects   List to filter
+     * @param fieldList Field filter
+     * @return List of objects with only wanted properties
+     */
+    CollectionNode filterLazy( Class<?> klass, List<?> objects, List<String> fieldList );
 }
@@ -35,7 +35,6 @@ import org.hisp.dhis.parser.ParserService;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
@@ -100,7 +99,7 @@ public class DefaultObjectFilterService implements ObjectFilterService
                 continue;
             }
 
-            Object value = ReflectionUtils.invokeMethod( object, descriptor.getGetterMethod() );
+            Object value = descriptor.getValue( object );
 
             Object filter = filters.getFilters().get( field );
 
@@ -31,28 +31,25 @@ package org.hisp.dhis.organisationunit;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
 import static org.hisp.dhis.i18n.I18nUtils.i18n;
 
-import java.awt.geom.Point2D;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
-import org.hisp.dhis.commons.filter.FilterUtils;
+import org.hisp.dhis.common.WatermarkService;
 import org.hisp.dhis.configuration.ConfigurationService;
 import org.hisp.dhis.hierarchy.HierarchyViolationException;
 import org.hisp.dhis.i18n.I18nService;
 import org.hisp.dhis.organisationunit.comparator.OrganisationUnitLevelComparator;
-import org.hisp.dhis.system.filter.OrganisationUnitPolygonCoveringCoordinateFilter;
 import org.hisp.dhis.system.util.GeoUtils;
-import org.hisp.dhis.system.util.ValidationUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.version.VersionService;
@@ -116,6 +113,31 @@ public class DefaultOrganisationUnitService
         i18nService = service;
     }
 
+    private WatermarkService watermarkService;
+
+    public void setWatermarkService( WatermarkService watermarkService )
+    {
+        this.watermarkService = watermarkService;
+    }
+
+    // -------------------------------------------------------------------------
+    // Indexes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Index of organisation unit geometries, built on first coordinate lookup
+     * and rebuilt when the organisation unit watermark moves.
+     */
+    private volatile OrganisationUnitSpatialIndex spatialIndex;
+
+    private final Object spatialIndexLock = new Object();
+
+    /**
+     * Read-only hierarchy shared by all callers, rebuilt under the same
+     * conditions as the spatial index.
+     */
+    private volatile WatermarkedHierarchy hierarchy;
+
     // -------------------------------------------------------------------------
     // OrganisationUnit
     // -------------------------------------------------------------------------
@@ -521,7 +543,7 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getOrganisationUnits() );
+        return isDescendant( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
@@ -529,7 +551,37 @@ public class DefaultOrganisationUnitService
     {
         OrganisationUnit organisationUnit = organisationUnitStore.getByUid( uid );
         
-        return organisationUnit != null ? organisationUnit.isDescendant( organisationUnits ) : false;
+        return organisationUnit != null ? isDescendant( organisationUnit, organisationUnits ) : false;
+    }
+
+    @Override
+    public boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors )
+    {
+        if ( organisationUnit == null || ancestors == null || ancestors.isEmpty() )
+        {
+            return false;
+        }
+
+        // Changes of the current transaction are not in the shared hierarchy
+
+        if ( !watermarkService.isUpdatePending( OrganisationUnit.class ) )
+        {
+            OrganisationUnitHierarchy current = getOrganisationUnitHierarchy();
+
+            if ( current.contains( organisationUnit.getId() ) )
+            {
+                Set<Integer> ancestorIds = new HashSet<>();
+
+                for ( OrganisationUnit ancestor : ancestors )
+                {
+                    ancestorIds.add( ancestor.getId() );
+                }
+
+                return current.isDescendant( organisationUnit.getId(), ancestorIds );
+            }
+        }
+
+        return organisationUnit.isDescendant( ancestors );
     }
 
     // -------------------------------------------------------------------------
@@ -539,13 +591,31 @@ public class DefaultOrganisationUnitService
     @Override
     public OrganisationUnitHierarchy getOrganisationUnitHierarchy()
     {
-        return organisationUnitStore.getOrganisationUnitHierarchy();
+        boolean pending = watermarkService.isUpdatePending( OrganisationUnit.class );
+
+        long watermark = watermarkService.getWatermark( OrganisationUnit.class );
+
+        WatermarkedHierarchy current = hierarchy;
+
+        if ( current == null || current.watermark != watermark || pending )
+        {
+            current = new WatermarkedHierarchy( watermark, organisationUnitStore.getOrganisationUnitHierarchy() );
+
+            if ( !pending )
+            {
+                hierarchy = current;
+            }
+        }
+
+        return new OrganisationUnitHierarchy( current.hierarchy );
     }
 
     @Override
     public void updateOrganisationUnitParent( int organisationUnitId, int parentId )
     {
         organisationUnitStore.updateOrganisationUnitParent( organisationUnitId, parentId );
+
+        watermarkService.update( OrganisationUnit.class );
     }
 
     // -------------------------------------------------------------------------
@@ -757,32 +827,9 @@ public class DefaultOrganisationUnitService
     public List<OrganisationUnit> getOrganisationUnitWithinDistance( double longitude, double latitude,
         double distance )
     {
-        List<OrganisationUnit> objects = organisationUnitStore.getWithinCoordinateArea( GeoUtils.getBoxShape(
-            longitude, latitude, distance ) );
-
-        // Go through the list and remove the ones located outside radius
-
-        if ( objects != null && objects.size() > 0 )
-        {
-            Iterator<OrganisationUnit> iter = objects.iterator();
-
-            Point2D centerPoint = new Point2D.Double( longitude, latitude );
-
-            while ( iter.hasNext() )
-            {
-                OrganisationUnit orgunit = iter.next();
-
-                double distancebetween = GeoUtils.getDistanceBetweenTwoPoints( centerPoint,
-                    ValidationUtils.getCoordinatePoint2D( orgunit.getCoordinates() ) );
-
-                if ( distancebetween > distance )
-                {
-                    iter.remove();
-                }
-            }
-        }
+        List<OrganisationUnitSpatialIndex.Entry> entries = getSpatialIndex().getWithinDistance( longitude, latitude, distance );
 
-        return objects;
+        return getOrganisationUnits( OrganisationUnitSpatialIndex.getIdentifiers( entries ) );
     }
 
     /**
@@ -796,6 +843,8 @@ public class DefaultOrganisationUnitService
 
         if ( GeoUtils.checkGeoJsonPointValid( longitude, latitude ) )
         {
+            List<OrganisationUnitSpatialIndex.Entry> containing = getSpatialIndex().getContaining( longitude, latitude );
+
             OrganisationUnit topOrgUnit = null;
 
             if ( topOrgUnitUid != null && !topOrgUnitUid.isEmpty() )
@@ -806,12 +855,12 @@ public class DefaultOrganisationUnitService
             {
                 // Get top search point through top level org unit which contains coordinate
 
-                List<OrganisationUnit> orgUnitsTopLevel = getTopLevelOrgUnitWithPoint( longitude, latitude, 1,
+                List<OrganisationUnitSpatialIndex.Entry> orgUnitsTopLevel = getTopLevelOrgUnitWithPoint( containing, 1,
                     getNumberOfOrganisationalLevels() - 1 );
 
                 if ( orgUnitsTopLevel.size() == 1 )
                 {
-                    topOrgUnit = orgUnitsTopLevel.iterator().next();
+                    topOrgUnit = getOrganisationUnit( orgUnitsTopLevel.iterator().next().getId() );
                 }
             }
 
@@ -819,38 +868,39 @@ public class DefaultOrganisationUnitService
 
             if ( topOrgUnit != null )
             {
-                List<OrganisationUnit> orgUnitChildren = new ArrayList<>();
+                List<OrganisationUnitSpatialIndex.Entry> orgUnitChildren = new ArrayList<>();
 
-                if ( targetLevel != null )
-                {
-                    orgUnitChildren = getOrganisationUnitsAtLevel( targetLevel, topOrgUnit );
-                }
-                else
+                for ( OrganisationUnitSpatialIndex.Entry entry : containing )
                 {
-                    orgUnitChildren = getOrganisationUnitWithChildren( topOrgUnit.getId() );
+                    if ( entry.isDescendantOrSelf( topOrgUnit.getUid() ) && ( targetLevel == null || entry.getLevel() == targetLevel ) )
+                    {
+                        orgUnitChildren.add( entry );
+                    }
                 }
 
-                FilterUtils.filter( orgUnitChildren, new OrganisationUnitPolygonCoveringCoordinateFilter( longitude, latitude ) );
-
                 // Get org units with lowest level
 
                 int bottomLevel = topOrgUnit.getLevel();
 
-                for ( OrganisationUnit ou : orgUnitChildren )
+                for ( OrganisationUnitSpatialIndex.Entry entry : orgUnitChildren )
                 {
-                    if ( ou.getLevel() > bottomLevel )
+                    if ( entry.getLevel() > bottomLevel )
                     {
-                        bottomLevel = ou.getLevel();
+                        bottomLevel = entry.getLevel();
                     }
                 }
 
-                for ( OrganisationUnit ou : orgUnitChildren )
+                List<Integer> identifiers = new ArrayList<>();
+
+                for ( OrganisationUnitSpatialIndex.Entry entry : orgUnitChildren )
                 {
-                    if ( ou.getLevel() == bottomLevel )
+                    if ( entry.getLevel() == bottomLevel )
                     {
-                        orgUnits.add( ou );
+                        identifiers.add( entry.getId() );
                     }
                 }
+
+                orgUnits.addAll( getOrganisationUnits( identifiers ) );
             }
         }
 
@@ -874,13 +924,20 @@ public class DefaultOrganisationUnitService
     /**
      * Searches organisation units until finding one with polygon containing point.
      */
-    private List<OrganisationUnit> getTopLevelOrgUnitWithPoint( double longitude, double latitude,
+    private List<OrganisationUnitSpatialIndex.Entry> getTopLevelOrgUnitWithPoint( List<OrganisationUnitSpatialIndex.Entry> containing,
         int searchLevel, int stopLevel )
     {
         for ( int i = searchLevel; i <= stopLevel; i++ )
         {
-            List<OrganisationUnit> unitsAtLevel = new ArrayList<>( getOrganisationUnitsAtLevel( i ) );
-            FilterUtils.filter( unitsAtLevel, new OrganisationUnitPolygonCoveringCoordinateFilter( longitude, latitude ) );
+            List<OrganisationUnitSpatialIndex.Entry> unitsAtLevel = new ArrayList<>();
+
+            for ( OrganisationUnitSpatialIndex.Entry entry : containing )
+            {
+                if ( entry.getLevel() == i )
+                {
+                    unitsAtLevel.add( entry );
+                }
+            }
 
             if ( unitsAtLevel.size() > 0 )
             {
@@ -890,4 +947,73 @@ public class DefaultOrganisationUnitService
 
         return new ArrayList<>();
     }
+
+    /**
+     * Returns the spatial index of organisation unit geometries. The index is
+     * rebuilt if the organisation unit watermark has moved since it was built.
+     * The watermark moves after commit for changes through Hibernate, JDBC
+     * and other nodes, and is read before building so that an index built
+     * from an older snapshot is replaced on the next lookup. The index is
+     * built by one caller at a time, concurrent callers wait for it and use
+     * the result. Within a transaction with pending organisation unit changes
+     * the changed units are overlaid on the shared index. The index is built
+     * without being shared if the changes are not known by identifier or the
+     * shared index is stale.
+     */
+    private OrganisationUnitSpatialIndex getSpatialIndex()
+    {
+        if ( watermarkService.isUpdatePending( OrganisationUnit.class ) )
+        {
+            Set<Serializable> pendingIds = watermarkService.getPendingIds( OrganisationUnit.class );
+
+            long watermark = watermarkService.getWatermark( OrganisationUnit.class );
+
+            OrganisationUnitSpatialIndex index = spatialIndex;
+
+            if ( pendingIds == null || index == null || index.getWatermark() < watermark )
+            {
+                return new OrganisationUnitSpatialIndex( organisationUnitStore.getAll(), watermark );
+            }
+
+            List<Integer> changedIds = new ArrayList<>();
+
+            pendingIds.forEach( id -> changedIds.add( (Integer) id ) );
+
+            return index.withChanges( changedIds, organisationUnitStore::get );
+        }
+
+        OrganisationUnitSpatialIndex index = spatialIndex;
+
+        if ( index == null || index.getWatermark() < watermarkService.getWatermark( OrganisationUnit.class ) )
+        {
+            synchronized ( spatialIndexLock )
+            {
+                long watermark = watermarkService.getWatermark( OrganisationUnit.class );
+
+                index = spatialIndex;
+
+                if ( index == null || index.getWatermark() < watermark )
+                {
+                    index = new OrganisationUnitSpatialIndex( organisationUnitStore.getAll(), watermark );
+
+                    spatialIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private static class WatermarkedHierarchy
+    {
+        private final long watermark;
+
+        private final OrganisationUnitHierarchy hierarchy;
+
+        private WatermarkedHierarchy( long watermark, OrganisationUnitHierarchy hierarchy )
+        {
+            this.watermark = watermark;
+            this.hierarchy = hierarchy;
+        }
+    }
 }
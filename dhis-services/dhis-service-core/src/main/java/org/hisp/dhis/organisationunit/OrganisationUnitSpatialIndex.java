@@ -0,0 +1,381 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.system.util.GeoUtils;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * In-memory spatial index of organisation unit geometries. Polygons and points
+ * are parsed once and kept in STR-packed R-trees, so that point-in-polygon and
+ * radius lookups only test the geometries whose bounding boxes match. The index
+ * is immutable once built and safe for concurrent reads. It is tagged with the
+ * organisation unit watermark it was built from, which allows callers to
+ * detect when it is stale. Changes of a transaction which are not yet in a
+ * shared index can be overlaid with {@link #withChanges}.
+ */
+public class OrganisationUnitSpatialIndex
+{
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private final long watermark;
+
+    private final STRtree polygonTree = new STRtree();
+
+    private final STRtree pointTree = new STRtree();
+
+    private int size;
+
+    /**
+     * Index the changes are overlaid on, null if this is not an overlay.
+     */
+    private final OrganisationUnitSpatialIndex base;
+
+    /**
+     * Identifiers of the changed organisation units of an overlay.
+     */
+    private final Set<Integer> changedIds;
+
+    /**
+     * Uids of the changed organisation units of an overlay.
+     */
+    private final Set<String> changedUids;
+
+    /**
+     * Loads the current state of organisation units of an overlay.
+     */
+    private final Function<Integer, OrganisationUnit> loader;
+
+    /**
+     * Builds the index from the given organisation units. Units without
+     * coordinates or with coordinates which cannot be parsed are skipped.
+     *
+     * @param organisationUnits the organisation units to index.
+     * @param watermark the organisation unit watermark the units reflect.
+     */
+    public OrganisationUnitSpatialIndex( Collection<OrganisationUnit> organisationUnits, long watermark )
+    {
+        this( organisationUnits, watermark, null, new HashSet<>(), null );
+    }
+
+    private OrganisationUnitSpatialIndex( Collection<OrganisationUnit> organisationUnits, long watermark,
+        OrganisationUnitSpatialIndex base, Set<Integer> changedIds, Function<Integer, OrganisationUnit> loader )
+    {
+        this.watermark = watermark;
+        this.base = base;
+        this.changedIds = changedIds;
+        this.changedUids = new HashSet<>();
+        this.loader = loader;
+
+        for ( OrganisationUnit unit : organisationUnits )
+        {
+            if ( base != null )
+            {
+                changedUids.add( unit.getUid() );
+            }
+
+            FeatureType featureType = unit.getFeatureType();
+
+            if ( featureType == null || !( featureType.isPolygon() || FeatureType.POINT == featureType ) )
+            {
+                continue;
+            }
+
+            Geometry geometry = GeoUtils.getGeometry( unit.getCoordinates(), featureType );
+
+            if ( geometry == null || geometry.isEmpty() )
+            {
+                continue;
+            }
+
+            Entry entry = new Entry( unit.getId(), unit.getPath(), geometry );
+
+            if ( featureType.isPolygon() )
+            {
+                polygonTree.insert( geometry.getEnvelopeInternal(), entry );
+            }
+            else
+            {
+                pointTree.insert( geometry.getEnvelopeInternal(), entry );
+            }
+
+            size++;
+        }
+
+        polygonTree.build();
+        pointTree.build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns an index which overlays the given changed organisation units on
+     * this index, for lookups within a transaction with pending changes. Only
+     * the changed units are loaded and indexed. Entries of this index for the
+     * changed units are replaced, and units which no longer exist are left
+     * out. Entries of descendants of changed units are given the current path,
+     * as moving a unit changes the paths of all its descendants.
+     *
+     * @param changedIds the identifiers of the changed organisation units.
+     * @param loader loads the current state of an organisation unit, returning
+     *        null if it does not exist.
+     * @return an overlay index.
+     */
+    public OrganisationUnitSpatialIndex withChanges( Collection<Integer> changedIds, Function<Integer, OrganisationUnit> loader )
+    {
+        List<OrganisationUnit> units = new ArrayList<>();
+
+        for ( Integer id : changedIds )
+        {
+            OrganisationUnit unit = loader.apply( id );
+
+            if ( unit != null )
+            {
+                units.add( unit );
+            }
+        }
+
+        return new OrganisationUnitSpatialIndex( units, watermark, this, new HashSet<>( changedIds ), loader );
+    }
+
+    /**
+     * Returns the entries for all organisation units with a polygon or multi
+     * polygon which contains the given point.
+     *
+     * @param longitude the longitude.
+     * @param latitude the latitude.
+     * @return a list of entries.
+     */
+    public List<Entry> getContaining( double longitude, double latitude )
+    {
+        Point point = GEOMETRY_FACTORY.createPoint( new Coordinate( longitude, latitude ) );
+
+        List<Entry> entries = new ArrayList<>();
+
+        for ( Object item : polygonTree.query( point.getEnvelopeInternal() ) )
+        {
+            Entry entry = (Entry) item;
+
+            if ( entry.getPreparedGeometry().contains( point ) )
+            {
+                entries.add( entry );
+            }
+        }
+
+        return base != null ? merge( base.getContaining( longitude, latitude ), entries ) : entries;
+    }
+
+    /**
+     * Returns the entries for all organisation units with a point located
+     * within the given distance in meters from the given point.
+     *
+     * @param longitude the longitude.
+     * @param latitude the latitude.
+     * @param distance the distance in meters.
+     * @return a list of entries.
+     */
+    public List<Entry> getWithinDistance( double longitude, double latitude, double distance )
+    {
+        double[] box = GeoUtils.getBoxShape( longitude, latitude, distance );
+
+        Envelope envelope = new Envelope( box[3], box[1], box[2], box[0] );
+
+        Point2D centerPoint = new Point2D.Double( longitude, latitude );
+
+        List<Entry> entries = new ArrayList<>();
+
+        for ( Object item : pointTree.query( envelope ) )
+        {
+            Entry entry = (Entry) item;
+
+            Coordinate coordinate = entry.getGeometry().getCoordinate();
+
+            double distanceBetween = GeoUtils.getDistanceBetweenTwoPoints( centerPoint,
+                new Point2D.Double( coordinate.x, coordinate.y ) );
+
+            if ( distanceBetween <= distance )
+            {
+                entries.add( entry );
+            }
+        }
+
+        return base != null ? merge( base.getWithinDistance( longitude, latitude, distance ), entries ) : entries;
+    }
+
+    /**
+     * Returns the identifiers of the given entries.
+     *
+     * @param entries the entries.
+     * @return a list of organisation unit identifiers.
+     */
+    public static List<Integer> getIdentifiers( Collection<Entry> entries )
+    {
+        List<Integer> identifiers = new ArrayList<>();
+
+        for ( Entry entry : entries )
+        {
+            identifiers.add( entry.getId() );
+        }
+
+        return identifiers;
+    }
+
+    /**
+     * Merges the given entries of the base index with the given entries of
+     * the changed organisation units of this overlay.
+     */
+    private List<Entry> merge( List<Entry> baseEntries, List<Entry> changedEntries )
+    {
+        List<Entry> entries = new ArrayList<>();
+
+        for ( Entry entry : baseEntries )
+        {
+            if ( changedIds.contains( entry.getId() ) )
+            {
+                continue;
+            }
+
+            if ( changedUids.stream().anyMatch( entry::isDescendantOrSelf ) )
+            {
+                OrganisationUnit unit = loader.apply( entry.getId() );
+
+                if ( unit == null )
+                {
+                    continue;
+                }
+
+                entry = new Entry( entry.getId(), unit.getPath(), entry.getGeometry() );
+            }
+
+            entries.add( entry );
+        }
+
+        entries.addAll( changedEntries );
+
+        return entries;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public long getWatermark()
+    {
+        return watermark;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Entry
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indexed organisation unit geometry. Holds the identifier, path and level
+     * of the organisation unit rather than the persistent object so that the
+     * index can outlive the session it was built in.
+     */
+    public static final class Entry
+    {
+        private final int id;
+
+        private final String path;
+
+        private final int level;
+
+        private final Geometry geometry;
+
+        private final PreparedGeometry preparedGeometry;
+
+        private Entry( int id, String path, Geometry geometry )
+        {
+            this.id = id;
+            this.path = path;
+            this.level = StringUtils.countMatches( path, "/" );
+            this.geometry = geometry;
+            this.preparedGeometry = geometry instanceof Point ? null : PreparedGeometryFactory.prepare( geometry );
+        }
+
+        /**
+         * Indicates whether the organisation unit is equal to or a descendant
+         * of the organisation unit with the given uid.
+         */
+        public boolean isDescendantOrSelf( String uid )
+        {
+            return path != null && uid != null && path.contains( "/" + uid );
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public int getLevel()
+        {
+            return level;
+        }
+
+        public Geometry getGeometry()
+        {
+            return geometry;
+        }
+
+        public PreparedGeometry getPreparedGeometry()
+        {
+            return preparedGeometry;
+        }
+    }
+}
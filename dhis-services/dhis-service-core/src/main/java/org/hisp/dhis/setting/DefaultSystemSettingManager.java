@@ -39,7 +39,10 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.cache.CacheInvalidationService;
 import org.hisp.dhis.i18n.I18n;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.system.util.ValidationUtils;
@@ -88,6 +91,20 @@ public class DefaultSystemSettingManager
     @Autowired
     private I18nManager i18nManager;
 
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    @PostConstruct
+    public void init()
+    {
+        cacheInvalidationService.addListener( entityClass -> {
+            if ( entityClass == null || SystemSetting.class.isAssignableFrom( entityClass ) )
+            {
+                SETTING_CACHE.invalidateAll();
+            }
+        } );
+    }
+
     // -------------------------------------------------------------------------
     // SystemSettingManager implementation
     // -------------------------------------------------------------------------
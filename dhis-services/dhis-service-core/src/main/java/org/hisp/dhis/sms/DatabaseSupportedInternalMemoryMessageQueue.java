@@ -31,14 +31,56 @@ package org.hisp.dhis.sms;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.sms.incoming.IncomingSms;
 import org.hisp.dhis.sms.incoming.IncomingSmsStore;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Bounded in-memory queue backed by the database. Messages which do not fit
+ * in the queue remain unparsed in the database and are loaded again once the
+ * queue has drained. The parsed state of processed messages is written in
+ * batches.
+ * 
+ * Delivery is at-least-once. Messages are marked as parsed in the database
+ * only when their batch is flushed, so up to 99 processed messages are
+ * processed again after a crash. Listeners must tolerate receiving a message
+ * twice, or the caller must flush after each message. A batch which fails
+ * to be written is kept and written with the next flush.
+ */
 public class DatabaseSupportedInternalMemoryMessageQueue
     implements MessageQueue
 {
-    private List<IncomingSms> queue = new ArrayList<>();
+    private static final Log log = LogFactory.getLog( DatabaseSupportedInternalMemoryMessageQueue.class );
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private static final int UPDATE_BATCH_SIZE = 100;
+
+    private BlockingQueue<IncomingSms> queue = new LinkedBlockingQueue<>( DEFAULT_CAPACITY );
+
+    /**
+     * Identifiers of messages which are queued, being processed or waiting
+     * for their state to be persisted.
+     */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    private final Queue<IncomingSms> processed = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger processedSize = new AtomicInteger();
+
+    private volatile boolean overflow;
 
     // -------------------------------------------------------------------------
     // Dependencies
@@ -46,6 +88,16 @@ public class DatabaseSupportedInternalMemoryMessageQueue
 
     private IncomingSmsStore smsStore;
 
+    public void setSmsStore( IncomingSmsStore smsStore )
+    {
+        this.smsStore = smsStore;
+    }
+
+    public void setCapacity( int capacity )
+    {
+        this.queue = new LinkedBlockingQueue<>( capacity );
+    }
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -53,41 +105,155 @@ public class DatabaseSupportedInternalMemoryMessageQueue
     @Override
     public void put( IncomingSms message )
     {
-        queue.add( message );
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    enqueue( message );
+                }
+            } );
+        }
+        else
+        {
+            enqueue( message );
+        }
     }
 
     @Override
-    public IncomingSms get()
+    public IncomingSms take( long timeout, TimeUnit unit )
+        throws InterruptedException
     {
-        if ( queue != null && queue.size() > 0 )
+        IncomingSms message = queue.poll();
+
+        if ( message == null )
         {
-            return queue.get( 0 );
+            flush();
+
+            if ( overflow )
+            {
+                reload();
+            }
+
+            message = queue.poll( timeout, unit );
         }
-        
-        return null;
+
+        return message;
     }
 
     @Override
     public void remove( IncomingSms message )
     {
         message.setParsed( true );
-        smsStore.update( message );
-        queue.remove( message );
+        processed.add( message );
+
+        if ( processedSize.incrementAndGet() >= UPDATE_BATCH_SIZE )
+        {
+            flush();
+        }
     }
 
     @Override
-    public void initialize()
+    public synchronized void flush()
     {
-        Collection<IncomingSms> messages = smsStore.getAllUnparsedSmses();
-        
-        if ( messages != null )
+        List<IncomingSms> batch = new ArrayList<>();
+
+        IncomingSms message;
+
+        while ( ( message = processed.poll() ) != null )
+        {
+            processedSize.decrementAndGet();
+            batch.add( message );
+        }
+
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        try
         {
-            queue.addAll( messages );
+            smsStore.update( batch );
         }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Failed to persist " + batch.size() + " processed SMS messages, will retry", ex );
+
+            processed.addAll( batch );
+            processedSize.addAndGet( batch.size() );
+            return;
+        }
+
+        batch.forEach( sms -> pending.remove( sms.getId() ) );
     }
 
-    public void setSmsStore( IncomingSmsStore smsStore )
+    @Override
+    public int size()
     {
-        this.smsStore = smsStore;
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void initialize()
+    {
+        flush();
+        queue.clear();
+        pending.clear();
+        reload();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void enqueue( IncomingSms message )
+    {
+        if ( !offer( message ) )
+        {
+            log.warn( "SMS queue is full, message " + message.getId() + " will be processed when it drains" );
+        }
+    }
+
+    private boolean offer( IncomingSms message )
+    {
+        if ( !pending.add( message.getId() ) )
+        {
+            return true;
+        }
+
+        if ( !queue.offer( message ) )
+        {
+            pending.remove( message.getId() );
+            overflow = true;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Loads unparsed messages from the database which are not already in the
+     * pipeline, until the queue is full. Synchronized with flush so that
+     * messages being persisted are not loaded again.
+     */
+    private synchronized void reload()
+    {
+        overflow = false;
+
+        Collection<IncomingSms> messages = smsStore.getAllUnparsedSmses();
+
+        if ( messages != null )
+        {
+            for ( IncomingSms message : messages )
+            {
+                if ( !offer( message ) )
+                {
+                    log.info( "SMS queue is full, remaining unparsed messages will be loaded when it drains" );
+                    break;
+                }
+            }
+        }
     }
 }
@@ -28,7 +28,13 @@ package org.hisp.dhis.sms;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,116 +43,285 @@ import org.hisp.dhis.sms.incoming.IncomingSmsListener;
 import org.hisp.dhis.sms.incoming.SmsMessageStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 
+/**
+ * Processes incoming SMS messages. A dispatcher thread hands messages off from
+ * the message queue as soon as they arrive to a pool of workers. Messages from
+ * the same originator always go to the same worker so that they are processed
+ * in the order they were received.
+ */
 public class SmsPublisher
 {
     private static final Log log = LogFactory.getLog( SmsPublisher.class );
 
+    public static final int DEFAULT_WORKERS = 4;
+
+    private static final int WORKER_CAPACITY = 100;
+
+    private static final long POLL_TIMEOUT = 1000;
+
     private List<IncomingSmsListener> listeners;
 
     private MessageQueue messageQueue;
 
-    private SMSConsumerThread thread;
-
     private SmsSender smsSender;
 
-    public void start()
+    private int workers = DEFAULT_WORKERS;
+
+    private Thread dispatcher;
+
+    private List<SmsWorker> pool;
+
+    private volatile boolean running;
+
+    // -------------------------------------------------------------------------
+    // Statistics
+    // -------------------------------------------------------------------------
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    private final LongAccumulator maxLatency = new LongAccumulator( Long::max, 0 );
+
+    // -------------------------------------------------------------------------
+    // Lifecycle
+    // -------------------------------------------------------------------------
+
+    public synchronized void start()
     {
+        if ( running )
+        {
+            return;
+        }
+
         messageQueue.initialize();
 
-        if ( thread == null )
+        running = true;
+
+        pool = new ArrayList<>();
+
+        for ( int i = 0; i < workers; i++ )
         {
-            thread = new SMSConsumerThread();
-            thread.start();
+            SmsWorker worker = new SmsWorker( i );
+            worker.start();
+            pool.add( worker );
         }
+
+        dispatcher = new Thread( this::dispatch, "sms-dispatcher" );
+        dispatcher.setDaemon( true );
+        dispatcher.start();
     }
 
-    public void stop()
+    public synchronized void stop()
     {
-        if ( thread != null )
+        if ( !running )
+        {
+            return;
+        }
+
+        running = false;
+
+        dispatcher.interrupt();
+        pool.forEach( Thread::interrupt );
+
+        try
+        {
+            dispatcher.join( POLL_TIMEOUT );
+
+            for ( SmsWorker worker : pool )
+            {
+                worker.join( POLL_TIMEOUT );
+            }
+        }
+        catch ( InterruptedException ex )
         {
-            thread.stopFetching();
+            Thread.currentThread().interrupt();
         }
 
-        thread = null;
+        messageQueue.flush();
+
+        dispatcher = null;
+        pool = null;
     }
 
-    private class SMSConsumerThread
-        extends Thread
+    // -------------------------------------------------------------------------
+    // Statistics
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of messages waiting to be processed, both in the
+     * message queue and handed off to workers.
+     */
+    public int getQueueSize()
     {
-        private boolean stop;
+        List<SmsWorker> current = pool;
+
+        int size = messageQueue.size();
 
-        public SMSConsumerThread()
+        if ( current != null )
         {
+            size += current.stream().mapToInt( worker -> worker.tasks.size() ).sum();
         }
 
-        @Override
-        public void run()
+        return size;
+    }
+
+    public long getProcessedCount()
+    {
+        return processedCount.get();
+    }
+
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    /**
+     * Returns the average time in milliseconds from a message being handed
+     * off to a worker until it has been processed.
+     */
+    public long getAverageLatency()
+    {
+        long count = processedCount.get();
+
+        return count > 0 ? totalLatency.get() / count : 0;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds from a message being handed off
+     * to a worker until it has been processed.
+     */
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void dispatch()
+    {
+        List<SmsWorker> workers = pool;
+
+        while ( running )
         {
-            while ( !stop )
+            try
             {
-                try
-                {
-                    fetchAndParseSMS();
-                }
-                catch ( Exception ex )
-                {
-                    log.error( ex.getMessage() );
-                }
+                IncomingSms message = messageQueue.take( POLL_TIMEOUT, TimeUnit.MILLISECONDS );
 
-                try
+                if ( message != null )
                 {
-                    Thread.sleep( 10000 );
+                    int index = Math.floorMod( String.valueOf( message.getOriginator() ).hashCode(), workers.size() );
+
+                    workers.get( index ).tasks.put( new SmsTask( message ) );
                 }
-                catch ( InterruptedException e )
+            }
+            catch ( InterruptedException ex )
+            {
+                return;
+            }
+            catch ( Exception ex )
+            {
+                log.error( "SMS dispatch failed", ex );
+            }
+        }
+    }
+
+    private void process( IncomingSms message )
+    {
+        log.info( "Received SMS: " + message.getText() );
+
+        try
+        {
+            for ( IncomingSmsListener listener : listeners )
+            {
+                if ( listener.accept( message ) )
                 {
-                    e.printStackTrace();
+                    listener.receive( message );
+                    return;
                 }
             }
+
+            smsSender.sendMessage( "No command found", message.getOriginator() );
+            message.setStatus( SmsMessageStatus.UNHANDLED );
+        }
+        catch ( Exception e )
+        {
+            log.error( "SMS processing failed", e );
+            failedCount.incrementAndGet();
+            smsSender.sendMessage( e.getMessage(), message.getOriginator() );
+            message.setStatus( SmsMessageStatus.FAILED );
+        }
+        finally
+        {
+            messageQueue.remove( message );
         }
+    }
+
+    private static class SmsTask
+    {
+        private final IncomingSms message;
+
+        private final long created = System.currentTimeMillis();
 
-        private void fetchAndParseSMS()
+        private SmsTask( IncomingSms message )
         {
-            IncomingSms message = messageQueue.get();
-            
-            while ( message != null )
+            this.message = message;
+        }
+    }
+
+    private class SmsWorker
+        extends Thread
+    {
+        private final BlockingQueue<SmsTask> tasks = new ArrayBlockingQueue<>( WORKER_CAPACITY );
+
+        private SmsWorker( int index )
+        {
+            super( "sms-worker-" + index );
+            setDaemon( true );
+        }
+
+        @Override
+        public void run()
+        {
+            while ( running )
             {
-                log.info( "Received SMS: " + message.getText() );
+                SmsTask task;
+
                 try
                 {
-                    for ( IncomingSmsListener listener : listeners )
-                    {
-                        if ( listener.accept( message ) )
-                        {
-                            listener.receive( message );
-                            messageQueue.remove( message );
-                            return;
-                        }
-                    }
-                    
-                    smsSender.sendMessage( "No command found", message.getOriginator() );
-                    message.setStatus( SmsMessageStatus.UNHANDLED );
+                    task = tasks.take();
                 }
-                catch ( Exception e )
+                catch ( InterruptedException ex )
                 {
-                    log.error( e );
-                    e.printStackTrace();
-                    smsSender.sendMessage( e.getMessage(), message.getOriginator() );
-                    message.setStatus( SmsMessageStatus.FAILED );
+                    return;
                 }
-                finally
+
+                try
                 {
-                    messageQueue.remove( message );
-                    message = messageQueue.get();
+                    process( task.message );
+                }
+                catch ( Exception ex )
+                {
+                    log.error( "SMS processing failed", ex );
                 }
-            }
-        }
 
-        public void stopFetching()
-        {
-            this.stop = true;
+                long latency = System.currentTimeMillis() - task.created;
+
+                processedCount.incrementAndGet();
+                totalLatency.addAndGet( latency );
+                maxLatency.accumulate( latency );
+            }
         }
     }
 
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
     public void setMessageQueue( MessageQueue messageQueue )
     {
         this.messageQueue = messageQueue;
@@ -172,4 +347,9 @@ public class SmsPublisher
     {
         this.smsSender = smsSender;
     }
+
+    public void setWorkers( int workers )
+    {
+        this.workers = workers;
+    }
 }
@@ -28,6 +28,7 @@ package org.hisp.dhis.sms.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
 import java.util.List;
 
 import org.hibernate.Criteria;
@@ -126,6 +127,17 @@ public class HibernateIncomingSmsStore
         sessionFactory.getCurrentSession().update( incomingSms );
     }
 
+    @Override
+    public void update( Collection<IncomingSms> incomingSmses )
+    {
+        Session session = sessionFactory.getCurrentSession();
+
+        for ( IncomingSms incomingSms : incomingSmses )
+        {
+            session.merge( incomingSms );
+        }
+    }
+
     @SuppressWarnings( "unchecked" )
     @Override
     public List<IncomingSms> getAllUnparsedSmses()
@@ -28,10 +28,15 @@ package org.hisp.dhis.startup;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.sql.ResultSet;
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.system.startup.AbstractStartupRoutine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
@@ -49,6 +54,9 @@ public class TableCreator
     @Autowired
     private JdbcTemplate jdbcTemplate;
     
+    @Autowired
+    private StatementBuilder statementBuilder;
+    
     // -------------------------------------------------------------------------
     // StartupRoutine implementation
     // -------------------------------------------------------------------------
@@ -60,6 +68,72 @@ public class TableCreator
         createSilently( "create index in_datavalueaudit on datavalueaudit(dataelementid,periodid,organisationunitid,categoryoptioncomboid,attributeoptioncomboid)", "in_datavalueaudit" );
         createSilently( "create unique index in_keyjsonvalue_namespace_key on keyjsonvalue(namespace, key)", "in_keyjsonvalue_namespace_key" );
         createSilently( "create index in_trackedentityattributevalue_attributeid on trackedentityattributevalue(trackedentityattributeid)", "in_trackedentityattributevalue_attributeid" );
+        
+        createTextSearchIndex( "in_trackedentityattributevalue_value_search", "trackedentityattributevalue", "value" );
+    }
+    
+    /**
+     * Creates a text search index if it does not exist. Failures are logged
+     * as warnings, as searches fall back to sequential scans without the
+     * index. An index left invalid by a failed concurrent build is dropped so
+     * that the next startup retries.
+     */
+    private void createTextSearchIndex( final String index, final String table, final String column )
+    {
+        List<String> statements = statementBuilder.getCreateTextSearchIndex( index, table, column );
+        
+        if ( statements.isEmpty() || indexExists( table, index ) )
+        {
+            return;
+        }
+        
+        for ( String sql : statements )
+        {
+            try
+            {
+                jdbcTemplate.execute( sql );
+            }
+            catch ( Exception ex )
+            {
+                log.warn( "Could not create text search index " + index + " on " + table + ", statement failed: " + sql + ": " + ex.getMessage() );
+                
+                dropSilently( index );
+                
+                return;
+            }
+        }
+        
+        log.info( "Created text search index " + index );
+    }
+    
+    private boolean indexExists( final String table, final String index )
+    {
+        return jdbcTemplate.execute( (ConnectionCallback<Boolean>) connection -> {
+            try ( ResultSet rs = connection.getMetaData().getIndexInfo( null, null, table, false, true ) )
+            {
+                while ( rs.next() )
+                {
+                    if ( index.equalsIgnoreCase( rs.getString( "INDEX_NAME" ) ) )
+                    {
+                        return true;
+                    }
+                }
+                
+                return false;
+            }
+        } );
+    }
+    
+    private void dropSilently( final String index )
+    {
+        try
+        {
+            jdbcTemplate.execute( "drop index " + index );
+        }
+        catch ( Exception ex )
+        {
+            log.debug( "Index " + index + " does not exist" );
+        }
     }
     
     private void createSilently( final String sql, final String name )
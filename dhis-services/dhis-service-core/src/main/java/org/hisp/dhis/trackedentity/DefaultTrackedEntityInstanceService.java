@@ -35,6 +35,7 @@ import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.PageToken;
 import org.hisp.dhis.common.Pager;
 import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
@@ -254,12 +255,18 @@ public class DefaultTrackedEntityInstanceService
         {
             int count = 0;
 
-            if ( params.isTotalPages() )
+            if ( params.isTotalPages() && !params.hasPageToken() )
             {
                 count = trackedEntityInstanceStore.getTrackedEntityInstanceCount( params );
             }
 
             Pager pager = new Pager( params.getPageWithDefault(), count, params.getPageSizeWithDefault() );
+
+            if ( !entities.isEmpty() && entities.size() == params.getPageSizeWithDefault() )
+            {
+                pager.setNextPageToken( PageToken.encode( entities.get( entities.size() - 1 ).get( TRACKED_ENTITY_INSTANCE_ID ) ) );
+            }
+
             metaData.put( PAGER_META_KEY, pager );
         }
 
@@ -36,6 +36,7 @@ import org.hibernate.Query;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.PageToken;
 import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.QueryOperator;
@@ -234,12 +235,22 @@ public class HibernateTrackedEntityInstanceStore
         sql += getFromWhereClause( params, hlp );
 
         // ---------------------------------------------------------------------
-        // Paging clause
+        // Paging clause, keyset paging on uid if page token is specified
         // ---------------------------------------------------------------------
 
         if ( params.isPaging() )
         {
-            sql += "limit " + params.getPageSizeWithDefault() + " offset " + params.getOffset();
+            if ( params.hasPageToken() )
+            {
+                sql += hlp.whereAnd() + " tei.uid > '" + PageToken.decode( params.getPageToken() ) + "' ";
+            }
+
+            sql += "order by tei.uid limit " + params.getPageSizeWithDefault() + " ";
+
+            if ( !params.hasPageToken() )
+            {
+                sql += "offset " + params.getOffset();
+            }
         }
 
         // ---------------------------------------------------------------------
@@ -304,14 +315,16 @@ public class HibernateTrackedEntityInstanceStore
 
     /**
      * From, join and where clause. For attribute params, restriction is set in
-     * inner join. For query params, restriction is set in where clause.
+     * inner join. For query params, restriction is set in where clause as one
+     * sub query on attribute values per query token. The sub queries match on
+     * lower case values so that they can be served by the text search index
+     * on the attribute value table.
      */
     private String getFromWhereClause( TrackedEntityInstanceQueryParams params, SqlHelper hlp )
     {
         final String regexp = statementBuilder.getRegexpMatch();
         final String wordStart = statementBuilder.getRegexpWordStart();
         final String wordEnd = statementBuilder.getRegexpWordEnd();
-        final String anyChar = "\\.*?";
 
         String sql = "from trackedentityinstance tei "
             + "inner join trackedentity te on tei.trackedentityid = te.trackedentityid "
@@ -420,8 +433,9 @@ public class HibernateTrackedEntityInstanceStore
 
         if ( params.isOrQuery() && params.hasAttributesOrFilters() )
         {
-            final String start = params.getQuery().isOperator( QueryOperator.LIKE ) ? anyChar : wordStart;
-            final String end = params.getQuery().isOperator( QueryOperator.LIKE ) ? anyChar : wordEnd;
+            final boolean like = params.getQuery().isOperator( QueryOperator.LIKE );
+            
+            final String attributeIds = getCommaDelimitedString( getAttributeIdentifiers( params.getAttributesAndFilters() ) );
 
             sql += hlp.whereAnd() + " (";
 
@@ -429,18 +443,14 @@ public class HibernateTrackedEntityInstanceStore
 
             for ( String queryToken : queryTokens )
             {
-                final String query = statementBuilder.encode( queryToken, false );
-
-                sql += "(";
-
-                for ( QueryItem item : params.getAttributesAndFilters() )
-                {
-                    final String col = statementBuilder.columnQuote( item.getItemId() );
-
-                    sql += col + ".value " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
-                }
-
-                sql = removeLastOr( sql ) + ") and ";
+                final String query = StringUtils.lowerCase( statementBuilder.encode( queryToken, false ) );
+                
+                final String match = like ? ( "like '%" + query + "%'" ) : ( regexp + " '" + wordStart + query + wordEnd + "'" );
+
+                sql += "tei.trackedentityinstanceid in (" 
+                    + "select teav.trackedentityinstanceid from trackedentityattributevalue teav "
+                    + "where teav.trackedentityattributeid in (" + attributeIds + ") "
+                    + "and lower(teav.value) " + match + ") and ";
             }
 
             sql = removeLastAnd( sql ) + ") ";
@@ -449,6 +459,18 @@ public class HibernateTrackedEntityInstanceStore
         return sql;
     }
 
+    private List<Integer> getAttributeIdentifiers( List<QueryItem> items )
+    {
+        List<Integer> identifiers = new ArrayList<>();
+        
+        for ( QueryItem item : items )
+        {
+            identifiers.add( item.getItem().getId() );
+        }
+        
+        return identifiers;
+    }
+
     private String getEventStatusWhereClause( TrackedEntityInstanceQueryParams params )
     {
         String start = getMediumDateString( params.getEventStartDate() );
@@ -35,6 +35,9 @@ import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+
+import org.hisp.dhis.cache.CacheInvalidationService;
 import org.hisp.dhis.common.DimensionalObject;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -87,6 +90,24 @@ public class DefaultUserSettingService
         this.userService = userService;
     }
 
+    private CacheInvalidationService cacheInvalidationService;
+
+    public void setCacheInvalidationService( CacheInvalidationService cacheInvalidationService )
+    {
+        this.cacheInvalidationService = cacheInvalidationService;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        cacheInvalidationService.addListener( entityClass -> {
+            if ( entityClass == null || UserSetting.class.isAssignableFrom( entityClass ) )
+            {
+                SETTING_CACHE.invalidateAll();
+            }
+        } );
+    }
+
     // -------------------------------------------------------------------------
     // UserSettingService implementation
     // -------------------------------------------------------------------------
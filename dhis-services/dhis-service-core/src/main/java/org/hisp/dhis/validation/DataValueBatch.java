@@ -0,0 +1,158 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
+import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+/**
+ * Holds the current data values for a batch of organisation units during a
+ * validation run, for each of the periods being validated.
+ * 
+ * The values are fetched with one query per period for the whole batch before
+ * the validation tasks for the batch are started, so that each task reads its
+ * values from memory instead of querying the database once per organisation
+ * unit and period. The batch is only read by the tasks, which makes it safe
+ * to share between threads.
+ */
+public class DataValueBatch
+{
+    private Set<Integer> sourceIds = new HashSet<>();
+
+    private Map<Period, Map<Integer, MapMap<Integer, DataElementOperand, Double>>> valueMap = new HashMap<>();
+
+    private Map<Period, Map<Integer, MapMap<Integer, DataElementOperand, Date>>> lastUpdatedMap = new HashMap<>();
+
+    private DataValueBatch()
+    {
+    }
+
+    /**
+     * Loads the current data values for the given organisation units, for
+     * every period and period type in the validation run context.
+     * 
+     * @param sources the organisation units to load values for.
+     * @param context the validation run context.
+     * @return a batch of data values.
+     */
+    public static DataValueBatch load( Collection<OrganisationUnit> sources, ValidationRunContext context )
+    {
+        DataValueBatch batch = new DataValueBatch();
+        batch.sourceIds.addAll( getIdentifiers( sources ) );
+
+        for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeExtendedMap().values() )
+        {
+            for ( Period period : periodTypeX.getPeriods() )
+            {
+                Map<Integer, MapMap<Integer, DataElementOperand, Date>> lastUpdated = new HashMap<>();
+
+                batch.valueMap.put( period, context.getDataValueService().getDataValueMapByAttributeCombo(
+                    periodTypeX.getDataElements(), period.getStartDate(), sources, periodTypeX.getAllowedPeriodTypes(),
+                    context.getAttributeCombo(), context.getCogDimensionConstraints(), context.getCoDimensionConstraints(), lastUpdated ) );
+
+                batch.lastUpdatedMap.put( period, lastUpdated );
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Indicates whether values for the given organisation unit and period
+     * were loaded into this batch.
+     * 
+     * @param source the organisation unit.
+     * @param period the period.
+     * @return true if values were loaded, false otherwise.
+     */
+    public boolean contains( OrganisationUnit source, Period period )
+    {
+        return sourceIds.contains( source.getId() ) && valueMap.containsKey( period );
+    }
+
+    /**
+     * Returns the values of the given organisation unit and period for the
+     * given data elements, and adds the last updated date of each value to
+     * the given map.
+     * 
+     * @param source the organisation unit.
+     * @param period the period.
+     * @param dataElements the data elements to include values for.
+     * @param lastUpdatedMap map in which to return the lastUpdated date for
+     *        each value, can be null.
+     * @return map of values by attribute option combo id, then DataElementOperand.
+     */
+    public MapMap<Integer, DataElementOperand, Double> getValueMap( OrganisationUnit source, Period period,
+        Collection<DataElement> dataElements, MapMap<Integer, DataElementOperand, Date> lastUpdatedMap )
+    {
+        MapMap<Integer, DataElementOperand, Double> map = new MapMap<>();
+
+        MapMap<Integer, DataElementOperand, Double> sourceValues = valueMap.get( period ).get( source.getId() );
+
+        if ( sourceValues == null || dataElements.isEmpty() )
+        {
+            return map;
+        }
+
+        MapMap<Integer, DataElementOperand, Date> sourceLastUpdated = this.lastUpdatedMap.get( period ).get( source.getId() );
+
+        Set<String> dataElementUids = new HashSet<>( getUids( dataElements ) );
+
+        for ( Map.Entry<Integer, Map<DataElementOperand, Double>> entry : sourceValues.entrySet() )
+        {
+            for ( Map.Entry<DataElementOperand, Double> value : entry.getValue().entrySet() )
+            {
+                if ( dataElementUids.contains( value.getKey().getDataElementId() ) )
+                {
+                    map.putEntry( entry.getKey(), value.getKey(), value.getValue() );
+
+                    if ( lastUpdatedMap != null )
+                    {
+                        lastUpdatedMap.putEntry( entry.getKey(), value.getKey(), sourceLastUpdated.getValue( entry.getKey(), value.getKey() ) );
+                    }
+                }
+            }
+        }
+
+        return map;
+    }
+}
@@ -28,11 +28,20 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
@@ -53,11 +62,23 @@ import org.hisp.dhis.user.UserService;
  */
 public class Validator
 {
+    private static final Log log = LogFactory.getLog( Validator.class );
+
+    /**
+     * The number of organisation units for which data values are loaded in
+     * bulk before the validation tasks for them are started.
+     */
+    private static final int SOURCE_BATCH_SIZE = 500;
+
     /**
      * Evaluates validation rules for a collection of organisation units.
      * This method breaks the job down by organisation unit. It assigns the
      * evaluation for each organisation unit to a task that can be evaluated
      * independently in a multi-threaded environment.
+     * <p>
+     * The organisation units are processed in batches. The current data values
+     * for all organisation units in a batch are loaded in bulk before the
+     * tasks of the batch are started.
      * 
      * @param sources the organisation units in which to run the validation rules
      * @param periods the periods of data to check
@@ -87,31 +108,118 @@ public class Validator
         int threadPoolSize = getThreadPoolSize( context );
         ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
 
+        List<OrganisationUnitExtended> sourceXs = new ArrayList<>();
+
         for ( OrganisationUnitExtended sourceX : context.getSourceXs() )
         {
             if ( sourceX.getToBeValidated() )
             {
-                Runnable worker = new ValidatorThread( sourceX, context );
-                executor.execute( worker );
+                sourceXs.add( sourceX );
             }
         }
 
-        executor.shutdown();
-        
+        boolean includeChildren = surveillanceRulesPresent( context );
+
         try
         {
-            executor.awaitTermination( 23, TimeUnit.HOURS );
+            for ( int i = 0; i < sourceXs.size(); i += SOURCE_BATCH_SIZE )
+            {
+                List<OrganisationUnitExtended> batch = sourceXs.subList( i, Math.min( i + SOURCE_BATCH_SIZE, sourceXs.size() ) );
+
+                DataValueBatch dataValueBatch = DataValueBatch.load( getSources( batch, includeChildren ), context );
+
+                log.debug( "Loaded data values for batch of " + batch.size() + " organisation units" );
+
+                List<Callable<Object>> workers = new ArrayList<>();
+
+                for ( OrganisationUnitExtended sourceX : batch )
+                {
+                    workers.add( Executors.callable( new ValidatorThread( sourceX, context, dataValueBatch ) ) );
+                }
+
+                for ( Future<Object> future : executor.invokeAll( workers ) )
+                {
+                    future.get();
+                }
+            }
+        }
+        catch ( ExecutionException ex )
+        {
+            executor.shutdownNow();
+
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            if ( ex.getCause() instanceof Error )
+            {
+                throw (Error) ex.getCause();
+            }
+
+            throw new RuntimeException( "Exception during validation", ex.getCause() );
         }
-        catch ( InterruptedException e )
+        catch ( InterruptedException ex )
         {
             executor.shutdownNow();
+
+            Thread.currentThread().interrupt();
+
+            throw new RuntimeException( "Validation was interrupted", ex );
         }
 
+        executor.shutdown();
+
         reloadAttributeOptionCombos( context.getValidationResults(), dataElementCategoryService );
 
         return context.getValidationResults();
     }
     
+    /**
+     * Returns the organisation units of the given batch, including their
+     * children if requested.
+     * 
+     * @param batch the batch of organisation units.
+     * @param includeChildren whether to include the children.
+     * @return the organisation units.
+     */
+    private static Set<OrganisationUnit> getSources( Collection<OrganisationUnitExtended> batch, boolean includeChildren )
+    {
+        Set<OrganisationUnit> sources = new HashSet<>();
+
+        for ( OrganisationUnitExtended sourceX : batch )
+        {
+            sources.add( sourceX.getSource() );
+
+            if ( includeChildren )
+            {
+                sources.addAll( sourceX.getChildren() );
+            }
+        }
+
+        return sources;
+    }
+
+    /**
+     * Indicates whether the validation run contains surveillance-type rules,
+     * whose values may be aggregated from the children of organisation units.
+     * 
+     * @param context validation run context
+     * @return true if surveillance-type rules are present, false otherwise
+     */
+    private static boolean surveillanceRulesPresent( ValidationRunContext context )
+    {
+        for ( ValidationRule rule : context.getRuleXMap().keySet() )
+        {
+            if ( RuleType.SURVEILLANCE == rule.getRuleType() )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Determines how many threads we should use for testing validation rules.
      * 
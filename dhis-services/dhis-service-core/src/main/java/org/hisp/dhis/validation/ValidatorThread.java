@@ -73,10 +73,13 @@ public class ValidatorThread
 
     private ValidationRunContext context;
 
-    public ValidatorThread( OrganisationUnitExtended sourceX, ValidationRunContext context )
+    private DataValueBatch dataValueBatch;
+
+    public ValidatorThread( OrganisationUnitExtended sourceX, ValidationRunContext context, DataValueBatch dataValueBatch )
     {
         this.sourceX = sourceX;
         this.context = context;
+        this.dataValueBatch = dataValueBatch;
     }
 
     /**
@@ -119,7 +122,8 @@ public class ValidatorThread
                         SetMap<Integer, DataElementOperand> incompleteValuesMap = new SetMap<>();
                         MapMap<Integer, DataElementOperand, Double> currentValueMap = getValueMap( periodTypeX,
                             periodTypeX.getDataElements(), sourceDataElements, recursiveCurrentDataElements,
-                            periodTypeX.getAllowedPeriodTypes(), period, sourceX.getSource(), lastUpdatedMap, incompleteValuesMap );
+                            periodTypeX.getAllowedPeriodTypes(), period, sourceX.getSource(), lastUpdatedMap, incompleteValuesMap,
+                            dataValueBatch );
 
                         log.trace( "Source " + sourceX.getSource().getName()
                             + " [" + period.getStartDate() + " - " + period.getEndDate() + "]"
@@ -454,7 +458,7 @@ public class ValidatorThread
             Set<DataElement> dataElements = rule.getRightSide().getDataElementsInExpression();
             SetMap<Integer, DataElementOperand> incompleteValuesMap = new SetMap<>();
             MapMap<Integer, DataElementOperand, Double> dataValueMapByAttributeCombo = getValueMap( periodTypeX, dataElements,
-                sourceDataElements, dataElements, allowedPeriodTypes, period, source, null, incompleteValuesMap );
+                sourceDataElements, dataElements, allowedPeriodTypes, period, source, null, incompleteValuesMap, null );
             sampleValuesMap.putValueMap( getExpressionValueMap( rule.getRightSide(), dataValueMapByAttributeCombo, incompleteValuesMap ) );
         }
     }
@@ -562,13 +566,16 @@ public class ValidatorThread
      * @param lastUpdatedMap        map showing when each data values was last updated
      * @param incompleteValuesMap   ongoing set showing which values were found
      *                              but not from all children, mapped by attribute option combo.
+     * @param dataValueBatch        values loaded in bulk for the current periods,
+     *                              used when loaded for the organisation unit,
+     *                              can be null
      * @return map of attribute option combo to map of values found.
      */
     private MapMap<Integer, DataElementOperand, Double> getValueMap( PeriodTypeExtended periodTypeX,
         Collection<DataElement> ruleDataElements, Collection<DataElement> sourceDataElements,
         Set<DataElement> recursiveDataElements, Collection<PeriodType> allowedPeriodTypes, Period period,
         OrganisationUnit source, MapMap<Integer, DataElementOperand, Date> lastUpdatedMap,
-        SetMap<Integer, DataElementOperand> incompleteValuesMap )
+        SetMap<Integer, DataElementOperand> incompleteValuesMap, DataValueBatch dataValueBatch )
     {
         Set<DataElement> dataElementsToGet = new HashSet<>( ruleDataElements );
         dataElementsToGet.retainAll( sourceDataElements );
@@ -587,6 +594,10 @@ public class ValidatorThread
             // We still might get something recursively
             dataValueMap = new MapMap<>();
         }
+        else if ( dataValueBatch != null && dataValueBatch.contains( source, period ) )
+        {
+            dataValueMap = dataValueBatch.getValueMap( source, period, dataElementsToGet, lastUpdatedMap );
+        }
         else
         {
             dataValueMap = context.getDataValueService().getDataValueMapByAttributeCombo( dataElementsToGet,
@@ -608,7 +619,7 @@ public class ValidatorThread
                 Collection<DataElement> childDataElements = periodTypeX.getSourceDataElements().get( child );
                 MapMap<Integer, DataElementOperand, Double> childMap = getValueMap( periodTypeX,
                     recursiveDataElementsNeeded, childDataElements, recursiveDataElementsNeeded, allowedPeriodTypes,
-                    period, child, lastUpdatedMap, incompleteValuesMap );
+                    period, child, lastUpdatedMap, incompleteValuesMap, dataValueBatch );
 
                 for ( Map.Entry<Integer, Map<DataElementOperand, Double>> entry : childMap.entrySet() )
                 {
@@ -0,0 +1,259 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.common.WatermarkService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.setting.Setting;
+import org.hisp.dhis.setting.SystemSetting;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.setting.SystemSettingStore;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class CacheInvalidationServiceTest
+    extends DhisTest
+{
+    @Autowired
+    private HibernateCacheInvalidationService cacheInvalidationService;
+
+    @Autowired
+    private CacheInvalidationTransport transport;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private DataElementCategoryService categoryService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private SystemSettingStore systemSettingStore;
+
+    @Autowired
+    private WatermarkService watermarkService;
+
+    private LocalTransport localTransport;
+
+    @Override
+    public void setUpTest()
+    {
+        localTransport = new LocalTransport();
+
+        cacheInvalidationService.setTransport( localTransport );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        cacheInvalidationService.setTransport( transport );
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testSendOnCommit()
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        dataElementService.addDataElement( dataElement );
+
+        // Second-level cache is disabled during testing
+
+        String invalidation = "U\t" + DataElement.class.getName();
+
+        assertTrue( localTransport.sent.stream().anyMatch( message -> message.contains( invalidation ) ) );
+        assertFalse( localTransport.sent.stream().anyMatch( message -> message.contains( "E\t" + DataElement.class.getName() ) ) );
+    }
+
+    @Test
+    public void testSendUncachedEntity()
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        dataElementService.addDataElement( dataElement );
+
+        OrganisationUnit organisationUnit = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( organisationUnit );
+
+        Period period = createPeriod( new MonthlyPeriodType(), getDate( 2000, 3, 1 ), getDate( 2000, 3, 31 ) );
+
+        dataValueService.addDataValue( createDataValue( dataElement, period, organisationUnit, "10", 
+            categoryService.getDefaultDataElementCategoryOptionCombo() ) );
+
+        String invalidation = "U\t" + DataValue.class.getName();
+
+        assertTrue( localTransport.sent.stream().anyMatch( message -> message.contains( invalidation ) ) );
+    }
+
+    @Test
+    public void testReceiveSystemSetting()
+    {
+        systemSettingManager.saveSystemSetting( Setting.APPLICATION_TITLE, "Title A" );
+
+        assertEquals( "Title A", systemSettingManager.getSystemSetting( Setting.APPLICATION_TITLE ) );
+
+        // Change made by another node
+
+        SystemSetting setting = systemSettingStore.getByName( Setting.APPLICATION_TITLE.getName() );
+        setting.setValue( "Title B" );
+        systemSettingStore.update( setting );
+
+        assertEquals( "Title A", systemSettingManager.getSystemSetting( Setting.APPLICATION_TITLE ) );
+
+        localTransport.receive( "otherNode\nE\t" + SystemSetting.class.getName() + "\t" + setting.getId() );
+
+        assertEquals( "Title B", systemSettingManager.getSystemSetting( Setting.APPLICATION_TITLE ) );
+
+        systemSettingManager.deleteSystemSetting( Setting.APPLICATION_TITLE );
+    }
+
+    @Test
+    public void testReceiveWatermark()
+    {
+        long watermark = watermarkService.getWatermark( DataElement.class );
+
+        localTransport.receive( "otherNode\nC\t" + DataElement.class.getName() + ".dataSets\t1" );
+
+        assertTrue( watermarkService.getWatermark( DataElement.class ) > watermark );
+    }
+
+    @Test
+    public void testReceiveUncached()
+    {
+        long watermark = watermarkService.getWatermark( DataValue.class );
+
+        localTransport.receive( "otherNode\nU\t" + DataValue.class.getName() );
+
+        assertTrue( watermarkService.getWatermark( DataValue.class ) > watermark );
+    }
+
+    @Test
+    public void testIgnoreOwnMessages()
+    {
+        long watermark = watermarkService.getWatermark( DataElement.class );
+
+        cacheInvalidationService.invalidateRegion( DataElement.class.getName() );
+
+        assertEquals( 1, localTransport.sent.size() );
+
+        localTransport.receive( localTransport.sent.get( 0 ) );
+
+        assertEquals( watermark, watermarkService.getWatermark( DataElement.class ) );
+
+        localTransport.receive( localTransport.sent.get( 0 ).replaceFirst( "^[^\n]+", "otherNode" ) );
+
+        assertTrue( watermarkService.getWatermark( DataElement.class ) > watermark );
+    }
+
+    @Test
+    public void testReceiveRegion()
+    {
+        List<String> regions = new ArrayList<>();
+
+        cacheInvalidationService.addListener( new CacheInvalidationListener()
+        {
+            @Override
+            public void invalidate( Class<?> entityClass )
+            {
+            }
+
+            @Override
+            public void invalidateRegion( String region )
+            {
+                regions.add( region );
+            }
+        } );
+
+        localTransport.receive( "otherNode\nR\tapplication.region:a,b\nR\t" + DataElement.class.getName() );
+
+        assertEquals( 1, regions.size() );
+        assertEquals( "application.region:a,b", regions.get( 0 ) );
+    }
+
+    /**
+     * In-process transport which records sent messages.
+     */
+    private static class LocalTransport
+        implements CacheInvalidationTransport
+    {
+        private List<String> sent = new ArrayList<>();
+
+        private Consumer<String> receiver;
+
+        @Override
+        public void start( Consumer<String> receiver )
+        {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void send( String message )
+        {
+            sent.add( message );
+        }
+
+        @Override
+        public void stop()
+        {
+        }
+
+        public void receive( String message )
+        {
+            receiver.accept( message );
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.hibernate.cfg.Configuration;
+import org.hisp.dhis.hibernate.HibernateConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.Resource;
+
+public class UdpCacheInvalidationTransportTest
+{
+    private static final String SECRET = "clustersecret";
+
+    private UdpCacheInvalidationTransport transport;
+
+    private DatagramSocket memberSocket;
+
+    private DatagramSocket otherSocket;
+
+    private InetSocketAddress transportAddress;
+
+    private BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        InetAddress loopback = InetAddress.getByName( "127.0.0.1" );
+
+        memberSocket = new DatagramSocket( new InetSocketAddress( loopback, 0 ) );
+        otherSocket = new DatagramSocket( new InetSocketAddress( loopback, 0 ) );
+
+        int port;
+
+        try ( DatagramSocket socket = new DatagramSocket( new InetSocketAddress( loopback, 0 ) ) )
+        {
+            port = socket.getLocalPort();
+        }
+
+        transportAddress = new InetSocketAddress( loopback, port );
+
+        Configuration configuration = new Configuration();
+        configuration.setProperty( "cluster.members", "127.0.0.1:" + port + ",127.0.0.1:" + memberSocket.getLocalPort() );
+        configuration.setProperty( "cluster.address", "127.0.0.1" );
+        configuration.setProperty( "cluster.port", String.valueOf( port ) );
+        configuration.setProperty( "cluster.secret", SECRET );
+
+        transport = new UdpCacheInvalidationTransport();
+        transport.setHibernateConfigurationProvider( new StaticConfigurationProvider( configuration ) );
+        transport.start( received::add );
+    }
+
+    @After
+    public void tearDown()
+    {
+        transport.stop();
+        memberSocket.close();
+        otherSocket.close();
+    }
+
+    @Test
+    public void testSendReceive()
+        throws Exception
+    {
+        transport.send( "node\nO" );
+
+        assertEquals( "node\nO", received.poll( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testDropInvalidSignature()
+        throws Exception
+    {
+        send( memberSocket, "node\nO", "othersecret" );
+        send( memberSocket, "node\nQ", SECRET );
+
+        assertEquals( "node\nQ", received.poll( 5, TimeUnit.SECONDS ) );
+        assertEquals( 0, received.size() );
+    }
+
+    @Test
+    public void testDropNonMember()
+        throws Exception
+    {
+        send( otherSocket, "node\nO", SECRET );
+        send( memberSocket, "node\nQ", SECRET );
+
+        assertEquals( "node\nQ", received.poll( 5, TimeUnit.SECONDS ) );
+        assertEquals( 0, received.size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void send( DatagramSocket socket, String message, String secret )
+        throws Exception
+    {
+        Mac mac = Mac.getInstance( "HmacSHA256" );
+        mac.init( new SecretKeySpec( secret.getBytes( StandardCharsets.UTF_8 ), "HmacSHA256" ) );
+
+        byte[] payload = message.getBytes( StandardCharsets.UTF_8 );
+        byte[] signature = mac.doFinal( payload );
+        byte[] data = new byte[signature.length + payload.length];
+
+        System.arraycopy( signature, 0, data, 0, signature.length );
+        System.arraycopy( payload, 0, data, signature.length, payload.length );
+
+        socket.send( new DatagramPacket( data, data.length, transportAddress ) );
+    }
+
+    private static class StaticConfigurationProvider
+        implements HibernateConfigurationProvider
+    {
+        private final Configuration configuration;
+
+        private StaticConfigurationProvider( Configuration configuration )
+        {
+            this.configuration = configuration;
+        }
+
+        @Override
+        public Configuration getConfiguration()
+        {
+            return configuration;
+        }
+
+        @Override
+        public List<Resource> getJarResources()
+        {
+            return null;
+        }
+
+        @Override
+        public List<Resource> getDirectoryResources()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Sets;
+
+public class WatermarkServiceTest
+    extends DhisTest
+{
+    @Autowired
+    private WatermarkService watermarkService;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private DataSetService dataSetService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testSaveUpdateDelete()
+    {
+        long orgUnitWatermark = watermarkService.getWatermark( OrganisationUnit.class );
+        long watermark = watermarkService.getWatermark( DataElement.class );
+
+        DataElement dataElement = createDataElement( 'A' );
+        dataElementService.addDataElement( dataElement );
+
+        long saved = watermarkService.getWatermark( DataElement.class );
+        assertTrue( saved > watermark );
+
+        dataElement.setName( "DataElementX" );
+        dataElementService.updateDataElement( dataElement );
+
+        long updated = watermarkService.getWatermark( DataElement.class );
+        assertTrue( updated > saved );
+
+        dataElementService.deleteDataElement( dataElement );
+
+        long deleted = watermarkService.getWatermark( DataElement.class );
+        assertTrue( deleted > updated );
+
+        assertEquals( orgUnitWatermark, watermarkService.getWatermark( OrganisationUnit.class ) );
+        assertEquals( deleted, watermarkService.getWatermark( IdentifiableObject.class ) );
+        assertEquals( deleted, watermarkService.getWatermark( Arrays.asList( OrganisationUnit.class, DataElement.class ) ) );
+    }
+
+    @Test
+    public void testCollectionUpdate()
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        DataSet dataSet = createDataSet( 'A', new MonthlyPeriodType() );
+
+        dataElementService.addDataElement( dataElement );
+        dataSetService.addDataSet( dataSet );
+
+        long watermark = watermarkService.getWatermark( DataSet.class );
+
+        dataSet.addDataElement( dataElement );
+        dataSetService.updateDataSet( dataSet );
+
+        assertTrue( watermarkService.getWatermark( DataSet.class ) > watermark );
+    }
+
+    @Test
+    public void testUpdate()
+    {
+        long watermark = watermarkService.getWatermark( OrganisationUnit.class );
+
+        watermarkService.update( OrganisationUnit.class );
+
+        assertTrue( watermarkService.getWatermark( OrganisationUnit.class ) > watermark );
+    }
+
+    @Test
+    public void testUpdateAfterCommit()
+    {
+        long watermark = watermarkService.getWatermark( OrganisationUnit.class );
+
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            watermarkService.update( OrganisationUnit.class );
+
+            assertEquals( watermark, watermarkService.getWatermark( OrganisationUnit.class ) );
+
+            return null;
+        } );
+
+        assertTrue( watermarkService.getWatermark( OrganisationUnit.class ) > watermark );
+    }
+
+    @Test
+    public void testGetPendingIds()
+    {
+        assertTrue( watermarkService.getPendingIds( DataElement.class ).isEmpty() );
+
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            DataElement dataElement = createDataElement( 'A' );
+            int id = dataElementService.addDataElement( dataElement );
+
+            assertEquals( Sets.newHashSet( id ), watermarkService.getPendingIds( DataElement.class ) );
+            assertEquals( Sets.newHashSet( id ), watermarkService.getPendingIds( IdentifiableObject.class ) );
+            assertTrue( watermarkService.getPendingIds( OrganisationUnit.class ).isEmpty() );
+
+            watermarkService.update( DataElement.class );
+
+            assertNull( watermarkService.getPendingIds( DataElement.class ) );
+
+            return null;
+        } );
+
+        assertTrue( watermarkService.getPendingIds( DataElement.class ).isEmpty() );
+    }
+}
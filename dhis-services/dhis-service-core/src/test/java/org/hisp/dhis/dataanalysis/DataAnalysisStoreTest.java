@@ -33,8 +33,11 @@ import static org.junit.Assert.assertNull;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.hibernate.SessionFactory;
+
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementCategoryCombo;
@@ -42,6 +45,7 @@ import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.dataelement.DataElementCategoryService;
 import org.hisp.dhis.dataelement.DataElementService;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.MonthlyPeriodType;
@@ -49,6 +53,8 @@ import org.hisp.dhis.period.Period;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Lars Helge Overland
  */
@@ -70,6 +76,9 @@ public class DataAnalysisStoreTest
     @Autowired
     private DataValueService dataValueService;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
 
@@ -173,4 +182,70 @@ public class DataAnalysisStoreTest
         assertEquals( 12.78, dataAnalysisStore.getAverage( dataElementA, categoryOptionCombo, organisationUnits, from ).get( organisationUnitA.getId() ), DELTA );
         assertNull( dataAnalysisStore.getAverage( dataElementA, categoryOptionCombo, organisationUnits, from ).get( organisationUnitB.getId() ) );
     }
+
+    @Test
+    public void testGetStdDevOutliers()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, organisationUnitA, "5", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, organisationUnitA, "2", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, organisationUnitA, "1", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodD, organisationUnitA, "12", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodE, organisationUnitA, "10", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodF, organisationUnitA, "7", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodG, organisationUnitA, "52", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodH, organisationUnitA, "23", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodI, organisationUnitA, "3", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodJ, organisationUnitA, "15", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodG, organisationUnitB, "4", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodH, organisationUnitB, "4", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementB, periodG, organisationUnitA, "52", categoryOptionCombo ) );
+
+        sessionFactory.getCurrentSession().flush();
+
+        // Average 13, standard deviation 14.49, bounds -15 and 41
+        
+        List<DeflatedDataValue> outliers = dataAnalysisStore.getStdDevOutliers( Lists.newArrayList( dataElementA ), 
+            Lists.newArrayList( periodG, periodH, periodJ ), organisationUnits, 2.0, from, 500 );
+        
+        assertEquals( 1, outliers.size() );
+        
+        DeflatedDataValue outlier = outliers.get( 0 );
+        
+        assertEquals( periodG.getId(), outlier.getPeriodId() );
+        assertEquals( organisationUnitA.getId(), outlier.getSourceId() );
+        assertEquals( "52", outlier.getValue() );
+        assertEquals( -15, outlier.getMin() );
+        assertEquals( 41, outlier.getMax() );
+        assertEquals( dataElementA.getName(), outlier.getDataElementName() );
+        assertEquals( organisationUnitA.getName(), outlier.getSourceName() );
+        
+        assertEquals( 0, dataAnalysisStore.getStdDevOutliers( Lists.newArrayList( dataElementA ), 
+            Lists.newArrayList( periodH, periodJ ), organisationUnits, 2.0, from, 500 ).size() );
+    }
+
+    @Test
+    public void testGetStdDevOutliersLimit()
+    {
+        for ( DataElement dataElement : Lists.newArrayList( dataElementA, dataElementB ) )
+        {
+            dataValueService.addDataValue( createDataValue( dataElement, periodA, organisationUnitA, "5", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodB, organisationUnitA, "2", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodC, organisationUnitA, "1", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodD, organisationUnitA, "12", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodE, organisationUnitA, "10", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodF, organisationUnitA, "7", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodG, organisationUnitA, "52", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodH, organisationUnitA, "23", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodI, organisationUnitA, "3", categoryOptionCombo ) );
+            dataValueService.addDataValue( createDataValue( dataElement, periodJ, organisationUnitA, "15", categoryOptionCombo ) );
+        }
+
+        sessionFactory.getCurrentSession().flush();
+
+        List<DataElement> dataElements = Lists.newArrayList( dataElementA, dataElementB );
+        List<Period> periods = Lists.newArrayList( periodG, periodH, periodJ );
+
+        assertEquals( 2, dataAnalysisStore.getStdDevOutliers( dataElements, periods, organisationUnits, 2.0, from, 500 ).size() );
+        assertEquals( 1, dataAnalysisStore.getStdDevOutliers( dataElements, periods, organisationUnits, 2.0, from, 1 ).size() );
+    }
 }
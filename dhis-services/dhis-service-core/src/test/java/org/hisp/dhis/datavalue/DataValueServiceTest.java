@@ -34,17 +34,27 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.common.MapMap;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
 import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataelement.DataElementService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.PeriodType;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -66,6 +76,12 @@ public class DataValueServiceTest
 
     @Autowired
     private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private SessionFactory sessionFactory;
     
     // -------------------------------------------------------------------------
     // Supporting data
@@ -470,4 +486,52 @@ public class DataValueServiceTest
         assertTrue( dataValues.contains( dataValueA ) );
         assertTrue( dataValues.contains( dataValueB ) );
     }
+
+    @Test
+    public void testGetDataValueMapByAttributeComboSources()
+    {
+        DataValue dataValueA = new DataValue( dataElementA, periodA, sourceA, optionCombo, optionCombo );
+        dataValueA.setValue( "1" );
+        DataValue dataValueB = new DataValue( dataElementB, periodA, sourceA, optionCombo, optionCombo );
+        dataValueB.setValue( "2" );
+        DataValue dataValueC = new DataValue( dataElementA, periodA, sourceB, optionCombo, optionCombo );
+        dataValueC.setValue( "3" );
+        DataValue dataValueD = new DataValue( dataElementA, periodA, sourceC, optionCombo, optionCombo );
+        dataValueD.setValue( "4" );
+        DataValue dataValueE = new DataValue( dataElementA, periodB, sourceB, optionCombo, optionCombo );
+        dataValueE.setValue( "5" );
+
+        dataValueService.addDataValue( dataValueA );
+        dataValueService.addDataValue( dataValueB );
+        dataValueService.addDataValue( dataValueC );
+        dataValueService.addDataValue( dataValueD );
+        dataValueService.addDataValue( dataValueE );
+
+        sessionFactory.getCurrentSession().flush();
+
+        List<PeriodType> periodTypes = new ArrayList<>();
+        periodTypes.add( periodService.getPeriodTypeByClass( MonthlyPeriodType.class ) );
+
+        Map<Integer, MapMap<Integer, DataElementOperand, Date>> lastUpdatedMap = new HashMap<>();
+
+        Map<Integer, MapMap<Integer, DataElementOperand, Double>> map = dataValueService.getDataValueMapByAttributeCombo(
+            Arrays.asList( dataElementA, dataElementB ), periodA.getStartDate(), Arrays.asList( sourceA, sourceB, sourceD ),
+            periodTypes, null, null, null, lastUpdatedMap );
+
+        DataElementOperand operandA = new DataElementOperand( dataElementA.getUid(), optionCombo.getUid() );
+        DataElementOperand operandB = new DataElementOperand( dataElementB.getUid(), optionCombo.getUid() );
+
+        assertEquals( 2, map.size() );
+        assertEquals( 2, map.get( sourceA.getId() ).get( optionCombo.getId() ).size() );
+        assertEquals( 1d, map.get( sourceA.getId() ).getValue( optionCombo.getId(), operandA ), DELTA );
+        assertEquals( 2d, map.get( sourceA.getId() ).getValue( optionCombo.getId(), operandB ), DELTA );
+        assertEquals( 1, map.get( sourceB.getId() ).get( optionCombo.getId() ).size() );
+        assertEquals( 3d, map.get( sourceB.getId() ).getValue( optionCombo.getId(), operandA ), DELTA );
+        assertNull( map.get( sourceC.getId() ) );
+        assertNull( map.get( sourceD.getId() ) );
+
+        assertTrue( lastUpdatedMap.get( sourceA.getId() ).get( optionCombo.getId() ).containsKey( operandB ) );
+        assertTrue( lastUpdatedMap.get( sourceB.getId() ).get( optionCombo.getId() ).containsKey( operandA ) );
+        assertNull( lastUpdatedMap.get( sourceD.getId() ) );
+    }
 }
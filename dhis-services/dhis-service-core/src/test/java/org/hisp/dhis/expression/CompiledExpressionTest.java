@@ -0,0 +1,132 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hisp.dhis.dataelement.DataElementOperand;
+import org.hisp.dhis.system.util.MathUtils;
+import org.junit.Test;
+
+public class CompiledExpressionTest
+{
+    private static final double DELTA = 0.0001;
+
+    private DataElementOperand opA = new DataElementOperand( "deabcdefghA", "cocabcdefgA" );
+    private DataElementOperand opB = new DataElementOperand( "deabcdefghB", null );
+
+    private Map<DataElementOperand, Double> valueMap = new HashMap<>();
+    private Map<String, Double> constantMap = new HashMap<>();
+    private Map<String, Integer> orgUnitCountMap = new HashMap<>();
+
+    {
+        valueMap.put( opA, 12d );
+        valueMap.put( opB, -3d );
+        constantMap.put( "xxxxxxxxxx1", 2.5 );
+        orgUnitCountMap.put( "ouabcdefghA", 7 );
+    }
+
+    private Double evaluate( String expression )
+    {
+        CompiledExpression compiled = CompiledExpression.compile( expression );
+
+        assertTrue( expression, compiled.isCompiled() );
+
+        return compiled.evaluate( valueMap, constantMap, orgUnitCountMap, 30, null, null );
+    }
+
+    @Test
+    public void testEvaluateArithmetic()
+    {
+        assertEquals( MathUtils.calculateExpression( "1+2*3" ), evaluate( "1+2*3" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "(1+2)*3" ), evaluate( "(1+2)*3" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "10-4-3" ), evaluate( "10-4-3" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "2^3^2" ), evaluate( "2^3^2" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "-2^2" ), evaluate( "-2^2" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "2^-1" ), evaluate( "2^-1" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "7 % 4 / 2" ), evaluate( "7 % 4 / 2" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "1--3.0" ), evaluate( "1--3.0" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "1.5e2 + .5" ), evaluate( "1.5e2 + .5" ), DELTA );
+    }
+
+    @Test
+    public void testEvaluateReferences()
+    {
+        assertEquals( 9d, evaluate( "#{deabcdefghA.cocabcdefgA}+#{deabcdefghB}" ), DELTA );
+        assertEquals( 30d, evaluate( "#{deabcdefghA.cocabcdefgA} * C{xxxxxxxxxx1}" ), DELTA );
+        assertEquals( 37d, evaluate( "OUG{ouabcdefghA}+[days]" ), DELTA );
+        assertEquals( 12d, evaluate( "#{deabcdefghA.cocabcdefgA}+#{deabcdefghC}+C{xxxxxxxxxx2}" ), DELTA );
+        assertEquals( -4d, evaluate( "#{deabcdefghA.cocabcdefgA}/#{deabcdefghB}" ), DELTA );
+    }
+
+    @Test
+    public void testEvaluateNegativeValuePower()
+    {
+        assertEquals( MathUtils.calculateExpression( "-3.0^2" ), evaluate( "#{deabcdefghB}^2" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "1--3.0^2" ), evaluate( "1-#{deabcdefghB}^2" ), DELTA );
+        assertEquals( MathUtils.calculateExpression( "2^-3.0" ), evaluate( "2^#{deabcdefghB}" ), DELTA );
+        assertEquals( 9d, evaluate( "(#{deabcdefghB})^2" ), DELTA );
+        assertEquals( -9d, evaluate( "#{deabcdefghB}^2" ), DELTA );
+    }
+
+    @Test
+    public void testMissingValueStrategy()
+    {
+        CompiledExpression compiled = CompiledExpression.compile( "#{deabcdefghA.cocabcdefgA}+#{deabcdefghC}" );
+
+        assertEquals( 2, compiled.getOperands().size() );
+        assertEquals( 12d, compiled.evaluate( valueMap, null, null, null, MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING, null ), DELTA );
+        assertNull( compiled.evaluate( valueMap, null, null, null, MissingValueStrategy.SKIP_IF_ANY_VALUE_MISSING, null ) );
+
+        Set<DataElementOperand> incompleteValues = new HashSet<>();
+        incompleteValues.add( opA );
+
+        assertNull( compiled.evaluate( valueMap, null, null, null, MissingValueStrategy.SKIP_IF_ALL_VALUES_MISSING, incompleteValues ) );
+        assertEquals( 12d, compiled.evaluate( valueMap, null, null, null, MissingValueStrategy.NEVER_SKIP, incompleteValues ), DELTA );
+    }
+
+    @Test
+    public void testNotCompiled()
+    {
+        assertFalse( CompiledExpression.compile( null ).isCompiled() );
+        assertFalse( CompiledExpression.compile( " " ).isCompiled() );
+        assertFalse( CompiledExpression.compile( "abs(-1)" ).isCompiled() );
+        assertFalse( CompiledExpression.compile( "(1+2" ).isCompiled() );
+        assertFalse( CompiledExpression.compile( "1+" ).isCompiled() );
+        assertFalse( CompiledExpression.compile( "2 3" ).isCompiled() );
+    }
+}
@@ -0,0 +1,83 @@
+package org.hisp.dhis.fieldfilter;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.node.NodeService;
+import org.hisp.dhis.node.NodeUtils;
+import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.RootNode;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Lists;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FieldFilterServiceTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private FieldFilterService fieldFilterService;
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Test
+    public void testFilterLazy()
+        throws Exception
+    {
+        List<DataElement> dataElements = Lists.newArrayList( createDataElement( 'A' ), createDataElement( 'B' ), createDataElement( 'C' ) );
+        List<String> fields = Lists.newArrayList( "id", "name", "code" );
+
+        CollectionNode eager = fieldFilterService.filter( DataElement.class, dataElements, fields );
+        CollectionNode lazy = fieldFilterService.filterLazy( DataElement.class, dataElements, fields );
+
+        assertEquals( 3, lazy.getChildren().size() );
+        assertSame( lazy, lazy.getChildren().get( 0 ).getParent() );
+
+        assertEquals( serialize( eager ), serialize( lazy ) );
+        assertTrue( serialize( lazy ).contains( dataElements.get( 2 ).getUid() ) );
+    }
+
+    private String serialize( CollectionNode collectionNode )
+        throws Exception
+    {
+        RootNode rootNode = NodeUtils.createMetadata( collectionNode );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        nodeService.serialize( rootNode, "application/json", out );
+        return out.toString( "UTF-8" );
+    }
+}
@@ -698,6 +698,28 @@ public class OrganisationUnitServiceTest
         assertTrue( children3.contains( id6 ) );
     }
 
+    @Test
+    public void testGetOrganisationUnitHierarchyAfterParentUpdate()
+    {
+        OrganisationUnit unit1 = createOrganisationUnit( 'A' );
+        OrganisationUnit unit2 = createOrganisationUnit( 'B', unit1 );
+        OrganisationUnit unit3 = createOrganisationUnit( 'C', unit1 );
+
+        int id1 = organisationUnitService.addOrganisationUnit( unit1 );
+        int id2 = organisationUnitService.addOrganisationUnit( unit2 );
+        int id3 = organisationUnitService.addOrganisationUnit( unit3 );
+
+        assertEquals( 1, organisationUnitService.getOrganisationUnitHierarchy().getChildren( id2 ).size() );
+
+        organisationUnitService.updateOrganisationUnitParent( id3, id2 );
+
+        Collection<Integer> children = organisationUnitService.getOrganisationUnitHierarchy().getChildren( id2 );
+
+        assertEquals( 2, children.size() );
+        assertTrue( children.contains( id3 ) );
+        assertEquals( 3, organisationUnitService.getOrganisationUnitHierarchy().getChildren( id1 ).size() );
+    }
+
     // -------------------------------------------------------------------------
     // OrganisationUnitGroupSets
     // -------------------------------------------------------------------------
@@ -921,4 +943,97 @@ public class OrganisationUnitServiceTest
         assertFalse( organisationUnitService.isInUserHierarchy( ouF.getUid(), organisationUnits ) );
         assertFalse( organisationUnitService.isInUserHierarchy( ouG.getUid(), organisationUnits ) );        
     }
+
+    @Test
+    public void testIsDescendantWithPendingParentChange()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouA );
+        OrganisationUnit ouD = createOrganisationUnit( 'D', ouB );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+        organisationUnitService.addOrganisationUnit( ouD );
+
+        assertTrue( organisationUnitService.isDescendant( ouD, Sets.newHashSet( ouB ) ) );
+        assertTrue( organisationUnitService.isDescendant( ouD, Sets.newHashSet( ouA ) ) );
+        assertFalse( organisationUnitService.isDescendant( ouD, Sets.newHashSet( ouC ) ) );
+
+        ouD.setParent( ouC );
+        organisationUnitService.updateOrganisationUnit( ouD );
+
+        assertTrue( organisationUnitService.isDescendant( ouD, Sets.newHashSet( ouC ) ) );
+        assertFalse( organisationUnitService.isDescendant( ouD, Sets.newHashSet( ouB ) ) );
+        assertFalse( organisationUnitService.isDescendant( ouD, Sets.<OrganisationUnit>newHashSet() ) );
+    }
+
+    @Test
+    public void testGetOrganisationUnitByCoordinate()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouA );
+        OrganisationUnit ouD = createOrganisationUnit( 'D', ouB );
+
+        ouA.setFeatureType( FeatureType.POLYGON );
+        ouA.setCoordinates( "[[[0,0],[10,0],[10,10],[0,10],[0,0]]]" );
+        ouB.setFeatureType( FeatureType.POLYGON );
+        ouB.setCoordinates( "[[[0,0],[5,0],[5,5],[0,5],[0,0]]]" );
+        ouC.setFeatureType( FeatureType.MULTI_POLYGON );
+        ouC.setCoordinates( "[[[[5,0],[10,0],[10,5],[5,5],[5,0]]]]" );
+        ouD.setFeatureType( FeatureType.POINT );
+        ouD.setCoordinates( "[1,1]" );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+        organisationUnitService.addOrganisationUnit( ouD );
+
+        assertEquals( Arrays.asList( ouB ), organisationUnitService.getOrganisationUnitByCoordinate( 2, 2, null, null ) );
+        assertEquals( Arrays.asList( ouC ), organisationUnitService.getOrganisationUnitByCoordinate( 7, 2, ouA.getUid(), null ) );
+        assertEquals( Arrays.asList( ouA ), organisationUnitService.getOrganisationUnitByCoordinate( 7, 2, ouA.getUid(), 1 ) );
+        assertEquals( Arrays.asList( ouA ), organisationUnitService.getOrganisationUnitByCoordinate( 7, 7, ouA.getUid(), null ) );
+        assertTrue( organisationUnitService.getOrganisationUnitByCoordinate( 7, 2, ouB.getUid(), null ).isEmpty() );
+        assertTrue( organisationUnitService.getOrganisationUnitByCoordinate( 20, 20, null, null ).isEmpty() );
+
+        ouB.setCoordinates( "[[[0,0],[8,0],[8,5],[0,5],[0,0]]]" );
+        organisationUnitService.updateOrganisationUnit( ouB );
+
+        List<OrganisationUnit> units = organisationUnitService.getOrganisationUnitByCoordinate( 7, 2, ouA.getUid(), null );
+
+        assertEquals( 2, units.size() );
+        assertTrue( units.contains( ouB ) );
+        assertTrue( units.contains( ouC ) );
+    }
+
+    @Test
+    public void testGetOrganisationUnitWithinDistance()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouA );
+
+        ouA.setFeatureType( FeatureType.POLYGON );
+        ouA.setCoordinates( "[[[0,0],[10,0],[10,10],[0,10],[0,0]]]" );
+        ouB.setFeatureType( FeatureType.POINT );
+        ouB.setCoordinates( "[1,1]" );
+        ouC.setFeatureType( FeatureType.POINT );
+        ouC.setCoordinates( "[4,4]" );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+
+        assertEquals( Arrays.asList( ouB ), organisationUnitService.getOrganisationUnitWithinDistance( 1.001, 1.001, 1000 ) );
+
+        List<OrganisationUnit> units = organisationUnitService.getOrganisationUnitWithinDistance( 1, 1, 600000 );
+
+        assertEquals( 2, units.size() );
+        assertTrue( units.contains( ouB ) );
+        assertTrue( units.contains( ouC ) );
+
+        assertTrue( organisationUnitService.getOrganisationUnitWithinDistance( 20, 20, 1000 ).isEmpty() );
+    }
 }
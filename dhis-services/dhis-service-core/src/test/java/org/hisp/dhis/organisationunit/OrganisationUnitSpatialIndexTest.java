@@ -0,0 +1,133 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class OrganisationUnitSpatialIndexTest
+    extends DhisConvenienceTest
+{
+    private OrganisationUnit ouA;
+    private OrganisationUnit ouB;
+    private OrganisationUnit ouC;
+
+    private OrganisationUnitSpatialIndex index;
+
+    private Map<Integer, OrganisationUnit> units;
+
+    @Before
+    public void before()
+    {
+        ouA = createOrganisationUnit( 'A', 1, null, "[[[0,0],[10,0],[10,10],[0,10],[0,0]]]" );
+        ouB = createOrganisationUnit( 'B', 2, ouA, "[[[0,0],[5,0],[5,5],[0,5],[0,0]]]" );
+        ouC = createOrganisationUnit( 'C', 3, ouB, "[[[1,1],[2,1],[2,2],[1,2],[1,1]]]" );
+
+        units = new HashMap<>();
+        units.put( ouA.getId(), ouA );
+        units.put( ouB.getId(), ouB );
+        units.put( ouC.getId(), ouC );
+
+        index = new OrganisationUnitSpatialIndex( units.values(), 1 );
+    }
+
+    @Test
+    public void testGetContaining()
+    {
+        assertEquals( Sets.newHashSet( 1, 2, 3 ), Sets.newHashSet( OrganisationUnitSpatialIndex.getIdentifiers( index.getContaining( 1.5, 1.5 ) ) ) );
+        assertEquals( Sets.newHashSet( 1 ), Sets.newHashSet( OrganisationUnitSpatialIndex.getIdentifiers( index.getContaining( 7, 2 ) ) ) );
+    }
+
+    @Test
+    public void testWithChangesUpdated()
+    {
+        ouB.setCoordinates( "[[[0,0],[8,0],[8,5],[0,5],[0,0]]]" );
+
+        OrganisationUnitSpatialIndex changed = index.withChanges( Arrays.asList( ouB.getId() ), units::get );
+
+        assertEquals( 1, changed.getSize() );
+        assertEquals( Sets.newHashSet( 1, 2 ), Sets.newHashSet( OrganisationUnitSpatialIndex.getIdentifiers( changed.getContaining( 7, 2 ) ) ) );
+        assertEquals( Sets.newHashSet( 1 ), Sets.newHashSet( OrganisationUnitSpatialIndex.getIdentifiers( index.getContaining( 7, 2 ) ) ) );
+    }
+
+    @Test
+    public void testWithChangesDeleted()
+    {
+        units.remove( ouC.getId() );
+
+        OrganisationUnitSpatialIndex changed = index.withChanges( Arrays.asList( ouC.getId() ), units::get );
+
+        assertEquals( Sets.newHashSet( 1, 2 ), Sets.newHashSet( OrganisationUnitSpatialIndex.getIdentifiers( changed.getContaining( 1.5, 1.5 ) ) ) );
+    }
+
+    @Test
+    public void testWithChangesMoved()
+    {
+        OrganisationUnit ouD = createOrganisationUnit( 'D', 4, null, "[[[20,20],[30,20],[30,30],[20,30],[20,20]]]" );
+        units.put( ouD.getId(), ouD );
+
+        ouB.setParent( ouD );
+
+        OrganisationUnitSpatialIndex changed = index.withChanges( Arrays.asList( ouB.getId(), ouD.getId() ), units::get );
+
+        List<OrganisationUnitSpatialIndex.Entry> entries = changed.getContaining( 1.5, 1.5 );
+
+        assertEquals( 3, entries.size() );
+
+        for ( OrganisationUnitSpatialIndex.Entry entry : entries )
+        {
+            if ( entry.getId() == ouC.getId() )
+            {
+                assertEquals( ouC.getPath(), entry.getPath() );
+                assertTrue( entry.isDescendantOrSelf( ouD.getUid() ) );
+            }
+        }
+    }
+
+    private static OrganisationUnit createOrganisationUnit( char uniqueCharacter, int id, OrganisationUnit parent, String coordinates )
+    {
+        OrganisationUnit unit = parent != null ? createOrganisationUnit( uniqueCharacter, parent ) : createOrganisationUnit( uniqueCharacter );
+        unit.setId( id );
+        unit.setFeatureType( FeatureType.POLYGON );
+        unit.setCoordinates( coordinates );
+
+        return unit;
+    }
+}
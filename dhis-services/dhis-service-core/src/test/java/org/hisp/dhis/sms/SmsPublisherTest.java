@@ -0,0 +1,294 @@
+package org.hisp.dhis.sms;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.sms.incoming.IncomingSms;
+import org.hisp.dhis.sms.incoming.IncomingSmsListener;
+import org.hisp.dhis.sms.incoming.IncomingSmsStore;
+import org.hisp.dhis.sms.incoming.SmsMessageEncoding;
+import org.hisp.dhis.sms.incoming.SmsMessageStatus;
+import org.hisp.dhis.sms.outbound.OutboundSms;
+import org.hisp.dhis.user.User;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class SmsPublisherTest
+    extends DhisTest
+{
+    private static final int MESSAGES = 300;
+
+    @Autowired
+    private IncomingSmsStore incomingSmsStore;
+
+    private DatabaseSupportedInternalMemoryMessageQueue messageQueue;
+
+    private SmsPublisher smsPublisher;
+
+    private List<IncomingSms> received = Collections.synchronizedList( new ArrayList<>() );
+
+    private List<String> sent = Collections.synchronizedList( new ArrayList<>() );
+
+    @Override
+    public void setUpTest()
+    {
+        messageQueue = new DatabaseSupportedInternalMemoryMessageQueue();
+        messageQueue.setSmsStore( incomingSmsStore );
+        messageQueue.setCapacity( 50 );
+
+        smsPublisher = new SmsPublisher();
+        smsPublisher.setMessageQueue( messageQueue );
+        smsPublisher.setSmsSender( new RecordingSmsSender() );
+        smsPublisher.setWorkers( 3 );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        smsPublisher.stop();
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testProcessInOriginatorOrder()
+        throws Exception
+    {
+        smsPublisher.setListeners( Collections.singletonList( new RecordingListener( true ) ) );
+
+        smsPublisher.start();
+
+        receive( MESSAGES, 6, true );
+
+        awaitProcessed( MESSAGES );
+
+        smsPublisher.stop();
+
+        assertEquals( MESSAGES, received.size() );
+        assertEquals( 0, smsPublisher.getFailedCount() );
+        assertEquals( 0, smsPublisher.getQueueSize() );
+        assertTrue( incomingSmsStore.getAllUnparsedSmses().isEmpty() );
+
+        Map<String, Integer> last = new HashMap<>();
+
+        for ( IncomingSms sms : received )
+        {
+            int number = Integer.parseInt( sms.getText() );
+            Integer previous = last.put( sms.getOriginator(), number );
+
+            assertTrue( previous == null || previous < number );
+        }
+    }
+
+    @Test
+    public void testProcessUnparsedOnStart()
+        throws Exception
+    {
+        smsPublisher.setListeners( Collections.singletonList( new RecordingListener( false ) ) );
+
+        receive( 120, 4, false );
+
+        smsPublisher.start();
+
+        awaitProcessed( 120 );
+
+        smsPublisher.stop();
+
+        assertEquals( 120, sent.size() );
+        assertTrue( incomingSmsStore.getAllUnparsedSmses().isEmpty() );
+        assertEquals( 120, incomingSmsStore.getSmsByStatus( SmsMessageStatus.UNHANDLED, "" ).size() );
+    }
+
+    @Test
+    public void testRetryFailedFlush()
+        throws Exception
+    {
+        AtomicBoolean failing = new AtomicBoolean();
+
+        messageQueue.setSmsStore( (IncomingSmsStore) Proxy.newProxyInstance( getClass().getClassLoader(),
+            new Class<?>[] { IncomingSmsStore.class }, ( proxy, method, args ) -> {
+                if ( failing.get() && method.getName().equals( "update" ) )
+                {
+                    throw new IllegalStateException( "Database unavailable" );
+                }
+
+                try
+                {
+                    return method.invoke( incomingSmsStore, args );
+                }
+                catch ( InvocationTargetException ex )
+                {
+                    throw ex.getCause();
+                }
+            } ) );
+
+        receive( 3, 1, true );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            messageQueue.remove( messageQueue.take( 0, TimeUnit.MILLISECONDS ) );
+        }
+
+        failing.set( true );
+
+        messageQueue.flush();
+
+        assertEquals( 3, incomingSmsStore.getAllUnparsedSmses().size() );
+        assertNull( messageQueue.take( 0, TimeUnit.MILLISECONDS ) );
+
+        failing.set( false );
+
+        messageQueue.flush();
+
+        assertTrue( incomingSmsStore.getAllUnparsedSmses().isEmpty() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Saves and queues messages from a separate thread, like a gateway would,
+     * so that they are not attached to the session of the test thread.
+     */
+    private void receive( int count, int originators, boolean queue )
+        throws InterruptedException
+    {
+        Thread gateway = new Thread( () -> {
+            for ( int i = 0; i < count; i++ )
+            {
+                IncomingSms sms = createSms( "4740000" + ( i % originators ), String.valueOf( i ) );
+                incomingSmsStore.save( sms );
+
+                if ( queue )
+                {
+                    messageQueue.put( sms );
+                }
+            }
+        } );
+
+        gateway.start();
+        gateway.join();
+    }
+
+    private void awaitProcessed( int count )
+        throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 30000;
+
+        while ( smsPublisher.getProcessedCount() < count && System.currentTimeMillis() < timeout )
+        {
+            Thread.sleep( 50 );
+        }
+    }
+
+    private IncomingSms createSms( String originator, String text )
+    {
+        IncomingSms sms = new IncomingSms();
+        sms.setOriginator( originator );
+        sms.setText( text );
+        sms.setEncoding( SmsMessageEncoding.ENC7BIT );
+        sms.setSentDate( new Date() );
+        sms.setReceivedDate( new Date() );
+        sms.setGatewayId( "test" );
+
+        return sms;
+    }
+
+    private class RecordingListener
+        implements IncomingSmsListener
+    {
+        private boolean accept;
+
+        private RecordingListener( boolean accept )
+        {
+            this.accept = accept;
+        }
+
+        @Override
+        public boolean accept( IncomingSms sms )
+        {
+            return accept;
+        }
+
+        @Override
+        public void receive( IncomingSms sms )
+        {
+            received.add( sms );
+        }
+    }
+
+    private class RecordingSmsSender
+        implements SmsSender
+    {
+        @Override
+        public String sendMessage( OutboundSms sms, String gatewayId )
+        {
+            return null;
+        }
+
+        @Override
+        public String sendMessage( OutboundSms sms )
+        {
+            return null;
+        }
+
+        @Override
+        public String sendMessage( String message, String phoneNumber )
+        {
+            sent.add( phoneNumber );
+            return null;
+        }
+
+        @Override
+        public String sendMessage( String subject, String text, User sender, List<User> users, boolean forceSend )
+        {
+            return null;
+        }
+    }
+}
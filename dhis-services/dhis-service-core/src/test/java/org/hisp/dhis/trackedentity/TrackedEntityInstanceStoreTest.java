@@ -28,10 +28,13 @@ package org.hisp.dhis.trackedentity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.PageToken;
+import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.QueryOperator;
 import org.hisp.dhis.common.ValueType;
@@ -46,6 +49,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -70,6 +74,9 @@ public class TrackedEntityInstanceStoreTest
     @Autowired
     private ProgramInstanceService programInstanceService;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     private TrackedEntityInstance teiA;
     private TrackedEntityInstance teiB;
     private TrackedEntityInstance teiC;
@@ -264,4 +271,87 @@ public class TrackedEntityInstanceStoreTest
         assertTrue( teis.contains( teiB ) );
         assertTrue( teis.contains( teiE ) );
     }
+
+    @Test
+    public void testQueryGrid()
+    {
+        TrackedEntity teA = createTrackedEntity( 'A' );
+        idObjectManager.save( teA );
+        
+        teiA.setTrackedEntity( teA );
+        teiB.setTrackedEntity( teA );
+        teiC.setTrackedEntity( teA );
+        teiD.setTrackedEntity( teA );
+        
+        teiStore.save( teiA );
+        teiStore.save( teiB );
+        teiStore.save( teiC );
+        teiStore.save( teiD );
+
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiA, "John" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiA, "Johnson" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiB, "Johnny" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiB, "Peterson" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atA, teiC, "Mary" ) );
+        attributeValueService.addTrackedEntityAttributeValue( new TrackedEntityAttributeValue( atB, teiC, "Petersen" ) );
+        
+        sessionFactory.getCurrentSession().flush();
+
+        // Query by single token on any attribute
+
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams();
+        params.setOrganisationUnitMode( OrganisationUnitSelectionMode.ALL );
+        params.setQuery( new QueryFilter( QueryOperator.LIKE, "JOHN" ) );
+        params.addAttribute( new QueryItem( atA ) );
+        params.addAttribute( new QueryItem( atB ) );
+
+        List<Map<String, String>> grid = teiStore.getTrackedEntityInstancesGrid( params );
+
+        assertEquals( 2, grid.size() );
+        assertEquals( 2, teiStore.getTrackedEntityInstanceCount( params ) );
+
+        // Query by multiple tokens, all of which must match
+
+        params.setQuery( new QueryFilter( QueryOperator.LIKE, "pete mar" ) );
+
+        grid = teiStore.getTrackedEntityInstancesGrid( params );
+
+        assertEquals( 1, grid.size() );
+        assertEquals( teiC.getUid(), grid.get( 0 ).get( TrackedEntityInstanceQueryParams.TRACKED_ENTITY_INSTANCE_ID ) );
+        assertEquals( "Mary", grid.get( 0 ).get( atA.getUid() ) );
+    }
+
+    @Test
+    public void testQueryWithPageToken()
+    {
+        TrackedEntity teA = createTrackedEntity( 'A' );
+        idObjectManager.save( teA );
+
+        teiA.setTrackedEntity( teA );
+        teiB.setTrackedEntity( teA );
+        teiC.setTrackedEntity( teA );
+
+        teiStore.save( teiA );
+        teiStore.save( teiB );
+        teiStore.save( teiC );
+
+        sessionFactory.getCurrentSession().flush();
+
+        TrackedEntityInstanceQueryParams params = new TrackedEntityInstanceQueryParams();
+        params.setOrganisationUnitMode( OrganisationUnitSelectionMode.ALL );
+        params.setPageSize( 2 );
+
+        List<Map<String, String>> grid = teiStore.getTrackedEntityInstancesGrid( params );
+
+        assertEquals( 2, grid.size() );
+
+        String lastUid = grid.get( 1 ).get( TrackedEntityInstanceQueryParams.TRACKED_ENTITY_INSTANCE_ID );
+
+        params.setPageToken( PageToken.encode( lastUid ) );
+
+        grid = teiStore.getTrackedEntityInstancesGrid( params );
+
+        assertEquals( 1, grid.size() );
+        assertTrue( grid.get( 0 ).get( TrackedEntityInstanceQueryParams.TRACKED_ENTITY_INSTANCE_ID ).compareTo( lastUid ) > 0 );
+    }
 }
@@ -66,6 +66,8 @@ public class ImportOptions
 
     private boolean skipExistingCheck;
 
+    private boolean bulkImport;
+
     private boolean sharing;
     
     private boolean strictPeriods;
@@ -158,6 +160,11 @@ public class ImportOptions
         return skipExistingCheck;
     }
 
+    public boolean isBulkImport()
+    {
+        return bulkImport;
+    }
+
     public boolean isSharing()
     {
         return sharing;
@@ -251,6 +258,12 @@ public class ImportOptions
         return this;
     }
 
+    public ImportOptions setBulkImport( boolean bulkImport )
+    {
+        this.bulkImport = bulkImport;
+        return this;
+    }
+
     public ImportOptions setSharing( boolean sharing )
     {
         this.sharing = sharing;
@@ -305,6 +318,7 @@ public class ImportOptions
             add( "Async", async ).
             add( "Import strategy", importStrategy ).
             add( "Skip existing check", skipExistingCheck ).
+            add( "Bulk import", bulkImport ).
             add( "Sharing", sharing ).
             add( "Strict periods", strictPeriods ).
             add( "Strict category option combos", strictCategoryOptionCombos ).
@@ -0,0 +1,158 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Position in the sequence of data values ordered by last updated time and
+ * data value key. Used to export data values in chunks, where each chunk
+ * starts after the checkpoint of the previous chunk. The position is exact
+ * also when many data values share the same last updated time.
+ */
+public class DataValueCheckpoint
+{
+    private static final String SEP = ";";
+
+    private final Timestamp lastUpdated;
+
+    private final int dataElementId;
+
+    private final int periodId;
+
+    private final int sourceId;
+
+    private final int categoryOptionComboId;
+
+    private final int attributeOptionComboId;
+
+    public DataValueCheckpoint( Timestamp lastUpdated, int dataElementId, int periodId, int sourceId,
+        int categoryOptionComboId, int attributeOptionComboId )
+    {
+        this.lastUpdated = lastUpdated;
+        this.dataElementId = dataElementId;
+        this.periodId = periodId;
+        this.sourceId = sourceId;
+        this.categoryOptionComboId = categoryOptionComboId;
+        this.attributeOptionComboId = attributeOptionComboId;
+    }
+
+    /**
+     * Returns a checkpoint positioned before all data values updated at or
+     * after the given time.
+     */
+    public static DataValueCheckpoint startOf( Date lastUpdated )
+    {
+        return new DataValueCheckpoint( new Timestamp( lastUpdated.getTime() ), 0, 0, 0, 0, 0 );
+    }
+
+    /**
+     * Parses a checkpoint from the string representation given by toString.
+     * 
+     * @return the checkpoint, or null if the given string is not a valid
+     *         checkpoint.
+     */
+    public static DataValueCheckpoint fromString( String checkpoint )
+    {
+        String[] parts = StringUtils.split( checkpoint, SEP );
+
+        if ( parts == null || parts.length != 6 )
+        {
+            return null;
+        }
+
+        try
+        {
+            return new DataValueCheckpoint( Timestamp.valueOf( parts[0] ), Integer.parseInt( parts[1] ),
+                Integer.parseInt( parts[2] ), Integer.parseInt( parts[3] ), Integer.parseInt( parts[4] ),
+                Integer.parseInt( parts[5] ) );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the values of this checkpoint in the order of the columns used
+     * for ordering data values.
+     */
+    public Object[] getValues()
+    {
+        return new Object[] { lastUpdated, dataElementId, periodId, sourceId, categoryOptionComboId, attributeOptionComboId };
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public Timestamp getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public int getDataElementId()
+    {
+        return dataElementId;
+    }
+
+    public int getPeriodId()
+    {
+        return periodId;
+    }
+
+    public int getSourceId()
+    {
+        return sourceId;
+    }
+
+    public int getCategoryOptionComboId()
+    {
+        return categoryOptionComboId;
+    }
+
+    public int getAttributeOptionComboId()
+    {
+        return attributeOptionComboId;
+    }
+
+    // -------------------------------------------------------------------------
+    // Object
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        return lastUpdated + SEP + dataElementId + SEP + periodId + SEP + sourceId + SEP +
+            categoryOptionComboId + SEP + attributeOptionComboId;
+    }
+}
@@ -61,6 +61,15 @@ public interface DataValueSetService
 
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes );
 
+    /**
+     * Writes the chunk of data values positioned after the given checkpoint
+     * and last updated before the given end time as JSON.
+     * 
+     * @return the checkpoint of the last written data value, or null if no
+     *         data values were written.
+     */
+    DataValueCheckpoint writeDataValueSetJson( DataValueCheckpoint checkpoint, Date endTime, int limit, OutputStream outputStream, IdSchemes idSchemes );
+
     void writeDataValueSetCsv( DataExportParams params, Writer writer );
 
     RootNode getDataValueSetTemplate( DataSet dataSet, Period period, List<String> orgUnits, boolean writeComments, String ouScheme, String deScheme );
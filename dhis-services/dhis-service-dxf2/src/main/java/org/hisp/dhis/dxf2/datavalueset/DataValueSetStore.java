@@ -30,9 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
 
+import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.dxf2.common.IdSchemes;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.importexport.ImportStrategy;
 
 /**
  * @author Lars Helge Overland
@@ -46,4 +50,36 @@ public interface DataValueSetStore
     void writeDataValueSetCsv( DataExportParams params, Date completeDate, Writer writer );
 
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes );
+
+    /**
+     * Writes a chunk of data values as JSON. The chunk holds the data values
+     * positioned after the given checkpoint and last updated before the given
+     * end time, in last updated and key order, limited to the given number of
+     * data values.
+     * 
+     * @param checkpoint the checkpoint to start after.
+     * @param endTime the exclusive upper bound of last updated time.
+     * @param limit the max number of data values to write.
+     * @param outputStream the output stream to write to.
+     * @param idSchemes the identifier schemes.
+     * @return the checkpoint of the last written data value, or null if no
+     *         data values were written.
+     */
+    DataValueCheckpoint writeDataValueSetJson( DataValueCheckpoint checkpoint, Date endTime, int limit, OutputStream outputStream, IdSchemes idSchemes );
+
+    /**
+     * Merges the given data values into the data value table through a temporary
+     * staging table using set-based statements. Existing data values are updated,
+     * or deleted if both value and comment are null, if the import strategy
+     * allows for updates. New data values are inserted if the import strategy
+     * allows for creates. The data values must be unique on data element, period,
+     * organisation unit, category option combo and attribute option combo.
+     * 
+     * @param dataValues the data values to merge.
+     * @param strategy the import strategy.
+     * @param dryRun whether to only count data values without writing them.
+     * @param skipExistingCheck whether to consider all data values as new.
+     * @return the number of imported and updated data values.
+     */
+    ImportCount mergeDataValues( Collection<DataValue> dataValues, ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck );
 }
@@ -41,6 +41,7 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -55,6 +56,7 @@ import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.common.WatermarkService;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.dataelement.DataElement;
@@ -111,6 +113,8 @@ public class DefaultDataValueSetService
 
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
 
+    private static final int BULK_IMPORT_CHUNK_SIZE = 10000;
+
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
     
@@ -147,6 +151,9 @@ public class DefaultDataValueSetService
     @Autowired
     private Notifier notifier;
 
+    @Autowired
+    private WatermarkService watermarkService;
+
     // Set methods for test purposes
     
     public void setBatchHandlerFactory( BatchHandlerFactory batchHandlerFactory )
@@ -280,6 +287,12 @@ public class DefaultDataValueSetService
         dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes );
     }
 
+    @Override
+    public DataValueCheckpoint writeDataValueSetJson( DataValueCheckpoint checkpoint, Date endTime, int limit, OutputStream outputStream, IdSchemes idSchemes )
+    {
+        return dataValueSetStore.writeDataValueSetJson( checkpoint, endTime, limit, outputStream, idSchemes );
+    }
+
     @Override
     public void writeDataValueSetCsv( DataExportParams params, Writer writer )
     {
@@ -566,6 +579,7 @@ public class DefaultDataValueSetService
 
         boolean dryRun = dataValueSet.getDryRun() != null ? dataValueSet.getDryRun() : importOptions.isDryRun();
         boolean skipExistingCheck = importOptions.isSkipExistingCheck();        
+        boolean bulkImport = importOptions.isBulkImport();
         boolean strictPeriods = importOptions.isStrictPeriods() || (Boolean) systemSettingManager.getSystemSetting( Setting.DATA_IMPORT_STRICT_PERIODS );
         boolean strictCategoryOptionCombos = importOptions.isStrictCategoryOptionCombos() || (Boolean) systemSettingManager.getSystemSetting( Setting.DATA_IMPORT_STRICT_CATEGORY_OPTION_COMBOS );
         boolean strictAttrOptionCombos = importOptions.isStrictAttributeOptionCombos() || (Boolean) systemSettingManager.getSystemSetting( Setting.DATA_IMPORT_STRICT_ATTRIBUTE_OPTION_COMBOS );
@@ -671,6 +685,8 @@ public class DefaultDataValueSetService
         
         BatchHandler<DataValue> batchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
 
+        Set<DataValue> bulkValues = new LinkedHashSet<>();
+        
         int importCount = 0;
         int updateCount = 0;
         int totalCount = 0;
@@ -876,7 +892,25 @@ public class DefaultDataValueSetService
             // Save, update or delete data value
             // -----------------------------------------------------------------
 
-            if ( !skipExistingCheck && batchHandler.objectExists( internalValue ) )
+            if ( bulkImport )
+            {
+                // -------------------------------------------------------------
+                // Merge chunk before adding a value which is already staged
+                // -------------------------------------------------------------
+
+                if ( bulkValues.contains( internalValue ) || bulkValues.size() >= BULK_IMPORT_CHUNK_SIZE )
+                {
+                    ImportCount count = dataValueSetStore.mergeDataValues( bulkValues, strategy, dryRun, skipExistingCheck );
+                    
+                    importCount += count.getImported();
+                    updateCount += count.getUpdated();
+                    
+                    bulkValues.clear();
+                }
+                
+                bulkValues.add( internalValue );
+            }
+            else if ( !skipExistingCheck && batchHandler.objectExists( internalValue ) )
             {
                 if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
                 {
@@ -912,6 +946,19 @@ public class DefaultDataValueSetService
 
         batchHandler.flush();
 
+        if ( !bulkValues.isEmpty() )
+        {
+            ImportCount count = dataValueSetStore.mergeDataValues( bulkValues, strategy, dryRun, skipExistingCheck );
+            
+            importCount += count.getImported();
+            updateCount += count.getUpdated();
+        }
+
+        if ( !dryRun )
+        {
+            watermarkService.update( DataValue.class );
+        }
+
         int ignores = totalCount - importCount - updateCount;
 
         summary.setImportCount( new ImportCount( importCount, updateCount, ignores, 0 ) );
@@ -37,9 +37,14 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.amplecode.staxwax.factory.XMLFactory;
 import org.apache.commons.io.IOUtils;
@@ -51,14 +56,19 @@ import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dxf2.common.IdSchemes;
 import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.csvreader.CsvWriter;
+import com.google.common.collect.Lists;
 
 /**
  * @author Lars Helge Overland
@@ -70,9 +80,25 @@ public class SpringDataValueSetStore
     
     private static final char CSV_DELIM = ',';
 
+    private static final String STAGING_TABLE = "datavaluestaging";
+    
+    private static final List<String> KEY_COLUMNS = Lists.newArrayList( 
+        "dataelementid", "periodid", "sourceid", "categoryoptioncomboid", "attributeoptioncomboid" );
+    
+    private static final List<String> VALUE_COLUMNS = Lists.newArrayList( 
+        "value", "storedby", "created", "lastupdated", "comment", "followup" );
+
+    private static final List<String> CHECKPOINT_COLUMNS = Lists.newArrayList( "dv.lastupdated", 
+        "dv.dataelementid", "dv.periodid", "dv.sourceid", "dv.categoryoptioncomboid", "dv.attributeoptioncomboid" );
+    
+    private static final int STAGING_BATCH_SIZE = 1000;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatementBuilder statementBuilder;
+
     //--------------------------------------------------------------------------
     // DataValueSetStore implementation
     //--------------------------------------------------------------------------
@@ -132,6 +158,141 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public DataValueCheckpoint writeDataValueSetJson( DataValueCheckpoint checkpoint, Date endTime, int limit, OutputStream outputStream, IdSchemes idSchemes )
+    {
+        String deScheme = idSchemes.getDataElementIdScheme().toString().toLowerCase();
+        String ouScheme = idSchemes.getOrgUnitIdScheme().toString().toLowerCase();
+        String ocScheme = idSchemes.getCategoryOptionComboIdScheme().toString().toLowerCase();
+
+        final DataValueSet dataValueSet = new StreamingJsonDataValueSet( outputStream );
+
+        final List<Object> args = new ArrayList<>();
+
+        final String sql =
+            "select de." + deScheme + " as deid, pe.startdate as pestart, pt.name as ptname, ou." + ouScheme + " as ouid, " +
+            "coc." + ocScheme + " as cocid, aoc." + ocScheme + " as aocid, " +
+            "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, " +
+            "dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid " +
+            "from datavalue dv " +
+            "join dataelement de on (dv.dataelementid=de.dataelementid) " +
+            "join period pe on (dv.periodid=pe.periodid) " +
+            "join periodtype pt on (pe.periodtypeid=pt.periodtypeid) " +
+            "join organisationunit ou on (dv.sourceid=ou.organisationunitid) " +
+            "join categoryoptioncombo coc on (dv.categoryoptioncomboid=coc.categoryoptioncomboid) " +
+            "join categoryoptioncombo aoc on (dv.attributeoptioncomboid=aoc.categoryoptioncomboid) " +
+            "where " + getCheckpointCondition( checkpoint, args ) + " " +
+            "and dv.lastupdated < ? " +
+            "order by " + getCommaDelimitedString( CHECKPOINT_COLUMNS ) + " " +
+            "limit " + limit;
+
+        args.add( getTimestamp( endTime ) );
+
+        log.debug( "Data value chunk SQL: " + sql + ", checkpoint: " + checkpoint );
+
+        final Calendar calendar = PeriodType.getCalendar();
+        final AtomicReference<DataValueCheckpoint> last = new AtomicReference<>();
+
+        jdbcTemplate.query( sql, args.toArray(), ( ResultSet rs ) -> {
+            writeDataValue( rs, dataValueSet, calendar );
+
+            last.set( new DataValueCheckpoint( rs.getTimestamp( "lastupdated" ), rs.getInt( "dataelementid" ), 
+                rs.getInt( "periodid" ), rs.getInt( "sourceid" ), rs.getInt( "categoryoptioncomboid" ), 
+                rs.getInt( "attributeoptioncomboid" ) ) );
+        } );
+
+        dataValueSet.close();
+
+        return last.get();
+    }
+
+    @Override
+    @Transactional
+    public ImportCount mergeDataValues( Collection<org.hisp.dhis.datavalue.DataValue> dataValues, ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck )
+    {
+        ImportCount count = new ImportCount();
+        
+        if ( dataValues == null || dataValues.isEmpty() )
+        {
+            return count;
+        }
+        
+        jdbcTemplate.execute( statementBuilder.getCreateTemporaryTable( STAGING_TABLE, 
+            "dataelementid integer not null, periodid integer not null, sourceid integer not null, " +
+            "categoryoptioncomboid integer not null, attributeoptioncomboid integer not null, " +
+            "value varchar(50000), storedby varchar(255), created timestamp, lastupdated timestamp, " +
+            "comment varchar(50000), followup boolean, existing boolean not null, nullvalue boolean not null, " +
+            "primary key (" + getCommaDelimitedString( KEY_COLUMNS ) + ")" ) );
+        
+        jdbcTemplate.update( "delete from " + STAGING_TABLE );
+        
+        final String columns = getCommaDelimitedString( KEY_COLUMNS ) + ", " + getCommaDelimitedString( VALUE_COLUMNS );
+        
+        final String insertSql = 
+            "insert into " + STAGING_TABLE + " (" + columns + ", existing, nullvalue) " +
+            "values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+        
+        jdbcTemplate.batchUpdate( insertSql, dataValues, STAGING_BATCH_SIZE, ( ps, dataValue ) -> {
+            ps.setInt( 1, dataValue.getDataElement().getId() );
+            ps.setInt( 2, dataValue.getPeriod().getId() );
+            ps.setInt( 3, dataValue.getSource().getId() );
+            ps.setInt( 4, dataValue.getCategoryOptionCombo().getId() );
+            ps.setInt( 5, dataValue.getAttributeOptionCombo().getId() );
+            ps.setString( 6, dataValue.getValue() );
+            ps.setString( 7, dataValue.getStoredBy() );
+            ps.setTimestamp( 8, getTimestamp( dataValue.getCreated() ) );
+            ps.setTimestamp( 9, getTimestamp( dataValue.getLastUpdated() ) );
+            ps.setString( 10, dataValue.getComment() );
+            ps.setBoolean( 11, dataValue.isFollowup() );
+            ps.setBoolean( 12, false );
+            ps.setBoolean( 13, dataValue.isNullValue() );
+        } );
+        
+        String match = "";
+        
+        for ( String column : KEY_COLUMNS )
+        {
+            match += "s." + column + " = datavalue." + column + " and ";
+        }
+        
+        int existing = 0;
+        
+        if ( !skipExistingCheck )
+        {
+            existing = jdbcTemplate.update( 
+                "update " + STAGING_TABLE + " s set existing = true where exists (" +
+                "select 1 from datavalue where " + TextUtils.removeLastAnd( match ) + ")" );
+        }
+        
+        if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+        {
+            if ( !dryRun && existing > 0 )
+            {
+                jdbcTemplate.update( statementBuilder.getUpdateFromTable( "datavalue", STAGING_TABLE, 
+                    KEY_COLUMNS, VALUE_COLUMNS, "s.existing = true and s.nullvalue = false" ) );
+                
+                jdbcTemplate.update( "delete from datavalue where exists (" +
+                    "select 1 from " + STAGING_TABLE + " s where " + match + "s.existing = true and s.nullvalue = true)" );
+            }
+            
+            count.incrementUpdated( existing );
+        }
+        
+        if ( ( strategy.isCreateAndUpdate() || strategy.isCreate() ) && !dryRun )
+        {
+            int imported = jdbcTemplate.update( "insert into datavalue (" + columns + ") " +
+                "select " + columns + " from " + STAGING_TABLE + " where existing = false and nullvalue = false" );
+            
+            count.incrementImported( imported );
+        }
+        
+        jdbcTemplate.update( "delete from " + STAGING_TABLE );
+        
+        log.debug( "Merged data values: " + dataValues.size() + ", " + count );
+        
+        return count;
+    }
+
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
     {
         if ( params.isSingleDataValueSet() )
@@ -149,27 +310,32 @@ public class SpringDataValueSetStore
             @Override
             public void processRow( ResultSet rs ) throws SQLException
             {
-                DataValue dataValue = dataValueSet.getDataValueInstance();
-                PeriodType pt = PeriodType.getPeriodTypeByName( rs.getString( "ptname" ) );
-
-                dataValue.setDataElement( rs.getString( "deid" ) );
-                dataValue.setPeriod( pt.createPeriod( rs.getDate( "pestart" ), calendar ).getIsoDate() );
-                dataValue.setOrgUnit( rs.getString( "ouid" ) );
-                dataValue.setCategoryOptionCombo( rs.getString( "cocid" ) );
-                dataValue.setAttributeOptionCombo( rs.getString( "aocid" ) );
-                dataValue.setValue( rs.getString( "value" ) );
-                dataValue.setStoredBy( rs.getString( "storedby" ) );
-                dataValue.setCreated( getLongGmtDateString( rs.getTimestamp( "created" ) ) );
-                dataValue.setLastUpdated( getLongGmtDateString( rs.getTimestamp( "lastupdated" ) ) );
-                dataValue.setComment( rs.getString( "comment" ) );
-                dataValue.setFollowup( rs.getBoolean( "followup" ) );
-                dataValue.close();
+                writeDataValue( rs, dataValueSet, calendar );
             }
         } );
 
         dataValueSet.close();
     }
 
+    private void writeDataValue( ResultSet rs, DataValueSet dataValueSet, Calendar calendar ) throws SQLException
+    {
+        DataValue dataValue = dataValueSet.getDataValueInstance();
+        PeriodType pt = PeriodType.getPeriodTypeByName( rs.getString( "ptname" ) );
+
+        dataValue.setDataElement( rs.getString( "deid" ) );
+        dataValue.setPeriod( pt.createPeriod( rs.getDate( "pestart" ), calendar ).getIsoDate() );
+        dataValue.setOrgUnit( rs.getString( "ouid" ) );
+        dataValue.setCategoryOptionCombo( rs.getString( "cocid" ) );
+        dataValue.setAttributeOptionCombo( rs.getString( "aocid" ) );
+        dataValue.setValue( rs.getString( "value" ) );
+        dataValue.setStoredBy( rs.getString( "storedby" ) );
+        dataValue.setCreated( getLongGmtDateString( rs.getTimestamp( "created" ) ) );
+        dataValue.setLastUpdated( getLongGmtDateString( rs.getTimestamp( "lastupdated" ) ) );
+        dataValue.setComment( rs.getString( "comment" ) );
+        dataValue.setFollowup( rs.getBoolean( "followup" ) );
+        dataValue.close();
+    }
+
     //--------------------------------------------------------------------------
     // Supportive methods
     //--------------------------------------------------------------------------
@@ -235,6 +401,43 @@ public class SpringDataValueSetStore
         return sql;
     }
 
+    /**
+     * Returns a condition matching rows positioned after the given checkpoint
+     * in checkpoint column order, and adds the query arguments to the given
+     * list. Written as nested comparisons as row value comparison is not
+     * supported by all databases.
+     */
+    private String getCheckpointCondition( DataValueCheckpoint checkpoint, List<Object> args )
+    {
+        Object[] values = checkpoint.getValues();
+
+        int last = CHECKPOINT_COLUMNS.size() - 1;
+
+        String sql = CHECKPOINT_COLUMNS.get( last ) + " > ?";
+
+        for ( int i = last - 1; i >= 0; i-- )
+        {
+            String column = CHECKPOINT_COLUMNS.get( i );
+
+            sql = "(" + column + " > ? or (" + column + " = ? and " + sql + "))";
+        }
+
+        for ( int i = 0; i < last; i++ )
+        {
+            args.add( values[i] );
+            args.add( values[i] );
+        }
+
+        args.add( values[last] );
+
+        return sql;
+    }
+
+    private Timestamp getTimestamp( Date date )
+    {
+        return date != null ? new Timestamp( date.getTime() ) : null;
+    }
+
     private Set<DataElement> getDataElements( Set<DataSet> dataSets )
     {
         Set<DataElement> elements = new HashSet<>();
@@ -30,6 +30,7 @@ package org.hisp.dhis.dxf2.events.event;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,7 +40,9 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.PageToken;
 import org.hisp.dhis.common.Pager;
+import org.hisp.dhis.common.WatermarkService;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.dataelement.DataElement;
@@ -60,6 +63,7 @@ import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.utils.InputUtils;
 import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.i18n.I18nManager;
+import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
@@ -92,13 +96,16 @@ import org.springframework.util.Assert;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 
@@ -171,8 +178,13 @@ public abstract class AbstractEventService
     @Autowired
     protected InputUtils inputUtils;
 
+    @Autowired
+    protected WatermarkService watermarkService;
+
     protected static final int FLUSH_FREQUENCY = 20;
 
+    protected static final int BULK_IMPORT_CHUNK_SIZE = 10000;
+
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private CachingMap<String, OrganisationUnit> organisationUnitCache = new CachingMap<>();
@@ -197,6 +209,21 @@ public abstract class AbstractEventService
 
         User user = currentUserService.getCurrentUser();
 
+        if ( importOptions != null && importOptions.isBulkImport() )
+        {
+            for ( List<Event> chunk : Lists.partition( events, BULK_IMPORT_CHUNK_SIZE ) )
+            {
+                for ( ImportSummary importSummary : addEventsBulk( chunk, user, importOptions ) )
+                {
+                    importSummaries.addImportSummary( importSummary );
+                }
+
+                dbmsManager.clearSession();
+            }
+
+            return importSummaries;
+        }
+
         for ( Event event : events )
         {
             importSummaries.addImportSummary( addEvent( event, user, importOptions ) );
@@ -411,34 +438,277 @@ public abstract class AbstractEventService
             user, importOptions );
     }
 
-    // -------------------------------------------------------------------------
-    // READ
-    // -------------------------------------------------------------------------
-
-    @Override
-    public Events getEvents( EventSearchParams params )
+    /**
+     * Imports a chunk of events in bulk. New events for programs without
+     * registration are validated against metadata which is loaded up front
+     * for the whole chunk, and are written with JDBC batch inserts. All other
+     * events, like updates of existing events and events which trigger
+     * completion messages, are imported one by one through addEvent after
+     * the batch is written. Import summaries are returned in event order.
+     */
+    private List<ImportSummary> addEventsBulk( List<Event> events, User user, ImportOptions importOptions )
     {
-        List<OrganisationUnit> organisationUnits = new ArrayList<>();
+        boolean dryRun = importOptions.isDryRun();
 
-        OrganisationUnit orgUnit = params.getOrgUnit();
-        OrganisationUnitSelectionMode orgUnitSelectionMode = params.getOrgUnitSelectionMode();
+        preloadMetadata( events, importOptions );
 
-        if ( params.getOrgUnit() != null )
+        Set<String> uids = new HashSet<>();
+
+        for ( Event event : events )
         {
-            if ( OrganisationUnitSelectionMode.DESCENDANTS.equals( orgUnitSelectionMode ) )
+            if ( event.getEvent() != null && CodeGenerator.isValidCode( event.getEvent() ) )
             {
-                organisationUnits.addAll( organisationUnitService.getOrganisationUnitWithChildren( orgUnit.getUid() ) );
+                uids.add( event.getEvent() );
             }
-            else if ( OrganisationUnitSelectionMode.CHILDREN.equals( orgUnitSelectionMode ) )
+        }
+
+        Set<String> existingUids = uids.isEmpty() ? new HashSet<>() : eventStore.getExistingEventUids( uids );
+        Set<String> batchUids = new HashSet<>();
+
+        Map<Program, ProgramInstance> programInstances = new HashMap<>();
+        String currentUsername = currentUserService.getCurrentUsername();
+        Calendar today = Calendar.getInstance();
+        PeriodType.clearTimeOfDay( today );
+        Date completedDate = today.getTime();
+
+        ImportSummary[] importSummaries = new ImportSummary[events.size()];
+        List<Integer> singleImports = new ArrayList<>();
+        List<ProgramStageInstance> programStageInstances = new ArrayList<>();
+        List<TrackedEntityDataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < events.size(); i++ )
+        {
+            Event event = events.get( i );
+            Program program = getProgram( event.getProgram() );
+            ProgramStage programStage = program != null ? getProgramStage( event.getProgramStage() ) : null;
+
+            if ( programStage == null && program != null && program.isWithoutRegistration() )
             {
-                organisationUnits.add( orgUnit );
-                organisationUnits.addAll( orgUnit.getChildren() );
+                programStage = program.getProgramStageByStage( 1 );
             }
-            else // SELECTED
+
+            boolean bulk = program != null && program.isWithoutRegistration() && programStage != null &&
+                ( event.getEvent() == null || ( CodeGenerator.isValidCode( event.getEvent() ) &&
+                !existingUids.contains( event.getEvent() ) && batchUids.add( event.getEvent() ) ) ) &&
+                ( !EventStatus.COMPLETED.equals( event.getStatus() ) || programStage.getReminders().isEmpty() );
+
+            if ( !bulk )
             {
-                organisationUnits.add( orgUnit );
+                singleImports.add( i );
+                continue;
+            }
+
+            if ( verifyProgramAccess( program, user ) )
+            {
+                importSummaries[i] = new ImportSummary( ImportStatus.ERROR,
+                    "Current user does not have permission to access this program" );
+                continue;
+            }
+
+            if ( !programInstances.containsKey( program ) )
+            {
+                List<ProgramInstance> instances = new ArrayList<>( programInstanceService.getProgramInstances(
+                    program, ProgramStatus.ACTIVE ) );
+
+                if ( instances.isEmpty() )
+                {
+                    ProgramInstance pi = new ProgramInstance();
+                    pi.setEnrollmentDate( new Date() );
+                    pi.setIncidentDate( new Date() );
+                    pi.setProgram( program );
+                    pi.setStatus( ProgramStatus.ACTIVE );
+
+                    programInstanceService.addProgramInstance( pi );
+
+                    instances.add( pi );
+                }
+
+                programInstances.put( program, instances.size() == 1 ? instances.get( 0 ) : null );
+            }
+
+            ProgramInstance programInstance = programInstances.get( program );
+
+            if ( programInstance == null )
+            {
+                importSummaries[i] = new ImportSummary( ImportStatus.ERROR,
+                    "Multiple active program instances exists for program " + program.getUid() );
+                continue;
+            }
+
+            OrganisationUnit organisationUnit = getOrganisationUnit( importOptions.getOrgUnitIdScheme(), event.getOrgUnit() );
+
+            if ( organisationUnit == null )
+            {
+                importSummaries[i] = new ImportSummary( ImportStatus.ERROR, "Event.orgUnit does not point to a valid organisation unit" );
+                continue;
+            }
+
+            if ( verifyProgramOrganisationUnitAssociation( program, organisationUnit ) )
+            {
+                importSummaries[i] = new ImportSummary( ImportStatus.ERROR, "Program is not assigned to this organisation unit" );
+                continue;
+            }
+
+            // -----------------------------------------------------------------
+            // Build event, comments and data values for batch insert
+            // -----------------------------------------------------------------
+
+            ImportSummary importSummary = new ImportSummary();
+            importSummary.setStatus( ImportStatus.SUCCESS );
+            importSummaries[i] = importSummary;
+
+            String storedBy = getStoredBy( event, importSummary, user );
+            DataElementCategoryOptionCombo coc = getAttributeOptionCombo( program, event, importSummary );
+
+            ProgramStageInstance programStageInstance = new ProgramStageInstance();
+            programStageInstance.setUid( event.getEvent() != null ? event.getEvent() : CodeGenerator.generateCode() );
+
+            populateProgramStageInstance( programStage, programInstance, organisationUnit, DateUtils.parseDate( event.getDueDate() ),
+                DateUtils.parseDate( event.getEventDate() ), event.getStatus().getValue(), event.getCoordinate(), programStageInstance, coc );
+
+            programStageInstance.setAutoFields();
+
+            if ( programStageInstance.isCompleted() )
+            {
+                programStageInstance.setCompletedDate( completedDate );
+                programStageInstance.setCompletedUser( currentUsername );
+            }
+
+            for ( Note note : event.getNotes() )
+            {
+                TrackedEntityComment comment = new TrackedEntityComment();
+                comment.setCreator( storedBy );
+                comment.setCreatedDate( new Date() );
+                comment.setCommentText( note.getValue() );
+
+                programStageInstance.getComments().add( comment );
+            }
+
+            Map<DataElement, TrackedEntityDataValue> eventDataValues = new LinkedHashMap<>();
+
+            for ( DataValue dataValue : event.getDataValues() )
+            {
+                DataElement dataElement = getDataElement( dataValue.getDataElement() );
+
+                if ( dataElement == null )
+                {
+                    importSummary.getConflicts().add(
+                        new ImportConflict( "dataElement", dataValue.getDataElement() + " is not a valid data element" ) );
+                    importSummary.getImportCount().incrementIgnored();
+                }
+                else if ( validateDataValue( dataElement, dataValue.getValue(), importSummary ) && !dryRun &&
+                    dataValue.getValue() != null && !dataValue.getValue().trim().isEmpty() )
+                {
+                    TrackedEntityDataValue value = new TrackedEntityDataValue( programStageInstance, dataElement, new Date(), dataValue.getValue() );
+                    value.setStoredBy( dataValue.getStoredBy() != null ? dataValue.getStoredBy() : storedBy );
+                    value.setProvidedElsewhere( dataValue.getProvidedElsewhere() );
+
+                    if ( eventDataValues.put( dataElement, value ) != null )
+                    {
+                        importSummary.getImportCount().incrementUpdated();
+                    }
+                    else
+                    {
+                        importSummary.getImportCount().incrementImported();
+                    }
+                }
+            }
+
+            if ( !dryRun )
+            {
+                importSummary.setReference( programStageInstance.getUid() );
+
+                programStageInstances.add( programStageInstance );
+                dataValues.addAll( eventDataValues.values() );
+            }
+        }
+
+        if ( !programStageInstances.isEmpty() )
+        {
+            sessionFactory.getCurrentSession().flush();
+
+            eventStore.insertEvents( programStageInstances, dataValues );
+
+            watermarkService.update( ProgramStageInstance.class );
+            watermarkService.update( TrackedEntityDataValue.class );
+        }
+
+        for ( Integer i : singleImports )
+        {
+            importSummaries[i] = addEvent( events.get( i ), user, importOptions );
+        }
+
+        return Lists.newArrayList( importSummaries );
+    }
+
+    /**
+     * Loads the programs, program stages, data elements and organisation units
+     * referred to by the given events into the metadata caches with one query
+     * per type. Organisation units are loaded up front for the uid and code
+     * identifier schemes only.
+     */
+    private void preloadMetadata( List<Event> events, ImportOptions importOptions )
+    {
+        Set<String> programs = new HashSet<>();
+        Set<String> programStages = new HashSet<>();
+        Set<String> dataElements = new HashSet<>();
+        Set<String> organisationUnits = new HashSet<>();
+
+        for ( Event event : events )
+        {
+            addIfNotCached( programs, programCache, event.getProgram() );
+            addIfNotCached( programStages, programStageCache, event.getProgramStage() );
+            addIfNotCached( organisationUnits, organisationUnitCache, event.getOrgUnit() );
+
+            for ( DataValue dataValue : event.getDataValues() )
+            {
+                addIfNotCached( dataElements, dataElementCache, dataValue.getDataElement() );
+            }
+        }
+
+        for ( Program program : manager.getByUid( Program.class, programs ) )
+        {
+            programCache.put( program.getUid(), program );
+        }
+
+        for ( ProgramStage programStage : manager.getByUid( ProgramStage.class, programStages ) )
+        {
+            programStageCache.put( programStage.getUid(), programStage );
+        }
+
+        for ( DataElement dataElement : manager.getByUid( DataElement.class, dataElements ) )
+        {
+            dataElementCache.put( dataElement.getUid(), dataElement );
+        }
+
+        IdentifiableProperty scheme = importOptions.getOrgUnitIdScheme();
+
+        if ( !organisationUnits.isEmpty() && ( IdentifiableProperty.UID.equals( scheme ) || IdentifiableProperty.CODE.equals( scheme ) ) )
+        {
+            for ( OrganisationUnit organisationUnit : manager.getObjects( OrganisationUnit.class, scheme, organisationUnits ) )
+            {
+                organisationUnitCache.put( IdentifiableProperty.CODE.equals( scheme ) ?
+                    organisationUnit.getCode() : organisationUnit.getUid(), organisationUnit );
             }
         }
+    }
+
+    private void addIfNotCached( Set<String> identifiers, Map<String, ?> cache, String identifier )
+    {
+        if ( identifier != null && !cache.containsKey( identifier ) )
+        {
+            identifiers.add( identifier );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // READ
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Events getEvents( EventSearchParams params )
+    {
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
 
         if ( !params.isPaging() && !params.isSkipPaging() )
         {
@@ -447,28 +717,61 @@ public abstract class AbstractEventService
 
         Events events = new Events();
 
+        List<Event> eventList = eventStore.getEvents( params, organisationUnits );
+
+        events.setEvents( eventList );
+
         if ( params.isPaging() )
         {
             int count = 0;
 
-            if ( params.isTotalPages() )
+            if ( params.isTotalPages() && !params.hasPageToken() )
             {
                 count = eventStore.getEventCount( params, organisationUnits );
             }
 
             Pager pager = new Pager( params.getPageWithDefault(), count, params.getPageSizeWithDefault() );
+
+            if ( !eventList.isEmpty() && eventList.size() == params.getPageSizeWithDefault() )
+            {
+                pager.setNextPageToken( PageToken.encode( eventList.get( eventList.size() - 1 ).getEvent() ) );
+            }
+
             events.setPager( pager );
         }
 
-        List<Event> eventList = eventStore.getEvents( params, organisationUnits );
+        return events;
+    }
 
-        events.setEvents( eventList );
+    @Override
+    public void getEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
 
-        return events;
+        if ( !params.isPaging() && !params.isSkipPaging() )
+        {
+            params.setDefaultPaging();
+        }
+
+        eventStore.getEvents( params, organisationUnits, consumer );
     }
 
     @Override
     public EventRows getEventRows( EventSearchParams params )
+    {
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        EventRows eventRows = new EventRows();
+
+
+        List<EventRow> eventRowList = eventStore.getEventRows( params, organisationUnits );
+
+        eventRows.setEventRows( eventRowList );
+
+        return eventRows;
+    }
+
+    private List<OrganisationUnit> getOrganisationUnits( EventSearchParams params )
     {
         List<OrganisationUnit> organisationUnits = new ArrayList<>();
 
@@ -492,20 +795,14 @@ public abstract class AbstractEventService
             }
         }
 
-        EventRows eventRows = new EventRows();
-
-
-        List<EventRow> eventRowList = eventStore.getEventRows( params, organisationUnits );
-
-        eventRows.setEventRows( eventRowList );
-
-        return eventRows;
+        return organisationUnits;
     }
 
     @Override
     public EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp, String orgUnit,
         OrganisationUnitSelectionMode orgUnitSelectionMode, String trackedEntityInstance, Date startDate, Date endDate,
-        EventStatus status, Date lastUpdated, DataElementCategoryOptionCombo attributeCoc, IdSchemes idSchemes, Integer page, Integer pageSize, boolean totalPages, boolean skipPaging, boolean includeAttributes )
+        EventStatus status, Date lastUpdated, DataElementCategoryOptionCombo attributeCoc, IdSchemes idSchemes, Integer page, Integer pageSize, boolean totalPages, boolean skipPaging,
+        String pageToken, boolean includeAttributes )
     {
         UserCredentials userCredentials = currentUserService.getCurrentUser().getUserCredentials();
         
@@ -577,6 +874,11 @@ public abstract class AbstractEventService
             }
         }
 
+        if ( pageToken != null )
+        {
+            PageToken.decode( pageToken );
+        }
+
         params.setProgram( pr );
         params.setProgramStage( ps );
         params.setOrgUnit( ou );
@@ -594,6 +896,7 @@ public abstract class AbstractEventService
         params.setPageSize( pageSize );
         params.setTotalPages( totalPages );
         params.setSkipPaging( skipPaging );
+        params.setPageToken( pageToken );
         params.setIncludeAttributes( includeAttributes );
 
         return params;
@@ -1106,23 +1409,8 @@ public abstract class AbstractEventService
         OrganisationUnit organisationUnit, Date dueDate, Date executionDate, int status, Coordinate coordinate,
         String storedBy, ProgramStageInstance programStageInstance, DataElementCategoryOptionCombo coc )
     {
-        programStageInstance.setProgramInstance( programInstance );
-        programStageInstance.setProgramStage( programStage );
-        programStageInstance.setDueDate( dueDate );
-        programStageInstance.setExecutionDate( executionDate );
-        programStageInstance.setOrganisationUnit( organisationUnit );
-        programStageInstance.setAttributeOptionCombo( coc );
-
-        if ( programStage.getCaptureCoordinates() )
-        {
-            if ( coordinate != null && coordinate.isValid() )
-            {
-                programStageInstance.setLongitude( coordinate.getLongitude() );
-                programStageInstance.setLatitude( coordinate.getLatitude() );
-            }
-        }
-
-        programStageInstance.setStatus( EventStatus.fromInt( status ) );
+        populateProgramStageInstance( programStage, programInstance, organisationUnit, dueDate, executionDate, status,
+            coordinate, programStageInstance, coc );
 
         if ( programStageInstance.getId() == 0 )
         {
@@ -1144,6 +1432,29 @@ public abstract class AbstractEventService
         }
     }
 
+    private void populateProgramStageInstance( ProgramStage programStage, ProgramInstance programInstance,
+        OrganisationUnit organisationUnit, Date dueDate, Date executionDate, int status, Coordinate coordinate,
+        ProgramStageInstance programStageInstance, DataElementCategoryOptionCombo coc )
+    {
+        programStageInstance.setProgramInstance( programInstance );
+        programStageInstance.setProgramStage( programStage );
+        programStageInstance.setDueDate( dueDate );
+        programStageInstance.setExecutionDate( executionDate );
+        programStageInstance.setOrganisationUnit( organisationUnit );
+        programStageInstance.setAttributeOptionCombo( coc );
+
+        if ( programStage.getCaptureCoordinates() )
+        {
+            if ( coordinate != null && coordinate.isValid() )
+            {
+                programStageInstance.setLongitude( coordinate.getLongitude() );
+                programStageInstance.setLatitude( coordinate.getLatitude() );
+            }
+        }
+
+        programStageInstance.setStatus( EventStatus.fromInt( status ) );
+    }
+
     private ImportSummary saveEvent( Program program, ProgramInstance programInstance, ProgramStage programStage,
         ProgramStageInstance programStageInstance, OrganisationUnit organisationUnit, Event event, User user,
         ImportOptions importOptions )
@@ -1162,17 +1473,7 @@ public abstract class AbstractEventService
 
         String storedBy = getStoredBy( event, importSummary, user );
 
-        DataElementCategoryOptionCombo coc = categoryService.getDefaultDataElementCategoryOptionCombo();
-
-        if ( event.getAttributeCategoryOptions() != null && program.getCategoryCombo() != null )
-        {
-            coc = inputUtils.getAttributeOptionCombo( program.getCategoryCombo(), event.getAttributeCategoryOptions() );
-
-            if ( coc == null )
-            {
-                importSummary.getConflicts().add( new ImportConflict( "Invalid attribute option combo for option names.", event.getAttributeCategoryOptions() ) );
-            }
-        }
+        DataElementCategoryOptionCombo coc = getAttributeOptionCombo( program, event, importSummary );
 
         if ( !dryRun )
         {
@@ -1234,6 +1535,23 @@ public abstract class AbstractEventService
         return importSummary;
     }
 
+    private DataElementCategoryOptionCombo getAttributeOptionCombo( Program program, Event event, ImportSummary importSummary )
+    {
+        DataElementCategoryOptionCombo coc = categoryService.getDefaultDataElementCategoryOptionCombo();
+
+        if ( event.getAttributeCategoryOptions() != null && program.getCategoryCombo() != null )
+        {
+            coc = inputUtils.getAttributeOptionCombo( program.getCategoryCombo(), event.getAttributeCategoryOptions() );
+
+            if ( coc == null )
+            {
+                importSummary.getConflicts().add( new ImportConflict( "Invalid attribute option combo for option names.", event.getAttributeCategoryOptions() ) );
+            }
+        }
+
+        return coc;
+    }
+
     private Map<String, TrackedEntityDataValue> getDataElementDataValueMap( Collection<TrackedEntityDataValue> dataValues )
     {
         Map<String, TrackedEntityDataValue> map = new HashMap<>();
@@ -85,6 +85,8 @@ public class EventSearchParams
 
     private boolean includeAttributes;
 
+    private String pageToken;
+
     // -------------------------------------------------------------------------
     // Constructors
     // -------------------------------------------------------------------------
@@ -127,6 +129,11 @@ public class EventSearchParams
         this.skipPaging = false;
     }
 
+    public boolean hasPageToken()
+    {
+        return pageToken != null;
+    }
+
     // -------------------------------------------------------------------------
     // Getters and setters
     // -------------------------------------------------------------------------
@@ -311,4 +318,14 @@ public class EventSearchParams
         this.categoryOptionCombo = categoryOptionCombo;
     }
 
+    public String getPageToken()
+    {
+        return pageToken;
+    }
+
+    public void setPageToken( String pageToken )
+    {
+        this.pageToken = pageToken;
+    }
+
 }
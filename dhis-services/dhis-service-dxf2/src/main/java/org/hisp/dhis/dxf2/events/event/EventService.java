@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -56,11 +57,27 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Passes the events matching the given parameters to the given consumer
+     * as they are read from the database. Paging parameters are applied as
+     * for getEvents, but no pager is computed.
+     */
+    void getEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
+    /**
+     * Returns search parameters for the given request parameters. The page
+     * token is validated here, so that invalid tokens are rejected before a
+     * response is written.
+     * 
+     * @throws org.hisp.dhis.common.IllegalQueryException if a parameter is not valid.
+     * @throws org.hisp.dhis.common.exception.InvalidPageTokenException if the page token is not valid.
+     */
     EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp, String orgUnit,
         OrganisationUnitSelectionMode orgUnitSelectionMode, String trackedEntityInstance, Date startDate, Date endDate,
-        EventStatus status, Date lastUpdated, DataElementCategoryOptionCombo attributeCoc, IdSchemes idSchemes, Integer page, Integer pageSize, boolean totalPages, boolean skipPaging, boolean includeAttributes );
+        EventStatus status, Date lastUpdated, DataElementCategoryOptionCombo attributeCoc, IdSchemes idSchemes, Integer page, Integer pageSize, boolean totalPages, boolean skipPaging,
+        String pageToken, boolean includeAttributes );
 
     Event getEvent( String uid );
 
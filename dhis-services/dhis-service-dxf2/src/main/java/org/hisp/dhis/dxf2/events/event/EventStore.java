@@ -28,10 +28,15 @@ package org.hisp.dhis.dxf2.events.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.trackedentitydatavalue.TrackedEntityDataValue;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -39,8 +44,39 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 public interface EventStore
 {
     List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits );
+
+    /**
+     * Passes the events matching the given parameters to the given consumer
+     * one by one as they are read from the database cursor, without holding
+     * the full result in memory.
+     * 
+     * @param params the event search parameters.
+     * @param organisationUnits the organisation units.
+     * @param consumer the event consumer.
+     */
+    void getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<Event> consumer );
     
     List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits );
     
     int getEventCount( EventSearchParams params, List<OrganisationUnit> organisationUnits );
+
+    /**
+     * Returns the subset of the given event identifiers which already exist.
+     * 
+     * @param uids the event identifiers, must be valid codes.
+     * @return the identifiers of existing events.
+     */
+    Set<String> getExistingEventUids( Collection<String> uids );
+
+    /**
+     * Inserts the given new program stage instances including their comments,
+     * and the given data values, using JDBC batch inserts. The identifiers
+     * of the program stage instances and comments are set after the insert.
+     * The program stage instances must have a uid, and the data values must
+     * refer to program stage instances in the given list.
+     * 
+     * @param programStageInstances the program stage instances.
+     * @param dataValues the data values.
+     */
+    void insertEvents( List<ProgramStageInstance> programStageInstances, List<TrackedEntityDataValue> dataValues );
 }
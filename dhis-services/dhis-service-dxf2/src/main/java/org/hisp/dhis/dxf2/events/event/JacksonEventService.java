@@ -33,6 +33,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.commons.timer.SystemTimer;
 import org.hisp.dhis.commons.timer.Timer;
 import org.hisp.dhis.dxf2.common.ImportOptions;
@@ -47,7 +48,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implementation of EventService that uses Jackson for serialization and deserialization.
@@ -157,6 +160,8 @@ public class JacksonEventService extends AbstractEventService
         }
         else if ( importOptions.getImportStrategy().isCreateAndUpdate() )
         {
+            Set<String> existingEvents = importOptions.isBulkImport() ? getExistingEvents( events ) : null;
+
             for ( Event event : events )
             {
                 if ( StringUtils.isEmpty( event.getEvent() ) )
@@ -165,7 +170,10 @@ public class JacksonEventService extends AbstractEventService
                 }
                 else
                 {
-                    if ( !programStageInstanceService.programStageInstanceExists( event.getEvent() ) )
+                    boolean exists = existingEvents != null ? existingEvents.contains( event.getEvent() ) :
+                        programStageInstanceService.programStageInstanceExists( event.getEvent() );
+
+                    if ( !exists )
                     {
                         create.add( event );
                     }
@@ -192,4 +200,19 @@ public class JacksonEventService extends AbstractEventService
 
         return importSummaries;
     }
+
+    private Set<String> getExistingEvents( List<Event> events )
+    {
+        Set<String> uids = new HashSet<>();
+
+        for ( Event event : events )
+        {
+            if ( CodeGenerator.isValidCode( event.getEvent() ) )
+            {
+                uids.add( event.getEvent() );
+            }
+        }
+
+        return uids.isEmpty() ? new HashSet<>() : eventStore.getExistingEventUids( uids );
+    }
 }
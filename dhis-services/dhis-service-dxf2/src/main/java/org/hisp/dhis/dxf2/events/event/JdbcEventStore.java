@@ -30,29 +30,49 @@ package org.hisp.dhis.dxf2.events.event;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.common.PageToken;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.dxf2.common.IdSchemes;
 import org.hisp.dhis.dxf2.events.enrollment.EnrollmentStatus;
 import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.dxf2.events.trackedentity.Attribute;
 import org.hisp.dhis.event.EventStatus;
+import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.program.ProgramStatus;
 import org.hisp.dhis.program.ProgramType;
 import org.hisp.dhis.system.util.DateUtils;
+import org.hisp.dhis.trackedentitycomment.TrackedEntityComment;
+import org.hisp.dhis.trackedentitydatavalue.TrackedEntityDataValue;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
@@ -69,36 +89,80 @@ public class JdbcEventStore
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatementBuilder statementBuilder;
+
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+    private static final int BATCH_SIZE = 1000;
+
+    private static final int MAX_IN_PARAMETERS = 1000;
+
+    private static final int FETCH_SIZE = 1000;
+
     @Override
     public List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits )
     {
         List<Event> events = new ArrayList<>();
 
-        String sql = buildSql( params, organisationUnits );
+        getEvents( params, organisationUnits, events::add );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        return events;
+    }
+
+    @Override
+    public void getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<Event> consumer )
+    {
+        String sql = buildSql( params, organisationUnits );
 
         log.debug( "Event query SQL: " + sql );
 
-        Event event = new Event();
+        EventRowCallbackHandler handler = new EventRowCallbackHandler( params, consumer );
 
-        event.setEvent( "not_valid" );
+        jdbcTemplate.query( connection -> {
+            PreparedStatement statement = connection.prepareStatement( sql );
+            statement.setFetchSize( FETCH_SIZE );
+            return statement;
+        }, handler );
 
-        Set<String> notes = new HashSet<>();
+        handler.flush();
+    }
 
-        IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
+    /**
+     * Builds events from the rows of the event query and passes each event to
+     * a consumer once all rows of the event are read. Rows are ordered by
+     * event, so only the current event is held in memory.
+     */
+    private class EventRowCallbackHandler
+        implements RowCallbackHandler
+    {
+        private final Consumer<Event> consumer;
 
-        while ( rowSet.next() )
+        private final IdSchemes idSchemes;
+
+        private Event event = null;
+
+        private Set<String> notes = new HashSet<>();
+
+        EventRowCallbackHandler( EventSearchParams params, Consumer<Event> consumer )
+        {
+            this.consumer = consumer;
+            this.idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
+        }
+
+        @Override
+        public void processRow( ResultSet rowSet )
+            throws SQLException
         {
             if ( rowSet.getString( "psi_uid" ) == null )
             {
-                continue;
+                return;
             }
 
-            if ( !event.getEvent().equals( rowSet.getString( "psi_uid" ) ) )
+            if ( event == null || !event.getEvent().equals( rowSet.getString( "psi_uid" ) ) )
             {
+                flush();
+
                 event = new Event();
 
                 event.setEvent( rowSet.getString( "psi_uid" ) );
@@ -155,8 +219,6 @@ public class JdbcEventStore
                         }
                     }
                 }
-
-                events.add( event );
             }
 
             if ( rowSet.getString( "pdv_value" ) != null && rowSet.getString( "de_uid" ) != null )
@@ -183,7 +245,18 @@ public class JdbcEventStore
             }
         }
 
-        return events;
+        /**
+         * Passes the current event, if any, to the consumer.
+         */
+        void flush()
+        {
+            if ( event != null )
+            {
+                consumer.accept( event );
+                event = null;
+                notes.clear();
+            }
+        }
     }
 
     @Override
@@ -294,6 +367,129 @@ public class JdbcEventStore
         return jdbcTemplate.queryForObject( sql, Integer.class );
     }
 
+    @Override
+    public Set<String> getExistingEventUids( Collection<String> uids )
+    {
+        Set<String> existing = new HashSet<>();
+
+        for ( List<String> partition : Lists.partition( new ArrayList<>( uids ), MAX_IN_PARAMETERS ) )
+        {
+            String sql = "select uid from programstageinstance where uid in (" + getParameterList( partition.size() ) + ")";
+
+            existing.addAll( jdbcTemplate.queryForList( sql, String.class, partition.toArray() ) );
+        }
+
+        return existing;
+    }
+
+    @Override
+    public void insertEvents( List<ProgramStageInstance> programStageInstances, List<TrackedEntityDataValue> dataValues )
+    {
+        if ( programStageInstances.isEmpty() )
+        {
+            return;
+        }
+
+        // ---------------------------------------------------------------------
+        // Program stage instances
+        // ---------------------------------------------------------------------
+
+        String sql =
+            "insert into programstageinstance (programstageinstanceid, uid, created, lastupdated, programinstanceid, " +
+                "programstageid, attributeoptioncomboid, duedate, executiondate, organisationunitid, status, " +
+                "longitude, latitude, completeduser, completeddate) " +
+                "values (" + statementBuilder.getAutoIncrementValue() + ",?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+        jdbcTemplate.batchUpdate( sql, programStageInstances, BATCH_SIZE, ( ps, psi ) -> {
+            ps.setString( 1, psi.getUid() );
+            ps.setTimestamp( 2, getTimestamp( psi.getCreated() ) );
+            ps.setTimestamp( 3, getTimestamp( psi.getLastUpdated() ) );
+            ps.setInt( 4, psi.getProgramInstance().getId() );
+            ps.setInt( 5, psi.getProgramStage().getId() );
+            ps.setObject( 6, psi.getAttributeOptionCombo() != null ? psi.getAttributeOptionCombo().getId() : null, Types.INTEGER );
+            ps.setTimestamp( 7, getTimestamp( psi.getDueDate() ) );
+            ps.setTimestamp( 8, getTimestamp( psi.getExecutionDate() ) );
+            ps.setObject( 9, psi.getOrganisationUnit() != null ? psi.getOrganisationUnit().getId() : null, Types.INTEGER );
+            ps.setString( 10, psi.getStatus().name() );
+            ps.setObject( 11, psi.getLongitude(), Types.DOUBLE );
+            ps.setObject( 12, psi.getLatitude(), Types.DOUBLE );
+            ps.setString( 13, psi.getCompletedUser() );
+            ps.setTimestamp( 14, getTimestamp( psi.getCompletedDate() ) );
+        } );
+
+        Map<String, ProgramStageInstance> uidMap = new HashMap<>();
+
+        for ( ProgramStageInstance psi : programStageInstances )
+        {
+            uidMap.put( psi.getUid(), psi );
+        }
+
+        for ( List<String> partition : Lists.partition( new ArrayList<>( uidMap.keySet() ), MAX_IN_PARAMETERS ) )
+        {
+            sql = "select programstageinstanceid, uid from programstageinstance where uid in (" + getParameterList( partition.size() ) + ")";
+
+            jdbcTemplate.query( sql, partition.toArray(), ( rs ) -> {
+                uidMap.get( rs.getString( "uid" ) ).setId( rs.getInt( "programstageinstanceid" ) );
+            } );
+        }
+
+        // ---------------------------------------------------------------------
+        // Comments, identifiers are generated by the database one at a time
+        // ---------------------------------------------------------------------
+
+        final String commentSql =
+            "insert into trackedentitycomment (trackedentitycommentid, commenttext, createddate, creator) " +
+            "values (" + statementBuilder.getAutoIncrementValue() + ",?,?,?)";
+
+        List<Object[]> commentRows = new ArrayList<>();
+
+        for ( ProgramStageInstance psi : programStageInstances )
+        {
+            int sortOrder = 1;
+
+            for ( TrackedEntityComment comment : psi.getComments() )
+            {
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+
+                jdbcTemplate.update( connection -> {
+                    PreparedStatement ps = connection.prepareStatement( commentSql, new String[] { "trackedentitycommentid" } );
+                    ps.setString( 1, comment.getCommentText() );
+                    ps.setTimestamp( 2, getTimestamp( comment.getCreatedDate() ) );
+                    ps.setString( 3, comment.getCreator() );
+                    return ps;
+                }, keyHolder );
+
+                comment.setId( keyHolder.getKey().intValue() );
+
+                commentRows.add( new Object[] { psi.getId(), sortOrder++, comment.getId() } );
+            }
+        }
+
+        if ( !commentRows.isEmpty() )
+        {
+            jdbcTemplate.batchUpdate( "insert into programstageinstancecomments (programstageinstanceid, sort_order, trackedentitycommentid) values (?,?,?)", commentRows );
+        }
+
+        // ---------------------------------------------------------------------
+        // Data values
+        // ---------------------------------------------------------------------
+
+        sql =
+            "insert into trackedentitydatavalue (programstageinstanceid, dataelementid, value, timestamp, providedelsewhere, storedby) " +
+            "values (?,?,?,?,?,?)";
+
+        jdbcTemplate.batchUpdate( sql, dataValues, BATCH_SIZE, ( ps, dv ) -> {
+            ps.setInt( 1, dv.getProgramStageInstance().getId() );
+            ps.setInt( 2, dv.getDataElement().getId() );
+            ps.setString( 3, dv.getValue() );
+            ps.setTimestamp( 4, getTimestamp( dv.getTimestamp() ) );
+            ps.setObject( 5, dv.getProvidedElsewhere(), Types.BOOLEAN );
+            ps.setString( 6, dv.getStoredBy() );
+        } );
+
+        log.debug( "Inserted events: " + programStageInstances.size() + ", data values: " + dataValues.size() + ", comments: " + commentRows.size() );
+    }
+
     /**
      * Query is based on three sub queries on event, data value and comment, which
      * are joined using program stage instance id. The purpose of the separate
@@ -391,6 +587,11 @@ public class JdbcEventStore
             sql += hlp.whereAnd() + " psi.attributeoptioncomboid = " + params.getCategoryOptionCombo().getId() + " ";
         }
 
+        if ( params.isPaging() && params.hasPageToken() )
+        {
+            sql += hlp.whereAnd() + " psi.uid < '" + PageToken.decode( params.getPageToken() ) + "' ";
+        }
+
         if ( params.getEventStatus() == null || EventStatus.isExistingEvent( params.getEventStatus() ) )
         {
             if ( orgUnitIds != null && !orgUnitIds.isEmpty() )
@@ -452,13 +653,23 @@ public class JdbcEventStore
         return sql;
     }
 
+    /**
+     * Pages are ordered by event uid descending, as the events of the outer
+     * query. With a page token the page starts after the token uid, otherwise
+     * at the offset of the page number.
+     */
     private String getEventPagingQuery( EventSearchParams params )
     {
         String sql = " ";
 
         if ( params.isPaging() )
         {
-            sql += "limit " + params.getPageSizeWithDefault() + " offset " + params.getOffset() + " ";
+            sql += "order by psi.uid desc limit " + params.getPageSizeWithDefault() + " ";
+
+            if ( !params.hasPageToken() )
+            {
+                sql += "offset " + params.getOffset() + " ";
+            }
         }
 
         return sql;
@@ -486,6 +697,16 @@ public class JdbcEventStore
         return sql;
     }
 
+    private String getParameterList( int size )
+    {
+        return getCommaDelimitedString( Collections.nCopies( size, "?" ) );
+    }
+
+    private Timestamp getTimestamp( Date date )
+    {
+        return date != null ? new Timestamp( date.getTime() ) : null;
+    }
+
     private String getAttributeValueQuery()
     {
         String sql = "select pav.trackedentityinstanceid as pav_id, pav.value as pav_value, ta.uid as ta_uid, ta.name as ta_name, ta.valuetype as ta_valuetype "
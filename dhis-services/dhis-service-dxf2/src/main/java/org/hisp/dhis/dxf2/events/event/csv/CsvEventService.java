@@ -28,6 +28,8 @@ package org.hisp.dhis.dxf2.events.event.csv;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.event.Events;
 
 import java.io.IOException;
@@ -41,5 +43,19 @@ public interface CsvEventService
 {
     void writeEvents( OutputStream outputStream, Events events, boolean withHeader ) throws IOException;
 
+    /**
+     * Returns a writer for writing events one by one to the given output stream
+     * with writeEvent. Closing the writer closes the output stream.
+     */
+    SequenceWriter getEventWriter( OutputStream outputStream, boolean withHeader ) throws IOException;
+
+    /**
+     * Writes the CSV rows of the given event, one per data value, to the given
+     * writer.
+     * 
+     * @throws java.io.UncheckedIOException if the rows could not be written.
+     */
+    void writeEvent( SequenceWriter writer, Event event );
+
     Events readEvents( InputStream inputStream, boolean skipFirst ) throws IOException;
 }
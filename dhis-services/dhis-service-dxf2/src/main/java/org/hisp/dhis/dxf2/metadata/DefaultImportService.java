@@ -54,6 +54,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.util.Assert.notNull;
 
@@ -148,49 +149,59 @@ public class DefaultImportService
 
         objectBridge.setWriteEnabled( !importOptions.isDryRun() );
         objectBridge.setPreheatCache( importOptions.isPreheatCache() );
-        objectBridge.init( new HashSet<>() );
+        objectBridge.init( getPreheatClasses( metaData ) );
 
-        for ( Schema schema : schemaService.getMetadataSchemas() )
-        {
-            Object value = ReflectionUtils.invokeGetterMethod( schema.getPlural(), metaData );
+        // Types are imported level by level, a type only references types on
+        // lower levels except for circular references
 
-            if ( value != null )
-            {
-                if ( Collection.class.isAssignableFrom( value.getClass() ) )
-                {
-                    List<?> objects = new ArrayList<>( (Collection<?>) value );
+        List<List<Schema>> levels = MetaDataImportPlanner.getLevels( schemaService.getMetadataSchemas() );
 
-                    if ( !objects.isEmpty() )
-                    {
-                        String message = "Importing " + objects.size() + " " + StringUtils.capitalize( schema.getPlural() );
+        log.info( "Import plan has " + levels.size() + " dependency levels" );
 
-                        if ( taskId != null )
-                        {
-                            notifier.notify( taskId, message );
-                        }
-                        else
-                        {
-                            log.info( message );
-                        }
+        for ( List<Schema> level : levels )
+        {
+            for ( Schema schema : level )
+            {
+                Object value = ReflectionUtils.invokeGetterMethod( schema.getPlural(), metaData );
 
-                        ImportTypeSummary importTypeSummary = doImport( user, objects, importOptions );
+                if ( value != null )
+                {
+                    if ( Collection.class.isAssignableFrom( value.getClass() ) )
+                    {
+                        List<?> objects = new ArrayList<>( (Collection<?>) value );
 
-                        if ( importTypeSummary != null )
+                        if ( !objects.isEmpty() )
                         {
-                            importSummary.getImportTypeSummaries().add( importTypeSummary );
-                            importSummary.incrementImportCount( importTypeSummary.getImportCount() );
+                            String message = "Importing " + objects.size() + " " + StringUtils.capitalize( schema.getPlural() );
+
+                            if ( taskId != null )
+                            {
+                                notifier.notify( taskId, message );
+                            }
+                            else
+                            {
+                                log.info( message );
+                            }
+
+                            ImportTypeSummary importTypeSummary = doImport( userUid, objects, importOptions );
+
+                            if ( importTypeSummary != null )
+                            {
+                                importSummary.getImportTypeSummaries().add( importTypeSummary );
+                                importSummary.incrementImportCount( importTypeSummary.getImportCount() );
+                            }
                         }
                     }
+                    else
+                    {
+                        log.warn( "Getter for '" + schema.getPlural() + "' did not return a collection." );
+                    }
                 }
                 else
                 {
-                    log.warn( "Getter for '" + schema.getPlural() + "' did not return a collection." );
+                    log.warn( "Can not find getter for '" + schema.getPlural() + "'." );
                 }
             }
-            else
-            {
-                log.warn( "Can not find getter for '" + schema.getPlural() + "'." );
-            }
         }
 
         if ( importOptions.isDryRun() )
@@ -220,6 +231,29 @@ public class DefaultImportService
     // Helpers
     //-------------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns the classes of the objects present in the given meta-data and
+     * the classes they reference.
+     */
+    @SuppressWarnings( "rawtypes" )
+    private Set<Class> getPreheatClasses( MetaData metaData )
+    {
+        Set<Class> classes = new HashSet<>();
+
+        for ( Schema schema : schemaService.getMetadataSchemas() )
+        {
+            Object value = ReflectionUtils.invokeGetterMethod( schema.getPlural(), metaData );
+
+            if ( value != null && Collection.class.isAssignableFrom( value.getClass() ) && !((Collection<?>) value).isEmpty() )
+            {
+                classes.add( schema.getKlass() );
+                classes.addAll( schema.getReferences() );
+            }
+        }
+
+        return classes;
+    }
+
     private <T> Importer<T> findImporterClass( List<?> clazzes )
     {
         notNull( clazzes );
@@ -249,6 +283,25 @@ public class DefaultImportService
         return null;
     }
 
+    /**
+     * Imports the given objects of a single type and records the time spent.
+     * Flushing in batches is left to the importer, so that its pre-import
+     * handlers see the full list.
+     */
+    private <T> ImportTypeSummary doImport( String userUid, List<T> objects, ImportOptions importOptions )
+    {
+        Timer timer = new SystemTimer().start();
+
+        ImportTypeSummary importTypeSummary = doImport( userService.getUser( userUid ), objects, importOptions );
+
+        if ( importTypeSummary != null )
+        {
+            importTypeSummary.setTime( TimeUnit.NANOSECONDS.toMillis( timer.stop().duration() ) );
+        }
+
+        return importTypeSummary;
+    }
+
     private <T> ImportTypeSummary doImport( User user, List<T> objects, ImportOptions importOptions )
     {
         if ( !objects.isEmpty() && objects.get( 0 ) != null )
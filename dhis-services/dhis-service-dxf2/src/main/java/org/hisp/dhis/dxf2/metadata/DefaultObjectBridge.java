@@ -97,6 +97,9 @@ public class DefaultObjectBridge
     @Autowired
     private CurrentUserService currentUserService;
 
+    @Autowired
+    private IdentifierIndex identifierIndex;
+
     //-------------------------------------------------------------------------------------------------------
     // Internal and Semi-Public maps
     //-------------------------------------------------------------------------------------------------------
@@ -115,6 +118,9 @@ public class DefaultObjectBridge
 
     private Map<Class<? extends IdentifiableObject>, Map<String, IdentifiableObject>> nameMap;
 
+    /**
+     * User credentials by username, resolved on lookup.
+     */
     private Map<String, UserCredentials> usernameMap;
 
     private boolean writeEnabled = true;
@@ -154,23 +160,20 @@ public class DefaultObjectBridge
         usernameMap = new HashMap<>();
 
         populatePeriodTypeMap( PeriodType.class );
-        populateUsernameMap( UserCredentials.class );
 
         for ( Class<?> type : supportedTypes )
         {
-            masterMap.put( type, new HashSet<IdentifiableObject>() );
             uidMap.put( (Class<? extends IdentifiableObject>) type, new HashMap<>() );
             uuidMap.put( (Class<? extends IdentifiableObject>) type, new HashMap<>() );
             codeMap.put( (Class<? extends IdentifiableObject>) type, new HashMap<>() );
             nameMap.put( (Class<? extends IdentifiableObject>) type, new HashMap<>() );
 
-            if ( preheatClasses.contains( type ) )
+            // Shared index is loaded once per class and kept up to date, objects
+            // are loaded by identifier on lookup and held in the maps above
+
+            if ( preheatCache && preheatClasses.contains( type ) && IdentifiableObject.class.isAssignableFrom( type ) )
             {
-                populateIdentifiableObjectMap( type );
-                populateIdentifiableObjectMap( type, IdentifiableProperty.UID );
-                populateIdentifiableObjectMap( type, IdentifiableProperty.UUID );
-                populateIdentifiableObjectMap( type, IdentifiableProperty.CODE );
-                populateIdentifiableObjectMap( type, IdentifiableProperty.NAME );
+                identifierIndex.preheat( (Class<? extends IdentifiableObject>) type );
             }
         }
 
@@ -191,85 +194,25 @@ public class DefaultObjectBridge
         preheatCache = true;
     }
 
-    //-------------------------------------------------------------------------------------------------------
-    // Populate Helpers
-    //-------------------------------------------------------------------------------------------------------
-
-    @SuppressWarnings( "unchecked" )
-    private void populateIdentifiableObjectMap( Class<?> clazz )
-    {
-        if ( preheatCache && IdentifiableObject.class.isAssignableFrom( clazz ) )
-        {
-            Set<IdentifiableObject> map = (Set<IdentifiableObject>) masterMap.get( clazz );
-            map.addAll( manager.getAllNoAcl( (Class<IdentifiableObject>) clazz ) );
-        }
-    }
-
-    @SuppressWarnings( "unchecked" )
-    private void populateIdentifiableObjectMap( Class<?> clazz, IdentifiableProperty property )
+    @Override
+    public void clear()
     {
-        Map<String, IdentifiableObject> map = new HashMap<>();
-        IdentifiableObject identifiableObject;
+        masterMap.clear();
+        periodTypeMap.clear();
+        usernameMap.clear();
 
-        try
-        {
-            identifiableObject = (IdentifiableObject) clazz.newInstance();
-        }
-        catch ( InstantiationException | IllegalAccessException ignored )
-        {
-            return;
-        }
-
-        if ( preheatCache && IdentifiableObject.class.isAssignableFrom( clazz ) )
-        {
-            map = (Map<String, IdentifiableObject>) manager.getIdMapNoAcl( (Class<? extends IdentifiableObject>) clazz, property );
-        }
+        uidMap.values().forEach( Map::clear );
+        uuidMap.values().forEach( Map::clear );
+        codeMap.values().forEach( Map::clear );
+        nameMap.values().forEach( Map::clear );
 
-        if ( !preheatCache || map != null )
-        {
-            if ( property == IdentifiableProperty.UID )
-            {
-                uidMap.put( (Class<? extends IdentifiableObject>) clazz, map );
-            }
-            else if ( property == IdentifiableProperty.UUID && OrganisationUnit.class.isAssignableFrom( clazz ) )
-            {
-                uuidMap.put( (Class<? extends IdentifiableObject>) clazz, map );
-            }
-            else if ( property == IdentifiableProperty.CODE && identifiableObject.haveUniqueCode() )
-            {
-                codeMap.put( (Class<? extends IdentifiableObject>) clazz, map );
-            }
-            else if ( property == IdentifiableProperty.NAME && identifiableObject.haveUniqueNames() )
-            {
-                if ( !preheatCache )
-                {
-                    nameMap.put( (Class<? extends IdentifiableObject>) clazz, map );
-                }
-                else
-                {
-                    if ( identifiableObject.haveUniqueNames() )
-                    {
-                        nameMap.put( (Class<? extends IdentifiableObject>) clazz, map );
-                    }
-                    else
-                    {
-                        // add an empty map here, since we could still have some auto-generated properties
-                        nameMap.put( (Class<? extends IdentifiableObject>) clazz, new HashMap<>() );
-
-                        // find all auto-generated props and add them
-                        for ( Map.Entry<String, IdentifiableObject> entry : map.entrySet() )
-                        {
-                            if ( entry.getValue().isAutoGenerated() )
-                            {
-                                nameMap.get( clazz ).put( entry.getKey(), entry.getValue() );
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        populatePeriodTypeMap( PeriodType.class );
     }
 
+    //-------------------------------------------------------------------------------------------------------
+    // Populate Helpers
+    //-------------------------------------------------------------------------------------------------------
+
     private void populatePeriodTypeMap( Class<?> clazz )
     {
         Collection<Object> periodTypes = new ArrayList<>();
@@ -287,14 +230,31 @@ public class DefaultObjectBridge
         masterMap.put( clazz, new HashSet<>( periodTypes ) );
     }
 
-    private void populateUsernameMap( Class<?> clazz )
+    /**
+     * Returns the user credentials with the given username. Credentials are
+     * loaded on first lookup and held until the maps are cleared, misses are
+     * not held as the user may be imported later on.
+     */
+    private UserCredentials getUserCredentials( String username )
     {
-        if ( UserCredentials.class.isAssignableFrom( clazz ) )
+        if ( username == null )
         {
-            Collection<UserCredentials> allUserCredentials = userService.getAllUserCredentials();
-            allUserCredentials.stream().filter( userCredentials -> userCredentials.getUsername() != null )
-                .forEach( userCredentials -> usernameMap.put( userCredentials.getUsername(), userCredentials ) );
+            return null;
+        }
+
+        UserCredentials userCredentials = usernameMap.get( username );
+
+        if ( userCredentials == null )
+        {
+            userCredentials = userService.getUserCredentialsByUsername( username );
+
+            if ( userCredentials != null )
+            {
+                usernameMap.put( username, userCredentials );
+            }
         }
+
+        return userCredentials;
     }
 
     //-------------------------------------------------------------------------------------------------------
@@ -417,6 +377,11 @@ public class DefaultObjectBridge
     @SuppressWarnings( "unchecked" )
     public <T> Set<T> getAllObjects( Class<T> clazz )
     {
+        if ( !masterMap.containsKey( clazz ) && IdentifiableObject.class.isAssignableFrom( clazz ) )
+        {
+            masterMap.put( clazz, new HashSet<>( manager.getAllNoAcl( (Class<IdentifiableObject>) clazz ) ) );
+        }
+
         return (Set<T>) masterMap.get( clazz );
     }
 
@@ -467,7 +432,7 @@ public class DefaultObjectBridge
         if ( User.class.isInstance( object ) )
         {
             User user = (User) object;
-            UserCredentials userCredentials = usernameMap.get( user.getUsername() );
+            UserCredentials userCredentials = getUserCredentials( user.getUsername() );
 
             if ( userCredentials != null && userCredentials.getUserInfo() != null )
             {
@@ -687,12 +652,7 @@ public class DefaultObjectBridge
 
         if ( entity == null )
         {
-            entity = manager.get( identifiableObject.getClass(), identifiableObject.getUid() );
-
-            if ( entity != null )
-            {
-                map.put( entity.getUid(), entity );
-            }
+            entity = getDatabaseMatch( identifiableObject, IdentifiableProperty.UID, identifiableObject.getUid() );
         }
 
         return entity;
@@ -720,12 +680,7 @@ public class DefaultObjectBridge
 
         if ( entity == null && identifiableObject.haveUniqueCode() )
         {
-            entity = manager.getByCode( identifiableObject.getClass(), identifiableObject.getCode() );
-
-            if ( entity != null )
-            {
-                map.put( entity.getCode(), entity );
-            }
+            entity = getDatabaseMatch( identifiableObject, IdentifiableProperty.CODE, identifiableObject.getCode() );
         }
 
         return entity;
@@ -753,14 +708,56 @@ public class DefaultObjectBridge
 
         if ( entity == null && identifiableObject.haveUniqueNames() )
         {
-            entity = manager.getByName( identifiableObject.getClass(), identifiableObject.getName() );
+            entity = getDatabaseMatch( identifiableObject, IdentifiableProperty.NAME, identifiableObject.getName() );
+        }
 
-            if ( entity != null )
+        return entity;
+    }
+
+    /**
+     * Loads the object matching the given property value. For classes in the
+     * shared identifier index a hit loads the object by its identifier, and
+     * the loaded object is verified against the value. Misses and stale hits
+     * are confirmed by looking up the object by the value, so that an object
+     * is never treated as new because of a stale index. If the lookup finds
+     * an object which the index did not point to, the index of the class is
+     * invalidated. The found object is put in the maps, so that later
+     * references to it are resolved without a query.
+     */
+    private IdentifiableObject getDatabaseMatch( IdentifiableObject identifiableObject, IdentifiableProperty property, String value )
+    {
+        Class<? extends IdentifiableObject> clazz = identifiableObject.getClass();
+        IdentifiableObject entity = null;
+        Integer id = null;
+
+        boolean preheated = identifierIndex.isPreheated( clazz );
+
+        if ( preheated )
+        {
+            id = identifierIndex.getId( clazz, property, value );
+
+            entity = id != null ? manager.get( clazz, id ) : null;
+        }
+
+        String entityValue = entity == null ? null : IdentifiableProperty.UID == property ? entity.getUid() :
+            IdentifiableProperty.CODE == property ? entity.getCode() : entity.getName();
+
+        if ( !value.equals( entityValue ) )
+        {
+            entity = IdentifiableProperty.UID == property ? manager.get( clazz, value ) :
+                IdentifiableProperty.CODE == property ? manager.getByCode( clazz, value ) : manager.getByName( clazz, value );
+
+            if ( preheated && entity != null && !Integer.valueOf( entity.getId() ).equals( id ) )
             {
-                map.put( entity.getName(), entity );
+                identifierIndex.invalidate( clazz );
             }
         }
 
+        if ( entity != null )
+        {
+            _updateInternalMaps( entity, false );
+        }
+
         return entity;
     }
 
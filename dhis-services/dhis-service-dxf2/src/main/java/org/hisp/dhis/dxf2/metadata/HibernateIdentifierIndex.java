@@ -0,0 +1,478 @@
+package org.hisp.dhis.dxf2.metadata;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.cache.CacheInvalidationService;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableProperty;
+import org.hisp.dhis.commons.timer.SystemTimer;
+import org.hisp.dhis.commons.timer.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Identifier index which is loaded per class with a single query selecting
+ * identifier columns only, and maintained through Hibernate event listeners.
+ * Inserts, updates and deletes are collected per transaction and applied to
+ * the index after the transaction commits, and discarded on rollback. Until
+ * then inserts and updates are kept in a transaction-bound index which is
+ * consulted first. Changes committed while a class is loading are applied on
+ * top of the loaded rows. Classes changed outside a transaction or on other
+ * nodes are dropped from the index and loaded again on the next preheat.
+ */
+public class HibernateIdentifierIndex
+    implements IdentifierIndex
+{
+    private static final Log log = LogFactory.getLog( HibernateIdentifierIndex.class );
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    private final Map<Class<?>, ClassIndex> indexes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerListeners()
+    {
+        EventListenerRegistry registry = ((SessionFactoryImpl) sessionFactory).getServiceRegistry()
+            .getService( EventListenerRegistry.class );
+
+        // Post-commit events are also fired on rollback, so changes are
+        // collected from the regular events and applied after commit
+
+        registry.getEventListenerGroup( EventType.POST_INSERT ).appendListener( postInsertEventListener );
+        registry.getEventListenerGroup( EventType.POST_UPDATE ).appendListener( postUpdateEventListener );
+        registry.getEventListenerGroup( EventType.POST_DELETE ).appendListener( postDeleteEventListener );
+
+        cacheInvalidationService.addListener( entityClass -> {
+            if ( entityClass != null )
+            {
+                indexes.remove( entityClass );
+            }
+            else
+            {
+                indexes.clear();
+            }
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // IdentifierIndex implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void preheat( Class<? extends IdentifiableObject> clazz )
+    {
+        if ( indexes.containsKey( clazz ) )
+        {
+            return;
+        }
+
+        ClassMetadata metadata = sessionFactory.getClassMetadata( clazz );
+
+        if ( metadata == null )
+        {
+            return;
+        }
+
+        List<String> properties = Arrays.asList( metadata.getPropertyNames() );
+
+        if ( !properties.contains( "uid" ) )
+        {
+            return;
+        }
+
+        IdentifiableObject object;
+
+        try
+        {
+            object = clazz.newInstance();
+        }
+        catch ( InstantiationException | IllegalAccessException ex )
+        {
+            return;
+        }
+
+        Timer timer = new SystemTimer().start();
+
+        boolean uniqueCode = properties.contains( "code" ) && object.haveUniqueCode();
+        boolean uniqueNames = properties.contains( "name" ) && object.haveUniqueNames();
+
+        // Index is registered before loading so that it receives changes
+        // committed while loading, which take precedence over loaded rows
+
+        ClassIndex index = new ClassIndex( uniqueCode, uniqueNames );
+
+        if ( indexes.putIfAbsent( clazz, index ) != null )
+        {
+            return;
+        }
+
+        List<?> rows;
+
+        try
+        {
+            rows = sessionFactory.getCurrentSession()
+                .createQuery( "select id, uid" + ( uniqueCode ? ", code" : "" ) + ( uniqueNames ? ", name" : "" ) + 
+                    " from " + clazz.getName() ).list();
+        }
+        catch ( RuntimeException ex )
+        {
+            indexes.remove( clazz, index );
+            throw ex;
+        }
+
+        for ( Object row : rows )
+        {
+            Object[] values = (Object[]) row;
+
+            String code = uniqueCode ? (String) values[2] : null;
+            String name = uniqueNames ? (String) values[uniqueCode ? 3 : 2] : null;
+
+            index.load( (Integer) values[0], (String) values[1], code, name );
+        }
+
+        index.setLoaded();
+
+        log.info( "Preheated identifier index for " + clazz.getSimpleName() + " with " + rows.size() + " objects in " + timer.stop().toString() );
+    }
+
+    @Override
+    public boolean isPreheated( Class<?> clazz )
+    {
+        ClassIndex index = indexes.get( clazz );
+
+        return index != null && index.isLoaded();
+    }
+
+    @Override
+    public Integer getId( Class<?> clazz, IdentifiableProperty property, String value )
+    {
+        ClassIndex index = indexes.get( clazz );
+
+        if ( index == null || !index.isLoaded() || value == null )
+        {
+            return null;
+        }
+
+        TransactionChanges changes = getTransactionChanges();
+
+        ClassIndex pending = changes != null ? changes.puts.get( clazz ) : null;
+
+        Integer id = pending != null ? pending.get( property, value ) : null;
+
+        return id != null ? id : index.get( property, value );
+    }
+
+    @Override
+    public void invalidate( Class<?> clazz )
+    {
+        if ( indexes.remove( clazz ) != null )
+        {
+            log.info( "Invalidated identifier index for " + clazz.getSimpleName() );
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        indexes.clear();
+    }
+
+    // -------------------------------------------------------------------------
+    // Event listeners
+    // -------------------------------------------------------------------------
+
+    private final PostInsertEventListener postInsertEventListener = event -> 
+        record( event.getPersister(), event.getEntity(), event.getId(), false );
+
+    private final PostUpdateEventListener postUpdateEventListener = event -> 
+        record( event.getPersister(), event.getEntity(), event.getId(), false );
+
+    private final PostDeleteEventListener postDeleteEventListener = event -> 
+        record( event.getPersister(), event.getEntity(), event.getId(), true );
+
+    /**
+     * Records the given change in the changes of the current transaction. A
+     * change outside a transaction can not be tracked to its commit, so the
+     * index of the class is dropped instead.
+     */
+    private void record( EntityPersister persister, Object entity, Serializable id, boolean deleted )
+    {
+        Class<?> clazz = persister.getMappedClass();
+
+        if ( !( entity instanceof IdentifiableObject ) || !( id instanceof Integer ) )
+        {
+            return;
+        }
+
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            indexes.remove( clazz );
+            return;
+        }
+
+        TransactionChanges changes = getTransactionChanges();
+
+        if ( changes == null )
+        {
+            TransactionChanges transactionChanges = new TransactionChanges();
+
+            TransactionSynchronizationManager.bindResource( this, transactionChanges );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    apply( transactionChanges );
+                }
+
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( HibernateIdentifierIndex.this );
+                }
+            } );
+
+            changes = transactionChanges;
+        }
+
+        ClassIndex index = indexes.get( clazz );
+
+        if ( index == null )
+        {
+            changes.unindexed.add( clazz ); // Index may be loaded before commit
+        }
+        else if ( deleted )
+        {
+            changes.deletes.computeIfAbsent( clazz, c -> new HashSet<>() ).add( (Integer) id );
+        }
+        else
+        {
+            IdentifiableObject object = (IdentifiableObject) entity;
+
+            changes.puts.computeIfAbsent( clazz, c -> index.newPendingIndex() )
+                .put( object.getId(), object.getUid(), object.getCode(), object.getName() );
+        }
+    }
+
+    /**
+     * Applies the changes of a committed transaction to the index. Classes
+     * which were loaded while the transaction was running may have missed
+     * its changes, and are dropped.
+     */
+    private void apply( TransactionChanges changes )
+    {
+        changes.unindexed.forEach( indexes::remove );
+
+        changes.puts.forEach( ( clazz, pending ) -> {
+            ClassIndex index = indexes.get( clazz );
+
+            if ( index != null )
+            {
+                index.putAll( pending );
+            }
+        } );
+
+        changes.deletes.forEach( ( clazz, ids ) -> {
+            ClassIndex index = indexes.get( clazz );
+
+            if ( index != null )
+            {
+                ids.forEach( index::remove );
+            }
+        } );
+    }
+
+    private TransactionChanges getTransactionChanges()
+    {
+        return (TransactionChanges) TransactionSynchronizationManager.getResource( this );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Changes of a single transaction which are not yet committed.
+     */
+    private static class TransactionChanges
+    {
+        private final Map<Class<?>, ClassIndex> puts = new HashMap<>();
+
+        private final Map<Class<?>, Set<Integer>> deletes = new HashMap<>();
+
+        private final Set<Class<?>> unindexed = new HashSet<>();
+    }
+
+    /**
+     * Identifiers of the objects of a single class.
+     */
+    private static class ClassIndex
+    {
+        private final boolean uniqueCode;
+
+        private final boolean uniqueNames;
+
+        private final Map<String, Integer> uids = new HashMap<>();
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final Map<String, Integer> names = new HashMap<>();
+
+        private final Map<Integer, String[]> keys = new HashMap<>();
+
+        /**
+         * Identifiers changed while loading, for which loaded rows are stale.
+         */
+        private Set<Integer> changed = new HashSet<>();
+
+        private volatile boolean loaded;
+
+        ClassIndex( boolean uniqueCode, boolean uniqueNames )
+        {
+            this.uniqueCode = uniqueCode;
+            this.uniqueNames = uniqueNames;
+        }
+
+        ClassIndex newPendingIndex()
+        {
+            ClassIndex index = new ClassIndex( uniqueCode, uniqueNames );
+            index.setLoaded();
+            return index;
+        }
+
+        boolean isLoaded()
+        {
+            return loaded;
+        }
+
+        synchronized void setLoaded()
+        {
+            changed = null;
+            loaded = true;
+        }
+
+        synchronized void load( int id, String uid, String code, String name )
+        {
+            if ( !changed.contains( id ) )
+            {
+                add( id, uid, code, name );
+            }
+        }
+
+        synchronized void put( int id, String uid, String code, String name )
+        {
+            remove( id );
+            add( id, uid, code, name );
+        }
+
+        synchronized void putAll( ClassIndex index )
+        {
+            index.keys.forEach( ( id, key ) -> put( id, key[0], key[1], key[2] ) );
+        }
+
+        private void add( int id, String uid, String code, String name )
+        {
+            code = uniqueCode ? code : null;
+            name = uniqueNames ? name : null;
+
+            keys.put( id, new String[] { uid, code, name } );
+
+            putIfNotNull( uids, uid, id );
+            putIfNotNull( codes, code, id );
+            putIfNotNull( names, name, id );
+        }
+
+        synchronized void remove( int id )
+        {
+            if ( changed != null )
+            {
+                changed.add( id );
+            }
+
+            String[] key = keys.remove( id );
+
+            if ( key != null )
+            {
+                uids.remove( key[0], id );
+                codes.remove( key[1], id );
+                names.remove( key[2], id );
+            }
+        }
+
+        synchronized Integer get( IdentifiableProperty property, String value )
+        {
+            switch ( property )
+            {
+                case UID:
+                    return uids.get( value );
+                case CODE:
+                    return codes.get( value );
+                case NAME:
+                    return names.get( value );
+                default:
+                    return null;
+            }
+        }
+
+        private void putIfNotNull( Map<String, Integer> map, String key, int id )
+        {
+            if ( key != null )
+            {
+                map.put( key, id );
+            }
+        }
+    }
+}
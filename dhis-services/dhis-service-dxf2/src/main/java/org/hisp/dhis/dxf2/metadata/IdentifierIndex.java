@@ -0,0 +1,86 @@
+package org.hisp.dhis.dxf2.metadata;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableProperty;
+
+/**
+ * Index of the identifiers of persisted objects by uid, code and name, per
+ * class. The index is shared across imports and kept up to date as objects
+ * are inserted, updated and deleted, so a class is only loaded once. The
+ * index may miss changes made on other nodes, so callers should confirm
+ * misses and hits against the database.
+ */
+public interface IdentifierIndex
+{
+    /**
+     * Loads the uid, code and name of all persisted objects of the given class
+     * into the index, unless the class is already loaded. Codes and names are
+     * indexed for classes where they are unique.
+     * 
+     * @param clazz the class.
+     */
+    void preheat( Class<? extends IdentifiableObject> clazz );
+
+    /**
+     * Indicates whether the given class is loaded into the index. For such
+     * classes {@link #getId} includes objects saved in the current
+     * transaction.
+     * 
+     * @param clazz the class.
+     */
+    boolean isPreheated( Class<?> clazz );
+
+    /**
+     * Returns the database identifier of the object of the given class with
+     * the given property value. Returns null if there is no match or the class
+     * is not loaded. Entries of deleted or renamed objects may remain, so
+     * callers should verify the object loaded by the identifier.
+     * 
+     * @param clazz the class.
+     * @param property the property, one of UID, CODE and NAME.
+     * @param value the property value.
+     * @return the database identifier, or null.
+     */
+    Integer getId( Class<?> clazz, IdentifiableProperty property, String value );
+
+    /**
+     * Removes the given class from the index, so that it is loaded again on
+     * the next preheat. Used when the index is found to be stale.
+     * 
+     * @param clazz the class.
+     */
+    void invalidate( Class<?> clazz );
+
+    /**
+     * Removes all classes from the index.
+     */
+    void clear();
+}
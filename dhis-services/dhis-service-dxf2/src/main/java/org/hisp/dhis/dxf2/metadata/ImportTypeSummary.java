@@ -59,6 +59,11 @@ public class ImportTypeSummary extends ImportSummary
      */
     private String lastImported;
 
+    /**
+     * Time spent importing objects of this type in milliseconds.
+     */
+    private long time;
+
     public ImportTypeSummary( String type )
     {
         this.type = type;
@@ -119,6 +124,18 @@ public class ImportTypeSummary extends ImportSummary
         this.lastImported = lastImported;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( isAttribute = true )
+    public long getTime()
+    {
+        return time;
+    }
+
+    public void setTime( long time )
+    {
+        this.time = time;
+    }
+
     //-------------------------------------------------------------------------
     // Helpers
     //-------------------------------------------------------------------------
@@ -150,6 +167,7 @@ public class ImportTypeSummary extends ImportSummary
             "type='" + type + '\'' +
             ", importCount=" + importCount +
             ", importConflicts=" + importConflicts +
+            ", time=" + time +
             '}';
     }
 }
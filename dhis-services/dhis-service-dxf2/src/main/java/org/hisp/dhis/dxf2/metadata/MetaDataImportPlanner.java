@@ -0,0 +1,101 @@
+package org.hisp.dhis.dxf2.metadata;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.schema.Schema;
+
+/**
+ * Plans the order of a meta-data import based on the references between the
+ * types given by the schemas.
+ */
+public class MetaDataImportPlanner
+{
+    /**
+     * Groups the given schemas into dependency levels. A schema is placed on
+     * the level after the highest level of the schemas it references. Only
+     * references to schemas which come earlier in the given order are
+     * considered, which means that circular references are resolved by the
+     * given order. Schemas on the same level do not reference each other.
+     * Schemas keep their given order within each level.
+     *
+     * @param schemas the schemas in import order.
+     * @return a list of levels, each level being a list of schemas.
+     */
+    public static List<List<Schema>> getLevels( List<Schema> schemas )
+    {
+        List<List<Schema>> levels = new ArrayList<>();
+        int[] schemaLevels = new int[schemas.size()];
+
+        for ( int i = 0; i < schemas.size(); i++ )
+        {
+            Schema schema = schemas.get( i );
+
+            int level = 0;
+
+            for ( int j = 0; j < i; j++ )
+            {
+                if ( references( schema, schemas.get( j ) ) )
+                {
+                    level = Math.max( level, schemaLevels[j] + 1 );
+                }
+            }
+
+            schemaLevels[i] = level;
+
+            while ( levels.size() <= level )
+            {
+                levels.add( new ArrayList<>() );
+            }
+
+            levels.get( level ).add( schema );
+        }
+
+        return levels;
+    }
+
+    /**
+     * Indicates whether the given schema references the type of the given
+     * target schema.
+     */
+    private static boolean references( Schema schema, Schema target )
+    {
+        for ( Class<?> reference : schema.getReferences() )
+        {
+            if ( reference != null && reference.isAssignableFrom( target.getKlass() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -53,6 +53,12 @@ public interface ObjectBridge
      */
     void destroy();
 
+    /**
+     * Clears the objects held by the bridge. Must be called after the session
+     * has been cleared so that subsequent lookups return attached objects.
+     */
+    void clear();
+
     /**
      * Save object. Will save to persistence layer if {@code writeEnabled} is {@code true}.
      *
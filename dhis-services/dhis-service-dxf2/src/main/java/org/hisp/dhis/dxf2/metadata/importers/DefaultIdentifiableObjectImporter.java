@@ -107,6 +107,8 @@ public class DefaultIdentifiableObjectImporter<T extends BaseIdentifiableObject>
 {
     private static final Log log = LogFactory.getLog( DefaultIdentifiableObjectImporter.class );
 
+    private static final int FLUSH_BATCH_SIZE = 500;
+
     //-------------------------------------------------------------------------------------------------------
     // Dependencies
     //-------------------------------------------------------------------------------------------------------
@@ -181,11 +183,18 @@ public class DefaultIdentifiableObjectImporter<T extends BaseIdentifiableObject>
 
         ObjectHandlerUtils.preObjectsHandlers( objects, objectHandlers );
 
+        int count = 0;
+
         for ( T object : objects )
         {
             ObjectHandlerUtils.preObjectHandlers( object, objectHandlers );
             importObjectLocal( user, object );
             ObjectHandlerUtils.postObjectHandlers( object, objectHandlers );
+
+            if ( ++count % FLUSH_BATCH_SIZE == 0 && !options.isDryRun() )
+            {
+                user = flushBatch( user );
+            }
         }
 
         ObjectHandlerUtils.postObjectsHandlers( objects, objectHandlers );
@@ -219,6 +228,23 @@ public class DefaultIdentifiableObjectImporter<T extends BaseIdentifiableObject>
         return importerClass.equals( clazz );
     }
 
+    /**
+     * Flushes and clears the session and empties the object bridge to keep the
+     * session small during large imports. Must not be called for dry runs,
+     * where changes must never be flushed.
+     *
+     * @param user the importing user.
+     * @return the importing user attached to the cleared session.
+     */
+    private User flushBatch( User user )
+    {
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+        objectBridge.clear();
+
+        return user != null ? userService.getUser( user.getUid() ) : null;
+    }
+
     //-------------------------------------------------------------------------------------------------------
     // Generic implementations of deleteObject, newObject, updatedObject
     //-------------------------------------------------------------------------------------------------------
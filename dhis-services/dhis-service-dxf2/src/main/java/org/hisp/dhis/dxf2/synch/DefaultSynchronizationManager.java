@@ -30,9 +30,13 @@ package org.hisp.dhis.dxf2.synch;
 
 import static org.apache.commons.lang3.StringUtils.trimToNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.configuration.Configuration;
@@ -41,7 +45,9 @@ import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.IdSchemes;
 import org.hisp.dhis.dxf2.common.ImportSummaryResponseExtractor;
 import org.hisp.dhis.dxf2.common.JacksonUtils;
+import org.hisp.dhis.dxf2.datavalueset.DataValueCheckpoint;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
+import org.hisp.dhis.dxf2.importsummary.ImportCount;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.metadata.ImportService;
@@ -59,12 +65,10 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -77,6 +81,8 @@ public class DefaultSynchronizationManager
 
     private static final String PING_PATH = "/api/system/ping";
     private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
 
     @Autowired
     private DataValueSetService dataValueSetService;
@@ -99,6 +105,8 @@ public class DefaultSynchronizationManager
     @Autowired
     private RestTemplate restTemplate;
 
+    private volatile SynchronizationMetrics lastDataPushMetrics;
+
     // -------------------------------------------------------------------------
     // SynchronizatonManager implementation
     // -------------------------------------------------------------------------
@@ -207,32 +215,89 @@ public class DefaultSynchronizationManager
 
         log.info( "Remote server POST URL: " + url );
 
-        final RequestCallback requestCallback = new RequestCallback()
+        // ---------------------------------------------------------------------
+        // Push values in chunks ordered by last updated time, and save the
+        // checkpoint of each pushed chunk so that an interrupted synch resumes
+        // after the last pushed chunk
+        // ---------------------------------------------------------------------
+
+        DataValueCheckpoint checkpoint = getCheckpoint( lastSuccessTime );
+
+        int chunkSize = (Integer) systemSettingManager.getSystemSetting( Setting.DATA_SYNC_CHUNK_SIZE );
+
+        log.info( "Synch checkpoint: " + checkpoint + ", chunk size: " + chunkSize );
+
+        ImportSummary summary = new ImportSummary( ImportStatus.SUCCESS );
+
+        SynchronizationMetrics metrics = new SynchronizationMetrics();
+
+        lastDataPushMetrics = metrics;
+
+        while ( true )
         {
-            @Override
-            public void doWithRequest( ClientHttpRequest request ) throws IOException
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CountingOutputStream counter = null;
+            DataValueCheckpoint next = null;
+
+            try ( GZIPOutputStream gzip = new GZIPOutputStream( buffer ) )
             {
-                request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
-                request.getHeaders().add( HEADER_AUTHORIZATION, CodecUtils.getBasicAuthString( config.getRemoteServerUsername(), config.getRemoteServerPassword() ) );
-                dataValueSetService.writeDataValueSetJson( lastSuccessTime, request.getBody(), new IdSchemes() );
+                counter = new CountingOutputStream( gzip );
+                next = dataValueSetService.writeDataValueSetJson( checkpoint, startTime, chunkSize, counter, new IdSchemes() );
+            }
+            catch ( IOException ex )
+            {
+                throw new UncheckedIOException( ex );
             }
-        };
 
-        ResponseExtractor<ImportSummary> responseExtractor = new ImportSummaryResponseExtractor();
+            if ( next == null )
+            {
+                break;
+            }
 
-        ImportSummary summary = restTemplate.execute( url, HttpMethod.POST, requestCallback, responseExtractor );
+            ImportSummary chunkSummary = pushChunk( url, config, buffer.toByteArray() );
 
-        log.info( "Synch summary: " + summary );
+            log.info( "Synch chunk summary: " + chunkSummary );
 
-        if ( summary != null && ImportStatus.SUCCESS.equals( summary.getStatus() ) )
-        {
-            setLastSynchSuccess( startTime );
-            log.info( "Synch successful, setting last success time: " + startTime );
+            if ( chunkSummary == null || !ImportStatus.SUCCESS.equals( chunkSummary.getStatus() ) )
+            {
+                metrics.finish();
+                log.info( "Synch chunk failed, next synch resumes after checkpoint: " + checkpoint );
+                return chunkSummary;
+            }
+
+            ImportCount count = chunkSummary.getImportCount();
+
+            summary.getImportCount().incrementImported( count.getImported() );
+            summary.getImportCount().incrementUpdated( count.getUpdated() );
+            summary.getImportCount().incrementIgnored( count.getIgnored() );
+            summary.getImportCount().incrementDeleted( count.getDeleted() );
+
+            metrics.addChunk( count.getImported() + count.getUpdated() + count.getIgnored() + count.getDeleted(),
+                buffer.size(), counter.getByteCount() );
+
+            checkpoint = next;
+
+            systemSettingManager.saveSystemSetting( Setting.DATA_SYNC_CHECKPOINT, checkpoint.toString() );
         }
 
+        metrics.finish();
+
+        log.info( "Synch summary: " + summary + ", metrics: " + metrics );
+
+        setLastSynchSuccess( startTime );
+        systemSettingManager.deleteSystemSetting( Setting.DATA_SYNC_CHECKPOINT );
+
+        log.info( "Synch successful, setting last success time: " + startTime );
+
         return summary;
     }
 
+    @Override
+    public SynchronizationMetrics getLastDataPushMetrics()
+    {
+        return lastDataPushMetrics;
+    }
+
     @Override
     public Date getLastSynchSuccess()
     {
@@ -289,6 +354,50 @@ public class DefaultSynchronizationManager
         systemSettingManager.saveSystemSetting( Setting.LAST_SUCCESSFUL_DATA_SYNC, time );
     }
 
+    /**
+     * Gets the checkpoint after the last chunk pushed by an interrupted
+     * synchronization operation. If not set, a checkpoint at the given time
+     * is returned.
+     */
+    private DataValueCheckpoint getCheckpoint( Date lastSuccessTime )
+    {
+        DataValueCheckpoint checkpoint = DataValueCheckpoint.fromString( 
+            (String) systemSettingManager.getSystemSetting( Setting.DATA_SYNC_CHECKPOINT ) );
+
+        return checkpoint != null ? checkpoint : DataValueCheckpoint.startOf( lastSuccessTime );
+    }
+
+    /**
+     * Posts the given gzipped chunk of data values to the remote server. Retries
+     * on network errors up to the max number of attempts.
+     */
+    private ImportSummary pushChunk( String url, Configuration config, byte[] chunk )
+    {
+        RequestCallback requestCallback = request -> {
+            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
+            request.getHeaders().add( HEADER_CONTENT_ENCODING, "gzip" );
+            request.getHeaders().add( HEADER_AUTHORIZATION, CodecUtils.getBasicAuthString( config.getRemoteServerUsername(), config.getRemoteServerPassword() ) );
+            request.getBody().write( chunk );
+        };
+
+        for ( int attempt = 1; ; attempt++ )
+        {
+            try
+            {
+                return restTemplate.execute( url, HttpMethod.POST, requestCallback, new ImportSummaryResponseExtractor() );
+            }
+            catch ( ResourceAccessException ex )
+            {
+                if ( attempt >= MAX_CHUNK_ATTEMPTS )
+                {
+                    throw ex;
+                }
+
+                log.warn( "Synch chunk push failed, attempt: " + attempt + ", " + ex.getMessage() );
+            }
+        }
+    }
+
     /**
      * Indicates whether a remote server has been properly configured.
      */
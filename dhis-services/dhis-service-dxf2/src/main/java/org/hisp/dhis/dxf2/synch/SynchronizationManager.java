@@ -37,7 +37,18 @@ import org.hisp.dhis.dxf2.importsummary.ImportSummary;
  */
 public interface SynchronizationManager
 {
+    /**
+     * Pushes data values updated since the last successful push to the remote
+     * server in gzipped chunks. A push which fails halfway resumes after the
+     * last pushed chunk on the next invocation.
+     */
     ImportSummary executeDataPush();
+
+    /**
+     * Returns throughput metrics of the last data push, or null if no data
+     * push has been executed since startup.
+     */
+    SynchronizationMetrics getLastDataPushMetrics();
     
     Date getLastSynchSuccess();
     
@@ -0,0 +1,158 @@
+package org.hisp.dhis.dxf2.synch;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
+import org.hisp.dhis.common.DxfNamespaces;
+
+/**
+ * Throughput metrics for a data push.
+ */
+@JacksonXmlRootElement( localName = "synchronizationMetrics", namespace = DxfNamespaces.DXF_2_0 )
+public class SynchronizationMetrics
+{
+    private Date startTime;
+
+    private Date endTime;
+
+    private int chunks;
+
+    private int dataValues;
+
+    private long bytes;
+
+    private long uncompressedBytes;
+
+    public SynchronizationMetrics()
+    {
+        this.startTime = new Date();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Registers a successfully pushed chunk.
+     * 
+     * @param dataValues the number of data values in the chunk.
+     * @param bytes the number of bytes sent.
+     * @param uncompressedBytes the number of bytes before compression.
+     */
+    public void addChunk( int dataValues, long bytes, long uncompressedBytes )
+    {
+        this.chunks++;
+        this.dataValues += dataValues;
+        this.bytes += bytes;
+        this.uncompressedBytes += uncompressedBytes;
+    }
+
+    public void finish()
+    {
+        this.endTime = new Date();
+    }
+
+    private double getSeconds()
+    {
+        long end = endTime != null ? endTime.getTime() : System.currentTimeMillis();
+
+        return Math.max( end - startTime.getTime(), 1 ) / 1000d;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Date getStartTime()
+    {
+        return startTime;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Date getEndTime()
+    {
+        return endTime;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getChunks()
+    {
+        return chunks;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getDataValues()
+    {
+        return dataValues;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getUncompressedBytes()
+    {
+        return uncompressedBytes;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public double getDataValuesPerSecond()
+    {
+        return dataValues / getSeconds();
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public double getBytesPerSecond()
+    {
+        return bytes / getSeconds();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[Chunks: " + chunks + ", data values: " + dataValues + ", bytes: " + bytes + 
+            ", uncompressed bytes: " + uncompressedBytes + ", seconds: " + getSeconds() + "]";
+    }
+}
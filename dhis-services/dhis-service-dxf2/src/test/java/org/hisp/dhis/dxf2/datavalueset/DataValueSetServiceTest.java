@@ -37,6 +37,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.InputStream;
 import java.util.Collection;
 
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementCategory;
@@ -50,6 +51,7 @@ import org.hisp.dhis.dataset.CompleteDataSetRegistrationService;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -98,6 +100,12 @@ public class DataValueSetServiceTest
     
     @Autowired
     private CompleteDataSetRegistrationService registrationService;
+    
+    @Autowired
+    private DataValueService dataValueService;
+    
+    @Autowired
+    private SessionFactory sessionFactory;
 
     private DataElementCategoryOptionCombo ocDef;
     private DataElementCategoryOption categoryOptionA;
@@ -593,6 +601,78 @@ public class DataValueSetServiceTest
         assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
     }
 
+    @Test
+    public void testImportDataValuesBulk()
+        throws Exception
+    {
+        sessionFactory.getCurrentSession().flush();
+        
+        in = new ClassPathResource( "datavalueset/dataValueSetB.xml" ).getInputStream();
+        
+        ImportOptions options = new ImportOptions().setBulkImport( true );
+        
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, options );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 12, summary.getImportCount().getImported() );
+        assertEquals( 0, summary.getImportCount().getUpdated() );
+        assertEquals( 0, summary.getImportCount().getIgnored() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        
+        Collection<DataValue> dataValues = dataValueService.getAllDataValues();
+        
+        assertEquals( 12, dataValues.size() );
+        assertTrue( dataValues.contains( new DataValue( deA, peA, ouA, ocDef, ocDef ) ) );
+        assertTrue( dataValues.contains( new DataValue( deC, peB, ouB, ocDef, ocDef ) ) );
+        assertEquals( 0, mockDataValueBatchHandler.getInserts().size() );
+    }
+
+    @Test
+    public void testImportDataValuesBulkUpdate()
+        throws Exception
+    {
+        sessionFactory.getCurrentSession().flush();
+        
+        ImportOptions options = new ImportOptions().setBulkImport( true );
+        
+        in = new ClassPathResource( "datavalueset/dataValueSetB.xml" ).getInputStream();
+        
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, options );
+
+        assertEquals( 12, summary.getImportCount().getImported() );
+        
+        in = new ClassPathResource( "datavalueset/dataValueSetB.xml" ).getInputStream();
+        
+        summary = dataValueSetService.saveDataValueSet( in, options );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 0, summary.getImportCount().getImported() );
+        assertEquals( 12, summary.getImportCount().getUpdated() );
+        assertEquals( 0, summary.getImportCount().getIgnored() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        
+        assertEquals( 12, dataValueService.getAllDataValues().size() );
+    }
+
+    @Test
+    public void testImportDataValuesBulkDryRun()
+        throws Exception
+    {
+        sessionFactory.getCurrentSession().flush();
+        
+        in = new ClassPathResource( "datavalueset/dataValueSetB.xml" ).getInputStream();
+        
+        ImportOptions options = new ImportOptions().setBulkImport( true ).setDryRun( true );
+        
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, options );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 0, summary.getImportCount().getUpdated() );
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        
+        assertEquals( 0, dataValueService.getAllDataValues().size() );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
@@ -31,12 +31,19 @@ package org.hisp.dhis.dxf2.events;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.events.event.DataValue;
 import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.EventSearchParams;
 import org.hisp.dhis.dxf2.events.event.EventService;
+import org.hisp.dhis.dxf2.events.event.Events;
+import org.hisp.dhis.dxf2.events.event.Note;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummaries;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
@@ -51,8 +58,10 @@ import org.hisp.dhis.user.UserService;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -204,6 +213,112 @@ public class NoRegistrationSingleEventServiceTest
         assertNull( event );
     }
 
+    @Test
+    public void testGetEventsWithPageToken()
+    {
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( ImportStatus.SUCCESS, eventService.addEvent( createEvent( programA.getUid(), organisationUnitA.getUid() ), null ).getStatus() );
+        }
+
+        EventSearchParams params = new EventSearchParams();
+        params.setProgram( programA );
+        params.setOrgUnit( organisationUnitA );
+        params.setPageSize( 2 );
+        params.setTotalPages( true );
+
+        Events first = eventService.getEvents( params );
+
+        assertEquals( 2, first.getEvents().size() );
+        assertNotNull( first.getPager().getNextPageToken() );
+
+        params.setPageToken( first.getPager().getNextPageToken() );
+
+        Events second = eventService.getEvents( params );
+
+        assertEquals( 1, second.getEvents().size() );
+        assertNull( second.getPager().getNextPageToken() );
+        assertTrue( first.getEvents().get( 1 ).getEvent().compareTo( second.getEvents().get( 0 ).getEvent() ) > 0 );
+    }
+
+    @Test
+    public void testGetEventsWithConsumer()
+    {
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( ImportStatus.SUCCESS, eventService.addEvent( createEvent( programA.getUid(), organisationUnitA.getUid() ), null ).getStatus() );
+        }
+
+        EventSearchParams params = new EventSearchParams();
+        params.setProgram( programA );
+        params.setOrgUnit( organisationUnitA );
+        params.setSkipPaging( true );
+
+        List<Event> events = new ArrayList<>();
+
+        eventService.getEvents( params, events::add );
+
+        assertEquals( 3, events.size() );
+        assertEquals( eventService.getEvents( params ).getEvents(), events );
+    }
+
+    @Test
+    public void testAddEventsBulk()
+    {
+        Event existing = createEvent( programA.getUid(), organisationUnitA.getUid() );
+        existing.setEvent( CodeGenerator.generateCode() );
+        assertEquals( ImportStatus.SUCCESS, eventService.addEvent( existing, null ).getStatus() );
+
+        Event eventA = createEvent( programA.getUid(), organisationUnitA.getUid() );
+        eventA.setEvent( CodeGenerator.generateCode() );
+        Note note = new Note();
+        note.setValue( "NoteA" );
+        eventA.getNotes().add( note );
+
+        Event eventB = createEvent( programA.getUid(), organisationUnitA.getUid() );
+        eventB.setStatus( EventStatus.COMPLETED );
+        eventB.getDataValues().add( new DataValue( "InvalidUid1", "20" ) );
+
+        Event eventC = createEvent( programA.getUid(), "InvalidUid2" );
+
+        existing.getDataValues().get( 0 ).setValue( "30" );
+
+        List<Event> events = new ArrayList<>();
+        events.add( eventA );
+        events.add( eventB );
+        events.add( eventC );
+        events.add( existing );
+
+        ImportSummaries importSummaries = eventService.addEvents( events, new ImportOptions().setBulkImport( true ) );
+        List<ImportSummary> summaries = importSummaries.getImportSummaries();
+
+        assertEquals( 4, summaries.size() );
+        assertEquals( ImportStatus.SUCCESS, summaries.get( 0 ).getStatus() );
+        assertEquals( eventA.getEvent(), summaries.get( 0 ).getReference() );
+        assertEquals( 1, summaries.get( 0 ).getImportCount().getImported() );
+        assertEquals( ImportStatus.SUCCESS, summaries.get( 1 ).getStatus() );
+        assertEquals( 1, summaries.get( 1 ).getConflicts().size() );
+        assertEquals( 1, summaries.get( 1 ).getImportCount().getIgnored() );
+        assertEquals( ImportStatus.ERROR, summaries.get( 2 ).getStatus() );
+        assertEquals( ImportStatus.SUCCESS, summaries.get( 3 ).getStatus() );
+        assertEquals( existing.getEvent(), summaries.get( 3 ).getReference() );
+        assertEquals( 1, summaries.get( 3 ).getImportCount().getUpdated() );
+
+        Event event = eventService.getEvent( eventA.getEvent() );
+        assertNotNull( event );
+        assertEquals( "10", event.getDataValues().get( 0 ).getValue() );
+        assertEquals( 1, event.getNotes().size() );
+        assertEquals( "NoteA", event.getNotes().get( 0 ).getValue() );
+
+        event = eventService.getEvent( summaries.get( 1 ).getReference() );
+        assertNotNull( event );
+        assertEquals( EventStatus.COMPLETED, event.getStatus() );
+        assertEquals( 1, event.getDataValues().size() );
+
+        event = eventService.getEvent( existing.getEvent() );
+        assertEquals( "30", event.getDataValues().get( 0 ).getValue() );
+    }
+
     private Event createEvent( String program, String orgUnit )
     {
         Event event = new Event();
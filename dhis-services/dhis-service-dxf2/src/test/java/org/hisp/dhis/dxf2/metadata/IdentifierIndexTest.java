@@ -0,0 +1,219 @@
+package org.hisp.dhis.dxf2.metadata;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.cache.HibernateCacheInvalidationService;
+import org.hisp.dhis.common.IdentifiableProperty;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class IdentifierIndexTest
+    extends DhisTest
+{
+    @Autowired
+    private IdentifierIndex identifierIndex;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private HibernateCacheInvalidationService cacheInvalidationService;
+
+    private DataElement deA;
+    private DataElement deB;
+
+    @Override
+    public void setUpTest()
+    {
+        identifierIndex.clear();
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+
+        dataElementService.addDataElement( deA );
+        dataElementService.addDataElement( deB );
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Test
+    public void testPreheat()
+    {
+        assertFalse( identifierIndex.isPreheated( DataElement.class ) );
+
+        preheat();
+
+        assertTrue( identifierIndex.isPreheated( DataElement.class ) );
+        assertFalse( identifierIndex.isPreheated( OrganisationUnit.class ) );
+
+        assertEquals( Integer.valueOf( deA.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deA.getUid() ) );
+        assertEquals( Integer.valueOf( deB.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deB.getUid() ) );
+        assertEquals( Integer.valueOf( deA.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.CODE, deA.getCode() ) );
+        assertEquals( Integer.valueOf( deB.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.NAME, deB.getName() ) );
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, "deabcdefghX" ) );
+        assertNull( identifierIndex.getId( OrganisationUnit.class, IdentifiableProperty.UID, deA.getUid() ) );
+    }
+
+    @Test
+    public void testTransactionInsert()
+    {
+        preheat();
+
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            DataElement deC = createDataElement( 'C' );
+            dataElementService.addDataElement( deC );
+
+            sessionFactory.getCurrentSession().flush();
+
+            assertEquals( Integer.valueOf( deC.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deC.getUid() ) );
+            assertEquals( Integer.valueOf( deC.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.CODE, deC.getCode() ) );
+
+            return null;
+        } );
+    }
+
+    @Test
+    public void testCommit()
+    {
+        preheat();
+
+        DataElement deC = createDataElement( 'C' );
+
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            dataElementService.addDataElement( deC );
+
+            DataElement dataElement = dataElementService.getDataElement( deA.getId() );
+            dataElement.setName( "DataElementX" );
+            dataElementService.updateDataElement( dataElement );
+
+            dataElementService.deleteDataElement( dataElementService.getDataElement( deB.getId() ) );
+
+            return null;
+        } );
+
+        assertEquals( Integer.valueOf( deC.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deC.getUid() ) );
+        assertEquals( Integer.valueOf( deA.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.NAME, "DataElementX" ) );
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.NAME, "DataElementA" ) );
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deB.getUid() ) );
+    }
+
+    @Test
+    public void testRollback()
+    {
+        preheat();
+
+        DataElement deC = createDataElement( 'C' );
+
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            dataElementService.addDataElement( deC );
+
+            DataElement dataElement = dataElementService.getDataElement( deA.getId() );
+            dataElement.setName( "DataElementX" );
+            dataElementService.updateDataElement( dataElement );
+
+            dataElementService.deleteDataElement( dataElementService.getDataElement( deB.getId() ) );
+
+            sessionFactory.getCurrentSession().flush();
+
+            status.setRollbackOnly();
+
+            return null;
+        } );
+
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deC.getUid() ) );
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.NAME, "DataElementX" ) );
+        assertEquals( Integer.valueOf( deA.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.NAME, "DataElementA" ) );
+        assertEquals( Integer.valueOf( deB.getId() ), identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deB.getUid() ) );
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        preheat();
+
+        identifierIndex.invalidate( DataElement.class );
+
+        assertFalse( identifierIndex.isPreheated( DataElement.class ) );
+    }
+
+    @Test
+    public void testInvalidateFromOtherNode()
+    {
+        preheat();
+
+        cacheInvalidationService.receive( "otherNode\nR\t" + DataElement.class.getName() );
+
+        assertFalse( identifierIndex.isPreheated( DataElement.class ) );
+    }
+
+    @Test
+    public void testClear()
+    {
+        preheat();
+
+        identifierIndex.clear();
+
+        assertFalse( identifierIndex.isPreheated( DataElement.class ) );
+        assertNull( identifierIndex.getId( DataElement.class, IdentifiableProperty.UID, deA.getUid() ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void preheat()
+    {
+        new TransactionTemplate( transactionManager ).execute( status -> {
+            identifierIndex.preheat( DataElement.class );
+            return null;
+        } );
+    }
+}
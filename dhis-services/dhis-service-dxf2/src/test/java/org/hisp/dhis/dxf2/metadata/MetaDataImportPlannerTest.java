@@ -0,0 +1,80 @@
+package org.hisp.dhis.dxf2.metadata;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.option.OptionSet;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.schema.SchemaService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class MetaDataImportPlannerTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private SchemaService schemaService;
+
+    @Test
+    public void testGetLevels()
+    {
+        Schema optionSet = schemaService.getSchema( OptionSet.class );
+        Schema constant = schemaService.getSchema( Constant.class );
+        Schema dataElement = schemaService.getSchema( DataElement.class );
+        Schema dataSet = schemaService.getSchema( DataSet.class );
+
+        List<List<Schema>> levels = MetaDataImportPlanner.getLevels( Arrays.asList( optionSet, constant, dataElement, dataSet ) );
+
+        assertEquals( 3, levels.size() );
+        assertEquals( Arrays.asList( optionSet, constant ), levels.get( 0 ) );
+        assertEquals( Arrays.asList( dataElement ), levels.get( 1 ) );
+        assertEquals( Arrays.asList( dataSet ), levels.get( 2 ) );
+    }
+
+    @Test
+    public void testGetLevelsCircular()
+    {
+        Schema dataElement = schemaService.getSchema( DataElement.class );
+        Schema dataSet = schemaService.getSchema( DataSet.class );
+
+        List<List<Schema>> levels = MetaDataImportPlanner.getLevels( Arrays.asList( dataSet, dataElement ) );
+
+        assertEquals( 2, levels.size() );
+        assertEquals( Arrays.asList( dataSet ), levels.get( 0 ) );
+        assertEquals( Arrays.asList( dataElement ), levels.get( 1 ) );
+    }
+}
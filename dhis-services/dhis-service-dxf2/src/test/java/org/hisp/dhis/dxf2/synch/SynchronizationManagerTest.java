@@ -0,0 +1,233 @@
+package org.hisp.dhis.dxf2.synch;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.configuration.Configuration;
+import org.hisp.dhis.configuration.ConfigurationService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementCategoryOptionCombo;
+import org.hisp.dhis.dataelement.DataElementCategoryService;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.common.JacksonUtils;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.setting.Setting;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class SynchronizationManagerTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private SynchronizationManager synchronizationManager;
+
+    @Autowired
+    private ConfigurationService configurationService;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private DataElementCategoryService categoryService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    private HttpServer server;
+
+    private List<Integer> chunks = new ArrayList<>();
+
+    private int failOnChunk = -1;
+
+    @Override
+    public void setUpTest()
+        throws Exception
+    {
+        server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( "/api/system/ping", exchange -> respond( exchange, "pong" ) );
+        server.createContext( "/api/dataValueSets", this::handleDataValueSet );
+        server.start();
+
+        Configuration config = configurationService.getConfiguration();
+        config.setRemoteServerUrl( "http://localhost:" + server.getAddress().getPort() );
+        config.setRemoteServerUsername( "admin" );
+        config.setRemoteServerPassword( "district" );
+        configurationService.setConfiguration( config );
+
+        systemSettingManager.saveSystemSetting( Setting.DATA_SYNC_CHUNK_SIZE, 2 );
+
+        DataElement deA = createDataElement( 'A' );
+        dataElementService.addDataElement( deA );
+
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        organisationUnitService.addOrganisationUnit( ouA );
+
+        DataElementCategoryOptionCombo ocDef = categoryService.getDefaultDataElementCategoryOptionCombo();
+
+        // All values share last updated time to verify positioning within it
+
+        Date lastUpdated = new DateTime().minusHours( 1 ).toDate();
+
+        for ( String isoPeriod : new String[] { "201501", "201502", "201503", "201504", "201505" } )
+        {
+            Period period = createPeriod( isoPeriod );
+
+            dataValueService.addDataValue( new DataValue( deA, period, ouA, ocDef, ocDef, "10", "admin", lastUpdated, null ) );
+        }
+    }
+
+    @After
+    public void stopServer()
+    {
+        server.stop( 0 );
+    }
+
+    @Test
+    public void testExecuteDataPush()
+    {
+        ImportSummary summary = synchronizationManager.executeDataPush();
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 5, summary.getImportCount().getImported() );
+        assertEquals( 3, chunks.size() );
+        assertEquals( 2, chunks.get( 0 ).intValue() );
+        assertEquals( 2, chunks.get( 1 ).intValue() );
+        assertEquals( 1, chunks.get( 2 ).intValue() );
+
+        SynchronizationMetrics metrics = synchronizationManager.getLastDataPushMetrics();
+
+        assertEquals( 3, metrics.getChunks() );
+        assertEquals( 5, metrics.getDataValues() );
+        assertNotNull( metrics.getEndTime() );
+        assertNotNull( synchronizationManager.getLastSynchSuccess() );
+        assertNull( systemSettingManager.getSystemSetting( Setting.DATA_SYNC_CHECKPOINT ) );
+    }
+
+    @Test
+    public void testResumeDataPush()
+    {
+        failOnChunk = 2;
+
+        ImportSummary summary = synchronizationManager.executeDataPush();
+
+        assertEquals( ImportStatus.ERROR, summary.getStatus() );
+        assertNotNull( systemSettingManager.getSystemSetting( Setting.DATA_SYNC_CHECKPOINT ) );
+
+        failOnChunk = -1;
+        chunks.clear();
+
+        summary = synchronizationManager.executeDataPush();
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+        assertEquals( 2, chunks.size() );
+        assertNull( systemSettingManager.getSystemSetting( Setting.DATA_SYNC_CHECKPOINT ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Stub for the data value set import of the remote server.
+     */
+    private void handleDataValueSet( HttpExchange exchange )
+        throws IOException
+    {
+        InputStream in = exchange.getRequestBody();
+
+        if ( "gzip".equals( exchange.getRequestHeaders().getFirst( "Content-Encoding" ) ) )
+        {
+            in = new GZIPInputStream( in );
+        }
+
+        DataValueSet dataValueSet = JacksonUtils.fromJson( in, DataValueSet.class );
+
+        chunks.add( dataValueSet.getDataValues().size() );
+
+        ImportSummary summary = new ImportSummary( ImportStatus.SUCCESS );
+
+        if ( chunks.size() == failOnChunk )
+        {
+            summary.setStatus( ImportStatus.ERROR );
+        }
+        else
+        {
+            summary.getImportCount().incrementImported( dataValueSet.getDataValues().size() );
+        }
+
+        respond( exchange, JacksonUtils.toJsonAsString( summary ) );
+    }
+
+    private void respond( HttpExchange exchange, String body )
+        throws IOException
+    {
+        byte[] bytes = body.getBytes( "UTF-8" );
+
+        exchange.getResponseHeaders().add( "Content-Type", "application/json" );
+        exchange.sendResponseHeaders( 200, bytes.length );
+
+        try ( OutputStream out = exchange.getResponseBody() )
+        {
+            out.write( bytes );
+        }
+    }
+}
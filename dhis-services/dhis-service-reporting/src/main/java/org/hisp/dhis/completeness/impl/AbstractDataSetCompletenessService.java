@@ -32,6 +32,7 @@ import static org.hisp.dhis.common.IdentifiableObjectUtils.getIdentifiers;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
@@ -106,9 +108,11 @@ public abstract class AbstractDataSetCompletenessService
     // Abstract methods
     // -------------------------------------------------------------------------
 
-    protected abstract int getRegistrations( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods );
-
-    protected abstract int getRegistrationsOnTime( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods );
+    /**
+     * Returns the registrations and registrations on time for each of the given
+     * sources. Sources without registrations may be left out.
+     */
+    protected abstract Map<Integer, DataSetCompletenessResult> getRegistrations( DataSet dataSet, Collection<Integer> sources, Collection<Integer> periods );
 
     protected abstract int getSources( DataSet dataSet, Collection<Integer> relevantSources, Period period );
 
@@ -136,7 +140,7 @@ public abstract class AbstractDataSetCompletenessService
             final List<Integer> periodsBetweenDates = getIdentifiers( 
                 periodService.getPeriodsBetweenDates( dataSet.getPeriodType(), period.getStartDate(), period.getEndDate() ) );
 
-            final Set<Integer> relevantSources = getRelevantSources( dataSet, children, groups );
+            final Set<Integer> relevantSources = getRelevantSources( getDataSetSources( dataSet, groups ), children );
 
             final DataSetCompletenessResult result = new DataSetCompletenessResult();
 
@@ -144,10 +148,9 @@ public abstract class AbstractDataSetCompletenessService
 
             if ( result.getSources() > 0 )
             {
-                result.setName( dataSet.getName() );
-                result.setRegistrations( getRegistrations( dataSet, relevantSources, periodsBetweenDates ) );
-                result.setRegistrationsOnTime( getRegistrationsOnTime( dataSet, relevantSources, periodsBetweenDates ) );
+                addRegistrations( result, getRegistrations( dataSet, relevantSources, periodsBetweenDates ), relevantSources );
 
+                result.setName( dataSet.getName() );
                 result.setDataSetId( dataSet.getId() );
                 result.setPeriodId( periodId );
                 result.setOrganisationUnitId( organisationUnitId );
@@ -174,6 +177,29 @@ public abstract class AbstractDataSetCompletenessService
         final Map<Integer, OrganisationUnit> orgUnits = Maps.uniqueIndex( organisationUnitService.getOrganisationUnits( organisationUnitIds ), OrganisationUnit::getId );
         
         final Set<OrganisationUnitGroup> groups = groupIds != null ? Sets.newHashSet( idObjectManager.getObjects( OrganisationUnitGroup.class, groupIds ) ) : null;
+
+        final OrganisationUnitHierarchy hierarchy = organisationUnitService.getOrganisationUnitHierarchy();
+        
+        final Set<Integer> dataSetSources = getDataSetSources( dataSet, groups );
+
+        // ---------------------------------------------------------------------
+        // Get registrations of all relevant sources with one query and roll
+        // them up to each organisation unit in memory
+        // ---------------------------------------------------------------------
+
+        final Map<Integer, Set<Integer>> relevantSourceMap = new HashMap<>();
+        
+        final Set<Integer> allRelevantSources = new HashSet<>();
+        
+        for ( final Integer unitId : organisationUnitIds )
+        {
+            final Set<Integer> relevantSources = getRelevantSources( dataSetSources, hierarchy.getChildren( unitId ) );
+            
+            relevantSourceMap.put( unitId, relevantSources );
+            allRelevantSources.addAll( relevantSources );
+        }
+        
+        final Map<Integer, DataSetCompletenessResult> registrations = getRegistrations( dataSet, allRelevantSources, periodsBetweenDates );
         
         final List<DataSetCompletenessResult> results = new ArrayList<>();
         
@@ -181,15 +207,22 @@ public abstract class AbstractDataSetCompletenessService
         {
             final OrganisationUnit unit = orgUnits.get( unitId );
 
-            final Set<Integer> children = organisationUnitService.getOrganisationUnitHierarchy().getChildren(
-                unit.getId() );
+            final Set<Integer> relevantSources = relevantSourceMap.get( unitId );
 
-            final Set<Integer> relevantSources = getRelevantSources( dataSet, children, groups );
+            final DataSetCompletenessResult result = new DataSetCompletenessResult();
 
-            final DataSetCompletenessResult result = getDataSetCompleteness( period, periodsBetweenDates, unit, relevantSources, dataSet );
+            result.setName( unit.getName() );
+            result.setSources( getSources( dataSet, relevantSources, period ) );
 
             if ( result.getSources() > 0 )
             {
+                addRegistrations( result, registrations, relevantSources );
+
+                result.setDataSetId( dataSet.getId() );
+                result.setPeriodId( period.getId() );
+                result.setPeriodName( period.getName() );
+                result.setOrganisationUnitId( unit.getId() );
+                
                 results.add( result );
             }
         }
@@ -201,29 +234,31 @@ public abstract class AbstractDataSetCompletenessService
     // Supportive methods
     // -------------------------------------------------------------------------
 
-    private DataSetCompletenessResult getDataSetCompleteness( Period period, Collection<Integer> periodsBetweenDates, OrganisationUnit unit,
-        Collection<Integer> relevantSources, DataSet dataSet )
+    /**
+     * Sums the registrations of the given sources into the given result.
+     */
+    private void addRegistrations( DataSetCompletenessResult result, Map<Integer, DataSetCompletenessResult> registrations, 
+        Collection<Integer> sources )
     {
-        final DataSetCompletenessResult result = new DataSetCompletenessResult();
-
-        result.setName( unit.getName() );
-        result.setSources( getSources( dataSet, relevantSources, period ) );
-
-        if ( result.getSources() > 0 )
+        int registrationCount = 0;
+        int registrationOnTimeCount = 0;
+        
+        for ( Integer source : sources )
         {
-            result.setRegistrations( getRegistrations( dataSet, relevantSources, periodsBetweenDates ) );
-            result.setRegistrationsOnTime( getRegistrationsOnTime( dataSet, relevantSources, periodsBetweenDates ) );
-
-            result.setDataSetId( dataSet.getId() );
-            result.setPeriodId( period.getId() );
-            result.setPeriodName( period.getName() );
-            result.setOrganisationUnitId( unit.getId() );
+            DataSetCompletenessResult registration = registrations.get( source );
+            
+            if ( registration != null )
+            {
+                registrationCount += registration.getRegistrations();
+                registrationOnTimeCount += registration.getRegistrationsOnTime();
+            }
         }
-
-        return result;
+        
+        result.setRegistrations( registrationCount );
+        result.setRegistrationsOnTime( registrationOnTimeCount );
     }
 
-    private Set<Integer> getRelevantSources( DataSet dataSet, Set<Integer> sources, Set<OrganisationUnitGroup> groups )
+    private Set<Integer> getDataSetSources( DataSet dataSet, Set<OrganisationUnitGroup> groups )
     {
         Set<Integer> dataSetSources = new HashSet<>( getIdentifiers( dataSet.getSources() ) );
 
@@ -236,6 +271,13 @@ public abstract class AbstractDataSetCompletenessService
             }
         }
 
-        return Sets.intersection( dataSetSources, sources );
+        return dataSetSources;
+    }
+
+    private Set<Integer> getRelevantSources( Set<Integer> dataSetSources, Set<Integer> sources )
+    {
+        return dataSetSources.size() < sources.size() ? 
+            new HashSet<>( Sets.intersection( dataSetSources, sources ) ) : 
+            new HashSet<>( Sets.intersection( sources, dataSetSources ) );
     }
 }
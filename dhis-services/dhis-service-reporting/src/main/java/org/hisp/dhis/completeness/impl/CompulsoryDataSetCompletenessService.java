@@ -29,7 +29,9 @@ package org.hisp.dhis.completeness.impl;
  */
 
 import java.util.Collection;
+import java.util.Map;
 
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.period.Period;
 
@@ -40,15 +42,9 @@ public class CompulsoryDataSetCompletenessService
     extends AbstractDataSetCompletenessService
 {
     @Override
-    public int getRegistrations( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods )
+    public Map<Integer, DataSetCompletenessResult> getRegistrations( DataSet dataSet, Collection<Integer> sources, Collection<Integer> periods )
     {
-        return completenessStore.getCompulsoryDataElementRegistrations( dataSet, relevantSources, periods );
-    }
-
-    @Override
-    public int getRegistrationsOnTime( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods )
-    {
-        return completenessStore.getCompulsoryDataElementRegistrations( dataSet, relevantSources, periods );
+        return completenessStore.getCompulsoryDataElementRegistrationsBySource( dataSet, periods, sources );
     }
 
     @Override
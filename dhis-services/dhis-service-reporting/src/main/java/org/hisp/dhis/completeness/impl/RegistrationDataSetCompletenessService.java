@@ -28,10 +28,12 @@ package org.hisp.dhis.completeness.impl;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.period.Period;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * @author Lars Helge Overland
@@ -40,15 +42,9 @@ public class RegistrationDataSetCompletenessService
     extends AbstractDataSetCompletenessService
 {
     @Override
-    public int getRegistrations( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods )
+    public Map<Integer, DataSetCompletenessResult> getRegistrations( DataSet dataSet, Collection<Integer> sources, Collection<Integer> periods )
     {
-        return completenessStore.getCompleteDataSetRegistrations( dataSet, periods, relevantSources );
-    }
-
-    @Override
-    public int getRegistrationsOnTime( DataSet dataSet, Collection<Integer> relevantSources, Collection<Integer> periods )
-    {
-        return completenessStore.getCompleteDataSetRegistrationsWithTimeliness( dataSet, periods, relevantSources );
+        return completenessStore.getCompleteDataSetRegistrationsBySource( dataSet, periods, sources );
     }
 
     @Override
@@ -30,11 +30,17 @@ package org.hisp.dhis.completeness.jdbc;
 
 import static org.hisp.dhis.commons.util.TextUtils.getCommaDelimitedString;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.amplecode.quick.StatementHolder;
 import org.amplecode.quick.StatementManager;
+import org.hisp.dhis.completeness.DataSetCompletenessResult;
 import org.hisp.dhis.completeness.DataSetCompletenessStore;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.jdbc.StatementBuilder;
@@ -106,6 +112,27 @@ public class JDBCDataSetCompletenessStore
         return statementManager.getHolder().queryForInteger( sql );
     }
     
+    @Override
+    public Map<Integer, DataSetCompletenessResult> getCompleteDataSetRegistrationsBySource( DataSet dataSet, Collection<Integer> periods, Collection<Integer> sources )
+    {
+        if ( sources == null || sources.isEmpty() || periods == null || periods.isEmpty() )
+        {
+            return new HashMap<>();
+        }
+        
+        final String sql =
+            "SELECT cr.sourceid, COUNT(*) AS registrations, " +
+            "SUM(CASE WHEN cr.date <= " + statementBuilder.getAddDate( "pe.enddate", dataSet.getTimelyDays() ) + " THEN 1 ELSE 0 END) AS ontime " +
+            "FROM completedatasetregistration cr " +
+            "JOIN period pe ON (cr.periodid = pe.periodid) " +
+            "WHERE cr.datasetid = " + dataSet.getId() + " " +
+            "AND cr.periodid IN ( " + getCommaDelimitedString( periods ) + " ) " +
+            "AND cr.sourceid IN ( " + getCommaDelimitedString( sources ) + " ) " +
+            "GROUP BY cr.sourceid";
+        
+        return getResultsBySource( sql );
+    }
+    
     // -------------------------------------------------------------------------
     // Based on compulsory data element operands
     // -------------------------------------------------------------------------
@@ -146,6 +173,31 @@ public class JDBCDataSetCompletenessStore
         return statementManager.getHolder().queryForInteger( sql );
     }
 
+    @Override
+    public Map<Integer, DataSetCompletenessResult> getCompulsoryDataElementRegistrationsBySource( DataSet dataSet, Collection<Integer> periods, Collection<Integer> sources )
+    {
+        if ( sources == null || sources.isEmpty() || periods == null || periods.isEmpty() )
+        {
+            return new HashMap<>();
+        }
+        
+        final int compulsoryElements = dataSet.getCompulsoryDataElementOperands().size();
+        
+        final String sql = 
+            "SELECT sourceid, 1 AS registrations, 1 AS ontime " +
+            "FROM datavalue dv " +
+            "JOIN dataelementoperand deo " +
+            "ON dv.dataelementid=deo.dataelementid AND dv.categoryoptioncomboid=deo.categoryoptioncomboid " +
+            "JOIN datasetoperands dso " +
+            "ON deo.dataelementoperandid=dso.dataelementoperandid " +
+            "WHERE dv.periodid IN ( " + getCommaDelimitedString( periods ) + " ) " +
+            "AND sourceid IN ( " + getCommaDelimitedString( sources ) + " ) " +
+            "AND datasetid = " + dataSet.getId() + " GROUP BY sourceid " +
+            "HAVING COUNT(sourceid) = " + compulsoryElements;
+        
+        return getResultsBySource( sql );
+    }
+    
     // -------------------------------------------------------------------------
     // Based on number of data values
     // -------------------------------------------------------------------------
@@ -167,4 +219,43 @@ public class JDBCDataSetCompletenessStore
         
         return selection;
     }
+    
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Reads results from a query with the columns sourceid, registrations and
+     * ontime.
+     */
+    private Map<Integer, DataSetCompletenessResult> getResultsBySource( String sql )
+    {
+        final Map<Integer, DataSetCompletenessResult> results = new HashMap<>();
+        
+        final StatementHolder holder = statementManager.getHolder();
+        
+        try
+        {
+            final ResultSet resultSet = holder.getStatement().executeQuery( sql );
+            
+            while ( resultSet.next() )
+            {
+                final DataSetCompletenessResult result = new DataSetCompletenessResult();
+                result.setRegistrations( resultSet.getInt( "registrations" ) );
+                result.setRegistrationsOnTime( resultSet.getInt( "ontime" ) );
+                
+                results.put( resultSet.getInt( "sourceid" ), result );
+            }
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to get completeness by source", ex );
+        }
+        finally
+        {
+            holder.close();
+        }
+        
+        return results;
+    }
 }
@@ -42,6 +42,7 @@ public interface SchedulingManager
     String TASK_DATAMART_LAST_YEAR = "dataMartLastYearTask";
     String TASK_ANALYTICS_ALL = "analyticsAllTask";
     String TASK_ANALYTICS_LAST_3_YEARS = "analyticsLast3YearsTask";
+    String TASK_ANALYTICS_INCREMENTAL = "analyticsIncrementalTask";
     String TASK_MONITORING_LAST_DAY = "monitoringLastDayTask";
     String TASK_DATA_SYNCH = "dataSynchTask";
     
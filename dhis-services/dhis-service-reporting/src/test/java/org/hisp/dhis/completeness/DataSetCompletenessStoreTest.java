@@ -0,0 +1,147 @@
+package org.hisp.dhis.completeness;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Map;
+
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.dataset.CompleteDataSetRegistration;
+import org.hisp.dhis.dataset.CompleteDataSetRegistrationService;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.collect.Sets;
+
+public class DataSetCompletenessStoreTest
+    extends DhisTest
+{
+    @Autowired
+    private DataSetCompletenessStore completenessStore;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DataSetService dataSetService;
+
+    @Autowired
+    private CompleteDataSetRegistrationService registrationService;
+
+    private PeriodType periodType;
+    
+    private Period periodA;
+    private Period periodB;
+    
+    private OrganisationUnit unitA;
+    private OrganisationUnit unitB;
+    private OrganisationUnit unitC;
+    
+    private DataSet dataSetA;
+
+    // -------------------------------------------------------------------------
+    // Fixture
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void setUpTest()
+    {
+        periodType = new MonthlyPeriodType();
+        
+        periodA = createPeriod( periodType, getDate( 2000, 1, 1 ), getDate( 2000, 1, 31 ) );
+        periodB = createPeriod( periodType, getDate( 2000, 2, 1 ), getDate( 2000, 2, 29 ) );
+        
+        periodService.addPeriod( periodA );
+        periodService.addPeriod( periodB );
+        
+        unitA = createOrganisationUnit( 'A' );
+        unitB = createOrganisationUnit( 'B' );
+        unitC = createOrganisationUnit( 'C' );
+        
+        organisationUnitService.addOrganisationUnit( unitA );
+        organisationUnitService.addOrganisationUnit( unitB );
+        organisationUnitService.addOrganisationUnit( unitC );
+        
+        dataSetA = createDataSet( 'A', periodType );
+        dataSetA.setTimelyDays( 10 );
+        dataSetA.addOrganisationUnit( unitA );
+        dataSetA.addOrganisationUnit( unitB );
+        dataSetA.addOrganisationUnit( unitC );
+        
+        dataSetService.addDataSet( dataSetA );
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testGetCompleteDataSetRegistrationsBySource()
+    {
+        registrationService.saveCompleteDataSetRegistration( new CompleteDataSetRegistration( dataSetA, periodA, unitA, null, getDate( 2000, 2, 5 ), "" ) );
+        registrationService.saveCompleteDataSetRegistration( new CompleteDataSetRegistration( dataSetA, periodB, unitA, null, getDate( 2000, 3, 25 ), "" ) );
+        registrationService.saveCompleteDataSetRegistration( new CompleteDataSetRegistration( dataSetA, periodA, unitB, null, getDate( 2000, 2, 25 ), "" ) );
+        
+        Map<Integer, DataSetCompletenessResult> results = completenessStore.getCompleteDataSetRegistrationsBySource( dataSetA, 
+            Sets.newHashSet( periodA.getId(), periodB.getId() ), Sets.newHashSet( unitA.getId(), unitB.getId(), unitC.getId() ) );
+        
+        assertEquals( 2, results.size() );
+        assertEquals( 2, results.get( unitA.getId() ).getRegistrations() );
+        assertEquals( 1, results.get( unitA.getId() ).getRegistrationsOnTime() );
+        assertEquals( 1, results.get( unitB.getId() ).getRegistrations() );
+        assertEquals( 0, results.get( unitB.getId() ).getRegistrationsOnTime() );
+        assertFalse( results.containsKey( unitC.getId() ) );
+        
+        results = completenessStore.getCompleteDataSetRegistrationsBySource( dataSetA, 
+            Sets.newHashSet( periodA.getId() ), Sets.newHashSet( unitA.getId() ) );
+        
+        assertEquals( 1, results.size() );
+        assertEquals( 1, results.get( unitA.getId() ).getRegistrations() );
+        assertEquals( 1, results.get( unitA.getId() ).getRegistrationsOnTime() );
+    }
+}
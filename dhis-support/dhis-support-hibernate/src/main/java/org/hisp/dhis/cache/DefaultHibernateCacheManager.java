@@ -48,6 +48,13 @@ public class DefaultHibernateCacheManager
         this.sessionFactory = sessionFactory;
     }
 
+    private CacheInvalidationService cacheInvalidationService;
+
+    public void setCacheInvalidationService( CacheInvalidationService cacheInvalidationService )
+    {
+        this.cacheInvalidationService = cacheInvalidationService;
+    }
+
     // -------------------------------------------------------------------------
     // HibernateCacheManager implementation
     // -------------------------------------------------------------------------
@@ -57,6 +64,8 @@ public class DefaultHibernateCacheManager
     {
         sessionFactory.getCache().evictEntityRegions();
         sessionFactory.getCache().evictCollectionRegions();
+        
+        cacheInvalidationService.invalidateObjects();
      }
     
     @Override
@@ -64,6 +73,8 @@ public class DefaultHibernateCacheManager
     {
         sessionFactory.getCache().evictDefaultQueryRegion();
         sessionFactory.getCache().evictQueryRegions();
+        
+        cacheInvalidationService.invalidateQueries();
     }
     
     @Override
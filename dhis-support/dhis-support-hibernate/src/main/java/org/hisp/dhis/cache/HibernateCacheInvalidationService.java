@@ -0,0 +1,589 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Cache;
+import org.hibernate.MappingException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+
+/**
+ * Cache invalidation service which collects entity and collection changes
+ * through Hibernate event listeners and broadcasts them when the transaction
+ * commits. Changes to cached entities and collections are sent per object,
+ * changes to uncached ones once per entity name or collection role, as other
+ * nodes only need them for query spaces and listeners. Invalidations received
+ * from other nodes are evicted from the second-level cache, the query spaces
+ * of the affected tables are invalidated, and the invalidations are passed on
+ * to the registered listeners.
+ * <p>
+ * A message consists of the identifier of the sending node on the first line
+ * followed by one invalidation per line. Large transactions are collapsed into
+ * region invalidations.
+ */
+public class HibernateCacheInvalidationService
+    implements CacheInvalidationService
+{
+    private static final Log log = LogFactory.getLog( HibernateCacheInvalidationService.class );
+
+    private static final String ENTITY = "E";
+    private static final String COLLECTION = "C";
+    private static final String REGION = "R";
+    private static final String UNCACHED = "U";
+    private static final String OBJECTS = "O";
+    private static final String QUERIES = "Q";
+
+    private static final String SEPARATOR = "\t";
+    private static final String LINE_SEPARATOR = "\n";
+
+    private static final int MAX_MESSAGE_LINES = 200;
+    private static final int MAX_TRANSACTION_LINES = 1000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private boolean started;
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory( SessionFactory sessionFactory )
+    {
+        this.sessionFactory = sessionFactory;
+    }
+
+    private CacheInvalidationTransport transport;
+
+    /**
+     * Sets the transport. Replacing the transport of a started service stops
+     * the current transport and starts the given one.
+     *
+     * @param transport the transport.
+     */
+    public synchronized void setTransport( CacheInvalidationTransport transport )
+    {
+        if ( started )
+        {
+            this.transport.stop();
+            transport.start( this::receive );
+        }
+
+        this.transport = transport;
+    }
+
+    // -------------------------------------------------------------------------
+    // Lifecycle
+    // -------------------------------------------------------------------------
+
+    @PostConstruct
+    public synchronized void init()
+    {
+        EventListenerRegistry registry = ((SessionFactoryImpl) sessionFactory).getServiceRegistry()
+            .getService( EventListenerRegistry.class );
+
+        registry.getEventListenerGroup( EventType.POST_INSERT ).appendListener( postInsertEventListener );
+        registry.getEventListenerGroup( EventType.POST_UPDATE ).appendListener( postUpdateEventListener );
+        registry.getEventListenerGroup( EventType.POST_DELETE ).appendListener( postDeleteEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_RECREATE ).appendListener( postCollectionRecreateEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_UPDATE ).appendListener( postCollectionUpdateEventListener );
+        registry.getEventListenerGroup( EventType.POST_COLLECTION_REMOVE ).appendListener( postCollectionRemoveEventListener );
+
+        transport.start( this::receive );
+
+        started = true;
+    }
+
+    @PreDestroy
+    public synchronized void destroy()
+    {
+        transport.stop();
+
+        started = false;
+    }
+
+    // -------------------------------------------------------------------------
+    // CacheInvalidationService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void invalidateObjects()
+    {
+        broadcast( Collections.singleton( OBJECTS ) );
+    }
+
+    @Override
+    public void invalidateQueries()
+    {
+        broadcast( Collections.singleton( QUERIES ) );
+    }
+
+    @Override
+    public void invalidateRegion( String region )
+    {
+        broadcast( Collections.singleton( REGION + SEPARATOR + region ) );
+    }
+
+    @Override
+    public void addListener( CacheInvalidationListener listener )
+    {
+        listeners.add( listener );
+    }
+
+    // -------------------------------------------------------------------------
+    // Event listeners
+    // -------------------------------------------------------------------------
+
+    private final PostInsertEventListener postInsertEventListener = event -> 
+        addEntityAfterCommit( event.getPersister(), event.getId() );
+
+    private final PostUpdateEventListener postUpdateEventListener = event -> 
+        addEntityAfterCommit( event.getPersister(), event.getId() );
+
+    private final PostDeleteEventListener postDeleteEventListener = event -> 
+        addEntityAfterCommit( event.getPersister(), event.getId() );
+
+    private final PostCollectionRecreateEventListener postCollectionRecreateEventListener = this::addCollectionAfterCommit;
+
+    private final PostCollectionUpdateEventListener postCollectionUpdateEventListener = this::addCollectionAfterCommit;
+
+    private final PostCollectionRemoveEventListener postCollectionRemoveEventListener = this::addCollectionAfterCommit;
+
+    // -------------------------------------------------------------------------
+    // Sending
+    // -------------------------------------------------------------------------
+
+    private void addEntityAfterCommit( EntityPersister persister, Serializable id )
+    {
+        if ( persister.hasCache() )
+        {
+            addAfterCommit( getInvalidation( ENTITY, persister.getEntityName(), id ) );
+        }
+        else
+        {
+            addAfterCommit( UNCACHED + SEPARATOR + persister.getEntityName() );
+        }
+    }
+
+    private void addCollectionAfterCommit( AbstractCollectionEvent event )
+    {
+        String role = event.getCollection().getRole();
+
+        if ( role == null )
+        {
+            return;
+        }
+
+        if ( ((SessionFactoryImplementor) sessionFactory).getCollectionPersister( role ).hasCache() )
+        {
+            addAfterCommit( getInvalidation( COLLECTION, role, event.getAffectedOwnerIdOrNull() ) );
+        }
+        else
+        {
+            addAfterCommit( UNCACHED + SEPARATOR + role );
+        }
+    }
+
+    /**
+     * Returns an invalidation of the given entity or collection. Composite
+     * identifiers cannot be rendered safely during a flush, as their toString
+     * may access the session, hence the whole region is invalidated for those.
+     */
+    private String getInvalidation( String type, String name, Serializable id )
+    {
+        if ( id instanceof Number || id instanceof String )
+        {
+            return type + SEPARATOR + name + SEPARATOR + id;
+        }
+
+        return REGION + SEPARATOR + name;
+    }
+
+    /**
+     * Broadcasts the given invalidation when the current transaction commits,
+     * or immediately if there is no transaction. Invalidations are collected
+     * per transaction and sent together.
+     */
+    @SuppressWarnings( "unchecked" )
+    private void addAfterCommit( String invalidation )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            broadcast( Collections.singleton( invalidation ) );
+            return;
+        }
+
+        Set<String> invalidations = (Set<String>) TransactionSynchronizationManager.getResource( this );
+
+        if ( invalidations == null )
+        {
+            Set<String> transactionInvalidations = new LinkedHashSet<>();
+
+            TransactionSynchronizationManager.bindResource( this, transactionInvalidations );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( HibernateCacheInvalidationService.this );
+
+                    if ( TransactionSynchronization.STATUS_COMMITTED == status )
+                    {
+                        broadcast( transactionInvalidations );
+                    }
+                }
+            } );
+
+            invalidations = transactionInvalidations;
+        }
+
+        invalidations.add( invalidation );
+    }
+
+    private void broadcast( Collection<String> invalidations )
+    {
+        if ( invalidations.size() > MAX_TRANSACTION_LINES )
+        {
+            invalidations = getRegionInvalidations( invalidations );
+        }
+
+        for ( List<String> lines : Iterables.partition( invalidations, MAX_MESSAGE_LINES ) )
+        {
+            try
+            {
+                transport.send( nodeId + LINE_SEPARATOR + Joiner.on( LINE_SEPARATOR ).join( lines ) );
+            }
+            catch ( RuntimeException ex )
+            {
+                log.warn( "Could not send cache invalidation message", ex );
+            }
+        }
+    }
+
+    /**
+     * Replaces entity and collection invalidations with invalidations of the
+     * regions they belong to.
+     */
+    private Set<String> getRegionInvalidations( Collection<String> invalidations )
+    {
+        Set<String> regions = new LinkedHashSet<>();
+
+        for ( String invalidation : invalidations )
+        {
+            String[] parts = invalidation.split( SEPARATOR );
+
+            boolean object = ENTITY.equals( parts[0] ) || COLLECTION.equals( parts[0] );
+
+            regions.add( object ? REGION + SEPARATOR + parts[1] : invalidation );
+        }
+
+        return regions;
+    }
+
+    // -------------------------------------------------------------------------
+    // Receiving
+    // -------------------------------------------------------------------------
+
+    /**
+     * Applies the invalidations of the given message to the local caches.
+     * Query results are invalidated for the query spaces of the affected
+     * entities and collections only, and entirely only for object and query
+     * invalidations. Messages sent by this node are ignored.
+     *
+     * @param message the message.
+     */
+    public void receive( String message )
+    {
+        String[] lines = message.split( LINE_SEPARATOR );
+
+        if ( nodeId.equals( lines[0] ) )
+        {
+            return;
+        }
+
+        Cache cache = sessionFactory.getCache();
+        Set<Class<?>> classes = new HashSet<>();
+        Set<String> regions = new HashSet<>();
+        Set<Serializable> spaces = new HashSet<>();
+        boolean objects = false;
+        boolean queries = false;
+
+        for ( int i = 1; i < lines.length; i++ )
+        {
+            String[] parts = lines[i].split( SEPARATOR, -1 );
+
+            try
+            {
+                if ( ENTITY.equals( parts[0] ) )
+                {
+                    ClassMetadata metadata = sessionFactory.getClassMetadata( parts[1] );
+
+                    if ( metadata != null )
+                    {
+                        evictEntity( cache, parts[1], getId( metadata.getIdentifierType(), parts[2] ) );
+                        classes.add( addEntitySpaces( parts[1], spaces ) );
+                    }
+                }
+                else if ( COLLECTION.equals( parts[0] ) )
+                {
+                    CollectionPersister persister = ((SessionFactoryImplementor) sessionFactory).getCollectionPersister( parts[1] );
+
+                    evictCollection( cache, parts[1], getId( persister.getKeyType(), parts[2] ) );
+                    classes.add( addCollectionSpaces( parts[1], spaces ) );
+                }
+                else if ( UNCACHED.equals( parts[0] ) )
+                {
+                    boolean entity = sessionFactory.getClassMetadata( parts[1] ) != null;
+
+                    classes.add( entity ? addEntitySpaces( parts[1], spaces ) : addCollectionSpaces( parts[1], spaces ) );
+                }
+                else if ( REGION.equals( parts[0] ) )
+                {
+                    Class<?> clazz = evictRegion( cache, parts[1], spaces );
+
+                    if ( clazz != null )
+                    {
+                        classes.add( clazz );
+                    }
+                    else
+                    {
+                        regions.add( parts[1] );
+                    }
+                }
+                else if ( OBJECTS.equals( parts[0] ) )
+                {
+                    cache.evictEntityRegions();
+                    cache.evictCollectionRegions();
+                    objects = true;
+                    queries = true;
+                }
+                else if ( QUERIES.equals( parts[0] ) )
+                {
+                    queries = true;
+                }
+            }
+            catch ( MappingException | IndexOutOfBoundsException | NumberFormatException ex )
+            {
+                log.warn( "Ignoring invalid cache invalidation: " + lines[i] );
+            }
+        }
+
+        if ( queries )
+        {
+            cache.evictDefaultQueryRegion();
+            cache.evictQueryRegions();
+        }
+        else
+        {
+            invalidateSpaces( spaces );
+        }
+
+        if ( objects )
+        {
+            listeners.forEach( listener -> listener.invalidate( null ) );
+        }
+        else
+        {
+            classes.remove( null );
+            classes.forEach( clazz -> listeners.forEach( listener -> listener.invalidate( clazz ) ) );
+        }
+
+        regions.forEach( region -> listeners.forEach( listener -> listener.invalidateRegion( region ) ) );
+    }
+
+    private void evictEntity( Cache cache, String entityName, Serializable id )
+    {
+        if ( id != null )
+        {
+            cache.evictEntity( entityName, id );
+        }
+        else
+        {
+            cache.evictEntityRegion( entityName );
+        }
+    }
+
+    private void evictCollection( Cache cache, String role, Serializable id )
+    {
+        if ( id != null )
+        {
+            cache.evictCollection( role, id );
+        }
+        else
+        {
+            cache.evictCollectionRegion( role );
+        }
+    }
+
+    /**
+     * Evicts the entity, collection or query region with the given name and
+     * adds the query spaces of an entity or collection region to the given
+     * spaces. Returns the class of the objects in the region, or null if the
+     * region is a query region.
+     */
+    private Class<?> evictRegion( Cache cache, String region, Set<Serializable> spaces )
+    {
+        if ( sessionFactory.getClassMetadata( region ) != null )
+        {
+            cache.evictEntityRegion( region );
+            return addEntitySpaces( region, spaces );
+        }
+
+        if ( sessionFactory.getCollectionMetadata( region ) != null )
+        {
+            cache.evictCollectionRegion( region );
+            return addCollectionSpaces( region, spaces );
+        }
+
+        cache.evictQueryRegion( region );
+        return null;
+    }
+
+    /**
+     * Adds the query spaces of the given entity to the given spaces and
+     * returns the mapped class of the entity.
+     */
+    private Class<?> addEntitySpaces( String entityName, Set<Serializable> spaces )
+    {
+        EntityPersister persister = ((SessionFactoryImplementor) sessionFactory).getEntityPersister( entityName );
+
+        Collections.addAll( spaces, persister.getQuerySpaces() );
+
+        return persister.getMappedClass();
+    }
+
+    /**
+     * Adds the query spaces of the given collection to the given spaces and
+     * returns the mapped class of the collection owner.
+     */
+    private Class<?> addCollectionSpaces( String role, Set<Serializable> spaces )
+    {
+        CollectionPersister persister = ((SessionFactoryImplementor) sessionFactory).getCollectionPersister( role );
+
+        Collections.addAll( spaces, persister.getCollectionSpaces() );
+
+        return persister.getOwnerEntityPersister().getMappedClass();
+    }
+
+    /**
+     * Invalidates the given query spaces in the update timestamps cache, so
+     * that cached query results which read from them are discarded. Query
+     * results on other tables are kept.
+     */
+    private void invalidateSpaces( Set<Serializable> spaces )
+    {
+        UpdateTimestampsCache timestamps = ((SessionFactoryImplementor) sessionFactory).getUpdateTimestampsCache();
+
+        if ( timestamps == null || spaces.isEmpty() )
+        {
+            return;
+        }
+
+        Session session = sessionFactory.openSession();
+
+        try
+        {
+            timestamps.invalidate( spaces.toArray( new Serializable[spaces.size()] ), (SessionImplementor) session );
+        }
+        finally
+        {
+            session.close();
+        }
+    }
+
+    /**
+     * Parses the given identifier for the given identifier type. Returns null
+     * if the identifier type is not a simple type.
+     */
+    private Serializable getId( Type type, String value )
+    {
+        if ( value == null || value.isEmpty() || "null".equals( value ) )
+        {
+            return null;
+        }
+
+        Class<?> clazz = type.getReturnedClass();
+
+        if ( Integer.class.equals( clazz ) )
+        {
+            return Integer.valueOf( value );
+        }
+        else if ( Long.class.equals( clazz ) )
+        {
+            return Long.valueOf( value );
+        }
+        else if ( String.class.equals( clazz ) )
+        {
+            return value;
+        }
+
+        return null;
+    }
+}
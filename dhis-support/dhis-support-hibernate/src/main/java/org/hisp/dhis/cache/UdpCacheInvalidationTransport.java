@@ -0,0 +1,277 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.hibernate.HibernateConfigurationProvider;
+
+/**
+ * Transport which sends messages as UDP datagrams to the cluster members
+ * listed in the configuration, and receives messages on the configured
+ * address and port. The transport is disabled if no members are configured.
+ * Example configuration in hibernate.properties:
+ *
+ * <pre>
+ * cluster.members = 10.0.0.11:4711,10.0.0.12:4711
+ * cluster.address = 10.0.0.11
+ * cluster.port = 4711
+ * cluster.secret = xxxxxxxx
+ * </pre>
+ *
+ * Every datagram is signed with an HMAC-SHA256 of the message keyed with the
+ * shared secret. Datagrams which are not sent from the address and port of a
+ * configured member, or which fail the signature check, are dropped.
+ *
+ * Delivery is best effort, lost datagrams leave entries in the remote caches
+ * until they expire.
+ */
+public class UdpCacheInvalidationTransport
+    implements CacheInvalidationTransport
+{
+    private static final Log log = LogFactory.getLog( UdpCacheInvalidationTransport.class );
+
+    private static final String KEY_MEMBERS = "cluster.members";
+    private static final String KEY_ADDRESS = "cluster.address";
+    private static final String KEY_PORT = "cluster.port";
+    private static final String KEY_SECRET = "cluster.secret";
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int DEFAULT_PORT = 4711;
+    private static final int MAC_LENGTH = 32;
+    private static final int MAX_PACKET_SIZE = 65507;
+
+    private DatagramSocket socket;
+
+    private SecretKeySpec key;
+
+    private List<InetSocketAddress> members = new ArrayList<>();
+
+    // -------------------------------------------------------------------------
+    // Dependencies
+    // -------------------------------------------------------------------------
+
+    private HibernateConfigurationProvider hibernateConfigurationProvider;
+
+    public void setHibernateConfigurationProvider( HibernateConfigurationProvider hibernateConfigurationProvider )
+    {
+        this.hibernateConfigurationProvider = hibernateConfigurationProvider;
+    }
+
+    // -------------------------------------------------------------------------
+    // CacheInvalidationTransport implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public synchronized void start( Consumer<String> receiver )
+    {
+        String memberList = hibernateConfigurationProvider.getConfiguration().getProperty( KEY_MEMBERS );
+        String address = hibernateConfigurationProvider.getConfiguration().getProperty( KEY_ADDRESS );
+        String port = hibernateConfigurationProvider.getConfiguration().getProperty( KEY_PORT );
+        String secret = hibernateConfigurationProvider.getConfiguration().getProperty( KEY_SECRET );
+
+        if ( StringUtils.isBlank( memberList ) )
+        {
+            log.info( "No cluster members configured, cache invalidation transport is disabled" );
+            return;
+        }
+
+        if ( StringUtils.isBlank( address ) || StringUtils.isBlank( secret ) )
+        {
+            throw new IllegalStateException( "Cluster members are configured, but " + KEY_ADDRESS + " or " + KEY_SECRET + " is missing" );
+        }
+
+        key = new SecretKeySpec( secret.trim().getBytes( StandardCharsets.UTF_8 ), MAC_ALGORITHM );
+
+        for ( String member : memberList.split( "," ) )
+        {
+            String[] hostPort = member.trim().split( ":" );
+
+            members.add( new InetSocketAddress( hostPort[0], hostPort.length > 1 ? Integer.parseInt( hostPort[1] ) : DEFAULT_PORT ) );
+        }
+
+        try
+        {
+            socket = new DatagramSocket( new InetSocketAddress( address.trim(), 
+                StringUtils.isNotBlank( port ) ? Integer.parseInt( port.trim() ) : DEFAULT_PORT ) );
+        }
+        catch ( SocketException ex )
+        {
+            throw new IllegalStateException( "Could not open cache invalidation socket", ex );
+        }
+
+        DatagramSocket receiveSocket = socket;
+
+        Thread thread = new Thread( () -> {
+            byte[] buffer = new byte[MAX_PACKET_SIZE];
+
+            while ( !receiveSocket.isClosed() )
+            {
+                try
+                {
+                    DatagramPacket packet = new DatagramPacket( buffer, buffer.length );
+                    receiveSocket.receive( packet );
+
+                    String message = verify( packet );
+
+                    if ( message != null )
+                    {
+                        receiver.accept( message );
+                    }
+                }
+                catch ( IOException ex )
+                {
+                    if ( !receiveSocket.isClosed() )
+                    {
+                        log.warn( "Could not receive cache invalidation message", ex );
+                    }
+                }
+                catch ( RuntimeException ex )
+                {
+                    log.warn( "Could not apply cache invalidation message", ex );
+                }
+            }
+        }, "cache-invalidation-receiver" );
+
+        thread.setDaemon( true );
+        thread.start();
+
+        log.info( "Cache invalidation transport listening on " + socket.getLocalSocketAddress() + " with members " + members );
+    }
+
+    @Override
+    public void send( String message )
+    {
+        DatagramSocket sendSocket = socket;
+
+        if ( sendSocket == null )
+        {
+            return;
+        }
+
+        byte[] payload = message.getBytes( StandardCharsets.UTF_8 );
+        byte[] data = new byte[MAC_LENGTH + payload.length];
+
+        System.arraycopy( sign( payload, 0, payload.length ), 0, data, 0, MAC_LENGTH );
+        System.arraycopy( payload, 0, data, MAC_LENGTH, payload.length );
+
+        if ( data.length > MAX_PACKET_SIZE )
+        {
+            log.warn( "Cache invalidation message of " + data.length + " bytes is too large, dropping" );
+            return;
+        }
+
+        for ( InetSocketAddress member : members )
+        {
+            try
+            {
+                sendSocket.send( new DatagramPacket( data, data.length, member ) );
+            }
+            catch ( IOException ex )
+            {
+                log.warn( "Could not send cache invalidation message to " + member, ex );
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop()
+    {
+        if ( socket != null )
+        {
+            socket.close();
+            socket = null;
+        }
+
+        members.clear();
+        key = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the message of the given packet, or null if the packet was not
+     * sent by a member or its signature is not valid.
+     */
+    private String verify( DatagramPacket packet )
+    {
+        if ( !members.contains( packet.getSocketAddress() ) )
+        {
+            log.warn( "Dropping cache invalidation message from " + packet.getSocketAddress() + " which is not a cluster member" );
+            return null;
+        }
+
+        int offset = packet.getOffset() + MAC_LENGTH;
+        int length = packet.getLength() - MAC_LENGTH;
+
+        if ( length < 0 || !MessageDigest.isEqual( sign( packet.getData(), offset, length ), 
+            Arrays.copyOfRange( packet.getData(), packet.getOffset(), offset ) ) )
+        {
+            log.warn( "Dropping cache invalidation message from " + packet.getSocketAddress() + " with invalid signature" );
+            return null;
+        }
+
+        return new String( packet.getData(), offset, length, StandardCharsets.UTF_8 );
+    }
+
+    private byte[] sign( byte[] data, int offset, int length )
+    {
+        try
+        {
+            Mac mac = Mac.getInstance( MAC_ALGORITHM );
+            mac.init( key );
+            mac.update( data, offset, length );
+            return mac.doFinal();
+        }
+        catch ( GeneralSecurityException ex )
+        {
+            throw new IllegalStateException( "Could not sign cache invalidation message", ex );
+        }
+    }
+}
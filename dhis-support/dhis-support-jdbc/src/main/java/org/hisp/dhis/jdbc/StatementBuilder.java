@@ -110,6 +110,33 @@ public interface StatementBuilder
      */
     String getTableOptions( boolean autoVacuum );
     
+    /**
+     * Returns a statement which creates a temporary table with the given name
+     * and column definitions unless the table already exists. The table is
+     * only visible to the current session and is not written to the transaction
+     * log where the database supports it.
+     * 
+     * @param table the name of the table.
+     * @param columns the comma separated column definitions.
+     * @return a create temporary table statement.
+     */
+    String getCreateTemporaryTable( String table, String columns );
+    
+    /**
+     * Returns a statement which updates the given columns of the target table
+     * with the values of the matching rows in the source table. Rows are matched
+     * on the given key columns. The condition restricts the source rows and may
+     * refer to the source table through the alias "s".
+     * 
+     * @param target the table to update.
+     * @param source the table to read values from.
+     * @param keyColumns the columns to match rows on.
+     * @param columns the columns to update.
+     * @param condition the condition for the source rows.
+     * @return an update statement.
+     */
+    String getUpdateFromTable( String target, String source, List<String> keyColumns, List<String> columns, String condition );
+    
     /**
      * Returns the name of a double column type.
      */
@@ -136,6 +163,30 @@ public interface StatementBuilder
      */
     String getRegexpWordEnd();
     
+    /**
+     * Returns statements which create an index supporting case insensitive
+     * substring and regular expression matching on the lower case values of
+     * the given column, which is lower(column) like '%value%' and
+     * lower(column) [regexp] 'value'. Returns an empty list if the database
+     * does not support such indexes. The index is created without locking
+     * the table against writes where supported, which requires that the
+     * statements are executed outside of a transaction.
+     * 
+     * @param index the name of the index.
+     * @param table the name of the table.
+     * @param column the name of the column.
+     * @return a list of statements.
+     */
+    List<String> getCreateTextSearchIndex( String index, String table, String column );
+    
+    /**
+     * Returns a query which returns the start time of the oldest transaction
+     * currently running against the database, excluding the transaction of
+     * the current connection. Returns null if the database does not support
+     * such queries.
+     */
+    String getOldestTransactionStart();
+    
     /**
      * Creates a SELECT statement returning the identifier of the given Period.
      * 
@@ -28,9 +28,14 @@ package org.hisp.dhis.jdbc.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.period.Period;
 
+import static org.hisp.dhis.commons.util.TextUtils.removeLastAnd;
+import static org.hisp.dhis.commons.util.TextUtils.removeLastComma;
 import static org.hisp.dhis.system.util.DateUtils.getSqlDateString;
 
 /**
@@ -81,6 +86,39 @@ public abstract class AbstractStatementBuilder
         return "VARBINARY(1000000)";
     }
 
+    @Override
+    public String getCreateTemporaryTable( String table, String columns )
+    {
+        return "create temporary table if not exists " + table + " (" + columns + ")";
+    }
+
+    @Override
+    public List<String> getCreateTextSearchIndex( String index, String table, String column )
+    {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public String getOldestTransactionStart()
+    {
+        return null;
+    }
+
+    @Override
+    public String getUpdateFromTable( String target, String source, List<String> keyColumns, List<String> columns, String condition )
+    {
+        String match = getMatchingKeyColumns( target, keyColumns );
+        
+        String sql = "update " + target + " set ";
+        
+        for ( String column : columns )
+        {
+            sql += column + " = (select s." + column + " from " + source + " s where " + match + "), ";
+        }
+        
+        return removeLastComma( sql ) + " where exists (select 1 from " + source + " s where " + match + " and " + condition + ")";
+    }
+
     @Override
     public String getPeriodIdentifierStatement( Period period )
     {
@@ -122,4 +160,24 @@ public abstract class AbstractStatementBuilder
     {
         return "alter table " + table + " modify column " + column + " " + type + " null;";
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a condition which matches the given key columns of the source
+     * table aliased "s" with the given target table.
+     */
+    protected String getMatchingKeyColumns( String target, List<String> keyColumns )
+    {
+        String match = "";
+        
+        for ( String column : keyColumns )
+        {
+            match += "s." + column + " = " + target + "." + column + " and ";
+        }
+        
+        return removeLastAnd( match );
+    }
 }
@@ -60,6 +60,12 @@ public class H2StatementBuilder
         return "";
     }
 
+    @Override
+    public String getCreateTemporaryTable( String table, String columns )
+    {
+        return "create local temporary table if not exists " + table + " (" + columns + ") transactional";
+    }
+
     @Override
     public String getRegexpMatch()
     {
@@ -28,8 +28,11 @@ package org.hisp.dhis.jdbc.statementbuilder;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.hisp.dhis.commons.util.TextUtils;
+
 /**
  * @author Lars Helge Overland
  */
@@ -84,6 +87,19 @@ public class PostgreSQLStatementBuilder
         return sql;
     }
     
+    @Override
+    public String getUpdateFromTable( String target, String source, List<String> keyColumns, List<String> columns, String condition )
+    {
+        String sql = "update " + target + " set ";
+        
+        for ( String column : columns )
+        {
+            sql += column + " = s." + column + ", ";
+        }
+        
+        return TextUtils.removeLastComma( sql ) + " from " + source + " s where " + getMatchingKeyColumns( target, keyColumns ) + " and " + condition;
+    }
+    
     @Override
     public String getRegexpMatch()
     {
@@ -102,6 +118,23 @@ public class PostgreSQLStatementBuilder
         return "\\M";
     }
     
+    @Override
+    public List<String> getCreateTextSearchIndex( String index, String table, String column )
+    {
+        List<String> statements = new ArrayList<>();
+        statements.add( "create extension if not exists pg_trgm" );
+        statements.add( "create index concurrently " + index + " on " + table + " using gin (lower(" + column + ") gin_trgm_ops)" );
+        
+        return statements;
+    }
+    
+    @Override
+    public String getOldestTransactionStart()
+    {
+        return "select min(xact_start) from pg_stat_activity " +
+            "where datname = current_database() and pid <> pg_backend_pid() and xact_start is not null";
+    }
+    
     @Override
     public String getDeleteZeroDataValues()
     {
@@ -0,0 +1,1425 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.system.util.MathUtils.getRounded;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.adapter.JacksonRowDataSerializer;
+import org.hisp.dhis.common.view.DetailedView;
+import org.hisp.dhis.system.util.MathUtils;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Grid implementation which stores values in typed column vectors rather than
+ * in lists of rows. Columns holding only double values are stored in primitive
+ * arrays, other columns are dictionary encoded as int codes, and columns with
+ * mostly distinct values fall back to plain object arrays. This keeps large
+ * analytics and SQL view results compact and avoids one list per row.
+ * 
+ * Rows returned by {@link #getRows()} and {@link #getRow(int)} are views which
+ * read from and write through to the columns, which allows writers to stream
+ * the grid without copying it. Rows have the width of the grid, cells which
+ * were never written are null.
+ */
+public class ColumnarGrid
+    implements Grid
+{
+    private static final String REGRESSION_SUFFIX = "_regression";
+    private static final String CUMULATIVE_SUFFIX = "_cumulative";
+
+    /**
+     * The title of the grid.
+     */
+    private String title;
+
+    /**
+     * The subtitle of the grid.
+     */
+    private String subtitle;
+
+    /**
+     * The name of a potential corresponding table.
+     */
+    private String table;
+
+    /**
+     * A List which represents the column headers of the grid.
+     */
+    private List<GridHeader> headers;
+    
+    /**
+     * A Map which can hold arbitrary meta-data.
+     */
+    private Map<Object, Object> metaData;
+
+    /**
+     * The columns of the grid.
+     */
+    private List<Column> columns;
+
+    /**
+     * The number of rows in the grid.
+     */
+    private int height;
+
+    /**
+     * The number of values written to the current row.
+     */
+    private int currentRowWriteWidth;
+
+    /**
+     * Indicating the current row in the grid for reading data.
+     */
+    private int currentRowReadIndex = -1;
+
+    /**
+     * Represents a mapping between column names and the index of the column in the grid.
+     */
+    private Map<String, Integer> columnIndexMap = new HashMap<>();
+
+    /**
+     * Default constructor.
+     */
+    public ColumnarGrid()
+    {
+        this.headers = new ArrayList<>();
+        this.metaData = new HashMap<>();
+        this.columns = new ArrayList<>();
+    }
+    
+    /**
+     * @param metaData meta data.
+     */
+    public ColumnarGrid( Map<Object, Object> metaData )
+    {
+        this.headers = new ArrayList<>();
+        this.metaData = metaData;
+        this.columns = new ArrayList<>();
+    }
+
+    // ---------------------------------------------------------------------
+    // Public methods
+    // ---------------------------------------------------------------------
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public String getTitle()
+    {
+        return title;
+    }
+
+    @Override
+    public Grid setTitle( String title )
+    {
+        this.title = title;
+
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public String getSubtitle()
+    {
+        return subtitle;
+    }
+
+    @Override
+    public Grid setSubtitle( String subtitle )
+    {
+        this.subtitle = subtitle;
+
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public String getTable()
+    {
+        return table;
+    }
+
+    @Override
+    public Grid setTable( String table )
+    {
+        this.table = table;
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeader( GridHeader header )
+    {
+        headers.add( header );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+    
+    @Override
+    public Grid addEmptyHeaders( int number )
+    {
+        for ( int i = 0; i < number; i++ )
+        {
+            headers.add( new GridHeader( "", false, false ) );
+        }
+        
+        updateColumnIndexMap();
+        
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public List<GridHeader> getHeaders()
+    {
+        return headers;
+    }
+
+    @Override
+    public List<GridHeader> getVisibleHeaders()
+    {
+        List<GridHeader> tempHeaders = new ArrayList<>();
+
+        for ( GridHeader header : headers )
+        {
+            if ( !header.isHidden() )
+            {
+                tempHeaders.add( header );
+            }
+        }
+
+        return tempHeaders;
+    }
+    
+    @Override
+    public int getIndexOfHeader( String name )
+    {
+        return headers.indexOf( new GridHeader( name, null ) );
+    }
+    
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public int getWidth()
+    {
+        return height > 0 ? columns.size() : 0;
+    }
+
+    @Override
+    @JsonProperty
+    @JsonView( { DetailedView.class } )
+    public Map<Object, Object> getMetaData()
+    {
+        return metaData;
+    }
+    
+    @Override
+    public void setMetaData( Map<Object, Object> metaData )
+    {
+        this.metaData = metaData;
+    }
+
+    @Override
+    public void addMetaData( Object key, Object value )
+    {
+        this.metaData.put( key, value );
+    }
+    
+    @Override
+    public int getVisibleWidth()
+    {
+        return height > 0 ? getVisibleColumnIndexes().length : 0;
+    }
+
+    @Override
+    public Grid addRow()
+    {
+        height++;
+
+        currentRowWriteWidth = 0;
+
+        return this;
+    }
+    
+    @Override
+    public Grid addRows( Grid grid )
+    {
+        for ( List<Object> row : grid.getRows() )
+        {
+            addRow();
+
+            for ( Object value : row )
+            {
+                addValue( value );
+            }
+        }
+        
+        return this;
+    }
+
+    @Override
+    public Grid addValue( Object value )
+    {
+        if ( height == 0 )
+        {
+            throw new IllegalStateException( "A row must be added before values can be added" );
+        }
+
+        if ( currentRowWriteWidth == columns.size() )
+        {
+            columns.add( new Column() );
+        }
+
+        columns.get( currentRowWriteWidth++ ).set( height - 1, value );
+
+        return this;
+    }
+    
+    @Override
+    public Grid addValues( Object[] values )
+    {
+        for ( Object value : values )
+        {
+            addValue( value );
+        }
+        
+        return this;
+    }
+    
+    @Override
+    public Grid addEmptyValues( int number )
+    {
+        for ( int i = 0; i < number; i++ )
+        {
+            addValue( "" );
+        }
+        
+        return this;
+    }
+
+    @Override
+    public List<Object> getRow( int rowIndex )
+    {
+        if ( rowIndex < 0 || rowIndex >= height )
+        {
+            throw new IndexOutOfBoundsException( "Row index: " + rowIndex + ", height: " + height );
+        }
+
+        return new RowView( rowIndex );
+    }
+
+    @Override
+    @JsonProperty
+    @JsonSerialize( using = JacksonRowDataSerializer.class )
+    @JsonView( { DetailedView.class } )
+    public List<List<Object>> getRows()
+    {
+        return new AbstractList<List<Object>>()
+        {
+            @Override
+            public List<Object> get( int index )
+            {
+                return getRow( index );
+            }
+
+            @Override
+            public int size()
+            {
+                return height;
+            }
+        };
+    }
+
+    @Override
+    public List<List<Object>> getVisibleRows()
+    {
+        List<List<Object>> tempGrid = new ArrayList<>();
+
+        if ( headers != null && headers.size() > 0 )
+        {
+            int[] visibleIndexes = getVisibleColumnIndexes();
+
+            for ( int row = 0; row < height; row++ )
+            {
+                List<Object> tempRow = new ArrayList<>( visibleIndexes.length );
+
+                for ( int index : visibleIndexes )
+                {
+                    tempRow.add( columns.get( index ).get( row ) );
+                }
+
+                tempGrid.add( tempRow );
+            }
+        }
+
+        return tempGrid;
+    }
+
+    @Override
+    public List<Object> getColumn( int columnIndex )
+    {
+        Column column = columns.get( columnIndex );
+
+        List<Object> values = new ArrayList<>( height );
+
+        for ( int row = 0; row < height; row++ )
+        {
+            values.add( column.get( row ) );
+        }
+
+        return values;
+    }
+
+    @Override
+    public Object getValue( int rowIndex, int columnIndex )
+    {
+        if ( rowIndex < 0 || rowIndex >= height || columnIndex < 0 || columnIndex >= columns.size() )
+        {
+            throw new IllegalArgumentException( "Grid does not contain the requested row / column" );
+        }
+
+        return columns.get( columnIndex ).get( rowIndex );
+    }
+    
+    @Override
+    public Grid addColumn( List<Object> columnValues )
+    {
+        if ( height != columnValues.size() )
+        {
+            throw new IllegalStateException( "Number of column values (" + columnValues.size() + ") is not equal to number of rows (" + height + ")" );
+        }
+
+        Column column = new Column();
+
+        for ( int row = 0; row < height; row++ )
+        {
+            column.set( row, columnValues.get( row ) );
+        }
+
+        columns.add( column );
+
+        return this;
+    }
+
+    @Override
+    public Grid removeColumn( int columnIndex )
+    {
+        if ( headers.size() > 0 )
+        {
+            headers.remove( columnIndex );
+        }
+
+        columns.remove( columnIndex );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid removeColumn( GridHeader header )
+    {
+        int index = headers.indexOf( header );
+
+        if ( index != -1 )
+        {
+            removeColumn( index );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid removeCurrentWriteRow()
+    {
+        height--;
+
+        for ( Column column : columns )
+        {
+            column.truncate( height );
+        }
+
+        currentRowWriteWidth = columns.size();
+
+        return this;
+    }
+    
+    @Override
+    public boolean hasMetaDataKey( String key )
+    {
+        return metaData != null && metaData.containsKey( key );
+    }
+    
+    @Override
+    public Grid limitGrid( int limit )
+    {
+        if ( limit < 0 )
+        {
+            throw new IllegalStateException( "Illegal limit: " + limit );
+        }
+
+        if ( limit > 0 && limit <= getHeight() )
+        {
+            height = limit;
+
+            for ( Column column : columns )
+            {
+                column.truncate( height );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid limitGrid( int startPos, int endPos )
+    {
+        if ( startPos < 0 || endPos < startPos || endPos > getHeight() )
+        {
+            throw new IllegalStateException( "Illegal start / end pos: " + startPos + ", " + endPos + ", " + getHeight() );
+        }
+
+        int[] rows = new int[endPos - startPos];
+
+        for ( int i = 0; i < rows.length; i++ )
+        {
+            rows[i] = startPos + i;
+        }
+
+        reorder( rows );
+
+        return this;
+    }
+
+    @Override
+    public Grid sortGrid( int columnIndex, int order )
+    {
+        if ( order == 0 )
+        {
+            return this; // No sorting
+        }
+
+        columnIndex--;
+
+        if ( columnIndex < 0 || columnIndex >= getWidth() )
+        {
+            throw new IllegalArgumentException( "Column index out of bounds: " + columnIndex );
+        }
+
+        Integer[] rows = new Integer[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            rows[i] = i;
+        }
+
+        Arrays.sort( rows, new ColumnComparator( columns.get( columnIndex ), order ) );
+
+        int[] sortedRows = new int[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            sortedRows[i] = rows[i];
+        }
+
+        reorder( sortedRows );
+
+        return this;
+    }
+
+    @Override
+    public Grid addRegressionColumn( int columnIndex, boolean addHeader )
+    {
+        SimpleRegression regression = new SimpleRegression();
+
+        Column column = columns.get( columnIndex );
+
+        int index = 0;
+
+        for ( int row = 0; row < height; row++ )
+        {
+            Object value = column.get( row );
+
+            // 0 omitted from regression
+
+            if ( value != null && !MathUtils.isEqual( Double.parseDouble( String.valueOf( value ) ), 0d ) )
+            {
+                regression.addData( index++, Double.parseDouble( String.valueOf( value ) ) );
+            }
+        }
+
+        List<Object> regressionColumn = new ArrayList<>( height );
+
+        for ( int i = 0; i < height; i++ )
+        {
+            final double predicted = regression.predict( i );
+
+            // Enough values must exist for regression
+
+            if ( !Double.isNaN( predicted ) )
+            {
+                regressionColumn.add( getRounded( predicted, 1 ) );
+            }
+            else
+            {
+                regressionColumn.add( null );
+            }
+        }
+
+        addColumn( regressionColumn );
+
+        if ( addHeader && columnIndex < headers.size() )
+        {
+            GridHeader header = headers.get( columnIndex );
+
+            if ( header != null )
+            {
+                GridHeader regressionHeader = new GridHeader( header.getName() + REGRESSION_SUFFIX,
+                    header.getColumn() + REGRESSION_SUFFIX, header.getType(), header.isHidden(), header.isMeta() );
+
+                addHeader( regressionHeader );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRegressionToGrid( int startColumnIndex, int numberOfColumns )
+    {
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            int columnIndex = i + startColumnIndex;
+
+            this.addRegressionColumn( columnIndex, true );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addCumulativeColumn( int columnIndex, boolean addHeader )
+    {
+        Column column = columns.get( columnIndex );
+
+        List<Object> cumulativeColumn = new ArrayList<>( height );
+
+        double sum = 0d;
+
+        for ( int row = 0; row < height; row++ )
+        {
+            Object value = column.get( row );
+
+            double number = value != null ? Double.parseDouble( String.valueOf( value ) ) : 0d;
+
+            sum += number;
+
+            cumulativeColumn.add( sum );
+        }
+
+        addColumn( cumulativeColumn );
+
+        if ( addHeader && columnIndex < headers.size() )
+        {
+            GridHeader header = headers.get( columnIndex );
+
+            if ( header != null )
+            {
+                GridHeader regressionHeader = new GridHeader( header.getName() + CUMULATIVE_SUFFIX,
+                    header.getColumn() + CUMULATIVE_SUFFIX, header.getType(), header.isHidden(), header.isMeta() );
+
+                addHeader( regressionHeader );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addCumulativesToGrid( int startColumnIndex, int numberOfColumns )
+    {
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            int columnIndex = i + startColumnIndex;
+
+            this.addCumulativeColumn( columnIndex, true );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid substituteMetaData( Map<? extends Object, ? extends Object> metaDataMap )
+    {
+        if ( metaDataMap == null || headers == null || headers.isEmpty() )
+        {
+            return this;
+        }
+        
+        for ( int colIndex = 0; colIndex < headers.size(); colIndex++ )
+        {
+            GridHeader header = headers.get( colIndex );
+            
+            // Header
+            
+            Object headerMetaName = metaDataMap.get( header.getName() );
+            
+            if ( headerMetaName != null )
+            {
+                header.setName( String.valueOf( headerMetaName ) );
+            }
+
+            if ( header.isMeta() && colIndex < columns.size() )
+            {
+                // Column cells
+                
+                substituteMetaData( colIndex, metaDataMap );
+            }
+        }        
+        
+        return this;
+    }
+    
+    @Override
+    public Grid substituteMetaData( int columnIndex, Map<? extends Object, ? extends Object> metaDataMap )
+    {
+        if ( metaDataMap == null )
+        {
+            return this;
+        }
+        
+        Column column = columns.get( columnIndex );
+        
+        for ( int row = 0; row < height; row++ )
+        {
+            Object meta = metaDataMap.get( column.get( row ) );
+            
+            if ( meta != null )
+            {
+                column.set( row, meta );
+            }
+        }
+        
+        return this;
+    }
+    
+    @Override
+    public List<Integer> getMetaColumnIndexes()
+    {
+        List<Integer> indexes = new ArrayList<>();
+        
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            GridHeader header = headers.get( i );
+            
+            if ( header != null && header.isMeta() )
+            {
+                indexes.add( i );
+            }
+        }
+        
+        return indexes;
+    }
+    
+    @Override
+    public Set<Object> getUniqueValues( String columnName )
+    {
+        int columnIndex = getIndexOfHeader( columnName );
+                
+        Set<Object> values = new HashSet<>();
+        
+        if ( columnIndex != -1 && columnIndex < columns.size() )
+        {
+            Column column = columns.get( columnIndex );
+
+            for ( int row = 0; row < height; row++ )
+            {
+                values.add( column.get( row ) );
+            }
+        }
+        
+        return values;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAsMap( int valueIndex, String keySeparator )
+    {
+        Map<String, T> map = new HashMap<>( Math.max( (int) ( height / 0.75f ) + 1, 16 ) );
+
+        StringBuilder key = new StringBuilder();
+        
+        for ( int row = 0; row < height; row++ )
+        {
+            key.setLength( 0 );
+
+            boolean first = true;
+
+            for ( int col = 0; col < columns.size(); col++ )
+            {
+                if ( col == valueIndex )
+                {
+                    continue;
+                }
+
+                if ( !first )
+                {
+                    key.append( keySeparator );
+                }
+
+                Object value = columns.get( col ).get( row );
+
+                key.append( value != null ? value : "" );
+
+                first = false;
+            }
+            
+            map.put( key.toString(), (T) columns.get( valueIndex ).get( row ) );
+        }
+        
+        return map;
+    }
+    
+    // -------------------------------------------------------------------------
+    // JRDataSource implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean next()
+        throws JRException
+    {
+        boolean next = ++currentRowReadIndex < getHeight();
+
+        if ( !next )
+        {
+            currentRowReadIndex = -1; // Reset and return false
+        }
+
+        return next;
+    }
+
+    @Override
+    public Object getFieldValue( JRField field )
+        throws JRException
+    {
+        Integer index = columnIndexMap.get( field.getName() );
+
+        return index != null && index < columns.size() ? columns.get( index ).get( currentRowReadIndex ) : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // SQL utility methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Grid addHeaders( ResultSet rs )
+    {
+        try
+        {
+            ResultSetMetaData rsmd = rs.getMetaData();
+
+            int columnNo = rsmd.getColumnCount();
+
+            for ( int i = 1; i <= columnNo; i++ )
+            {
+                addHeader( new GridHeader( rsmd.getColumnLabel( i ), false, false ) );
+            }
+        } 
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( ex );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeaders( SqlRowSet rs )
+    {
+        SqlRowSetMetaData rsmd = rs.getMetaData();
+
+        int columnNo = rsmd.getColumnCount();
+
+        for ( int i = 1; i <= columnNo; i++ )
+        {
+            addHeader( new GridHeader( rsmd.getColumnLabel( i ), false, false ) );
+        }
+        
+        return this;
+    }
+    
+    @Override
+    public Grid addRows( ResultSet rs )
+    {
+        try
+        {
+            int cols = rs.getMetaData().getColumnCount();
+
+            while ( rs.next() )
+            {
+                addRow();
+
+                for ( int i = 1; i <= cols; i++ )
+                {
+                    addValue( rs.getObject( i ) );
+                }
+            }
+        } 
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( ex );
+        }
+
+        return this;
+    }
+    
+    @Override
+    public Grid addRows( SqlRowSet rs )
+    {
+        int cols = rs.getMetaData().getColumnCount();
+
+        while ( rs.next() )
+        {
+            addRow();
+
+            for ( int i = 1; i <= cols; i++ )
+            {
+                addValue( rs.getObject( i ) );
+            }
+        }
+        
+        return this;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the indexes of the columns which have a header which is not
+     * hidden.
+     */
+    private int[] getVisibleColumnIndexes()
+    {
+        int[] indexes = new int[columns.size()];
+        int size = 0;
+
+        for ( int i = 0; i < columns.size() && i < headers.size(); i++ )
+        {
+            if ( !headers.get( i ).isHidden() )
+            {
+                indexes[size++] = i;
+            }
+        }
+
+        return Arrays.copyOf( indexes, size );
+    }
+
+    /**
+     * Rearranges all columns so that they contain the given rows in the given
+     * order.
+     */
+    private void reorder( int[] rows )
+    {
+        for ( Column column : columns )
+        {
+            column.reorder( rows );
+        }
+
+        height = rows.length;
+    }
+
+    /**
+     * Updates the mapping between header columns and grid indexes. This method
+     * should be invoked whenever the columns are manipulated.
+     */
+    private void updateColumnIndexMap()
+    {
+        columnIndexMap.clear();
+
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            columnIndexMap.put( headers.get( i ).getColumn(), i );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder( "[\n" );
+
+        if ( headers != null && headers.size() > 0 )
+        {
+            List<String> headerNames = new ArrayList<>();
+
+            for ( GridHeader header : headers )
+            {
+                headerNames.add( header.getName() );
+            }
+
+            builder.append( headerNames ).append( "\n" );
+        }
+
+        for ( List<Object> row : getRows() )
+        {
+            builder.append( row ).append( "\n" );
+        }
+
+        return builder.append( "]" ).toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // Row view
+    // -------------------------------------------------------------------------
+
+    /**
+     * Row which reads from and writes through to the columns of the grid.
+     */
+    private class RowView
+        extends AbstractList<Object>
+    {
+        private final int row;
+
+        private RowView( int row )
+        {
+            this.row = row;
+        }
+
+        @Override
+        public Object get( int index )
+        {
+            return columns.get( index ).get( row );
+        }
+
+        @Override
+        public Object set( int index, Object value )
+        {
+            Column column = columns.get( index );
+
+            Object previous = column.get( row );
+
+            column.set( row, value );
+
+            return previous;
+        }
+
+        @Override
+        public int size()
+        {
+            return columns.size();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Comparator
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compares row indexes by the values of a column, with the same semantics
+     * as {@link ListGrid.GridRowComparator}. Null and non-comparable values are
+     * sorted last.
+     */
+    private static class ColumnComparator
+        implements Comparator<Integer>
+    {
+        private final Column column;
+        private final int order;
+
+        private ColumnComparator( Column column, int order )
+        {
+            this.column = column;
+            this.order = order;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public int compare( Integer row1, Integer row2 )
+        {
+            if ( column.isNumeric() )
+            {
+                boolean row1Invalid = !column.isPresent( row1 );
+                boolean row2Invalid = !column.isPresent( row2 );
+
+                if ( row1Invalid || row2Invalid )
+                {
+                    return compareInvalid( row1Invalid, row2Invalid );
+                }
+
+                double value1 = column.getDouble( row1 );
+                double value2 = column.getDouble( row2 );
+
+                return order > 0 ? Double.compare( value2, value1 ) : Double.compare( value1, value2 );
+            }
+
+            Object object1 = column.get( row1 );
+            Object object2 = column.get( row2 );
+
+            boolean row1Invalid = !( object1 instanceof Comparable<?> );
+            boolean row2Invalid = !( object2 instanceof Comparable<?> );
+
+            if ( row1Invalid || row2Invalid )
+            {
+                return compareInvalid( row1Invalid, row2Invalid );
+            }
+
+            final Comparable<Object> value1 = (Comparable<Object>) object1;
+            final Comparable<Object> value2 = (Comparable<Object>) object2;
+
+            return order > 0 ? value2.compareTo( value1 ) : value1.compareTo( value2 );
+        }
+
+        private int compareInvalid( boolean row1Invalid, boolean row2Invalid )
+        {
+            if ( row1Invalid && row2Invalid )
+            {
+                return 0;
+            }
+
+            return row1Invalid ? ( order > 0 ? 1 : -1 ) : ( order > 0 ? -1 : 1 );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Column
+    // -------------------------------------------------------------------------
+
+    /**
+     * Column vector. Starts out as a primitive double vector and is converted
+     * to a dictionary encoded vector when a value which is not a double is
+     * set. A dictionary encoded vector is converted to a plain object vector
+     * when most of its values are distinct.
+     */
+    private static class Column
+    {
+        private static final int MIN_CAPACITY = 16;
+
+        private static final int DICTIONARY_MIN_SIZE = 1024;
+
+        /**
+         * Values of a numeric column.
+         */
+        private double[] numbers = new double[MIN_CAPACITY];
+
+        /**
+         * Rows which have a value in a numeric column.
+         */
+        private BitSet present = new BitSet();
+
+        /**
+         * Codes of a dictionary column, 0 represents null and other codes
+         * represent the dictionary item at the code minus one.
+         */
+        private int[] codes;
+
+        private List<Object> dictionary;
+
+        private Map<Object, Integer> dictionaryIndex;
+
+        /**
+         * Values of an object column.
+         */
+        private Object[] objects;
+
+        /**
+         * The number of rows the column spans.
+         */
+        private int size;
+
+        boolean isNumeric()
+        {
+            return numbers != null;
+        }
+
+        boolean isPresent( int row )
+        {
+            return row < size && present.get( row );
+        }
+
+        double getDouble( int row )
+        {
+            return numbers[row];
+        }
+
+        Object get( int row )
+        {
+            if ( row >= size )
+            {
+                return null;
+            }
+
+            if ( numbers != null )
+            {
+                return present.get( row ) ? numbers[row] : null;
+            }
+
+            if ( codes != null )
+            {
+                int code = codes[row];
+
+                return code == 0 ? null : dictionary.get( code - 1 );
+            }
+
+            return objects[row];
+        }
+
+        void set( int row, Object value )
+        {
+            ensureCapacity( row + 1 );
+
+            size = Math.max( size, row + 1 );
+
+            if ( numbers != null )
+            {
+                if ( value == null )
+                {
+                    present.clear( row );
+                    return;
+                }
+
+                if ( value instanceof Double )
+                {
+                    numbers[row] = (Double) value;
+                    present.set( row );
+                    return;
+                }
+
+                toDictionary();
+            }
+
+            if ( codes != null )
+            {
+                codes[row] = getCode( value );
+
+                if ( dictionary.size() > DICTIONARY_MIN_SIZE && dictionary.size() > size / 2 )
+                {
+                    toObjects();
+                }
+
+                return;
+            }
+
+            objects[row] = value;
+        }
+
+        /**
+         * Clears all rows from the given size and onwards.
+         */
+        void truncate( int newSize )
+        {
+            if ( newSize >= size )
+            {
+                return;
+            }
+
+            if ( numbers != null )
+            {
+                present.clear( newSize, size );
+            }
+            else if ( codes != null )
+            {
+                Arrays.fill( codes, newSize, size, 0 );
+            }
+            else
+            {
+                Arrays.fill( objects, newSize, size, null );
+            }
+
+            size = newSize;
+        }
+
+        /**
+         * Rearranges the column so that it contains the given rows in the
+         * given order.
+         */
+        void reorder( int[] rows )
+        {
+            int capacity = Math.max( rows.length, MIN_CAPACITY );
+
+            if ( numbers != null )
+            {
+                double[] newNumbers = new double[capacity];
+                BitSet newPresent = new BitSet( rows.length );
+
+                for ( int i = 0; i < rows.length; i++ )
+                {
+                    if ( isPresent( rows[i] ) )
+                    {
+                        newNumbers[i] = numbers[rows[i]];
+                        newPresent.set( i );
+                    }
+                }
+
+                numbers = newNumbers;
+                present = newPresent;
+            }
+            else if ( codes != null )
+            {
+                int[] newCodes = new int[capacity];
+
+                for ( int i = 0; i < rows.length; i++ )
+                {
+                    newCodes[i] = rows[i] < size ? codes[rows[i]] : 0;
+                }
+
+                codes = newCodes;
+            }
+            else
+            {
+                Object[] newObjects = new Object[capacity];
+
+                for ( int i = 0; i < rows.length; i++ )
+                {
+                    newObjects[i] = rows[i] < size ? objects[rows[i]] : null;
+                }
+
+                objects = newObjects;
+            }
+
+            size = rows.length;
+        }
+
+        private int getCode( Object value )
+        {
+            if ( value == null )
+            {
+                return 0;
+            }
+
+            Integer code = dictionaryIndex.get( value );
+
+            if ( code == null )
+            {
+                dictionary.add( value );
+                code = dictionary.size();
+                dictionaryIndex.put( value, code );
+            }
+
+            return code;
+        }
+
+        private void ensureCapacity( int capacity )
+        {
+            int current = numbers != null ? numbers.length : codes != null ? codes.length : objects.length;
+
+            if ( capacity <= current )
+            {
+                return;
+            }
+
+            int newCapacity = Math.max( capacity, current * 2 );
+
+            if ( numbers != null )
+            {
+                numbers = Arrays.copyOf( numbers, newCapacity );
+            }
+            else if ( codes != null )
+            {
+                codes = Arrays.copyOf( codes, newCapacity );
+            }
+            else
+            {
+                objects = Arrays.copyOf( objects, newCapacity );
+            }
+        }
+
+        private void toDictionary()
+        {
+            codes = new int[numbers.length];
+            dictionary = new ArrayList<>();
+            dictionaryIndex = new HashMap<>();
+
+            for ( int row = 0; row < size; row++ )
+            {
+                if ( present.get( row ) )
+                {
+                    codes[row] = getCode( numbers[row] );
+                }
+            }
+
+            numbers = null;
+            present = null;
+        }
+
+        private void toObjects()
+        {
+            objects = new Object[codes.length];
+
+            for ( int row = 0; row < size; row++ )
+            {
+                objects[row] = get( row );
+            }
+
+            codes = null;
+            dictionary = null;
+            dictionaryIndex = null;
+        }
+    }
+}
@@ -308,14 +308,18 @@ public class GridUtils
 
         rowNumber++;
 
-        for ( List<Object> row : grid.getVisibleRows() )
+        // Read visible cells from each row rather than copying the grid
+
+        List<Integer> visibleIndexes = getVisibleColumnIndexes( grid, JXL_MAX_COLS );
+
+        for ( List<Object> row : grid.getRows() )
         {
             columnIndex = 0;
 
-            List<Object> colums = ListUtils.subList( row, 0, JXL_MAX_COLS );
-            
-            for ( Object column : colums )
+            for ( Integer index : visibleIndexes )
             {
+                Object column = row.get( index );
+                
                 if ( column != null && MathUtils.isNumeric( String.valueOf( column ) ) )
                 {
                     sheet.addCell( new Number( columnIndex++, rowNumber, Double.valueOf( String.valueOf( column ) ), XLS_FORMAT_TEXT ) );
@@ -332,6 +336,28 @@ public class GridUtils
         }
     }
     
+    /**
+     * Returns the indexes of the columns of the given grid which are not
+     * hidden, up to the given max number of columns. Returns an empty list
+     * if the grid has no headers.
+     */
+    private static List<Integer> getVisibleColumnIndexes( Grid grid, int maxColumns )
+    {
+        List<Integer> indexes = new ArrayList<>();
+
+        List<GridHeader> headers = grid.getHeaders();
+
+        for ( int i = 0; i < headers.size() && indexes.size() < maxColumns; i++ )
+        {
+            if ( !headers.get( i ).isHidden() )
+            {
+                indexes.add( i );
+            }
+        }
+
+        return indexes;
+    }
+
     /**
      * Writes a CSV representation of the given Grid to the given OutputStream.
      */
@@ -31,17 +31,20 @@ package org.hisp.dhis.system.notification;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-
-import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.hisp.dhis.scheduling.TaskCategory;
 import org.hisp.dhis.scheduling.TaskId;
-import org.hisp.dhis.system.collection.TaskLocalList;
-import org.hisp.dhis.system.collection.TaskLocalMap;
 
 /**
+ * Notifier which keeps the latest notifications for each task in a lock-free
+ * ring buffer. Notifications get sequence numbers which increase for each
+ * task, also across clearing of the task, so that clients can read from a
+ * cursor. Clearing a task resets its buffer in place, so that clients
+ * waiting for notifications of the task keep waiting on the same buffer.
+ * 
  * @author Lars Helge Overland
  */
 public class InMemoryNotifier
@@ -51,16 +54,9 @@ public class InMemoryNotifier
     
     private static final int MAX_SIZE = 75;
     
-    private TaskLocalList<Notification> notifications;
-    
-    private TaskLocalMap<TaskCategory, Object> taskSummaries;
+    private final Map<TaskId, NotificationRingBuffer> notifications = new ConcurrentHashMap<>();
     
-    @PostConstruct
-    public void init()
-    {
-        notifications = new TaskLocalList<>();
-        taskSummaries = new TaskLocalMap<>();
-    }
+    private final Map<TaskId, Object> taskSummaries = new ConcurrentHashMap<>();
 
     // -------------------------------------------------------------------------
     // Notifier implementation
@@ -79,12 +75,7 @@ public class InMemoryNotifier
         {
             Notification notification = new Notification( level, id.getCategory(), new Date(), message, completed );
         
-            notifications.get( id ).add( 0, notification );
-            
-            if ( notifications.get( id ).size() > MAX_SIZE )
-            {
-                notifications.get( id ).remove( MAX_SIZE );
-            }
+            getBuffer( id ).add( notification );
             
             log.info( notification );
         }
@@ -99,7 +90,7 @@ public class InMemoryNotifier
         
         if ( id != null )
         {
-            for ( Notification notification : notifications.get( id ) )
+            for ( Notification notification : getBuffer( id ).getNotifications() )
             {
                 if ( lastUid != null && lastUid.equals( notification.getUid() ) )
                 {
@@ -112,14 +103,43 @@ public class InMemoryNotifier
         
         return list;
     }
+
+    @Override
+    public List<Notification> getNotifications( TaskId id, long lastSequence )
+    {
+        if ( id != null )
+        {
+            return getBuffer( id ).getNotifications( lastSequence );
+        }
+        
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Notification> awaitNotifications( TaskId id, long lastSequence, long timeout )
+        throws InterruptedException
+    {
+        if ( id != null )
+        {
+            return getBuffer( id ).awaitNotifications( lastSequence, timeout );
+        }
+        
+        return new ArrayList<>();
+    }
     
     @Override
     public Notifier clear( TaskId id )
     {
         if ( id != null )
         {
-            notifications.clear( id );
-            taskSummaries.get( id ).remove( id.getCategory() );
+            NotificationRingBuffer buffer = notifications.get( id );
+            
+            if ( buffer != null )
+            {
+                buffer.clear();
+            }
+            
+            taskSummaries.remove( id );
         }
         
         return this;
@@ -130,7 +150,14 @@ public class InMemoryNotifier
     {
         if ( id != null )
         {
-            taskSummaries.get( id ).put( id.getCategory(), taskSummary );
+            if ( taskSummary != null )
+            {
+                taskSummaries.put( id, taskSummary );
+            }
+            else
+            {
+                taskSummaries.remove( id );
+            }
         }
         
         return this;
@@ -141,9 +168,18 @@ public class InMemoryNotifier
     {
         if ( id != null )
         {
-            return taskSummaries.get( id ).get( id.getCategory() );
+            return taskSummaries.get( id );
         }
         
         return null;
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private NotificationRingBuffer getBuffer( TaskId id )
+    {
+        return notifications.computeIfAbsent( id, k -> new NotificationRingBuffer( MAX_SIZE ) );
+    }
 }
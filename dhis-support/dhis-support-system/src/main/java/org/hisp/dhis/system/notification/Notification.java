@@ -46,6 +46,8 @@ public class Notification
 {
     private String uid;
     
+    private long sequence;
+    
     private NotificationLevel level;
     
     private TaskCategory category;
@@ -103,6 +105,18 @@ public class Notification
         this.uid = uid;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    public void setSequence( long sequence )
+    {
+        this.sequence = sequence;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public TaskCategory getCategory()
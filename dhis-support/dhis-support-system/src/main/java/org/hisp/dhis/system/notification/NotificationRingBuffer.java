@@ -0,0 +1,234 @@
+package org.hisp.dhis.system.notification;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded buffer of notifications for a single task. Writers claim a sequence
+ * number with an atomic increment and publish the notification into the slot
+ * given by the sequence number modulo the capacity, overwriting the oldest
+ * notification. Neither writers nor readers take locks, except readers which
+ * wait for new notifications.
+ * 
+ * Readers only return notifications up to the first sequence number which 
+ * has been claimed but not yet published, so that a client which continues 
+ * from the highest sequence number it has seen never skips a notification
+ * unless it has been overwritten.
+ * 
+ * Clearing resets the buffer in place and keeps the sequence numbers
+ * increasing, so that readers already waiting on the buffer receive the
+ * notifications added after the clear.
+ */
+public class NotificationRingBuffer
+{
+    private final AtomicReferenceArray<Notification> slots;
+    
+    private final int capacity;
+    
+    /**
+     * The lowest sequence number visible to readers, moved forward on clear.
+     */
+    private final AtomicLong first = new AtomicLong();
+    
+    /**
+     * The next sequence number to claim.
+     */
+    private final AtomicLong next;
+    
+    private final AtomicInteger waiting = new AtomicInteger();
+    
+    private final Object monitor = new Object();
+
+    /**
+     * @param capacity the maximum number of notifications to keep.
+     */
+    public NotificationRingBuffer( int capacity )
+    {
+        this.slots = new AtomicReferenceArray<>( capacity );
+        this.capacity = capacity;
+        this.next = new AtomicLong();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given notification and assigns it a sequence number.
+     * 
+     * @param notification the notification.
+     * @return the sequence number.
+     */
+    public long add( Notification notification )
+    {
+        final long sequence = next.getAndIncrement();
+        
+        notification.setSequence( sequence );
+        
+        slots.set( getIndex( sequence ), notification );
+        
+        if ( waiting.get() > 0 )
+        {
+            synchronized ( monitor )
+            {
+                monitor.notifyAll();
+            }
+        }
+        
+        return sequence;
+    }
+
+    /**
+     * Returns the notifications with a sequence number greater than the given
+     * sequence number, newest first.
+     * 
+     * @param lastSequence the last sequence number seen by the client.
+     * @return a list of notifications.
+     */
+    public List<Notification> getNotifications( long lastSequence )
+    {
+        final long head = next.get();
+        
+        final List<Notification> list = new ArrayList<>();
+        
+        final long start = Math.max( lastSequence + 1, Math.max( head - capacity, first.get() ) );
+        
+        for ( long sequence = start; sequence < head; sequence++ )
+        {
+            final Notification notification = slots.get( getIndex( sequence ) );
+            
+            if ( notification == null || notification.getSequence() < sequence )
+            {
+                break; // Claimed but not yet published
+            }
+            
+            if ( notification.getSequence() == sequence )
+            {
+                list.add( notification );
+            } // Otherwise overwritten by a later notification
+        }
+        
+        Collections.reverse( list );
+        
+        return list;
+    }
+
+    /**
+     * Returns all notifications in the buffer, newest first.
+     * 
+     * @return a list of notifications.
+     */
+    public List<Notification> getNotifications()
+    {
+        return getNotifications( -1 );
+    }
+
+    /**
+     * Returns the notifications with a sequence number greater than the given
+     * sequence number, newest first, waiting until at least one is available
+     * or the timeout elapses.
+     * 
+     * @param lastSequence the last sequence number seen by the client.
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return a list of notifications, empty if the timeout elapsed.
+     */
+    public List<Notification> awaitNotifications( long lastSequence, long timeout )
+        throws InterruptedException
+    {
+        List<Notification> list = getNotifications( lastSequence );
+        
+        if ( !list.isEmpty() || timeout <= 0 )
+        {
+            return list;
+        }
+        
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeout );
+        
+        waiting.incrementAndGet();
+        
+        try
+        {
+            synchronized ( monitor )
+            {
+                while ( ( list = getNotifications( lastSequence ) ).isEmpty() )
+                {
+                    final long remaining = TimeUnit.NANOSECONDS.toMillis( deadline - System.nanoTime() );
+                    
+                    if ( remaining <= 0 )
+                    {
+                        break;
+                    }
+                    
+                    monitor.wait( remaining );
+                }
+            }
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Hides all notifications added so far and releases them. Notifications
+     * added concurrently with the clear may be hidden as well.
+     */
+    public void clear()
+    {
+        final long cleared = first.accumulateAndGet( next.get(), Math::max );
+        
+        for ( int i = 0; i < capacity; i++ )
+        {
+            final Notification notification = slots.get( i );
+            
+            if ( notification != null && notification.getSequence() < cleared )
+            {
+                slots.compareAndSet( i, notification, null ); // Fails if overwritten by a later notification
+            }
+        }
+    }
+    
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int getIndex( long sequence )
+    {
+        return (int) Math.floorMod( sequence, (long) capacity );
+    }
+}
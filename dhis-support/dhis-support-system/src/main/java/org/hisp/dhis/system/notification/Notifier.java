@@ -43,6 +43,32 @@ public interface Notifier
     
     List<Notification> getNotifications( TaskId id, String lastUid );
     
+    /**
+     * Returns the notifications for the given task with a sequence number 
+     * greater than the given sequence number, newest first. Notifications 
+     * which have been overwritten in the buffer are not returned.
+     * 
+     * @param id the task identifier.
+     * @param lastSequence the last sequence number seen by the client, -1
+     *        to get all notifications.
+     * @return a list of notifications.
+     */
+    List<Notification> getNotifications( TaskId id, long lastSequence );
+    
+    /**
+     * Returns the notifications for the given task with a sequence number 
+     * greater than the given sequence number, newest first. Waits until at
+     * least one such notification is available or the timeout elapses.
+     * 
+     * @param id the task identifier.
+     * @param lastSequence the last sequence number seen by the client, -1
+     *        to get all notifications.
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return a list of notifications, empty if the timeout elapsed.
+     */
+    List<Notification> awaitNotifications( TaskId id, long lastSequence, long timeout )
+        throws InterruptedException;
+    
     Notifier clear( TaskId id );
     
     Notifier addTaskSummary( TaskId id, Object taskSummary );
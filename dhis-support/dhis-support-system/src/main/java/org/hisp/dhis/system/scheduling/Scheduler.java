@@ -44,6 +44,7 @@ public interface Scheduler
     String CRON_DAILY_2AM = "0 0 2 * * ?";
     String CRON_EVERY_MIN = "0 0/1 * * * ?";
     String CRON_EVERY_15MIN = "0 0/15 * * * ?";
+    String CRON_HOURLY = "0 0 * * * ?";
     String CRON_TEST = "0 * * * * ?";
     
     String STATUS_RUNNING = "running";
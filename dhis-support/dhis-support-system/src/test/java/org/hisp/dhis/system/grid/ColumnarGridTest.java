@@ -0,0 +1,121 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.Grid;
+import org.junit.Test;
+
+/**
+ * Runs the grid tests against the columnar grid implementation, in addition
+ * to tests of column vector behavior.
+ */
+public class ColumnarGridTest
+    extends GridTest
+{
+    @Override
+    protected Grid createGrid()
+    {
+        return new ColumnarGrid();
+    }
+
+    @Test
+    public void testMixedColumnTypes()
+    {
+        Grid grid = createGrid();
+
+        grid.addRow().addValue( 1.5 ).addValue( "a" );
+        grid.addRow().addValue( null ).addValue( null );
+        grid.addRow().addValue( "text" ).addValue( 7 );
+        grid.addRow().addValue( 2.5 ).addValue( "a" );
+
+        assertEquals( 1.5, grid.getValue( 0, 0 ) );
+        assertNull( grid.getValue( 1, 0 ) );
+        assertEquals( "text", grid.getValue( 2, 0 ) );
+        assertEquals( 2.5, grid.getValue( 3, 0 ) );
+
+        assertEquals( "a", grid.getValue( 0, 1 ) );
+        assertNull( grid.getValue( 1, 1 ) );
+        assertEquals( 7, grid.getValue( 2, 1 ) );
+        assertEquals( "a", grid.getValue( 3, 1 ) );
+    }
+
+    @Test
+    public void testLargeGrid()
+    {
+        Grid grid = createGrid();
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            grid.addRow().addValue( "ou" + ( i % 10 ) ).addValue( "uid" + i ).addValue( (double) i );
+        }
+
+        assertEquals( 10000, grid.getHeight() );
+        assertEquals( 3, grid.getWidth() );
+        assertEquals( "ou3", grid.getValue( 9993, 0 ) );
+        assertEquals( "uid9993", grid.getValue( 9993, 1 ) );
+        assertEquals( 9993d, grid.getValue( 9993, 2 ) );
+
+        grid.sortGrid( 3, 1 );
+
+        assertEquals( 9999d, grid.getValue( 0, 2 ) );
+        assertEquals( "uid9999", grid.getValue( 0, 1 ) );
+        assertEquals( "ou9", grid.getValue( 0, 0 ) );
+
+        grid.limitGrid( 10, 20 );
+
+        assertEquals( 10, grid.getHeight() );
+        assertEquals( 9989d, grid.getValue( 0, 2 ) );
+
+        Map<String, Double> map = grid.getAsMap( 2, "-" );
+
+        assertEquals( 10, map.size() );
+        assertEquals( Double.valueOf( 9989d ), map.get( "ou9-uid9989" ) );
+    }
+
+    @Test
+    public void testRowWriteThrough()
+    {
+        Grid grid = createGrid();
+
+        grid.addRow().addValue( 1d ).addValue( "a" );
+
+        List<Object> row = grid.getRows().get( 0 );
+        row.set( 0, 2d );
+        row.set( 1, "b" );
+
+        assertEquals( 2d, grid.getValue( 0, 0 ) );
+        assertEquals( "b", grid.getValue( 0, 1 ) );
+    }
+}
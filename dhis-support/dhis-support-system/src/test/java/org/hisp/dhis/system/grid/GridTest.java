@@ -59,11 +59,19 @@ public class GridTest
     private GridHeader headerB;
     private GridHeader headerC;
     
+    /**
+     * Creates the grid implementation under test.
+     */
+    protected Grid createGrid()
+    {
+        return new ListGrid();
+    }
+
     @Before
     public void setUp()
     {
-        gridA = new ListGrid();
-        gridB = new ListGrid();
+        gridA = createGrid();
+        gridB = createGrid();
         
         headerA = new GridHeader( "ColA", "colA", String.class.getName(), false, true );
         headerB = new GridHeader( "ColB", "colB", String.class.getName(), false, true );
@@ -357,7 +365,7 @@ public class GridTest
     @Test
     public void testSortA()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
         
         grid.addRow().addValue( 1 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -378,7 +386,7 @@ public class GridTest
     @Test
     public void testSortB()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
         
         grid.addRow().addValue( 3 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -399,7 +407,7 @@ public class GridTest
     @Test
     public void testSortC()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( 1 ).addValue( "c" );
         grid.addRow().addValue( 3 ).addValue( "a" );
@@ -420,7 +428,7 @@ public class GridTest
     @Test
     public void testSortD()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
         
         grid.addRow().addValue( "a" ).addValue( "a" ).addValue( 5.2 );
         grid.addRow().addValue( "b" ).addValue( "b" ).addValue( 0.0 );
@@ -453,7 +461,7 @@ public class GridTest
     @Test
     public void testSortE()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -474,7 +482,7 @@ public class GridTest
     @Test
     public void testSortF()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -514,7 +522,7 @@ public class GridTest
     @Test
     public void testAddRegressionColumn()
     {
-        gridA = new ListGrid();
+        gridA = createGrid();
 
         gridA.addRow();        
         gridA.addValue( 10.0 );
@@ -539,7 +547,7 @@ public class GridTest
     @Test
     public void testAddCumulativeColumn()
     {
-        gridA = new ListGrid();
+        gridA = createGrid();
 
         gridA.addRow();        
         gridA.addValue( 10.0 );
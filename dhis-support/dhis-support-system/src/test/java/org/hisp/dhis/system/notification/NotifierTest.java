@@ -33,7 +33,9 @@ import static org.hisp.dhis.scheduling.TaskCategory.DATAVALUE_IMPORT;
 import static org.hisp.dhis.scheduling.TaskCategory.METADATA_IMPORT;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hisp.dhis.DhisSpringTest;
@@ -60,6 +62,9 @@ public class NotifierTest
     @Test
     public void testNotifiy()
     {
+        notifier.clear( id1 );
+        notifier.clear( id2 );
+        
         notifier.notify( id1, "Import started" );
         notifier.notify( id1, "Import working" );
         notifier.notify( id1, "Import done" );
@@ -86,6 +91,7 @@ public class NotifierTest
     public void testClearNotifications()
     {
         notifier.clear( id1 );
+        notifier.clear( id2 );
         
         notifier.notify( id1, "Import started" );
         notifier.notify( id1, "Import working" );
@@ -107,6 +113,156 @@ public class NotifierTest
         assertEquals( 0, notifier.getNotifications( id2, null ).size() );        
     }
     
+    @Test
+    public void testGetNotificationsBySequence()
+    {
+        notifier.clear( id1 );
+        
+        notifier.notify( id1, "Import started" );
+        notifier.notify( id1, "Import working" );
+        
+        List<Notification> notifications = notifier.getNotifications( id1, -1 );
+        
+        assertEquals( 2, notifications.size() );
+        assertEquals( "Import working", notifications.get( 0 ).getMessage() );
+        assertEquals( notifications.get( 1 ).getSequence() + 1, notifications.get( 0 ).getSequence() );
+        
+        long lastSequence = notifications.get( 0 ).getSequence();
+        
+        assertEquals( 0, notifier.getNotifications( id1, lastSequence ).size() );
+        
+        notifier.notify( id1, "Import done" );
+        
+        notifications = notifier.getNotifications( id1, lastSequence );
+        
+        assertEquals( 1, notifications.size() );
+        assertEquals( "Import done", notifications.get( 0 ).getMessage() );
+        assertEquals( lastSequence + 1, notifications.get( 0 ).getSequence() );
+        
+        lastSequence = notifications.get( 0 ).getSequence();
+        
+        notifier.clear( id1 );
+        notifier.notify( id1, "Import started" );
+        
+        notifications = notifier.getNotifications( id1, lastSequence );
+        
+        assertEquals( 1, notifications.size() );
+        assertTrue( notifications.get( 0 ).getSequence() > lastSequence );
+    }
+    
+    @Test
+    public void testConcurrentNotify()
+        throws Exception
+    {
+        notifier.clear( id1 );
+        
+        final int threadCount = 8;
+        final int messageCount = 1000;
+        
+        List<Thread> threads = new ArrayList<>();
+        
+        for ( int i = 0; i < threadCount; i++ )
+        {
+            Thread thread = new Thread( () -> {
+                for ( int j = 0; j < messageCount; j++ )
+                {
+                    notifier.notify( id1, "Working" );
+                }
+            } );
+            
+            threads.add( thread );
+            thread.start();
+        }
+        
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        
+        List<Notification> notifications = notifier.getNotifications( id1, -1 );
+        
+        assertEquals( 75, notifications.size() );
+        
+        long sequence = notifications.get( 0 ).getSequence();
+        
+        for ( Notification notification : notifications )
+        {
+            assertEquals( sequence--, notification.getSequence() );
+        }
+    }
+    
+    @Test
+    public void testAwaitNotifications()
+        throws Exception
+    {
+        notifier.clear( id2 );
+        
+        notifier.notify( id2, "Process started" );
+        
+        long lastSequence = notifier.getNotifications( id2, -1 ).get( 0 ).getSequence();
+        
+        assertEquals( 0, notifier.awaitNotifications( id2, lastSequence, 10 ).size() );
+        
+        Thread thread = new Thread( () -> {
+            try
+            {
+                Thread.sleep( 100 );
+            }
+            catch ( InterruptedException ex )
+            {
+                return;
+            }
+            
+            notifier.notify( id2, "Process done" );
+        } );
+        
+        thread.start();
+        
+        List<Notification> notifications = notifier.awaitNotifications( id2, lastSequence, 10000 );
+        
+        thread.join();
+        
+        assertEquals( 1, notifications.size() );
+        assertEquals( "Process done", notifications.get( 0 ).getMessage() );
+    }
+    
+    @Test
+    public void testAwaitNotificationsAcrossClear()
+        throws Exception
+    {
+        notifier.clear( id3 );
+        
+        notifier.notify( id3, "Process started" );
+        
+        long lastSequence = notifier.getNotifications( id3, -1 ).get( 0 ).getSequence();
+        
+        Thread thread = new Thread( () -> {
+            try
+            {
+                Thread.sleep( 100 );
+            }
+            catch ( InterruptedException ex )
+            {
+                return;
+            }
+            
+            notifier.clear( id3 );
+            notifier.notify( id3, "Process restarted" );
+        } );
+        
+        thread.start();
+        
+        List<Notification> notifications = notifier.awaitNotifications( id3, lastSequence, 10000 );
+        
+        thread.join();
+        
+        assertEquals( 1, notifications.size() );
+        assertEquals( "Process restarted", notifications.get( 0 ).getMessage() );
+        assertEquals( 1, notifier.getNotifications( id3, -1 ).size() );
+        
+        notifier.clear( id3 );
+    }
+    
     @Test
     public void testTaskSummary()
     {
@@ -326,7 +326,7 @@ public abstract class DhisConvenienceTest
      * @param object the object.
      */
     @SuppressWarnings( "unchecked" )
-    private <T> T getRealObject( T object )
+    protected <T> T getRealObject( T object )
         throws Exception
     {
         if ( AopUtils.isAopProxy( object ) )
@@ -72,8 +72,12 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.translation.Translation;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserSetting;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.hisp.dhis.webapi.service.LinkService;
 import org.hisp.dhis.webapi.service.WebMessageService;
@@ -93,14 +97,19 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -212,7 +221,7 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
             rootNode.addChild( NodeUtils.createPager( pager ) );
         }
 
-        rootNode.addChild( fieldFilterService.filter( getEntityClass(), entities, fields ) );
+        rootNode.addChild( fieldFilterService.filterLazy( getEntityClass(), entities, fields ) );
 
         return rootNode;
     }
@@ -1100,6 +1109,8 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
     private String entitySimpleName;
 
+    private Boolean customized;
+
     @SuppressWarnings( "unchecked" )
     protected Class<T> getEntityClass()
     {
@@ -1131,4 +1142,71 @@ public abstract class AbstractCrudController<T extends IdentifiableObject>
 
         return entitySimpleName;
     }
+
+    //--------------------------------------------------------------------------
+    // Conditional requests
+    //--------------------------------------------------------------------------
+
+    private static final Set<String> ENTITY_HOOK_METHODS = new HashSet<>( Arrays.asList(
+        "getEntityList", "getEntity", "postProcessEntity", "postProcessEntities" ) );
+
+    /**
+     * Returns the classes which the response of the given GET handler method
+     * depends on, used for computing validators for conditional requests.
+     * Responses with nested objects and responses of controllers which
+     * customize entity loading depend on all classes. Returns null if the
+     * current user cannot read objects of this type.
+     *
+     * @param request the request.
+     * @param handlerMethod the handler method declared by this class.
+     * @return a set of classes, or null.
+     */
+    public Set<Class<?>> getValidatorClasses( HttpServletRequest request, Method handlerMethod )
+    {
+        if ( !aclService.canRead( currentUserService.getCurrentUser(), getEntityClass() ) )
+        {
+            return null;
+        }
+
+        String[] fields = request.getParameterValues( "fields" );
+
+        boolean nested = !"getObjectList".equals( handlerMethod.getName() ) && !"getObject".equals( handlerMethod.getName() ) ||
+            ( fields != null && Arrays.stream( fields ).anyMatch( field -> field.contains( "[" ) ) );
+
+        if ( nested || isCustomized() )
+        {
+            return Collections.singleton( Object.class );
+        }
+
+        Set<Class<?>> classes = new HashSet<>();
+        getSchema().getReferences().forEach( classes::add );
+        classes.add( getEntityClass() );
+        classes.add( UserGroup.class );
+        classes.add( UserAuthorityGroup.class );
+        classes.add( UserSetting.class );
+        classes.add( Translation.class );
+
+        return classes;
+    }
+
+    /**
+     * Indicates whether this controller overrides any of the entity loading
+     * or processing methods.
+     */
+    private boolean isCustomized()
+    {
+        if ( customized == null )
+        {
+            boolean overridden = false;
+
+            for ( Class<?> clazz = getClass(); clazz != AbstractCrudController.class; clazz = clazz.getSuperclass() )
+            {
+                overridden |= Arrays.stream( clazz.getDeclaredMethods() ).anyMatch( method -> ENTITY_HOOK_METHODS.contains( method.getName() ) );
+            }
+
+            customized = overridden;
+        }
+
+        return customized;
+    }
 }
@@ -28,6 +28,7 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.commons.util.StreamUtils;
 import org.hisp.dhis.dxf2.common.IdSchemes;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.datavalueset.DataExportParams;
@@ -139,6 +140,8 @@ public class DataValueSetController
     public void postDxf2DataValueSet( ImportOptions importOptions,
         HttpServletResponse response, InputStream in, Model model ) throws IOException
     {
+        in = StreamUtils.wrapAndCheckCompressionFormat( in );
+
         ImportSummary summary = dataValueSetService.saveDataValueSet( in, importOptions );
 
         response.setContentType( CONTENT_TYPE_XML );
@@ -150,6 +153,8 @@ public class DataValueSetController
     public void postJsonDataValueSet( ImportOptions importOptions,
         HttpServletResponse response, InputStream in, Model model ) throws IOException
     {
+        in = StreamUtils.wrapAndCheckCompressionFormat( in );
+
         ImportSummary summary = dataValueSetService.saveDataValueSetJson( in, importOptions );
 
         response.setContentType( CONTENT_TYPE_JSON );
@@ -161,6 +166,8 @@ public class DataValueSetController
     public void postCsvDataValueSet( ImportOptions importOptions,
         HttpServletResponse response, InputStream in, Model model ) throws IOException
     {
+        in = StreamUtils.wrapAndCheckCompressionFormat( in );
+
         ImportSummary summary = dataValueSetService.saveDataValueSetCsv( in, importOptions );
 
         response.setContentType( CONTENT_TYPE_XML );
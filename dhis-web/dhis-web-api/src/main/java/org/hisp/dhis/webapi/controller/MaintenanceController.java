@@ -28,6 +28,7 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.cache.HibernateCacheManager;
 import org.hisp.dhis.common.IdentifiableObject;
@@ -80,6 +81,9 @@ public class MaintenanceController
     @Autowired
     private PartitionManager partitionManager;
 
+    @Autowired
+    private AnalyticsCache analyticsCache;
+
     @Autowired
     private SchemaValidator schemaValidator;
 
@@ -146,6 +150,22 @@ public class MaintenanceController
     {
         cacheManager.clearCache();
         partitionManager.clearCaches();
+        analyticsCache.invalidateAll();
+    }
+
+    @RequestMapping( value = "/analyticsCache", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public void getAnalyticsCacheStatistics( HttpServletResponse response ) throws IOException
+    {
+        response.setContentType( MediaType.APPLICATION_JSON_VALUE );
+        renderService.toJson( response.getOutputStream(), analyticsCache.getStatistics() );
+    }
+
+    @RequestMapping( value = "/analyticsCache", method = { RequestMethod.PUT, RequestMethod.POST } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public void clearAnalyticsCache()
+    {
+        analyticsCache.invalidateAll();
     }
 
     @RequestMapping( value = "/metadataValidation", method = { RequestMethod.PUT, RequestMethod.POST } )
@@ -84,12 +84,14 @@ public class ResourceTableController
         @RequestParam( required = false ) boolean skipAggregate,
         @RequestParam( required = false ) boolean skipEvents,
         @RequestParam( required = false ) Integer lastYears,
+        @RequestParam( required = false ) boolean incremental,
         HttpServletResponse response, HttpServletRequest request )
     {
         analyticsTableTask.setSkipResourceTables( skipResourceTables );
         analyticsTableTask.setSkipAggregate( skipAggregate );
         analyticsTableTask.setSkipEvents( skipEvents );
         analyticsTableTask.setLastYears( lastYears );
+        analyticsTableTask.setIncremental( incremental );
         analyticsTableTask.setTaskId( new TaskId( TaskCategory.ANALYTICSTABLE_UPDATE, currentUserService.getCurrentUser() ) );
 
         scheduler.executeTask( analyticsTableTask );
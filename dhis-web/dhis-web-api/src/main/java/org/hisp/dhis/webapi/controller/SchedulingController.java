@@ -58,6 +58,7 @@ public class SchedulingController
     private static final String STRATEGY_ALL_DAILY = "allDaily";
     private static final String STRATEGY_ALL_15_MIN = "allEvery15Min";
     private static final String STRATEGY_LAST_3_YEARS_DAILY = "last3YearsDaily";
+    private static final String STRATEGY_INCREMENTAL_HOURLY = "incrementalHourly";
     private static final String STRATEGY_ENABLED = "enabled";
 
     @Autowired
@@ -101,6 +102,10 @@ public class SchedulingController
         {
             cronKeyMap.putValue( CRON_DAILY_0AM, TASK_ANALYTICS_LAST_3_YEARS );
         }
+        else if ( STRATEGY_INCREMENTAL_HOURLY.equals( strategy.getAnalyticsStrategy() ) )
+        {
+            cronKeyMap.putValue( CRON_HOURLY, TASK_ANALYTICS_INCREMENTAL );
+        }
 
         // -------------------------------------------------------------
         // Data mart
@@ -32,6 +32,7 @@ import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.render.RenderService;
 import org.hisp.dhis.dxf2.synch.AvailabilityStatus;
 import org.hisp.dhis.dxf2.synch.SynchronizationManager;
+import org.hisp.dhis.dxf2.synch.SynchronizationMetrics;
 import org.hisp.dhis.setting.Setting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -76,6 +77,13 @@ public class SynchronizationController
         renderService.toJson( response.getOutputStream(), summary );
     }
 
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_EXPORT_DATA')" )
+    @RequestMapping( value = "/dataPush/metrics", method = RequestMethod.GET, produces = "application/json" )
+    public @ResponseBody SynchronizationMetrics getDataPushMetrics()
+    {
+        return synchronizationManager.getLastDataPushMetrics();
+    }
+
     @PreAuthorize( "hasRole('ALL')" )
     @RequestMapping( value = "/metadataPull", method = RequestMethod.POST )
     public void importMetaData( @RequestBody String url, HttpServletResponse response )
@@ -74,6 +74,11 @@ public class SystemController
 {
     public static final String RESOURCE_PATH = "/system";
 
+    /**
+     * Maximum time in milliseconds to wait for task notifications.
+     */
+    private static final long MAX_TASK_WAIT = 30000;
+
     @Autowired
     private CurrentUserService currentUserService;
 
@@ -132,9 +137,18 @@ public class SystemController
         return rootNode;
     }
 
+    /**
+     * Returns notifications for the given task category, newest first. Clients
+     * can read from a cursor by passing the highest sequence number seen so 
+     * far as lastSequence, and wait for new notifications instead of polling
+     * by passing the number of milliseconds to wait as wait.
+     */
     @RequestMapping( value = "/tasks/{category}", method = RequestMethod.GET, produces = { "*/*", "application/json" } )
     public void getTaskJson( @PathVariable( "category" ) String category,
-        @RequestParam( required = false ) String lastId, HttpServletResponse response ) throws IOException
+        @RequestParam( required = false ) String lastId, 
+        @RequestParam( required = false ) Long lastSequence,
+        @RequestParam( required = false, defaultValue = "0" ) long wait, 
+        HttpServletResponse response ) throws IOException, InterruptedException
     {
         List<Notification> notifications = new ArrayList<>();
 
@@ -144,7 +158,14 @@ public class SystemController
 
             TaskId taskId = new TaskId( taskCategory, currentUserService.getCurrentUser() );
 
-            notifications = notifier.getNotifications( taskId, lastId );
+            if ( lastSequence != null )
+            {
+                notifications = notifier.awaitNotifications( taskId, lastSequence, Math.min( wait, MAX_TASK_WAIT ) );
+            }
+            else
+            {
+                notifications = notifier.getNotifications( taskId, lastId );
+            }
         }
 
         renderService.toJson( response.getOutputStream(), notifications );
@@ -0,0 +1,160 @@
+package org.hisp.dhis.webapi.mvc;
+
+/*
+ * Copyright (c) 2004-2015, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hisp.dhis.common.WatermarkService;
+import org.hisp.dhis.dataapproval.DataApproval;
+import org.hisp.dhis.schema.Schema;
+import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.setting.Setting;
+import org.hisp.dhis.setting.SystemSetting;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.webapi.controller.AbstractCrudController;
+import org.hisp.dhis.webapi.controller.AnalyticsController;
+import org.hisp.dhis.webapi.utils.ContextUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Interceptor which answers conditional GET requests for meta-data and
+ * analytics resources with 304 Not Modified before the handler is invoked.
+ * The ETag is computed from the watermarks of the classes the response
+ * depends on, the analytics table generation time for analytics, and the
+ * current user, URL and Accept header of the request.
+ */
+public class ConditionalRequestInterceptor
+    extends HandlerInterceptorAdapter
+{
+    private static final String SEPARATOR = "-";
+
+    @Autowired
+    private WatermarkService watermarkService;
+
+    @Autowired
+    private SchemaService schemaService;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    private Set<Class<?>> analyticsClasses;
+
+    @Override
+    public boolean preHandle( HttpServletRequest request, HttpServletResponse response, Object handler )
+    {
+        if ( !"GET".equals( request.getMethod() ) || !(handler instanceof HandlerMethod) )
+        {
+            return true;
+        }
+
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        Object bean = handlerMethod.getBean();
+
+        String validator = null;
+
+        if ( bean instanceof AbstractCrudController && AbstractCrudController.class.equals( handlerMethod.getMethod().getDeclaringClass() ) )
+        {
+            Set<Class<?>> classes = ((AbstractCrudController<?>) bean).getValidatorClasses( request, handlerMethod.getMethod() );
+
+            validator = classes != null ? String.valueOf( watermarkService.getWatermark( classes ) ) : null;
+        }
+        else if ( bean instanceof AnalyticsController )
+        {
+            validator = watermarkService.getWatermark( getAnalyticsClasses() ) + SEPARATOR +
+                getTime( Setting.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) + SEPARATOR +
+                getTime( Setting.LAST_SUCCESSFUL_ANALYTICS_TABLES_DATA_UPDATE );
+        }
+
+        if ( validator == null )
+        {
+            return true;
+        }
+
+        return !ContextUtils.isNotModified( request, response, getTag( request, validator ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a tag for the given validator which is specific to the current
+     * user and the URL and representation of the request.
+     */
+    private String getTag( HttpServletRequest request, String validator )
+    {
+        User user = currentUserService.getCurrentUser();
+
+        String key = validator + SEPARATOR + ( user != null ? user.getUid() : null ) + SEPARATOR +
+            request.getRequestURL() + "?" + request.getQueryString() + SEPARATOR + request.getHeader( "Accept" );
+
+        return Hashing.md5().hashString( key, StandardCharsets.UTF_8 ).toString();
+    }
+
+    /**
+     * Analytics responses include meta-data and depend on data approvals and
+     * system settings.
+     */
+    private Set<Class<?>> getAnalyticsClasses()
+    {
+        if ( analyticsClasses == null )
+        {
+            Set<Class<?>> classes = schemaService.getMetadataSchemas().stream().map( Schema::getKlass ).collect( Collectors.toCollection( HashSet::new ) );
+            classes.add( DataApproval.class );
+            classes.add( SystemSetting.class );
+
+            analyticsClasses = classes;
+        }
+
+        return analyticsClasses;
+    }
+
+    private long getTime( Setting setting )
+    {
+        Date date = (Date) systemSettingManager.getSystemSetting( setting );
+
+        return date != null ? date.getTime() : 0;
+    }
+}
@@ -62,6 +62,9 @@ import org.springframework.web.filter.ShallowEtagHeaderFilter;
  *
  *  The example exactly matches and excludes any request to the '/api/dataValues' 
  *  and '/api/dataValues/files' from the filter.
+ *
+ *  Responses which already have an ETag header, typically set by controllers
+ *  which compute their own validators, are left untouched.
  * 
  * @author Lars Helge Overland
  * @author Halvdan Hoem Grelland
@@ -71,6 +74,8 @@ public class ExcludableShallowEtagHeaderFilter
 {
     private static final String EXCLUDE_URI_REGEX_NAME = "excludeUriRegex";
 
+    private static final String HEADER_ETAG = "ETag";
+
     private Pattern pattern = null;
 
     @Override
@@ -102,4 +107,10 @@ public class ExcludableShallowEtagHeaderFilter
             super.doFilterInternal( request, response, filterChain ); // Invoke this filter
         }
     }
+
+    @Override
+    protected boolean isEligibleForEtag( HttpServletRequest request, HttpServletResponse response, int responseStatusCode, byte[] responseBody )
+    {
+        return !response.containsHeader( HEADER_ETAG ) && super.isEligibleForEtag( request, response, responseStatusCode, responseBody );
+    }
 }
@@ -28,6 +28,7 @@ package org.hisp.dhis.dataadmin.action.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.cache.HibernateCacheManager;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,6 +50,9 @@ public class ClearCacheAction
 
     @Autowired
     private PartitionManager partitionManager;    
+
+    @Autowired
+    private AnalyticsCache analyticsCache;
     
     // -------------------------------------------------------------------------
     // Action implementation
@@ -59,6 +63,7 @@ public class ClearCacheAction
     {
         cacheManager.clearCache();
         partitionManager.clearCaches();
+        analyticsCache.invalidateAll();
         
         return SUCCESS;
     }
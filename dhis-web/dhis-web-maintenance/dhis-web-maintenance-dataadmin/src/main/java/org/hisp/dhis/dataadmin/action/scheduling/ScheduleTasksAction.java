@@ -29,6 +29,7 @@ package org.hisp.dhis.dataadmin.action.scheduling;
  */
 
 import static org.hisp.dhis.scheduling.SchedulingManager.TASK_ANALYTICS_ALL;
+import static org.hisp.dhis.scheduling.SchedulingManager.TASK_ANALYTICS_INCREMENTAL;
 import static org.hisp.dhis.scheduling.SchedulingManager.TASK_ANALYTICS_LAST_3_YEARS;
 import static org.hisp.dhis.scheduling.SchedulingManager.TASK_DATA_SYNCH;
 import static org.hisp.dhis.scheduling.SchedulingManager.TASK_MONITORING_LAST_DAY;
@@ -37,6 +38,7 @@ import static org.hisp.dhis.scheduling.SchedulingManager.TASK_RESOURCE_TABLE_15_
 import static org.hisp.dhis.system.scheduling.Scheduler.CRON_DAILY_0AM;
 import static org.hisp.dhis.system.scheduling.Scheduler.CRON_EVERY_15MIN;
 import static org.hisp.dhis.system.scheduling.Scheduler.CRON_EVERY_MIN;
+import static org.hisp.dhis.system.scheduling.Scheduler.CRON_HOURLY;
 import static org.hisp.dhis.system.scheduling.Scheduler.STATUS_RUNNING;
 
 import java.util.Collection;
@@ -66,6 +68,7 @@ public class ScheduleTasksAction
     private static final String STRATEGY_ALL_DAILY = "allDaily";
     private static final String STRATEGY_ALL_15_MIN = "allEvery15Min";
     private static final String STRATEGY_LAST_3_YEARS_DAILY = "last3YearsDaily";
+    private static final String STRATEGY_INCREMENTAL_HOURLY = "incrementalHourly";
     private static final String STRATEGY_ENABLED = "enabled";
 
     private static final Log log = LogFactory.getLog( ScheduleTasksAction.class );
@@ -240,6 +243,10 @@ public class ScheduleTasksAction
                 {
                     cronKeyMap.putValue( CRON_DAILY_0AM, TASK_ANALYTICS_LAST_3_YEARS );
                 }
+                else if ( STRATEGY_INCREMENTAL_HOURLY.equals( analyticsStrategy ) )
+                {
+                    cronKeyMap.putValue( CRON_HOURLY, TASK_ANALYTICS_INCREMENTAL );
+                }
 
                 // -------------------------------------------------------------
                 // Monitoring
@@ -291,6 +298,10 @@ public class ScheduleTasksAction
             {
                 analyticsStrategy = STRATEGY_LAST_3_YEARS_DAILY;
             }
+            else if ( keys.contains( TASK_ANALYTICS_INCREMENTAL ) )
+            {
+                analyticsStrategy = STRATEGY_INCREMENTAL_HOURLY;
+            }
 
             // -------------------------------------------------------------
             // Monitoring